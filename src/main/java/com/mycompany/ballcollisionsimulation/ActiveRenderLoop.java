@@ -0,0 +1,204 @@
+/*
+ * Active Render Loop - Paced render thread for BufferStrategy rendering
+ * Replaces Swing Timer repaints with frames presented at a measured target rate
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Active Render Loop - Drives physics and presentation from a dedicated thread with frame pacing.
+ * The thread owns the timing; each frame's physics and drawing run as one task on the event
+ * dispatch thread so that the model keeps its single-threaded access from mouse and menu events.
+ * Physics advances at the fixed rate of the shared clock, and frames are interpolated in between.
+ * Each start gets a new thread, which runs only while it is still the loop's current thread, so
+ * a thread that a stop on the event dispatch thread did not wait for cannot outlive a restart.
+ * @author Sentinail
+ */
+public class ActiveRenderLoop implements Runnable {
+    public static final int DEFAULT_TARGET_FPS = 60;
+    private static final int MAX_FRAME_SKIP = 5; // Late frames tolerated before resyncing the pacing
+    private static final long SPIN_THRESHOLD_NANOS = 1_000_000L; // Busy-wait the last millisecond
+    private static final long STATUS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final GameCanvas canvas;
+    private final GamePanel gamePanel;
+    private final FixedStepClock physicsClock;
+    private final DoubleConsumer physicsStep;
+    private final BooleanSupplier physicsHeld; // True while paused; frames are then drawn without blending
+    private final Consumer<String> failureLog; // Told on the event dispatch thread when frames fail
+    private volatile int targetFps = DEFAULT_TARGET_FPS;
+    private volatile Thread thread; // The render thread of the current run, null while stopped
+
+    // Statistics, only touched on the event dispatch thread
+    private long windowStart;
+    private int windowFrames;
+    private int windowSkipped;
+    private long windowPresentNanos;
+    private long totalSkipped;
+    private double measuredFps;
+    private double averagePresentMillis;
+
+    public ActiveRenderLoop(GameCanvas canvas, GamePanel gamePanel, FixedStepClock physicsClock,
+                            DoubleConsumer physicsStep, BooleanSupplier physicsHeld, Consumer<String> failureLog) {
+        this.canvas = canvas;
+        this.gamePanel = gamePanel;
+        this.physicsClock = physicsClock;
+        this.physicsStep = physicsStep;
+        this.physicsHeld = physicsHeld;
+        this.failureLog = failureLog;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        windowStart = System.nanoTime();
+        Thread renderThread = new Thread(this, "active-render-loop");
+        renderThread.setDaemon(true);
+        thread = renderThread;
+        renderThread.start();
+    }
+
+    /**
+     * Stop the loop and wait for the render thread to finish its current frame. On the event
+     * dispatch thread it does not wait, as the frame may be waiting for that thread; the old
+     * thread then ends on its own without drawing again.
+     */
+    public synchronized void stop() {
+        Thread renderThread = thread;
+        thread = null;
+        if (renderThread != null) {
+            renderThread.interrupt();
+            if (!EventQueue.isDispatchThread()) {
+                try {
+                    renderThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        gamePanel.setRenderStatus(null);
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    public void setTargetFps(int fps) {
+        this.targetFps = Math.max(1, fps);
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    public double getMeasuredFps() {
+        return measuredFps;
+    }
+
+    public double getAveragePresentMillis() {
+        return averagePresentMillis;
+    }
+
+    public long getSkippedFrames() {
+        return totalSkipped;
+    }
+
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        long nextFrame = System.nanoTime();
+        boolean failing = false;
+        while (thread == self) {
+            long period = 1_000_000_000L / targetFps;
+            waitUntil(nextFrame, self);
+            if (thread != self) {
+                break;
+            }
+
+            // Frames we are late for are not drawn; the physics clock catches up on its own
+            long lateness = System.nanoTime() - nextFrame;
+            final int skipped = (int) Math.min(MAX_FRAME_SKIP, Math.max(0, lateness / period));
+            try {
+                EventQueue.invokeAndWait(() -> runFrame(skipped, self));
+                failing = false;
+            } catch (InterruptedException e) {
+                break;
+            } catch (InvocationTargetException e) {
+                if (!failing) {
+                    // Reported once until a frame succeeds again, not on every frame
+                    failing = true;
+                    Throwable cause = e.getCause();
+                    String message = "Active render frame failed: " + cause.getClass().getSimpleName()
+                        + (cause.getMessage() != null ? ": " + cause.getMessage() : "");
+                    EventQueue.invokeLater(() -> failureLog.accept(message));
+                }
+            }
+
+            nextFrame += (1 + skipped) * period;
+            if (System.nanoTime() - nextFrame > MAX_FRAME_SKIP * period) {
+                nextFrame = System.nanoTime(); // Too far behind; resync instead of bursting
+            }
+        }
+    }
+
+    private void runFrame(int skipped, Thread renderThread) {
+        if (thread != renderThread) {
+            return;
+        }
+        long now = System.nanoTime();
+        gamePanel.getPerformanceMonitor().recordFrame(now);
+        int steps = physicsClock.advance(now);
+        for (int i = 0; i < steps; i++) {
+            physicsStep.accept(physicsClock.getStepSeconds());
+        }
+        gamePanel.setInterpolationAlpha(physicsHeld.getAsBoolean() ? 1 : physicsClock.getAlpha());
+        long presentNanos = canvas.renderAndPresent();
+        if (presentNanos >= 0) {
+            recordFrame(skipped, presentNanos);
+        }
+    }
+
+    private void recordFrame(int skipped, long presentNanos) {
+        windowFrames++;
+        windowSkipped += skipped;
+        windowPresentNanos += presentNanos;
+        totalSkipped += skipped;
+
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= STATUS_INTERVAL_NANOS) {
+            measuredFps = windowFrames * 1_000_000_000.0 / elapsed;
+            averagePresentMillis = windowPresentNanos / 1_000_000.0 / windowFrames;
+            gamePanel.setRenderStatus(String.format(
+                "Active render: %.1f / %d fps | physics %d Hz | present %.2f ms | skipped %d (total %d)",
+                measuredFps, targetFps, physicsClock.getPhysicsRate(), averagePresentMillis,
+                windowSkipped, totalSkipped));
+            windowStart = now;
+            windowFrames = 0;
+            windowSkipped = 0;
+            windowPresentNanos = 0;
+        }
+    }
+
+    /**
+     * Sleep until shortly before the deadline, then spin for the remainder
+     */
+    private void waitUntil(long deadline, Thread self) {
+        long remaining;
+        while (thread == self && (remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
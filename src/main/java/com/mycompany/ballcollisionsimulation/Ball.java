@@ -14,6 +14,7 @@ import java.util.Random;
  */
 public class Ball {
     private double x, y;
+    private double prevX, prevY; // Position before the last physics step, for render interpolation
     private double vx, vy; // velocity
     private int radius;
     private Color color;
@@ -21,10 +22,14 @@ public class Ball {
     private boolean isDragged;
     private double dragOffsetX, dragOffsetY;
     private static final Random random = new Random();
+    private static final BasicStroke NORMAL_BORDER = new BasicStroke(1);
+    private static final BasicStroke DRAGGED_BORDER = new BasicStroke(3);
     
     public Ball(double x, double y, int radius) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.radius = radius;
         this.vx = (random.nextDouble() - 0.5) * 200;
         this.vy = (random.nextDouble() - 0.5) * 200;
@@ -39,6 +44,8 @@ public class Ball {
     public Ball(double x, double y, double vx, double vy, int radius, Color color) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.vx = vx;
         this.vy = vy;
         this.radius = radius;
@@ -47,10 +54,20 @@ public class Ball {
         this.isDragged = false;
     }
     
+    /**
+     * Remember the current position as the start of the next physics step
+     */
+    public void savePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+    
     /**
      * Update ball position and apply physics
+     * @param wallRestitution Fraction of the speed kept when bouncing off a wall
      */
-    public void update(int panelWidth, int panelHeight, boolean gravityEnabled, double gravityX, double gravityY, double deltaTime) {
+    public void update(int worldWidth, int worldHeight, boolean gravityEnabled, double gravityX, double gravityY,
+                       double deltaTime, double wallRestitution) {
         if (!isDragged) {
             // Apply gravity if enabled
             if (gravityEnabled) {
@@ -63,21 +80,23 @@ public class Ball {
             y += vy * deltaTime;
             
             // Bounce off walls with energy conservation
-            if (x - radius <= 0 || x + radius >= panelWidth) {
-                vx = -vx * 0.8; // Energy loss on bounce
-                x = Math.max(radius, Math.min((double)panelWidth - radius, x));
+            if (x - radius <= 0 || x + radius >= worldWidth) {
+                vx = -vx * wallRestitution; // Energy loss on bounce
+                x = Math.max(radius, Math.min((double)worldWidth - radius, x));
             }
-            if (y - radius <= 0 || y + radius >= panelHeight) {
-                vy = -vy * 0.8; // Energy loss on bounce
-                y = Math.max(radius, Math.min((double)panelHeight - radius, y));
+            if (y - radius <= 0 || y + radius >= worldHeight) {
+                vy = -vy * wallRestitution; // Energy loss on bounce
+                y = Math.max(radius, Math.min((double)worldHeight - radius, y));
             }
         }
     }
     
     /**
      * Apply Hooke's Law for dragging effect
+     * @param damping Fraction of the velocity kept each step, to prevent oscillation
      */
-    public void applyDragForce(double mouseX, double mouseY, double springConstant, double deltaTime, int panelWidth, int panelHeight) {
+    public void applyDragForce(double mouseX, double mouseY, double springConstant, double deltaTime, int worldWidth,
+                               int worldHeight, double damping) {
         if (isDragged) {
             // Calculate spring force using Hooke's Law: F = -k * displacement
             double targetX = mouseX - dragOffsetX;
@@ -98,14 +117,14 @@ public class Ball {
             y += vy * deltaTime;
             
             // Apply damping to prevent oscillation
-            vx *= 0.9;
-            vy *= 0.9;
+            vx *= damping;
+            vy *= damping;
 
             // Boundary Constraints
             double minX = radius;
-            double maxX = panelWidth - radius;
+            double maxX = worldWidth - radius;
             double minY = radius;
-            double maxY = panelHeight - radius;
+            double maxY = worldHeight - radius;
 
             // Boundary rebound (yo-yo effect)
             if(x <= minX || x >= maxX){
@@ -221,19 +240,29 @@ public class Ball {
     }
     
     /**
-     * Render the ball
+     * Render the ball at its current position
      */
     public void paint(Graphics2D g2d) {
+        paint(g2d, 1.0);
+    }
+    
+    /**
+     * Render the ball between its previous and current position
+     * @param alpha 0 draws the previous physics state, 1 the current one
+     */
+    public void paint(Graphics2D g2d, double alpha) {
+        int left = (int)(getRenderX(alpha) - radius);
+        int top = (int)(getRenderY(alpha) - radius);
         g2d.setColor(color);
-        g2d.fillOval((int)(x - radius), (int)(y - radius), radius * 2, radius * 2);
+        g2d.fillOval(left, top, radius * 2, radius * 2);
         
         // Draw border
         g2d.setColor(isDragged ? Color.RED : Color.BLACK);
-        g2d.setStroke(new BasicStroke(isDragged ? 3 : 1));
-        g2d.drawOval((int)(x - radius), (int)(y - radius), radius * 2, radius * 2);
+        g2d.setStroke(isDragged ? DRAGGED_BORDER : NORMAL_BORDER);
+        g2d.drawOval(left, top, radius * 2, radius * 2);
         
         // Reset stroke
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(NORMAL_BORDER);
     }
     
     // Getters
@@ -245,6 +274,17 @@ public class Ball {
         return y; 
     }
     
+    /**
+     * Interpolated position between the previous and current physics state
+     */
+    public double getRenderX(double alpha) {
+        return alpha >= 1.0 ? x : prevX + (x - prevX) * alpha;
+    }
+    
+    public double getRenderY(double alpha) {
+        return alpha >= 1.0 ? y : prevY + (y - prevY) * alpha;
+    }
+    
     public int getRadius() { 
         return radius; 
     }
@@ -269,9 +309,14 @@ public class Ball {
         return color;
     }
 
+    /**
+     * Place the ball without drawing the jump as motion
+     */
     public void setPosition(double x, double y) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
     }
 
     public void moveBy(double dx, double dy) {
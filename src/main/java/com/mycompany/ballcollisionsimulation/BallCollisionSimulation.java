@@ -9,8 +9,12 @@ package com.mycompany.ballcollisionsimulation;
 
 import javax.swing.*;
 import javax.swing.WindowConstants;
+import javax.management.JMException;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Main application class for ball collision simulation
@@ -21,6 +25,26 @@ public class BallCollisionSimulation extends JFrame {
     private GamePanel gamePanel;
     private LogPanel logPanel;
     private ControlPanel controlPanel;
+    private Timer gameTimer;
+    private final FixedStepClock physicsClock = new FixedStepClock();
+    private GameCanvas gameCanvas;
+    private ActiveRenderLoop activeRenderLoop;
+    private SimulationMetrics simulationMetrics;
+    private SwingWorker<?, ?> fileWorker; // Save or load running in the background
+    private SwingWorker<?, ?> autosaveWorker;
+    private static final int AUTOSAVE_INTERVAL_MS = 60_000;
+    private static final int CANCEL_CHECK_INTERVAL_MS = 100;
+    private static final String AUTOSAVE_DIRECTORY = ".ballcollisionsimulation";
+    private static final String AUTOSAVE_FILE_NAME = "autosave.simb";
+    private final Timer autosaveTimer = new Timer(AUTOSAVE_INTERVAL_MS, e -> autosave());
+    private TrajectoryRecorder trajectoryRecorder;
+    private TrajectoryPlayer trajectoryPlayer;
+    private SharedStateExport sharedStateExport;
+    private PlaybackBar playbackBar;
+    private java.util.List<Ball> playbackSavedBalls; // The live scene, shown again when playback closes
+    private final RewindBuffer rewindBuffer = new RewindBuffer();
+    private boolean rewindEnabled; // Off until turned on, so no rewind memory is used by default
+    private boolean simulationPaused;
     
     public BallCollisionSimulation() {
         initializeApplication();
@@ -52,6 +76,14 @@ public class BallCollisionSimulation extends JFrame {
         
         // Set up observer pattern - LogPanel observes GameState
         gameState.addBallEventListener(logPanel);
+        
+        // Publish counters and tunables over JMX for JConsole and monitoring tools
+        simulationMetrics = new SimulationMetrics(gameState);
+        try {
+            simulationMetrics.register();
+        } catch (JMException e) {
+            System.err.println("JMX metrics unavailable: " + e.getMessage());
+        }
     }
     
     /**
@@ -108,6 +140,31 @@ public class BallCollisionSimulation extends JFrame {
             }
         });
         
+        // 'P' key to pause or resume; resuming after a rewind continues from the shown step
+        inputMap.put(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_P, 0), "togglePause");
+        actionMap.put("togglePause", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                setSimulationPaused(!simulationPaused);
+            }
+        });
+        
+        // Left and right arrow keys to step backward and forward through the rewind buffer
+        inputMap.put(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_LEFT, 0), "stepBackward");
+        actionMap.put("stepBackward", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                stepBackward();
+            }
+        });
+        inputMap.put(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_RIGHT, 0), "stepForward");
+        actionMap.put("stepForward", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                stepForward();
+            }
+        });
+        
         // Number keys for quick ball addition (1-5 balls)
         for (int i = 1; i <= 5; i++) {
             final int ballCount = i;
@@ -124,16 +181,362 @@ public class BallCollisionSimulation extends JFrame {
     }
     
     /**
-     * Start the game loop using Swing Timer
+     * Start the game loop using Swing Timer (passive rendering)
      */
     private void startGameLoop() {
-        Timer gameTimer = new Timer(16, e -> { // ~60 FPS
-            gameState.updateBalls(gamePanel.getWidth(), gamePanel.getHeight(), 16.0 / 1000.0); // Delta time in seconds
-            gamePanel.repaint();
+        gameTimer = new Timer(16, e -> { // ~60 FPS
+            // Physics runs at the clock's fixed rate; the frame is drawn between the last two steps
+            long now = System.nanoTime();
+            gamePanel.getPerformanceMonitor().recordFrame(now);
+            int steps = physicsClock.advance(now);
+            for (int i = 0; i < steps; i++) {
+                stepSimulation(physicsClock.getStepSeconds());
+            }
+            // A paused frame is drawn exactly as the last step left it
+            gamePanel.setInterpolationAlpha(isPhysicsHeld() ? 1 : physicsClock.getAlpha());
+            gamePanel.requestFrame();
         });
         gameTimer.start();
     }
     
+    /**
+     * Advance the physics by one step, bounded by the surface currently showing the simulation
+     */
+    private void stepSimulation(double deltaTime) {
+        if (trajectoryPlayer != null) {
+            // Playback replaces the physics; recorded frames are shown instead of simulated ones
+            trajectoryPlayer.advance(deltaTime, gameState);
+            playbackBar.refresh();
+            return;
+        }
+        if (!simulationPaused) {
+            runPhysicsStep(deltaTime);
+        }
+    }
+    
+    private void runPhysicsStep(double deltaTime) {
+        Component surface = isActiveRendering() ? gameCanvas : gamePanel;
+        gameState.updateBalls(surface.getWidth(), surface.getHeight(), deltaTime);
+        gamePanel.getPerformanceMonitor().recordStep(gameState);
+        simulationMetrics.recordStep();
+        if (trajectoryRecorder != null) {
+            recordStep(deltaTime);
+        }
+        if (sharedStateExport != null) {
+            shareStep();
+        }
+        if (rewindEnabled) {
+            rewindBuffer.capture(gameState, deltaTime);
+        }
+    }
+    
+    /**
+     * Pause or resume the physics. Resuming while an earlier step is shown continues the
+     * simulation from that step and discards the steps that followed it.
+     */
+    public void setSimulationPaused(boolean paused) {
+        if (!paused) {
+            rewindBuffer.resume(gameState);
+        }
+        simulationPaused = paused;
+        holdShownFrame();
+        updateRewindStatus();
+    }
+    
+    /**
+     * Draw the current state as it is, without blending in the step before it. Used when
+     * pausing and after each rewind step, so a paused frame does not cycle between two
+     * positions; resetting the clock also keeps the paused time from turning into steps.
+     */
+    private void holdShownFrame() {
+        for (Ball ball : gameState.getBalls()) {
+            ball.savePreviousPosition();
+        }
+        physicsClock.reset();
+        gamePanel.setInterpolationAlpha(1);
+    }
+    
+    public boolean isSimulationPaused() {
+        return simulationPaused;
+    }
+    
+    /**
+     * Whether the physics is not stepping: paused, or replaced by trajectory playback
+     */
+    private boolean isPhysicsHeld() {
+        return simulationPaused || trajectoryPlayer != null;
+    }
+    
+    /**
+     * Pause and show the previous step from the rewind buffer
+     */
+    public void stepBackward() {
+        if (trajectoryPlayer != null || !rewindEnabled) {
+            return;
+        }
+        simulationPaused = true;
+        rewindBuffer.stepBack(gameState);
+        holdShownFrame();
+        updateRewindStatus();
+    }
+    
+    /**
+     * Pause and show the next step; past the newest buffered step the physics runs one step
+     */
+    public void stepForward() {
+        if (trajectoryPlayer != null) {
+            return;
+        }
+        simulationPaused = true;
+        if (!rewindBuffer.stepForward(gameState)) {
+            runPhysicsStep(physicsClock.getStepSeconds());
+        }
+        holdShownFrame();
+        updateRewindStatus();
+    }
+    
+    private void updateRewindStatus() {
+        if (!simulationPaused) {
+            gamePanel.setRewindStatus(null);
+        } else if (rewindBuffer.isRewound()) {
+            gamePanel.setRewindStatus(String.format(
+                "Rewound %.2f s to step %d | P resumes from here | buffer %.1f s, %.1f of %d MB",
+                rewindBuffer.getRewoundSeconds(), rewindBuffer.getShownStep(), rewindBuffer.getBufferedSeconds(),
+                rewindBuffer.getUsedBytes() / (1024.0 * 1024.0), rewindBuffer.getMemoryMegabytes()));
+        } else if (rewindEnabled) {
+            gamePanel.setRewindStatus(String.format("Paused at step %d | P resumes, Left/Right step backward and forward",
+                gameState.getStepCount()));
+        } else {
+            gamePanel.setRewindStatus(String.format(
+                "Paused at step %d | P resumes, Right steps forward | turn on Rewind to step backward",
+                gameState.getStepCount()));
+        }
+    }
+    
+    /**
+     * Let the user generate many non-overlapping balls at once, e.g. for stress scenes
+     */
+    public void showGenerateDialog() {
+        JSpinner countSpinner = new JSpinner(new SpinnerNumberModel(10000, 1, 10000000, 1000));
+        JComboBox<SceneGenerator.Distribution> distributionBox = new JComboBox<>(SceneGenerator.Distribution.values());
+        JSpinner minRadiusSpinner = new JSpinner(new SpinnerNumberModel(3, 1, 500, 1));
+        JSpinner maxRadiusSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 500, 1));
+        JSpinner seedSpinner = new JSpinner(new SpinnerNumberModel(1, 0, Integer.MAX_VALUE, 1));
+        JCheckBox clearBox = new JCheckBox("Clear existing balls first", true);
+        
+        JPanel panel = new JPanel(new GridLayout(6, 2, 5, 5));
+        panel.add(new JLabel("Number of balls:"));
+        panel.add(countSpinner);
+        panel.add(new JLabel("Placement:"));
+        panel.add(distributionBox);
+        panel.add(new JLabel("Smallest radius:"));
+        panel.add(minRadiusSpinner);
+        panel.add(new JLabel("Largest radius:"));
+        panel.add(maxRadiusSpinner);
+        panel.add(new JLabel("Seed:"));
+        panel.add(seedSpinner);
+        panel.add(clearBox);
+        panel.add(new JLabel());
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "Generate Balls",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        int count = ((Number) countSpinner.getValue()).intValue();
+        int minRadius = ((Number) minRadiusSpinner.getValue()).intValue();
+        int maxRadius = Math.max(minRadius, ((Number) maxRadiusSpinner.getValue()).intValue());
+        
+        stopPlayback();
+        setSimulationPaused(false);
+        if (clearBox.isSelected()) {
+            gameState.clearAllBalls();
+        }
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        int added;
+        try {
+            added = gameState.addBalls(count, (SceneGenerator.Distribution) distributionBox.getSelectedItem(),
+                minRadius, maxRadius, ((Number) seedSpinner.getValue()).longValue());
+        } finally {
+            setCursor(Cursor.getDefaultCursor());
+        }
+        if (added < count) {
+            JOptionPane.showMessageDialog(this,
+                String.format("Only %d of %d balls fit in the %d x %d world.%nUse View > World Size... for a larger world.",
+                    added, count, gameState.getWorldWidth(), gameState.getWorldHeight()),
+                "Generate Balls",
+                JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+    
+    /**
+     * Turn the dark pixels of a black-and-white image into merged obstacles
+     */
+    public void importObstacles() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Obstacles from Image");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Images (*.png, *.gif, *.bmp)", "png", "gif", "bmp"));
+        fileChooser.setCurrentDirectory(getSavesDirectory());
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        BufferedImage image;
+        try {
+            image = ObstacleImporter.readImage(file);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Error reading image: " + e.getMessage(),
+                "Import Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // By default one pixel is scaled so that the whole image fits the world
+        int worldWidth = gameState.getWorldWidth() > 0 ? gameState.getWorldWidth() : gamePanel.getWidth();
+        int worldHeight = gameState.getWorldHeight() > 0 ? gameState.getWorldHeight() : gamePanel.getHeight();
+        double fitScale = Math.min((double) worldWidth / image.getWidth(), (double) worldHeight / image.getHeight());
+        JSpinner scaleSpinner = new JSpinner(new SpinnerNumberModel(
+            Math.max(0.1, Math.round(fitScale * 100) / 100.0), 0.1, 1000.0, 0.5));
+        JCheckBox replaceBox = new JCheckBox("Replace existing obstacles", true);
+        
+        JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.add(new JLabel("Image size:"));
+        panel.add(new JLabel(image.getWidth() + " x " + image.getHeight() + " pixels"));
+        panel.add(new JLabel("World size of one pixel:"));
+        panel.add(scaleSpinner);
+        panel.add(replaceBox);
+        panel.add(new JLabel());
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "Import Obstacles",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        ObstacleImporter.Result imported;
+        try {
+            imported = ObstacleImporter.fromImage(image, ((Number) scaleSpinner.getValue()).doubleValue());
+            if (replaceBox.isSelected()) {
+                gameState.clearObstacles();
+            }
+            gameState.addObstacles(imported.getObstacles(), file.getName());
+        } finally {
+            setCursor(Cursor.getDefaultCursor());
+        }
+        JOptionPane.showMessageDialog(this,
+            String.format("Obstacles imported!\nFilled cells: %d\nRectangles: %d (%.1fx fewer)\nFile: %s",
+                imported.getFilledCells(), imported.getObstacles().size(),
+                imported.getObstacles().isEmpty() ? 0.0 : (double) imported.getFilledCells() / imported.getObstacles().size(),
+                file.getName()),
+            "Import Complete",
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Let the user turn the rewind buffer on or off and set how much it keeps
+     */
+    public void showRewindDialog() {
+        JCheckBox enabledBox = new JCheckBox("Keep recent steps for rewinding", rewindEnabled);
+        JSpinner secondsSpinner = new JSpinner(new SpinnerNumberModel(rewindBuffer.getMaxSeconds(), 1.0, 600.0, 1.0));
+        JSpinner memorySpinner = new JSpinner(new SpinnerNumberModel(rewindBuffer.getMemoryMegabytes(), 1, 2047, 16));
+        
+        JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.add(enabledBox);
+        panel.add(new JLabel());
+        panel.add(new JLabel("Seconds kept:"));
+        panel.add(secondsSpinner);
+        panel.add(new JLabel("Memory limit (MB):"));
+        panel.add(memorySpinner);
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "Rewind",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result == JOptionPane.OK_OPTION) {
+            rewindBuffer.resume(gameState);
+            rewindEnabled = enabledBox.isSelected();
+            rewindBuffer.setLimits(((Number) secondsSpinner.getValue()).doubleValue(),
+                ((Number) memorySpinner.getValue()).intValue());
+            if (!rewindEnabled) {
+                rewindBuffer.release();
+            }
+            updateRewindStatus();
+        }
+    }
+    
+    /**
+     * Switch between active rendering (BufferStrategy canvas driven by a render thread)
+     * and passive rendering (Swing Timer with repaint requests)
+     */
+    public void setActiveRendering(boolean enabled) {
+        if (enabled == isActiveRendering()) {
+            return;
+        }
+        physicsClock.reset();
+        if (enabled) {
+            gameTimer.stop();
+            ensureActiveRenderLoop();
+            remove(gamePanel);
+            add(gameCanvas, BorderLayout.CENTER);
+            revalidate();
+            activeRenderLoop.start();
+        } else {
+            activeRenderLoop.stop();
+            remove(gameCanvas);
+            add(gamePanel, BorderLayout.CENTER);
+            revalidate();
+            gamePanel.repaint();
+            gameTimer.start();
+        }
+    }
+    
+    private void ensureActiveRenderLoop() {
+        if (activeRenderLoop == null) {
+            gameCanvas = new GameCanvas(gamePanel);
+            activeRenderLoop = new ActiveRenderLoop(gameCanvas, gamePanel, physicsClock, this::stepSimulation,
+                this::isPhysicsHeld, message -> logSystemMessage(BallEvent.Type.RENDER_FAILED, message));
+        }
+    }
+    
+    public boolean isActiveRendering() {
+        return activeRenderLoop != null && activeRenderLoop.isRunning();
+    }
+    
+    /**
+     * Set the frame rate the active render loop paces itself to
+     */
+    public void setTargetFps(int fps) {
+        ensureActiveRenderLoop();
+        activeRenderLoop.setTargetFps(fps);
+    }
+    
+    public int getTargetFps() {
+        return activeRenderLoop != null ? activeRenderLoop.getTargetFps() : ActiveRenderLoop.DEFAULT_TARGET_FPS;
+    }
+    
+    /**
+     * Set the fixed rate at which physics steps run, independent of the frame rate
+     */
+    public void setPhysicsRate(int rate) {
+        physicsClock.setPhysicsRate(rate);
+    }
+    
+    public int getPhysicsRate() {
+        return physicsClock.getPhysicsRate();
+    }
+    
+    /**
+     * Resolve obstacle contacts through the baked distance field instead of per-obstacle tests
+     */
+    public void setObstacleFieldEnabled(boolean enabled) {
+        gameState.setObstacleFieldEnabled(enabled);
+    }
+    
+    public boolean isObstacleFieldEnabled() {
+        return gameState.isObstacleFieldEnabled();
+    }
+    
     /**
      * Get the default saves directory, creating it if it doesn't exist
      */
@@ -149,61 +552,44 @@ public class BallCollisionSimulation extends JFrame {
      * Save the current simulation state to a file
      */
     public void saveSimulation() {
+        if (isFileTaskRunning()) {
+            return;
+        }
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Simulation");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Simulation Files (*.sim)", "sim"));
+        javax.swing.filechooser.FileNameExtensionFilter textFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("Simulation Files (*.sim)", "sim");
+        javax.swing.filechooser.FileNameExtensionFilter binaryFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("Binary Simulation Files (*.simb)", "simb");
+        fileChooser.addChoosableFileFilter(binaryFilter);
+        fileChooser.setFileFilter(textFilter);
         
         // Set default directory to src/main/assets/saves
         fileChooser.setCurrentDirectory(getSavesDirectory());
         
         int result = fileChooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
+            File selected = fileChooser.getSelectedFile();
             
-            // Ensure .sim extension
-            if (!file.getName().toLowerCase().endsWith(".sim")) {
-                file = new File(file.getAbsolutePath() + ".sim");
+            // Ensure a .sim or .simb extension, following the selected filter
+            String name = selected.getName().toLowerCase();
+            if (!name.endsWith(".sim") && !name.endsWith(".simb")) {
+                String extension = fileChooser.getFileFilter() == binaryFilter ? ".simb" : ".sim";
+                selected = new File(selected.getAbsolutePath() + extension);
             }
+            File file = selected;
             
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                // Save gravity settings
-                writer.println("GRAVITY_ENABLED:" + gameState.isGravityEnabled());
-                writer.println("GRAVITY_X:" + gameState.getGravityX());
-                writer.println("GRAVITY_Y:" + gameState.getGravityY());
-                writer.println("SPRING_CONSTANT: " + gameState.getSpringConstant());
-                writer.println("NEW_BALL_RADIUS: " + controlPanel.getCurrentRadius());
-                writer.println("BALL_COUNT:" + gameState.getBalls().size());
-                
-                // Save each ball's state
-                for (Ball ball : gameState.getBalls()) {
-                    writer.println(String.format("BALL:%.2f,%.2f,%.2f,%.2f,%d,%d,%d,%d",
-                        ball.getX(), ball.getY(),
-                        ball.getVelocityX(), ball.getVelocityY(),
-                        ball.getRadius(),
-                        ball.getColor().getRed(),
-                        ball.getColor().getGreen(),
-                        ball.getColor().getBlue()
-                    ));
-                }
-
-                writer.println("OBSTACLE_COUNT:" + gameState.getObstacles().size());
-                for (Obstacle obstacle : gameState.getObstacles()) {
-                    writer.println(String.format("OBSTACLE:RECT,%.2f,%.2f,%.2f,%.2f",
-                        obstacle.getX(), obstacle.getY(), obstacle.getWidth(), obstacle.getHeight()));
-                }
-                
-                JOptionPane.showMessageDialog(this,
-                    String.format("Simulation saved successfully!\nBalls saved: %d\nObstacles saved: %d",
-                        gameState.getBalls().size(), gameState.getObstacles().size()),
-                    "Save Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this,
-                    "Error saving simulation: " + e.getMessage(),
-                    "Save Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            // The snapshot is written in the background while the simulation keeps running
+            SceneSnapshot snapshot = SceneSnapshot.capture(gameState, controlPanel.getCurrentRadius());
+            runFileTask("Saving simulation", file, progress -> {
+                SimulationFile.writeScene(file, snapshot, progress);
+                return snapshot;
+            }, saved -> JOptionPane.showMessageDialog(this,
+                String.format("Simulation saved successfully!\nBalls saved: %d\nObstacles saved: %d",
+                    saved.getBallCount(), saved.getObstacleCount()),
+                "Save Complete",
+                JOptionPane.INFORMATION_MESSAGE),
+                "Error saving simulation: ", "Save Error");
         }
     }
     
@@ -211,9 +597,12 @@ public class BallCollisionSimulation extends JFrame {
      * Load a simulation state from a file
      */
     public void loadSimulation() {
+        if (isFileTaskRunning()) {
+            return;
+        }
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Load Simulation");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Simulation Files (*.sim)", "sim"));
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Simulation Files (*.sim, *.simb)", "sim", "simb"));
         
         // Set default directory to src/main/assets/saves
         fileChooser.setCurrentDirectory(getSavesDirectory());
@@ -222,132 +611,419 @@ public class BallCollisionSimulation extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
             
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                // Clear current simulation
-                gameState.clearAllBalls();
-                gameState.clearObstacles();
-                
-                String line;
-                int ballsLoaded = 0;
-                int obstaclesLoaded = 0;
-                double loadedGravityX = 0;
-                double loadedGravityY = 0;
-                double loadedSpringConstant = 0;
-                int loadedBallRadius = 0;
-                boolean gravityEnabled = true;
-                
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("GRAVITY_ENABLED:")) {
-                        gravityEnabled = Boolean.parseBoolean(line.substring(16));
-                        if (gravityEnabled != gameState.isGravityEnabled()) {
-                            gameState.toggleGravity();
-                        }
-                    } else if (line.startsWith("GRAVITY_X:")) {
-                        loadedGravityX = Double.parseDouble(line.substring(10));
-                        double gy = gameState.getGravityY();
-                        gameState.setGravityDirection(loadedGravityX, gy);
-                    } else if (line.startsWith("GRAVITY_Y:")) {
-                        loadedGravityY = Double.parseDouble(line.substring(10));
-                        double gx = gameState.getGravityX();
-                        gameState.setGravityDirection(gx, loadedGravityY);
-                    } else if (line.startsWith("SPRING_CONSTANT:")) {
-                        String value = line.substring("SPRING_CONSTANT:".length()).trim();
-                        try {
-                            loadedSpringConstant = Double.parseDouble(value);
-                            if (loadedSpringConstant != gameState.getSpringConstant()) {
-                                gameState.setSpringConstant(loadedSpringConstant);
-                                if (controlPanel != null) {
-                                    controlPanel.setCurrentSpringConstant(loadedSpringConstant);
-                                }
-                            }
-                        } catch (NumberFormatException ignored) {
-                            // Ignore malformed value to maintain backward compatibility
-                        }
-                    } else if (line.startsWith("NEW_BALL_RADIUS:")) {
-                        String value = line.substring("NEW_BALL_RADIUS:".length()).trim();
-                        try {
-                            loadedBallRadius = Integer.parseInt(value);
-                            if (controlPanel != null) {
-                                controlPanel.setCurrentRadius(loadedBallRadius);
-                            }
-                        } catch (NumberFormatException ignored) {
-                            // Ignore malformed value for backward compatibility
-                        }
-                    } else if (line.startsWith("OBSTACLE_COUNT:")) {
-                        // No action needed; obstacles are read individually
-                    } else if (line.startsWith("BALL:")) {
-                        String[] parts = line.substring(5).split(",");
-                        if (parts.length == 8) {
-                            double x = Double.parseDouble(parts[0]);
-                            double y = Double.parseDouble(parts[1]);
-                            double vx = Double.parseDouble(parts[2]);
-                            double vy = Double.parseDouble(parts[3]);
-                            int radius = Integer.parseInt(parts[4]);
-                            int r = Integer.parseInt(parts[5]);
-                            int g = Integer.parseInt(parts[6]);
-                            int b = Integer.parseInt(parts[7]);
-                            
-                            Ball ball = new Ball(x, y, vx, vy, radius, new Color(r, g, b));
-                            gameState.getBalls().add(ball);
-                            ballsLoaded++;
-                        }
-                    } else if (line.startsWith("OBSTACLE:")) {
-                        String[] parts = line.substring("OBSTACLE:".length()).split(",");
-                        if (parts.length >= 5) {
-                            String shape = parts[0].trim();
-                            if ("RECT".equalsIgnoreCase(shape)) {
-                                double x = Double.parseDouble(parts[1]);
-                                double y = Double.parseDouble(parts[2]);
-                                double width = Double.parseDouble(parts[3]);
-                                double height = Double.parseDouble(parts[4]);
-                                gameState.addObstacleRaw(x, y, width, height);
-                                obstaclesLoaded++;
-                            }
-                        }
-                    }
-                }
-                
-                // Build detailed physics summary
-                StringBuilder physicsInfo = new StringBuilder();
-                physicsInfo.append("Simulation loaded successfully!%n%n");
-                physicsInfo.append("Content: %d balls, %d obstacles%n%n");
-                physicsInfo.append("Physics Parameters:%n");
-                
-                // Gravity information
-                physicsInfo.append("• Gravity: ").append(gravityEnabled ? "Enabled" : "Disabled");
-                if (gravityEnabled) {
-                    double magnitude = Math.sqrt(loadedGravityX * loadedGravityX + loadedGravityY * loadedGravityY);
-                    physicsInfo.append(" (Magnitude: ").append(String.format("%.2f", magnitude)).append(")");
+            // Parse in the background; the current scene keeps running until the new one is ready
+            runFileTask("Loading simulation", file, progress -> SimulationFile.parseScene(file, progress),
+                this::applyLoadedScene, "Error loading simulation: ", "Load Error");
+        }
+    }
+    
+    /**
+     * Swap in a scene parsed by loadSimulation and show what was loaded
+     */
+    private void applyLoadedScene(SimulationFile.LoadResult loaded) {
+        stopPlayback();
+        rewindBuffer.clear();
+        setSimulationPaused(false);
+        loaded.applyTo(gameState);
+        int ballsLoaded = loaded.getBallsLoaded();
+        int obstaclesLoaded = loaded.getObstaclesLoaded();
+        double loadedGravityX = loaded.getGravityX();
+        double loadedGravityY = loaded.getGravityY();
+        double loadedSpringConstant = loaded.getSpringConstant();
+        int loadedBallRadius = loaded.getNewBallRadius();
+        boolean gravityEnabled = loaded.isGravityEnabled();
+        if (controlPanel != null) {
+            if (loadedSpringConstant > 0) {
+                controlPanel.setCurrentSpringConstant(loadedSpringConstant);
+            }
+            if (loadedBallRadius > 0) {
+                controlPanel.setCurrentRadius(loadedBallRadius);
+            }
+        }
+        
+        // Build detailed physics summary
+        StringBuilder physicsInfo = new StringBuilder();
+        physicsInfo.append("Simulation loaded successfully!%n%n");
+        physicsInfo.append("Content: %d balls, %d obstacles%n%n");
+        physicsInfo.append("Physics Parameters:%n");
+        
+        // Gravity information
+        physicsInfo.append("• Gravity: ").append(gravityEnabled ? "Enabled" : "Disabled");
+        if (gravityEnabled) {
+            double magnitude = Math.sqrt(loadedGravityX * loadedGravityX + loadedGravityY * loadedGravityY);
+            physicsInfo.append(" (Magnitude: ").append(String.format("%.2f", magnitude)).append(")");
+        }
+        physicsInfo.append("%n");
+        
+        // Spring constant information
+        if (loadedSpringConstant > 0) {
+            String springValue = loadedSpringConstant >= 1000 
+                ? String.format("%.0fk", loadedSpringConstant / 1000) 
+                : String.format("%.0f", loadedSpringConstant);
+            physicsInfo.append("• Spring Constant: ").append(springValue).append(" N/m%n");
+        }
+        
+        // Ball radius information
+        if (loadedBallRadius > 0) {
+            physicsInfo.append("• New Ball Radius: ").append(loadedBallRadius).append(" px%n");
+        }
+        
+        JOptionPane.showMessageDialog(this,
+            String.format(physicsInfo.toString(), ballsLoaded, obstaclesLoaded),
+            "Load Complete",
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Work done by a background save or load
+     */
+    private interface FileTask<T> {
+        T run(ProgressListener progress) throws IOException;
+    }
+    
+    private boolean isFileTaskRunning() {
+        if (fileWorker != null) {
+            JOptionPane.showMessageDialog(this,
+                "Please wait until the current save or load has finished.",
+                "Busy",
+                JOptionPane.INFORMATION_MESSAGE);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Run a save or load on a background thread. A progress dialog with a Cancel button
+     * appears if the task takes more than half a second; the result is handed to onSuccess
+     * on the Swing thread. Cancel interrupts the task, which stops at its next progress check.
+     */
+    private <T> void runFileTask(String message, File file, FileTask<T> task, Consumer<T> onSuccess,
+                                 String errorPrefix, String errorTitle) {
+        ProgressMonitor monitor = new ProgressMonitor(this, message, file.getName(), 0, 100);
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws IOException {
+                return task.run((done, total) -> setProgress(total > 0 ? (int) (done * 100 / total) : 0));
+            }
+            
+            @Override
+            protected void done() {
+                monitor.close();
+                fileWorker = null;
+                if (isCancelled()) {
+                    return;
                 }
-                physicsInfo.append("%n");
-                
-                // Spring constant information
-                if (loadedSpringConstant > 0) {
-                    String springValue = loadedSpringConstant >= 1000 
-                        ? String.format("%.0fk", loadedSpringConstant / 1000) 
-                        : String.format("%.0f", loadedSpringConstant);
-                    physicsInfo.append("• Spring Constant: ").append(springValue).append(" N/m%n");
+                try {
+                    onSuccess.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    JOptionPane.showMessageDialog(BallCollisionSimulation.this,
+                        errorPrefix + cause.getMessage(),
+                        errorTitle,
+                        JOptionPane.ERROR_MESSAGE);
                 }
-                
-                // Ball radius information
-                if (loadedBallRadius > 0) {
-                    physicsInfo.append("• New Ball Radius: ").append(loadedBallRadius).append(" px%n");
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+        });
+        // Checked on a timer as well, so Cancel works while the progress does not move
+        Timer cancelCheck = new Timer(CANCEL_CHECK_INTERVAL_MS, null);
+        cancelCheck.addActionListener(e -> {
+            if (worker.isDone()) {
+                cancelCheck.stop();
+            } else if (monitor.isCanceled()) {
+                cancelCheck.stop();
+                worker.cancel(true);
+            }
+        });
+        cancelCheck.start();
+        fileWorker = worker;
+        worker.execute();
+    }
+    
+    /**
+     * Turn the periodic autosave on or off; it is off until the user turns it on
+     */
+    public void setAutosaveEnabled(boolean enabled) {
+        if (enabled) {
+            autosaveTimer.restart();
+            logSystemMessage(BallEvent.Type.AUTOSAVE, "Autosave on - saving every minute to " + getAutosaveFile());
+        } else {
+            autosaveTimer.stop();
+            logSystemMessage(BallEvent.Type.AUTOSAVE, "Autosave off");
+        }
+    }
+    
+    public boolean isAutosaveEnabled() {
+        return autosaveTimer.isRunning();
+    }
+    
+    /**
+     * Write a snapshot of the scene in the background; the physics keeps running meanwhile.
+     * Skipped while a previous autosave or a user save or load is still busy.
+     */
+    private void autosave() {
+        if (autosaveWorker != null || fileWorker != null) {
+            return;
+        }
+        SceneSnapshot snapshot = SceneSnapshot.capture(gameState, controlPanel.getCurrentRadius());
+        File file = getAutosaveFile();
+        autosaveWorker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                SimulationFile.writeScene(file, snapshot, null);
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                autosaveWorker = null;
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    logSystemMessage(BallEvent.Type.AUTOSAVE_FAILED,
+                        "Autosave to " + file + " failed: " + e.getCause().getMessage());
                 }
-                
+            }
+        };
+        autosaveWorker.execute();
+    }
+    
+    /**
+     * The autosave file, in a directory of the user's own rather than the project tree
+     */
+    private File getAutosaveFile() {
+        File directory = new File(System.getProperty("user.home"), AUTOSAVE_DIRECTORY);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return new File(directory, AUTOSAVE_FILE_NAME);
+    }
+    
+    /**
+     * Report something the application did on its own in the event log
+     */
+    private void logSystemMessage(BallEvent.Type type, String message) {
+        logPanel.ballEventOccurred(new BallEvent(this, type, message));
+    }
+    
+    /**
+     * Start recording every physics step to a .simt trajectory file
+     */
+    public void startRecording() {
+        if (trajectoryRecorder != null) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Record Trajectory");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Trajectory Recordings (*.simt)", TrajectoryRecorder.EXTENSION));
+        fileChooser.setCurrentDirectory(getSavesDirectory());
+        
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            if (!file.getName().toLowerCase().endsWith("." + TrajectoryRecorder.EXTENSION)) {
+                file = new File(file.getAbsolutePath() + "." + TrajectoryRecorder.EXTENSION);
+            }
+            stopPlayback();
+            try {
+                trajectoryRecorder = new TrajectoryRecorder(file);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this,
+                    "Error starting recording: " + e.getMessage(),
+                    "Recording Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Finish the running recording and report how much was recorded
+     */
+    public void stopRecording() {
+        if (trajectoryRecorder == null) {
+            return;
+        }
+        TrajectoryRecorder recorder = trajectoryRecorder;
+        trajectoryRecorder = null;
+        try {
+            recorder.close();
+            JOptionPane.showMessageDialog(this,
+                String.format("Recording saved!\nSteps recorded: %d\nSize: %.1f MB\nFile: %s",
+                    recorder.getFrameCount(), recorder.getRecordedBytes() / (1024.0 * 1024.0),
+                    recorder.getFile().getName()),
+                "Recording Complete",
+                JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Error finishing recording: " + e.getMessage(),
+                "Recording Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    public boolean isRecording() {
+        return trajectoryRecorder != null;
+    }
+    
+    /**
+     * Append the step that just ran to the recording; a full or failing recording is stopped
+     */
+    private void recordStep(double deltaTime) {
+        try {
+            if (!trajectoryRecorder.append(gameState, deltaTime)) {
+                // Report after the current frame instead of blocking the game loop mid-step
+                SwingUtilities.invokeLater(this::stopRecording);
+            }
+        } catch (IOException e) {
+            TrajectoryRecorder recorder = trajectoryRecorder;
+            trajectoryRecorder = null;
+            try {
+                recorder.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Recording stopped: " + e.getMessage(),
+                "Recording Error",
+                JOptionPane.ERROR_MESSAGE));
+        }
+    }
+    
+    /**
+     * Start publishing the state of every ball after each physics step to a memory-mapped
+     * .simlive file that other processes can read while the simulation runs
+     */
+    public void startSharing() {
+        if (sharedStateExport != null) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Share Live State");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Live State Files (*.simlive)", SharedStateExport.EXTENSION));
+        fileChooser.setCurrentDirectory(getSavesDirectory());
+        
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            if (!file.getName().toLowerCase().endsWith("." + SharedStateExport.EXTENSION)) {
+                file = new File(file.getAbsolutePath() + "." + SharedStateExport.EXTENSION);
+            }
+            try {
+                sharedStateExport = new SharedStateExport(file, gameState.getBalls().size());
+                sharedStateExport.publish(gameState);
+            } catch (IOException e) {
+                sharedStateExport = null;
                 JOptionPane.showMessageDialog(this,
-                    String.format(physicsInfo.toString(), ballsLoaded, obstaclesLoaded),
-                    "Load Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (IOException | NumberFormatException e) {
+                    "Error sharing live state: " + e.getMessage(),
+                    "Live State Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Stop publishing the live state; the file keeps the last state and is marked as closed
+     */
+    public void stopSharing() {
+        if (sharedStateExport == null) {
+            return;
+        }
+        SharedStateExport export = sharedStateExport;
+        sharedStateExport = null;
+        try {
+            export.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Error closing live state file: " + e.getMessage(),
+                "Live State Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    public boolean isSharing() {
+        return sharedStateExport != null;
+    }
+    
+    /**
+     * Publish the step that just ran; a failing export is stopped
+     */
+    private void shareStep() {
+        try {
+            sharedStateExport.publish(gameState);
+        } catch (IOException e) {
+            SharedStateExport export = sharedStateExport;
+            sharedStateExport = null;
+            try {
+                export.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Live state sharing stopped: " + e.getMessage(),
+                "Live State Error",
+                JOptionPane.ERROR_MESSAGE));
+        }
+    }
+    
+    /**
+     * Open a trajectory recording and play it back in place of the live simulation
+     */
+    public void playRecording() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Play Recording");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Trajectory Recordings (*.simt)", TrajectoryRecorder.EXTENSION));
+        fileChooser.setCurrentDirectory(getSavesDirectory());
+        
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            stopRecording();
+            stopPlayback();
+            try {
+                trajectoryPlayer = new TrajectoryPlayer(fileChooser.getSelectedFile());
+            } catch (IOException e) {
                 JOptionPane.showMessageDialog(this,
-                    "Error loading simulation: " + e.getMessage(),
-                    "Load Error",
+                    "Error opening recording: " + e.getMessage(),
+                    "Playback Error",
                     JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            playbackSavedBalls = gameState.getBalls();
+            trajectoryPlayer.seek(0, gameState);
+            playbackBar = new PlaybackBar(trajectoryPlayer, gameState, this::stopPlayback);
+            add(playbackBar, BorderLayout.NORTH);
+            revalidate();
         }
     }
     
+    /**
+     * Close the playback and bring back the live scene as it was before playback started
+     */
+    public void stopPlayback() {
+        if (trajectoryPlayer == null) {
+            return;
+        }
+        try {
+            trajectoryPlayer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing recording: " + e.getMessage());
+        }
+        trajectoryPlayer = null;
+        gameState.swapBalls(playbackSavedBalls);
+        playbackSavedBalls = null;
+        remove(playbackBar);
+        playbackBar = null;
+        revalidate();
+        repaint();
+    }
+    
     /**
      * Show the help dialog with keyboard and mouse controls
      */
@@ -357,7 +1033,9 @@ public class BallCollisionSimulation extends JFrame {
                 "  A - Add a ball\n" +
                 "  C - Clear all balls\n" +
                 "  G - Toggle gravity on/off\n" +
-                "  1–5 - Add multiple balls\n\n" +
+                "  1–5 - Add multiple balls\n" +
+                "  P - Pause/resume\n" +
+                "  Left/Right - Step backward/forward (rewind)\n\n" +
                 "Mouse Controls:\n" +
                 "  Click & drag - Move balls with spring force\n" +
                 "  Double-click - Add ball at mouse position\n\n" +
@@ -376,6 +1054,112 @@ public class BallCollisionSimulation extends JFrame {
         JOptionPane.showMessageDialog(this, helpText, "Help - Controls", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    /**
+     * Show a dialog for the ball counts at which rendering drops to cheaper detail levels
+     */
+    public void showDetailThresholdsDialog() {
+        JSpinner reducedSpinner = new JSpinner(new SpinnerNumberModel(
+            gamePanel.getReducedDetailThreshold(), 0, 10000000, 500));
+        JSpinner minimalSpinner = new JSpinner(new SpinnerNumberModel(
+            gamePanel.getMinimalDetailThreshold(), 0, 10000000, 500));
+        
+        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+        panel.add(new JLabel("Reduced detail at (balls):"));
+        panel.add(reducedSpinner);
+        panel.add(new JLabel("Minimal detail at (balls):"));
+        panel.add(minimalSpinner);
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "Level of Detail",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result == JOptionPane.OK_OPTION) {
+            gamePanel.setDetailThresholds(
+                ((Number) reducedSpinner.getValue()).intValue(),
+                ((Number) minimalSpinner.getValue()).intValue());
+        }
+    }
+    
+    /**
+     * Let the user give the world a fixed size larger than the window, or let it follow the window
+     */
+    public void showWorldSizeDialog() {
+        boolean fixed = gameState.isWorldSizeFixed();
+        JCheckBox followWindowBox = new JCheckBox("Follow window size", !fixed);
+        JSpinner widthSpinner = new JSpinner(new SpinnerNumberModel(
+            Math.max(1, gameState.getWorldWidth()), 1, 1000000, 100));
+        JSpinner heightSpinner = new JSpinner(new SpinnerNumberModel(
+            Math.max(1, gameState.getWorldHeight()), 1, 1000000, 100));
+        widthSpinner.setEnabled(fixed);
+        heightSpinner.setEnabled(fixed);
+        followWindowBox.addActionListener(e -> {
+            widthSpinner.setEnabled(!followWindowBox.isSelected());
+            heightSpinner.setEnabled(!followWindowBox.isSelected());
+        });
+        
+        JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.add(followWindowBox);
+        panel.add(new JLabel());
+        panel.add(new JLabel("World width:"));
+        panel.add(widthSpinner);
+        panel.add(new JLabel("World height:"));
+        panel.add(heightSpinner);
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "World Size",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result == JOptionPane.OK_OPTION) {
+            if (followWindowBox.isSelected()) {
+                gameState.setWorldSize(0, 0);
+            } else {
+                gameState.setWorldSize(
+                    ((Number) widthSpinner.getValue()).intValue(),
+                    ((Number) heightSpinner.getValue()).intValue());
+            }
+        }
+    }
+    
+    /**
+     * Let the user set the physics constants of this world to any value, beyond the control panel presets
+     */
+    public void showPhysicsConstantsDialog() {
+        JSpinner gravityXSpinner = new JSpinner(new SpinnerNumberModel(gameState.getGravityX(), -10000.0, 10000.0, 50.0));
+        JSpinner gravityYSpinner = new JSpinner(new SpinnerNumberModel(gameState.getGravityY(), -10000.0, 10000.0, 50.0));
+        JSpinner springSpinner = new JSpinner(new SpinnerNumberModel(gameState.getSpringConstant(), 0.0, 1000000.0, 1000.0));
+        JSpinner wallSpinner = new JSpinner(new SpinnerNumberModel(gameState.getWallRestitution(), 0.0, 1.0, 0.05));
+        JSpinner obstacleSpinner = new JSpinner(new SpinnerNumberModel(gameState.getObstacleRestitution(), 0.0, 1.0, 0.05));
+        JSpinner dampingSpinner = new JSpinner(new SpinnerNumberModel(gameState.getDragDamping(), 0.0, 1.0, 0.05));
+
+        JPanel panel = new JPanel(new GridLayout(6, 2, 5, 5));
+        panel.add(new JLabel("Gravity X:"));
+        panel.add(gravityXSpinner);
+        panel.add(new JLabel("Gravity Y:"));
+        panel.add(gravityYSpinner);
+        panel.add(new JLabel("Spring constant:"));
+        panel.add(springSpinner);
+        panel.add(new JLabel("Wall restitution:"));
+        panel.add(wallSpinner);
+        panel.add(new JLabel("Obstacle restitution:"));
+        panel.add(obstacleSpinner);
+        panel.add(new JLabel("Drag damping:"));
+        panel.add(dampingSpinner);
+
+        int result = JOptionPane.showConfirmDialog(this, panel, "Physics Constants",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result == JOptionPane.OK_OPTION) {
+            double gravityX = ((Number) gravityXSpinner.getValue()).doubleValue();
+            double gravityY = ((Number) gravityYSpinner.getValue()).doubleValue();
+            if (gravityX != gameState.getGravityX() || gravityY != gameState.getGravityY()) {
+                gameState.setGravityDirection(gravityX, gravityY);
+            }
+            double springConstant = ((Number) springSpinner.getValue()).doubleValue();
+            if (springConstant != gameState.getSpringConstant()) {
+                controlPanel.setCurrentSpringConstant(springConstant); // Slider range is limited, so set the exact value after
+                gameState.setSpringConstant(springConstant);
+            }
+            gameState.setWallRestitution(((Number) wallSpinner.getValue()).doubleValue());
+            gameState.setObstacleRestitution(((Number) obstacleSpinner.getValue()).doubleValue());
+            gameState.setDragDamping(((Number) dampingSpinner.getValue()).doubleValue());
+        }
+    }
+
     /**
      * Show the physics information dialog
      */
@@ -386,8 +1170,8 @@ public class BallCollisionSimulation extends JFrame {
                 "• Dragging uses Hooke's Law (F = -k * x)\n" +
                 "• Gravity vector: (0, 300) when enabled\n" +
                 "• Rectangular obstacles collide elastically with balls\n" +
-                "• Wall collisions reduce velocity slightly\n" +
-                "• Frame update rate: ~60 FPS\n\n" +
+                "• Wall collisions reduce velocity slightly (View > Physics Constants...)\n" +
+                "• Physics rate: fixed steps (60 Hz by default), frames interpolated between steps\n\n" +
                 "This simulation uses MVC and the Observer design pattern.";
         JOptionPane.showMessageDialog(this, physicsText, "Help - Physics Simulation", JOptionPane.INFORMATION_MESSAGE);
     }
@@ -412,6 +1196,10 @@ public class BallCollisionSimulation extends JFrame {
     }
     
     public static void main(String[] args) {
+        // Any arguments select a headless command instead of the window
+        if (args.length > 0) {
+            System.exit(new CommandLineRunner(System.out, System.err).run(args));
+        }
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -17,7 +17,9 @@ public class BallEvent extends EventObject {
         GRAVITY_TOGGLED, GRAVITY_DIRECTION_CHANGED,
         SPRING_CONSTANT_CHANGED, BALLS_CLEARED,
         OBSTACLE_CREATED, OBSTACLE_REMOVED, OBSTACLE_MOVED,
-        OBSTACLES_CLEARED, BALL_OBSTACLE_COLLISION
+        OBSTACLES_CLEARED, BALL_OBSTACLE_COLLISION,
+        PHYSICS_SETTINGS_CHANGED, SCENE_LOADED, BALLS_GENERATED,
+        OBSTACLES_IMPORTED, AUTOSAVE, AUTOSAVE_FAILED, RENDER_FAILED
     }
     
     private Type eventType;
@@ -0,0 +1,415 @@
+/*
+ * Batch Runner - Many independent simulations in one process
+ * Steps one GameState per task on a thread pool and reports per-world metrics
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Batch Runner - Runs a list of scenarios concurrently, one world per task. Worlds share
+ * nothing, so they scale across cores without locking; each task loads its own scene,
+ * so only the worlds currently running hold memory. Results come back in list order and
+ * can be written as a CSV or JSON report.
+ * @author Sentinail
+ */
+public class BatchRunner {
+    public static final int VIRTUAL_THREADS = 0; // Thread count meaning one virtual thread per world
+    public static final int DEFAULT_WIDTH = 800;
+    public static final int DEFAULT_HEIGHT = 600;
+    // Scene path, which may be quoted, then steps and an optional width and height
+    private static final Pattern SCENARIO_LINE =
+        Pattern.compile("(?:\"([^\"]+)\"|(.+?))\\s+(-?\\d+)(?:\\s+(-?\\d+)\\s+(-?\\d+))?");
+    private static final String SCENARIO_FORMAT =
+        "expected \"scene steps [width height]\", e.g. Example #1.sim 600 800 600; put the scene in"
+        + " double quotes if its name ends in a number";
+
+    /**
+     * One world to run: a scene, how many steps, and the size of its world
+     */
+    public static class Scenario {
+        private final File scene;
+        private final int steps;
+        private final int width;
+        private final int height;
+
+        public Scenario(File scene, int steps, int width, int height) {
+            if (steps < 0 || width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Invalid scenario for " + scene + ": " + steps + " steps, "
+                    + width + " x " + height);
+            }
+            this.scene = scene;
+            this.steps = steps;
+            this.width = width;
+            this.height = height;
+        }
+
+        public File getScene() {
+            return scene;
+        }
+
+        public int getSteps() {
+            return steps;
+        }
+    }
+
+    /**
+     * Summary of one finished world; the error is set instead of the metrics if it failed
+     */
+    public static class WorldResult {
+        private final int index;
+        private final Scenario scenario;
+        private int ballCount;
+        private int obstacleCount;
+        private long loadNanos;
+        private long runNanos;
+        private double stepMeanMillis;
+        private double stepP50Millis;
+        private double stepP99Millis;
+        private double stepMaxMillis;
+        private long collisions;
+        private long droppedEvents;
+        private double kineticEnergy;
+        private String error;
+
+        private WorldResult(int index, Scenario scenario) {
+            this.index = index;
+            this.scenario = scenario;
+        }
+
+        public Scenario getScenario() {
+            return scenario;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getRunNanos() {
+            return runNanos;
+        }
+
+        public double getStepsPerSecond() {
+            return runNanos == 0 ? 0 : scenario.steps * 1e9 / runNanos;
+        }
+    }
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int physicsRate = FixedStepClock.DEFAULT_PHYSICS_RATE;
+    private GameState.Broadphase broadphase = GameState.Broadphase.SORT_AND_SWEEP;
+    private PrintStream progress = System.err;
+
+    /**
+     * Number of worlds run at the same time, or VIRTUAL_THREADS for a virtual thread per
+     * world (Java 21 or later)
+     */
+    public void setThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Thread count must not be negative");
+        }
+        this.threads = threads;
+    }
+
+    public void setPhysicsRate(int physicsRate) {
+        if (physicsRate <= 0) {
+            throw new IllegalArgumentException("Physics rate must be positive");
+        }
+        this.physicsRate = physicsRate;
+    }
+
+    public void setBroadphase(GameState.Broadphase broadphase) {
+        this.broadphase = broadphase;
+    }
+
+    /**
+     * Where to print a line as each world finishes, or null for none
+     */
+    public void setProgressStream(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Read a scenario list: one "scene steps [width height]" line per world, with blank lines
+     * and # comments ignored. The numbers are taken from the end of the line and the rest is
+     * the scene path, so it may contain spaces; it may also be put in double quotes. Scene
+     * paths are relative to the list file.
+     */
+    public static List<Scenario> readScenarios(File list) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        File directory = list.getAbsoluteFile().getParentFile();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(list), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Matcher parts = SCENARIO_LINE.matcher(line);
+                if (!parts.matches()) {
+                    throw new IOException(list.getName() + " line " + lineNumber + ": " + SCENARIO_FORMAT);
+                }
+                String path = parts.group(1) != null ? parts.group(1) : parts.group(2);
+                File scene = new File(path);
+                if (!scene.isAbsolute()) {
+                    scene = new File(directory, path);
+                }
+                try {
+                    int steps = Integer.parseInt(parts.group(3));
+                    int width = parts.group(4) != null ? Integer.parseInt(parts.group(4)) : DEFAULT_WIDTH;
+                    int height = parts.group(5) != null ? Integer.parseInt(parts.group(5)) : DEFAULT_HEIGHT;
+                    scenarios.add(new Scenario(scene, steps, width, height));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(list.getName() + " line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Run every scenario and wait for all of them; a world that fails does not stop the others
+     * @return One result per scenario, in the order given
+     */
+    public List<WorldResult> run(List<Scenario> scenarios) throws InterruptedException {
+        List<WorldResult> results = new ArrayList<>(scenarios.size());
+        if (scenarios.isEmpty()) {
+            return results;
+        }
+        ExecutorService executor = newExecutor(scenarios.size());
+        AtomicInteger finished = new AtomicInteger();
+        try {
+            List<Future<WorldResult>> futures = new ArrayList<>(scenarios.size());
+            for (int i = 0; i < scenarios.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    WorldResult result = runWorld(index, scenarios.get(index));
+                    reportProgress(result, finished.incrementAndGet(), scenarios.size());
+                    return result;
+                }));
+            }
+            for (Future<WorldResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch task failed", e.getCause()); // runWorld catches everything
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private ExecutorService newExecutor(int worldCount) {
+        if (threads == VIRTUAL_THREADS) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Virtual threads need Java 21 or later; use a thread count instead");
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.min(threads, worldCount), runnable -> {
+            Thread thread = new Thread(runnable, "batch-world-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load and step one world on the calling thread
+     */
+    private WorldResult runWorld(int index, Scenario scenario) {
+        WorldResult result = new WorldResult(index, scenario);
+        try {
+            long start = System.nanoTime();
+            GameState gameState = new GameState();
+            SimulationFile.readScene(scenario.scene, gameState);
+            gameState.setWorldSize(scenario.width, scenario.height);
+            gameState.setBroadphase(broadphase);
+            result.ballCount = gameState.getBalls().size();
+            result.obstacleCount = gameState.getObstacles().size();
+            result.loadNanos = System.nanoTime() - start;
+
+            double deltaTime = 1.0 / physicsRate;
+            long[] stepNanos = new long[scenario.steps];
+            start = System.nanoTime();
+            for (int step = 0; step < scenario.steps; step++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                gameState.updateBalls(scenario.width, scenario.height, deltaTime);
+                stepNanos[step] = gameState.getLastStepNanos();
+            }
+            result.runNanos = System.nanoTime() - start;
+
+            if (stepNanos.length > 0) {
+                long total = 0;
+                for (long nanos : stepNanos) {
+                    total += nanos;
+                }
+                Arrays.sort(stepNanos);
+                result.stepMeanMillis = total / 1e6 / stepNanos.length;
+                result.stepP50Millis = stepNanos[(stepNanos.length - 1) / 2] / 1e6;
+                result.stepP99Millis = stepNanos[(int) Math.ceil(stepNanos.length * 0.99) - 1] / 1e6;
+                result.stepMaxMillis = stepNanos[stepNanos.length - 1] / 1e6;
+            }
+            result.collisions = gameState.getTotalCollisionCount();
+            result.droppedEvents = gameState.getDroppedEventCount();
+            double energy = 0;
+            for (Ball ball : gameState.getBalls()) {
+                double vx = ball.getVelocityX();
+                double vy = ball.getVelocityY();
+                energy += 0.5 * ball.getMass() * (vx * vx + vy * vy);
+            }
+            result.kineticEnergy = energy;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.error = "Interrupted";
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            result.error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        }
+        return result;
+    }
+
+    private void reportProgress(WorldResult result, int finished, int total) {
+        if (progress == null) {
+            return;
+        }
+        String name = result.scenario.scene.getName();
+        if (result.isFailed()) {
+            progress.printf("[%d/%d] %s failed: %s%n", finished, total, name, result.error);
+        } else {
+            progress.printf("[%d/%d] %s: %d balls, %d steps in %.0f ms (%.0f steps/s)%n", finished, total, name,
+                result.ballCount, result.scenario.steps, result.runNanos / 1e6, result.getStepsPerSecond());
+        }
+    }
+
+    private static final String[] COLUMNS = {
+        "world", "scene", "balls", "obstacles", "steps", "width", "height", "load_ms", "run_ms",
+        "steps_per_second", "step_mean_ms", "step_p50_ms", "step_p99_ms", "step_max_ms",
+        "collisions", "dropped_events", "kinetic_energy", "error"
+    };
+
+    /**
+     * Write the results as JSON if the file name ends in .json, otherwise as CSV
+     */
+    public static void writeReport(File file, List<WorldResult> results) throws IOException {
+        boolean json = file.getName().toLowerCase().endsWith(".json");
+        try (PrintWriter writer = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            if (json) {
+                writer.println("[");
+            } else {
+                writer.println(String.join(",", COLUMNS));
+            }
+            for (int r = 0; r < results.size(); r++) {
+                Object[] values = values(results.get(r));
+                if (json) {
+                    StringBuilder line = new StringBuilder("  {");
+                    for (int c = 0; c < COLUMNS.length; c++) {
+                        line.append(c == 0 ? "" : ", ").append('"').append(COLUMNS[c]).append("\": ")
+                            .append(jsonValue(values[c]));
+                    }
+                    writer.println(line.append(r < results.size() - 1 ? "}," : "}"));
+                } else {
+                    StringBuilder line = new StringBuilder();
+                    for (int c = 0; c < COLUMNS.length; c++) {
+                        line.append(c == 0 ? "" : ",").append(csvValue(values[c]));
+                    }
+                    writer.println(line);
+                }
+            }
+            if (json) {
+                writer.println("]");
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + file);
+            }
+        }
+    }
+
+    /**
+     * One report row in COLUMNS order; metrics are null for failed worlds
+     */
+    private static Object[] values(WorldResult result) {
+        Scenario scenario = result.scenario;
+        boolean ok = !result.isFailed();
+        return new Object[] {
+            result.index, scenario.scene.getPath(),
+            ok ? result.ballCount : null, ok ? result.obstacleCount : null,
+            scenario.steps, scenario.width, scenario.height,
+            ok ? result.loadNanos / 1e6 : null, ok ? result.runNanos / 1e6 : null,
+            ok ? result.getStepsPerSecond() : null,
+            ok ? result.stepMeanMillis : null, ok ? result.stepP50Millis : null,
+            ok ? result.stepP99Millis : null, ok ? result.stepMaxMillis : null,
+            ok ? result.collisions : null, ok ? result.droppedEvents : null,
+            ok ? result.kineticEnergy : null, result.error
+        };
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double) {
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        String text = value.toString();
+        if (value instanceof String && (text.contains(",") || text.contains("\"") || text.contains("\n"))) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private static String jsonValue(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Double) {
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        if (value instanceof String) {
+            StringBuilder text = new StringBuilder("\"");
+            for (char ch : ((String) value).toCharArray()) {
+                if (ch == '"' || ch == '\\') {
+                    text.append('\\').append(ch);
+                } else if (ch < 0x20) {
+                    text.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    text.append(ch);
+                }
+            }
+            return text.append('"').toString();
+        }
+        return value.toString();
+    }
+}
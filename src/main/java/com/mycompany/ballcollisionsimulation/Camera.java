@@ -0,0 +1,109 @@
+/*
+ * Camera - Viewport onto the simulation world
+ * Converts between world and screen coordinates for panning and zooming
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Graphics2D;
+
+/**
+ * Camera - Pan and zoom state of a view; screen = (world - position) * zoom
+ * @author Sentinail
+ */
+public class Camera {
+    public static final double MIN_ZOOM = 0.05;
+    public static final double MAX_ZOOM = 20.0;
+
+    private double x; // World coordinate shown at the left edge of the view
+    private double y; // World coordinate shown at the top edge of the view
+    private double zoom = 1.0;
+    private int revision; // Bumped on every pan or zoom so views can detect camera moves
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isIdentity() {
+        return x == 0 && y == 0 && zoom == 1.0;
+    }
+
+    /**
+     * Move the camera so that the given world point is at the top-left corner
+     */
+    public void setPosition(double worldX, double worldY) {
+        if (worldX != x || worldY != y) {
+            x = worldX;
+            y = worldY;
+            revision++;
+        }
+    }
+
+    /**
+     * Move the view by a distance in screen pixels, as when dragging the scene
+     */
+    public void pan(double screenDx, double screenDy) {
+        setPosition(x - screenDx / zoom, y - screenDy / zoom);
+    }
+
+    /**
+     * Multiply the zoom while keeping the world point under the given screen point fixed
+     */
+    public void zoomAt(double screenX, double screenY, double factor) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        if (newZoom != zoom) {
+            zoom = newZoom;
+            revision++;
+            setPosition(worldX - screenX / zoom, worldY - screenY / zoom);
+        }
+    }
+
+    public void reset() {
+        if (!isIdentity()) {
+            x = 0;
+            y = 0;
+            zoom = 1.0;
+            revision++;
+        }
+    }
+
+    public double toWorldX(double screenX) {
+        return x + screenX / zoom;
+    }
+
+    public double toWorldY(double screenY) {
+        return y + screenY / zoom;
+    }
+
+    public double toScreenX(double worldX) {
+        return (worldX - x) * zoom;
+    }
+
+    public double toScreenY(double worldY) {
+        return (worldY - y) * zoom;
+    }
+
+    /**
+     * Apply the world-to-screen transform so that drawing can use world coordinates
+     */
+    public void applyTo(Graphics2D g2d) {
+        if (!isIdentity()) {
+            g2d.scale(zoom, zoom);
+            g2d.translate(-x, -y);
+        }
+    }
+}
@@ -0,0 +1,834 @@
+/*
+ * Command Line Runner - Headless entry point for batch tasks
+ * Runs when the application is started with arguments instead of opening the window
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command Line Runner - Parses a command and its --options and runs it without Swing
+ * @author Sentinail
+ */
+public class CommandLineRunner {
+    private static final String USAGE =
+        "Usage: BallCollisionSimulation <command> [options]\n\n" +
+        "Commands:\n" +
+        "  export <file.sim>   Render a run to images without a window (.sim or .simb)\n" +
+        "      --out <dir>          Output directory (default: export)\n" +
+        "      --frames <n>         Number of frames (default: 600)\n" +
+        "      --width <px>         Frame width (default: 800)\n" +
+        "      --height <px>        Frame height (default: 600)\n" +
+        "      --fps <n>            Frame rate of the recording (default: 60)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --format png|raw     Numbered PNGs or one packed RGB stream (default: png)\n" +
+        "      --threads <n>        Encoder threads (default: cores - 1)\n" +
+        "      --hud                Draw the instructions overlay\n" +
+        "  convert <in> <out>  Convert between the text .sim and binary .simb formats\n" +
+        "      --compress           Deflate the payload of a .simb output\n" +
+        "  generate <out>      Write a stress scene of non-overlapping balls (.sim or .simb)\n" +
+        "      --count <n>          Number of balls (default: 10000)\n" +
+        "      --distribution grid|poisson  Grid jitter or Poisson-disk placement (default: grid)\n" +
+        "      --min-radius <px>    Smallest radius (default: 3)\n" +
+        "      --max-radius <px>    Largest radius (default: 5)\n" +
+        "      --seed <n>           Random seed (default: 1)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --obstacles <image>  Add obstacles from the dark pixels of a black-and-white image\n" +
+        "      --pixel-size <px>    World size of one image pixel (default: fit the world)\n" +
+        "      --compress           Deflate the payload of a .simb output\n" +
+        "  batch <list|scenes...>  Run many worlds at once and write one report\n" +
+        "      --steps <n>          Steps for scenes given directly (default: 600)\n" +
+        "      --threads <n>|virtual  Worlds run at once, or a virtual thread each (default: cores)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --broadphase all-pairs|sweep  Broadphase for every world (default: sweep)\n" +
+        "      --report <file>      CSV report, or JSON for a .json name (default: batch-report.csv)\n" +
+        "  sweep <base.sim>    Run a scene under every combination of physics constants\n" +
+        "      --<parameter> <values>  Values to try as v1,v2,... or start:end:count; parameters are\n" +
+        "                           gravity-x, gravity-y, spring-constant, wall-restitution,\n" +
+        "                           obstacle-restitution, drag-damping\n" +
+        "      --steps <n>          Steps per grid point (default: 600)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --threads <n>        Grid points run at once (default: cores)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --broadphase all-pairs|sweep  Broadphase for every world (default: sweep)\n" +
+        "      --settle-fraction <f>  Energy fraction counted as settled (default: 0.01)\n" +
+        "      --out <file>         CSV written row by row, settings in <file>.sweep; an existing one is\n" +
+        "                           resumed if the settings match (default: sweep.csv)\n" +
+        "      --restart            Overwrite the output instead of resuming it\n" +
+        "  distribute <file.sim>  Run a scene split into slabs, one worker process per slab\n" +
+        "      --workers <n>        Worker processes (default: 2)\n" +
+        "      --steps <n>          Steps to run (default: 600)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --broadphase all-pairs|sweep  Broadphase of every worker (default: sweep)\n" +
+        "      --halo <px>          Border strip copied to neighbours (default: from radii and speeds)\n" +
+        "      --worker-heap <size> Maximum heap per worker, e.g. 4g\n" +
+        "      --out <file>         Save the final scene (.sim or .simb)\n" +
+        "      --verify             Also run in this process and compare the final positions\n" +
+        "      --tolerance <px>     Largest difference --verify accepts (default: 0.000001)\n" +
+        "  serve <file.sim>    Run a scene in real time and stream it to remote viewers\n" +
+        "      --port <n>           TCP port (default: 7777)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --stream-rate <hz>   Frames sent to viewers per second (default: 30)\n" +
+        "      --steps <n>          Stop after this many steps, 0 to run until killed (default: 0)\n" +
+        "      --broadphase all-pairs|sweep  Broadphase (default: sweep)\n" +
+        "      --loopback           Accept viewers from this machine only\n" +
+        "      --share <file>       Also publish every step to a memory-mapped .simlive file\n" +
+        "  view <host[:port]>  Open a window showing a scene streamed by serve\n" +
+        "  stream-test <file.sim>  Stream a scene over loopback, check what viewers decode and report bytes per frame\n" +
+        "      --frames <n>         Frames to stream (default: 600)\n" +
+        "      --steps-per-frame <n>  Physics steps between frames (default: 2)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "  share-test <file.sim>  Publish a scene to a .simlive file while a reader takes snapshots, and check them\n" +
+        "      --steps <n>          Steps to publish (default: 2000)\n" +
+        "      --width <px>         World width (default: 800)\n" +
+        "      --height <px>        World height (default: 600)\n" +
+        "      --physics-rate <hz>  Fixed physics rate (default: 60)\n" +
+        "      --out <file>         Keep the live state file here (default: a temporary file)\n" +
+        "  help                Show this message\n";
+    private static final Set<String> FLAGS = new HashSet<>(Arrays.asList("hud", "compress", "restart", "verify", "loopback")); // Options without a value
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public CommandLineRunner(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Run the command given on the command line
+     * @return The process exit code
+     */
+    public int run(String[] args) {
+        if (args.length == 0 || "help".equals(args[0]) || "--help".equals(args[0])) {
+            out.print(USAGE);
+            return 0;
+        }
+        try {
+            Map<String, String> options = new HashMap<>();
+            String[] positional = parseOptions(args, options);
+            switch (args[0]) {
+                case "export":
+                    return export(positional, options);
+                case "convert":
+                    return convert(positional, options);
+                case "generate":
+                    return generate(positional, options);
+                case "batch":
+                    return batch(positional, options);
+                case "sweep":
+                    return sweep(positional, options);
+                case "distribute":
+                    return distribute(positional, options);
+                case "serve":
+                    return serve(positional, options);
+                case "view":
+                    return view(positional);
+                case "stream-test":
+                    return streamTest(positional, options);
+                case "share-test":
+                    return shareTest(positional, options);
+                case "slab-worker":
+                    // Started by distribute, not by hand
+                    SlabWorker.run(intOption(options, "coordinator", -1));
+                    return 0;
+                default:
+                    err.println("Unknown command: " + args[0]);
+                    err.print(USAGE);
+                    return 2;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return 1;
+        }
+    }
+
+    private int export(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        GameState gameState = new GameState();
+        if (positional.length > 0) {
+            SimulationFile.LoadResult loaded = SimulationFile.readScene(new File(positional[0]), gameState);
+            out.printf("Loaded %d balls and %d obstacles from %s%n",
+                loaded.getBallsLoaded(), loaded.getObstaclesLoaded(), positional[0]);
+        }
+
+        FrameExporter exporter = new FrameExporter(gameState);
+        exporter.setFrameSize(intOption(options, "width", 800), intOption(options, "height", 600));
+        exporter.setFrameRate(intOption(options, "fps", 60));
+        exporter.setPhysicsRate(intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE));
+        if (options.containsKey("threads")) {
+            exporter.setEncoderThreads(intOption(options, "threads", 1));
+        }
+        String format = options.getOrDefault("format", "png");
+        try {
+            exporter.setFormat(FrameExporter.Format.valueOf(format.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        exporter.getGamePanel().setInstructionsVisible(options.containsKey("hud"));
+        exporter.setProgressStream(err);
+
+        exporter.export(new File(options.getOrDefault("out", "export")), intOption(options, "frames", 600));
+        return 0;
+    }
+
+    private int convert(String[] positional, Map<String, String> options) throws IOException {
+        if (positional.length != 2) {
+            throw new IllegalArgumentException("convert expects an input and an output file");
+        }
+        File input = new File(positional[0]);
+        File output = new File(positional[1]);
+        GameState gameState = new GameState();
+
+        long start = System.nanoTime();
+        SimulationFile.LoadResult loaded = SimulationFile.readScene(input, gameState);
+        long read = System.nanoTime();
+        writeScene(output, gameState, loaded.getNewBallRadius(), options.containsKey("compress"));
+        long written = System.nanoTime();
+
+        out.printf("Converted %d balls and %d obstacles: %s (%d bytes, read in %.0f ms) -> %s (%d bytes, written in %.0f ms)%n",
+            loaded.getBallsLoaded(), loaded.getObstaclesLoaded(), input, input.length(), (read - start) / 1e6,
+            output, output.length(), (written - read) / 1e6);
+        return 0;
+    }
+
+    private int generate(String[] positional, Map<String, String> options) throws IOException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("generate expects an output file");
+        }
+        String distribution = options.getOrDefault("distribution", "grid");
+        SceneGenerator.Distribution placement;
+        if ("grid".equalsIgnoreCase(distribution)) {
+            placement = SceneGenerator.Distribution.GRID_JITTER;
+        } else if ("poisson".equalsIgnoreCase(distribution)) {
+            placement = SceneGenerator.Distribution.POISSON_DISK;
+        } else {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        int count = intOption(options, "count", 10000);
+        int minRadius = intOption(options, "min-radius", 3);
+        int maxRadius = intOption(options, "max-radius", Math.max(minRadius, 5));
+        long seed = longOption(options, "seed", 1);
+        File output = new File(positional[0]);
+
+        GameState gameState = new GameState();
+        gameState.setWorldSize(intOption(options, "width", 800), intOption(options, "height", 600));
+        if (options.containsKey("obstacles")) {
+            File imageFile = new File(options.get("obstacles"));
+            BufferedImage image = ObstacleImporter.readImage(imageFile);
+            double fitSize = Math.min((double) gameState.getWorldWidth() / image.getWidth(),
+                (double) gameState.getWorldHeight() / image.getHeight());
+            ObstacleImporter.Result imported = ObstacleImporter.fromImage(image, doubleOption(options, "pixel-size", fitSize));
+            gameState.addObstacles(imported.getObstacles(), imageFile.getName());
+            out.println("Obstacles: " + imported.getSummary());
+        }
+        long start = System.nanoTime();
+        int added = gameState.addBalls(count, placement, minRadius, maxRadius, seed);
+        long generated = System.nanoTime();
+        writeScene(output, gameState, maxRadius, options.containsKey("compress"));
+        long written = System.nanoTime();
+
+        out.printf("Generated %d of %d balls in %.0f ms -> %s (%d bytes, written in %.0f ms)%n",
+            added, count, (generated - start) / 1e6, output, output.length(), (written - generated) / 1e6);
+        if (added < count) {
+            err.printf("Only %d balls fit in a %d x %d world; use --width and --height for more room%n",
+                added, gameState.getWorldWidth(), gameState.getWorldHeight());
+        }
+        return 0;
+    }
+
+    private int batch(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length == 0) {
+            throw new IllegalArgumentException("batch expects a scenario list or scene files");
+        }
+        // Scene files run for --steps each; any other file is a list of "scene steps [width height]" lines
+        List<BatchRunner.Scenario> scenarios = new ArrayList<>();
+        int steps = intOption(options, "steps", 600);
+        for (String argument : positional) {
+            File file = new File(argument);
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".sim") || name.endsWith("." + SimulationBinaryFile.EXTENSION)) {
+                scenarios.add(new BatchRunner.Scenario(file, steps, BatchRunner.DEFAULT_WIDTH, BatchRunner.DEFAULT_HEIGHT));
+            } else {
+                scenarios.addAll(BatchRunner.readScenarios(file));
+            }
+        }
+
+        BatchRunner runner = new BatchRunner();
+        String threads = options.get("threads");
+        if ("virtual".equalsIgnoreCase(threads)) {
+            runner.setThreads(BatchRunner.VIRTUAL_THREADS);
+        } else if (threads != null) {
+            int count = intOption(options, "threads", 1);
+            if (count < 1) {
+                throw new IllegalArgumentException("--threads must be at least 1, or virtual");
+            }
+            runner.setThreads(count);
+        }
+        runner.setPhysicsRate(intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE));
+        runner.setBroadphase(broadphaseOption(options));
+        runner.setProgressStream(err);
+
+        long start = System.nanoTime();
+        List<BatchRunner.WorldResult> results = runner.run(scenarios);
+        long elapsed = System.nanoTime() - start;
+        File report = new File(options.getOrDefault("report", "batch-report.csv"));
+        BatchRunner.writeReport(report, results);
+
+        long totalSteps = 0;
+        int failed = 0;
+        for (BatchRunner.WorldResult result : results) {
+            if (result.isFailed()) {
+                failed++;
+            } else {
+                totalSteps += result.getScenario().getSteps();
+            }
+        }
+        out.printf("Ran %d worlds (%d failed), %d steps in %.1f s (%.0f steps/s overall) -> %s%n",
+            results.size(), failed, totalSteps, elapsed / 1e9, totalSteps * 1e9 / elapsed, report);
+        return failed == 0 ? 0 : 1;
+    }
+
+    private int sweep(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("sweep expects one base scene");
+        }
+        List<ParameterSweep.Axis> axes = new ArrayList<>();
+        for (ParameterSweep.Parameter parameter : ParameterSweep.Parameter.values()) {
+            String values = options.get(parameter.getOptionName());
+            if (values != null) {
+                axes.add(ParameterSweep.Axis.parse(parameter, values));
+            }
+        }
+
+        ParameterSweep sweep = new ParameterSweep(new File(positional[0]), axes);
+        sweep.setSteps(intOption(options, "steps", 600));
+        sweep.setWorldSize(intOption(options, "width", BatchRunner.DEFAULT_WIDTH),
+            intOption(options, "height", BatchRunner.DEFAULT_HEIGHT));
+        if (options.containsKey("threads")) {
+            sweep.setThreads(intOption(options, "threads", 1));
+        }
+        sweep.setPhysicsRate(intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE));
+        sweep.setBroadphase(broadphaseOption(options));
+        sweep.setSettleFraction(doubleOption(options, "settle-fraction", ParameterSweep.DEFAULT_SETTLE_FRACTION));
+        sweep.setProgressStream(err);
+
+        File output = new File(options.getOrDefault("out", "sweep.csv"));
+        long start = System.nanoTime();
+        ParameterSweep.Summary summary = sweep.run(output, options.containsKey("restart"));
+        long elapsed = System.nanoTime() - start;
+        out.printf("Swept %d points of %s: %d run now (%d failed), %d resumed from the file, in %.1f s -> %s%n",
+            summary.getPoints(), sweep.getBaseName(), summary.getRan(), summary.getFailed(), summary.getResumed(),
+            elapsed / 1e9, output);
+        return summary.getFailed() == 0 ? 0 : 1;
+    }
+
+    private int distribute(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("distribute expects one scene");
+        }
+        File sceneFile = new File(positional[0]);
+        int width = intOption(options, "width", BatchRunner.DEFAULT_WIDTH);
+        int height = intOption(options, "height", BatchRunner.DEFAULT_HEIGHT);
+        int steps = intOption(options, "steps", 600);
+        int physicsRate = intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE);
+        GameState.Broadphase broadphase = broadphaseOption(options);
+        GameState scene = new GameState();
+        SimulationFile.LoadResult loaded = SimulationFile.readScene(sceneFile, scene);
+        scene.setWorldSize(width, height);
+        scene.setBroadphase(broadphase);
+
+        SlabCoordinator coordinator = new SlabCoordinator();
+        coordinator.setWorkers(intOption(options, "workers", 2));
+        coordinator.setSteps(steps);
+        coordinator.setPhysicsRate(physicsRate);
+        coordinator.setHalo(doubleOption(options, "halo", -1));
+        coordinator.setWorkerHeap(options.get("worker-heap"));
+        coordinator.setProgressStream(err);
+        SlabCoordinator.Result result = coordinator.run(scene);
+        out.printf("Ran %d balls for %d steps on %d workers (halo %.1f px) in %.1f s (%.0f steps/s)%n",
+            result.getBalls().size(), steps, intOption(options, "workers", 2), result.getHalo(),
+            result.getRunNanos() / 1e9, steps * 1e9 / Math.max(1, result.getRunNanos()));
+
+        if (options.containsKey("out")) {
+            File output = new File(options.get("out"));
+            GameState finalScene = new GameState();
+            finalScene.loadScene(result.getBalls(), new ArrayList<>(scene.getObstacles()), scene.isGravityEnabled(),
+                scene.getGravityX(), scene.getGravityY(), scene.getSpringConstant());
+            writeScene(output, finalScene, loaded.getNewBallRadius(), false);
+            out.println("Saved the final scene to " + output);
+        }
+
+        if (options.containsKey("verify")) {
+            long start = System.nanoTime();
+            double deltaTime = 1.0 / physicsRate;
+            for (int step = 0; step < steps; step++) {
+                scene.updateBalls(width, height, deltaTime);
+            }
+            long elapsed = System.nanoTime() - start;
+            double deviation = SlabCoordinator.maxDeviation(scene.getBalls(), result.getBalls());
+            double tolerance = doubleOption(options, "tolerance", 1e-6);
+            out.printf("Single process: %.1f s; largest difference in ball position: %s%n", elapsed / 1e9,
+                deviation == 0 ? "none (identical)" : String.format("%.3g px", deviation));
+            if (deviation > tolerance) {
+                err.printf("Distributed run differs from the single-process engine by more than %s px%n", tolerance);
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private int serve(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("serve expects one scene");
+        }
+        int width = intOption(options, "width", BatchRunner.DEFAULT_WIDTH);
+        int height = intOption(options, "height", BatchRunner.DEFAULT_HEIGHT);
+        int physicsRate = intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE);
+        int streamRate = intOption(options, "stream-rate", 30);
+        long steps = longOption(options, "steps", 0);
+        if (physicsRate <= 0 || streamRate <= 0) {
+            throw new IllegalArgumentException("Physics and stream rates must be positive");
+        }
+        GameState gameState = new GameState();
+        SimulationFile.readScene(new File(positional[0]), gameState);
+        gameState.setWorldSize(width, height);
+        gameState.setBroadphase(broadphaseOption(options));
+
+        StateStreamServer server = new StateStreamServer(intOption(options, "port", StateStreamServer.DEFAULT_PORT));
+        server.setLogStream(err);
+        server.start(options.containsKey("loopback"));
+        out.printf("Streaming %d balls on port %d; watch with: view <host>:%d%n",
+            gameState.getBalls().size(), server.getPort(), server.getPort());
+        SharedStateExport export = null;
+        if (options.containsKey("share")) {
+            export = new SharedStateExport(new File(options.get("share")), gameState.getBalls().size());
+            export.publish(gameState);
+            out.println("Publishing every step to " + export.getFile());
+        }
+
+        FixedStepClock clock = new FixedStepClock();
+        clock.setPhysicsRate(physicsRate);
+        double deltaTime = 1.0 / physicsRate;
+        long publishNanos = 1_000_000_000L / streamRate;
+        long nextPublish = System.nanoTime();
+        long nextReport = nextPublish + 10_000_000_000L;
+        long stepped = 0;
+        try {
+            while (steps == 0 || stepped < steps) {
+                long now = System.nanoTime();
+                int due = clock.advance(now);
+                for (int i = 0; i < due && (steps == 0 || stepped < steps); i++) {
+                    gameState.updateBalls(width, height, deltaTime);
+                    stepped++;
+                    if (export != null) {
+                        export.publish(gameState);
+                    }
+                }
+                if (now >= nextPublish) {
+                    server.publish(gameState);
+                    nextPublish = Math.max(nextPublish + publishNanos, now);
+                }
+                if (now >= nextReport) {
+                    for (String summary : server.getClientSummaries()) {
+                        err.println(summary);
+                    }
+                    nextReport = now + 10_000_000_000L;
+                }
+                // Sleep until the next step or frame is due
+                long untilStep = (long) ((1 - clock.getAlpha()) * clock.getStepSeconds() * 1e9);
+                long wait = Math.min(untilStep, nextPublish - System.nanoTime());
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+            server.publish(gameState);
+            out.printf("Ran %d steps%n", stepped);
+        } finally {
+            server.stop();
+            if (export != null) {
+                export.close();
+            }
+        }
+        return 0;
+    }
+
+    private int view(String[] positional) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("view expects a host or host:port");
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            throw new IllegalArgumentException("view needs a display");
+        }
+        String address = positional[0];
+        int colon = address.lastIndexOf(':');
+        String host = colon >= 0 ? address.substring(0, colon) : address;
+        int port = StateStreamServer.DEFAULT_PORT;
+        if (colon >= 0) {
+            try {
+                port = Integer.parseInt(address.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a port: " + address.substring(colon + 1));
+            }
+        }
+        RemoteViewer.show(host, port);
+        return 0;
+    }
+
+    /**
+     * Stream a scene to two viewers over loopback: one reads every frame in lockstep with the
+     * simulation and is checked against the server's quantized positions frame by frame, the
+     * other reads slowly and must skip frames without slowing the simulation down
+     */
+    private int streamTest(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("stream-test expects one scene");
+        }
+        int width = intOption(options, "width", BatchRunner.DEFAULT_WIDTH);
+        int height = intOption(options, "height", BatchRunner.DEFAULT_HEIGHT);
+        int physicsRate = intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE);
+        int frames = intOption(options, "frames", 600);
+        int stepsPerFrame = intOption(options, "steps-per-frame", 2);
+        if (frames <= 0 || stepsPerFrame <= 0 || physicsRate <= 0) {
+            throw new IllegalArgumentException("Frames, steps per frame and physics rate must be positive");
+        }
+        GameState gameState = new GameState();
+        SimulationFile.readScene(new File(positional[0]), gameState);
+        gameState.setWorldSize(width, height);
+        double deltaTime = 1.0 / physicsRate;
+        long finalStep = gameState.getStepCount() + (long) (frames - 1) * stepsPerFrame;
+
+        StateStreamServer server = new StateStreamServer(0);
+        server.setLogStream(null);
+        server.start(true);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (Socket socket = new Socket(loopback, server.getPort());
+             Socket slowSocket = new Socket(loopback, server.getPort())) {
+            RemoteViewer.Decoder viewer = new RemoteViewer.Decoder(socket.getInputStream());
+            RemoteViewer.Decoder slowViewer = new RemoteViewer.Decoder(slowSocket.getInputStream());
+            AtomicReference<IOException> slowError = new AtomicReference<>();
+            Thread slowThread = new Thread(() -> {
+                try {
+                    while (slowViewer.readFrame() && slowViewer.getStep() != finalStep) {
+                        Thread.sleep(20);
+                    }
+                } catch (IOException e) {
+                    slowError.set(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "slow-viewer");
+            slowThread.start();
+
+            long keyframeBytes = 0;
+            long deltaBytes = 0;
+            long publishNanos = 0;
+            long maxPublishNanos = 0;
+            for (int frame = 0; frame < frames; frame++) {
+                if (frame > 0) {
+                    for (int i = 0; i < stepsPerFrame; i++) {
+                        gameState.updateBalls(width, height, deltaTime);
+                    }
+                }
+                long start = System.nanoTime();
+                server.publish(gameState);
+                long elapsed = System.nanoTime() - start;
+                publishNanos += elapsed;
+                maxPublishNanos = Math.max(maxPublishNanos, elapsed);
+
+                if (!viewer.readFrame()) {
+                    throw new IOException("The server closed the stream after " + frame + " frames");
+                }
+                if (viewer.isKeyframe()) {
+                    keyframeBytes += viewer.getLastFrameBytes();
+                } else {
+                    deltaBytes += viewer.getLastFrameBytes();
+                }
+                String mismatch = compareDecoded(viewer, gameState);
+                if (mismatch != null) {
+                    err.println("Frame " + frame + ": " + mismatch);
+                    return 1;
+                }
+            }
+
+            slowThread.join(30_000);
+            if (slowThread.isAlive()) {
+                slowThread.interrupt();
+                err.println("The slow viewer never received the last frame");
+                return 1;
+            }
+            if (slowError.get() != null) {
+                throw slowError.get();
+            }
+            String slowMismatch = compareDecoded(slowViewer, gameState);
+            if (slowMismatch != null) {
+                err.println("Slow viewer: " + slowMismatch);
+                return 1;
+            }
+
+            int balls = gameState.getBalls().size();
+            long keyframes = viewer.getKeyframes();
+            long deltas = frames - keyframes;
+            out.printf("Streamed %d frames of %d balls over loopback, %d steps apart%n", frames, balls, stepsPerFrame);
+            out.printf("Keyframes: %d, %.0f bytes each (%.1f bytes per ball)%n", keyframes,
+                (double) keyframeBytes / keyframes, (double) keyframeBytes / keyframes / Math.max(1, balls));
+            if (deltas > 0) {
+                double perFrame = (double) deltaBytes / deltas;
+                out.printf("Deltas: %.0f bytes per frame, %.2f bytes per ball (%.1fx smaller than x and y as doubles)%n",
+                    perFrame, perFrame / Math.max(1, balls), balls * 16.0 / perFrame);
+            }
+            out.printf("Publish on the simulation thread: %.0f us mean, %.0f us max%n",
+                publishNanos / 1e3 / frames, maxPublishNanos / 1e3);
+            out.printf("Slow viewer: received %d of %d frames and caught up to the last one%n",
+                slowViewer.getFrames(), frames);
+            out.println("Every decoded frame matches the server's quantized positions");
+            return 0;
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Publish a scene step by step to a live state file while another thread reads snapshots of
+     * it through its own mapping. Each published state's checksum is recorded before it is
+     * written, and every snapshot must match the checksum of its step, so a torn read fails.
+     */
+    private int shareTest(String[] positional, Map<String, String> options) throws IOException, InterruptedException {
+        if (positional.length != 1) {
+            throw new IllegalArgumentException("share-test expects one scene");
+        }
+        int width = intOption(options, "width", BatchRunner.DEFAULT_WIDTH);
+        int height = intOption(options, "height", BatchRunner.DEFAULT_HEIGHT);
+        int physicsRate = intOption(options, "physics-rate", FixedStepClock.DEFAULT_PHYSICS_RATE);
+        int steps = intOption(options, "steps", 2000);
+        if (steps <= 0 || physicsRate <= 0) {
+            throw new IllegalArgumentException("Steps and physics rate must be positive");
+        }
+        GameState gameState = new GameState();
+        SimulationFile.readScene(new File(positional[0]), gameState);
+        gameState.setWorldSize(width, height);
+        double deltaTime = 1.0 / physicsRate;
+
+        File file;
+        if (options.containsKey("out")) {
+            file = new File(options.get("out"));
+        } else {
+            file = File.createTempFile("share-test", "." + SharedStateExport.EXTENSION);
+            file.deleteOnExit();
+        }
+        Map<Long, Long> checksums = new ConcurrentHashMap<>();
+        AtomicReference<Exception> readerError = new AtomicReference<>();
+        long[] readerCounts = new long[3]; // Snapshots, torn snapshots, retries; read after join
+
+        SharedStateExport export = new SharedStateExport(file, gameState.getBalls().size());
+        Thread readerThread;
+        long publishNanos = 0;
+        long start = System.nanoTime();
+        try {
+            checksums.put(gameState.getStepCount(), checksum(gameState));
+            export.publish(gameState);
+            readerThread = new Thread(() -> {
+                try (SharedStateReader reader = new SharedStateReader(file)) {
+                    SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+                    boolean closed;
+                    do {
+                        closed = reader.isWriterClosed();
+                        reader.read(snapshot);
+                        readerCounts[0]++;
+                        Long expected = checksums.get(snapshot.getStep());
+                        if (expected == null || expected != checksum(snapshot)) {
+                            readerCounts[1]++;
+                        }
+                    } while (!closed);
+                    readerCounts[2] = reader.getRetries();
+                } catch (IOException | RuntimeException e) {
+                    readerError.set(e);
+                }
+            }, "share-reader");
+            readerThread.start();
+
+            for (int step = 0; step < steps; step++) {
+                gameState.updateBalls(width, height, deltaTime);
+                checksums.put(gameState.getStepCount(), checksum(gameState));
+                long publishStart = System.nanoTime();
+                export.publish(gameState);
+                publishNanos += System.nanoTime() - publishStart;
+            }
+        } finally {
+            export.close();
+        }
+        readerThread.join();
+        long elapsed = System.nanoTime() - start;
+        if (readerError.get() != null) {
+            throw new IOException("Reader failed: " + readerError.get().getMessage(), readerError.get());
+        }
+
+        int balls = gameState.getBalls().size();
+        out.printf("Published %d steps of %d balls to %s (%.1f MB)%n", steps, balls, file,
+            file.length() / (1024.0 * 1024.0));
+        out.printf("Publish on the simulation thread: %.0f us per step, %.1f ns per ball%n",
+            publishNanos / 1e3 / steps, (double) publishNanos / steps / Math.max(1, balls));
+        out.printf("Reader: %d snapshots in %.2f s (%.0f per second), %d retries while the writer was busy%n",
+            readerCounts[0], elapsed / 1e9, readerCounts[0] * 1e9 / elapsed, readerCounts[2]);
+        if (readerCounts[1] > 0) {
+            err.printf("%d snapshots did not match the state published for their step%n", readerCounts[1]);
+            return 1;
+        }
+        out.println("Every snapshot matches the state published for its step");
+        return 0;
+    }
+
+    private static long checksum(GameState gameState) {
+        long checksum = 17;
+        for (Ball ball : gameState.getBalls()) {
+            checksum = checksum(checksum, ball.getX(), ball.getY(), ball.getVelocityX(), ball.getVelocityY());
+        }
+        return checksum;
+    }
+
+    private static long checksum(SharedStateReader.Snapshot snapshot) {
+        long checksum = 17;
+        for (int i = 0; i < snapshot.getBallCount(); i++) {
+            checksum = checksum(checksum, snapshot.getX()[i], snapshot.getY()[i], snapshot.getVelocityX()[i],
+                snapshot.getVelocityY()[i]);
+        }
+        return checksum;
+    }
+
+    private static long checksum(long checksum, double x, double y, double vx, double vy) {
+        checksum = checksum * 31 + Double.doubleToLongBits(x);
+        checksum = checksum * 31 + Double.doubleToLongBits(y);
+        checksum = checksum * 31 + Double.doubleToLongBits(vx);
+        return checksum * 31 + Double.doubleToLongBits(vy);
+    }
+
+    /**
+     * Compare what a viewer decoded with the world it should show
+     * @return A description of the first difference, or null when they match
+     */
+    private static String compareDecoded(RemoteViewer.Decoder viewer, GameState gameState) {
+        if (viewer.getStep() != gameState.getStepCount()) {
+            return "viewer is at step " + viewer.getStep() + ", server at " + gameState.getStepCount();
+        }
+        List<Ball> balls = gameState.getBalls();
+        if (viewer.getBallCount() != balls.size()) {
+            return "viewer has " + viewer.getBallCount() + " balls, server " + balls.size();
+        }
+        for (int i = 0; i < balls.size(); i++) {
+            if (viewer.getQuantizedX(i) != StateStreamServer.quantize(balls.get(i).getX())
+                || viewer.getQuantizedY(i) != StateStreamServer.quantize(balls.get(i).getY())) {
+                return "ball " + i + " decoded at a different position";
+            }
+        }
+        return null;
+    }
+
+    private static GameState.Broadphase broadphaseOption(Map<String, String> options) {
+        String broadphase = options.getOrDefault("broadphase", "sweep");
+        if ("sweep".equalsIgnoreCase(broadphase)) {
+            return GameState.Broadphase.SORT_AND_SWEEP;
+        } else if ("all-pairs".equalsIgnoreCase(broadphase)) {
+            return GameState.Broadphase.ALL_PAIRS;
+        }
+        throw new IllegalArgumentException("Unknown broadphase: " + broadphase);
+    }
+
+    /**
+     * Write a scene in the format given by the file extension
+     */
+    private static void writeScene(File output, GameState gameState, int newBallRadius, boolean compress) throws IOException {
+        if (output.getName().toLowerCase().endsWith("." + SimulationBinaryFile.EXTENSION)) {
+            SimulationBinaryFile.write(output, gameState, newBallRadius, compress);
+        } else {
+            SimulationFile.write(output, gameState, newBallRadius);
+        }
+    }
+
+    /**
+     * Split arguments after the command into --name value options, flags and positional arguments
+     */
+    private static String[] parseOptions(String[] args, Map<String, String> options) {
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                String name = args[i].substring(2);
+                if (FLAGS.contains(name)) {
+                    options.put(name, "");
+                } else if (i + 1 < args.length) {
+                    options.put(name, args[++i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for --" + name);
+                }
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        return positional.toArray(new String[0]);
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number, got: " + value);
+        }
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number, got: " + value);
+        }
+    }
+
+    private static long longOption(Map<String, String> options, String name, long defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number, got: " + value);
+        }
+    }
+}
@@ -361,6 +361,9 @@ public class ControlPanel extends JPanel {
                     gravitySelector.setEnabled(true);
                     gravitySelector.setSelectedIndex(previousIndex); // Previous Index or Gravity Mode selected will return rather than "Default"
                 }
+            } else if (e.getEventType() == BallEvent.Type.SCENE_LOADED) {
+                // A loaded scene sets gravity in bulk without a GRAVITY_TOGGLED event
+                gravitySelector.setEnabled(gameState.isGravityEnabled());
             }
         });
     }
@@ -376,6 +379,8 @@ public class ControlPanel extends JPanel {
                 case OBSTACLE_REMOVED:
                 case OBSTACLE_MOVED:
                 case OBSTACLES_CLEARED:
+                case OBSTACLES_IMPORTED:
+                case SCENE_LOADED:
                     updateObstacleCount();
                     break;
                 default:
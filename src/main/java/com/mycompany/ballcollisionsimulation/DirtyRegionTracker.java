@@ -0,0 +1,136 @@
+/*
+ * Dirty Region Tracker - Tile-based bookkeeping of changed screen areas
+ * Used by GamePanel to repaint only the parts of the frame that changed
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Dirty Region Tracker - Marks rectangles on a tile grid and merges them into repaint runs
+ * @author Sentinail
+ */
+public class DirtyRegionTracker {
+    public static final int TILE_SIZE = 32;
+
+    private int width;
+    private int height;
+    private int tilesX;
+    private int tilesY;
+    private boolean[] dirtyTiles = new boolean[0];
+    private int dirtyTileCount;
+
+    // Horizontal runs of dirty tiles, rebuilt by buildRuns()
+    private int[] runs = new int[0]; // x, y, width, height per run
+    private int runCount;
+
+    /**
+     * Resize the tile grid to cover a frame and clear all marks
+     */
+    public void reset(int frameWidth, int frameHeight) {
+        if (frameWidth != width || frameHeight != height) {
+            width = frameWidth;
+            height = frameHeight;
+            tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+            tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+            dirtyTiles = new boolean[tilesX * tilesY];
+        }
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(dirtyTiles, false);
+        dirtyTileCount = 0;
+        runCount = 0;
+    }
+
+    /**
+     * Mark every tile touched by the rectangle as dirty
+     */
+    public void mark(int x, int y, int w, int h) {
+        if (x + w < 0 || y + h < 0) {
+            return;
+        }
+        int minTileX = Math.max(0, x / TILE_SIZE);
+        int minTileY = Math.max(0, y / TILE_SIZE);
+        int maxTileX = Math.min(tilesX - 1, (x + w) / TILE_SIZE);
+        int maxTileY = Math.min(tilesY - 1, (y + h) / TILE_SIZE);
+        for (int ty = minTileY; ty <= maxTileY; ty++) {
+            int row = ty * tilesX;
+            for (int tx = minTileX; tx <= maxTileX; tx++) {
+                if (!dirtyTiles[row + tx]) {
+                    dirtyTiles[row + tx] = true;
+                    dirtyTileCount++;
+                }
+            }
+        }
+    }
+
+    public void mark(Rectangle rect) {
+        mark(rect.x, rect.y, rect.width, rect.height);
+    }
+
+    public boolean isEmpty() {
+        return dirtyTileCount == 0;
+    }
+
+    /**
+     * Fraction of the frame area covered by dirty tiles
+     */
+    public double getDirtyFraction() {
+        return dirtyTiles.length == 0 ? 0 : (double) dirtyTileCount / dirtyTiles.length;
+    }
+
+    public boolean isTileDirty(int tileX, int tileY) {
+        return dirtyTiles[tileY * tilesX + tileX];
+    }
+
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    /**
+     * Merge dirty tiles of each tile row into horizontal runs, clipped to the frame
+     * @return The number of runs
+     */
+    public int buildRuns() {
+        runCount = 0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            int tx = 0;
+            while (tx < tilesX) {
+                if (!dirtyTiles[ty * tilesX + tx]) {
+                    tx++;
+                    continue;
+                }
+                int start = tx;
+                while (tx < tilesX && dirtyTiles[ty * tilesX + tx]) {
+                    tx++;
+                }
+                if (runs.length < (runCount + 1) * 4) {
+                    runs = Arrays.copyOf(runs, Math.max(64, runs.length * 2));
+                }
+                int x = start * TILE_SIZE;
+                int y = ty * TILE_SIZE;
+                runs[runCount * 4] = x;
+                runs[runCount * 4 + 1] = y;
+                runs[runCount * 4 + 2] = Math.min(width, tx * TILE_SIZE) - x;
+                runs[runCount * 4 + 3] = Math.min(height, y + TILE_SIZE) - y;
+                runCount++;
+            }
+        }
+        return runCount;
+    }
+
+    /**
+     * Copy a run built by buildRuns() into the given rectangle
+     */
+    public void getRun(int index, Rectangle out) {
+        out.setBounds(runs[index * 4], runs[index * 4 + 1], runs[index * 4 + 2], runs[index * 4 + 3]);
+    }
+}
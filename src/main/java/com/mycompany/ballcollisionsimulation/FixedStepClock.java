@@ -0,0 +1,82 @@
+/*
+ * Fixed Step Clock - Accumulator for fixed-rate physics
+ * Converts real elapsed time into whole physics steps plus an interpolation alpha
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+/**
+ * Fixed Step Clock - Runs physics at a constant rate independent of the render rate.
+ * Elapsed time is accumulated and consumed in whole steps; the remainder, as a fraction
+ * of a step, tells the renderer how far to blend between the last two physics states.
+ * @author Sentinail
+ */
+public class FixedStepClock {
+    public static final int DEFAULT_PHYSICS_RATE = 60;
+    private static final int MAX_STEPS_PER_ADVANCE = 8; // Beyond this the backlog is dropped
+
+    private int physicsRate = DEFAULT_PHYSICS_RATE;
+    private long stepNanos = 1_000_000_000L / DEFAULT_PHYSICS_RATE;
+    private long lastTime = -1;
+    private long accumulator;
+    private long droppedSteps;
+
+    /**
+     * Add the time elapsed since the previous call to the accumulator
+     * @param now Current System.nanoTime()
+     * @return The number of physics steps to run now
+     */
+    public int advance(long now) {
+        if (lastTime < 0) {
+            lastTime = now;
+            return 0;
+        }
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        int steps = (int) Math.min(MAX_STEPS_PER_ADVANCE, accumulator / stepNanos);
+        accumulator -= steps * stepNanos;
+        if (accumulator >= stepNanos) {
+            // The simulation cannot keep up; drop the backlog instead of spiralling
+            droppedSteps += accumulator / stepNanos;
+            accumulator %= stepNanos;
+        }
+        return steps;
+    }
+
+    /**
+     * Forget the elapsed time, e.g. after the loop was paused or switched
+     */
+    public void reset() {
+        lastTime = -1;
+        accumulator = 0;
+    }
+
+    /**
+     * Fraction of a step left in the accumulator, between 0 and 1
+     */
+    public double getAlpha() {
+        return (double) accumulator / stepNanos;
+    }
+
+    public double getStepSeconds() {
+        return stepNanos / 1_000_000_000.0;
+    }
+
+    public void setPhysicsRate(int rate) {
+        physicsRate = Math.max(1, rate);
+        stepNanos = 1_000_000_000L / physicsRate;
+        accumulator = Math.min(accumulator, stepNanos - 1);
+    }
+
+    public int getPhysicsRate() {
+        return physicsRate;
+    }
+
+    /**
+     * Total physics steps skipped because the simulation fell too far behind
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Flight Events - Java Flight Recorder events for the simulation
+ * Lets physics steps, painting and file I/O be lined up with GC and JIT activity in one recording
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.File;
+
+/**
+ * Flight Events - Custom JFR event types and the helpers that emit them.
+ * Every event is disabled by default; a recording has to enable them by name (see
+ * src/main/assets/jfr/simulation.jfc). While an event type is disabled, its begin helper
+ * checks the type's cached enabled state and returns null without allocating an event.
+ * Callers only use the static helpers, so on a JVM without jdk.jfr the event classes are
+ * never loaded and the helpers do nothing.
+ * @author Sentinail
+ */
+public final class FlightEvents {
+    private static final boolean AVAILABLE = isFlightRecorderPresent();
+
+    @Name("ballcollisionsimulation.PhysicsStep")
+    @Label("Physics Step")
+    @Description("One call of GameState.updateBalls, including all substeps")
+    @Category({"Ball Collision Simulation", "Physics"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class PhysicsStepEvent extends Event {
+        @Label("Balls")
+        int ballCount;
+        @Label("Obstacles")
+        int obstacleCount;
+        @Label("Substeps")
+        int substeps;
+        @Label("Candidate Pairs")
+        int candidatePairs;
+        @Label("Colliding Pairs")
+        int collisionPairs;
+        @Label("Broadphase")
+        String broadphase;
+    }
+
+    @Name("ballcollisionsimulation.StepPhase")
+    @Label("Physics Step Phase")
+    @Description("One phase of a physics substep: integration, obstacles, broadphase, narrowphase or events")
+    @Category({"Ball Collision Simulation", "Physics"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class StepPhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Balls")
+        int ballCount;
+        @Label("Candidate Pairs")
+        int candidatePairs;
+        @Label("Colliding Pairs")
+        int collisionPairs;
+    }
+
+    @Name("ballcollisionsimulation.Paint")
+    @Label("Paint")
+    @Description("Drawing of one frame or of the dirty part of it")
+    @Category({"Ball Collision Simulation", "Rendering"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class PaintEvent extends Event {
+        @Label("Surface")
+        String surface;
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+        @Label("Balls")
+        int ballCount;
+        @Label("Detail Level")
+        String detailLevel;
+    }
+
+    @Name("ballcollisionsimulation.SimulationFile")
+    @Label("Simulation File")
+    @Description("Saving or loading of a simulation file")
+    @Category({"Ball Collision Simulation", "I/O"})
+    @Enabled(false)
+    static final class FileEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Path")
+        String path;
+        @Label("Balls")
+        int ballCount;
+        @Label("Obstacles")
+        int obstacleCount;
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * The event types, looked up once; only loaded when jdk.jfr is present
+     */
+    private static final class Types {
+        static final EventType PHYSICS_STEP = EventType.getEventType(PhysicsStepEvent.class);
+        static final EventType STEP_PHASE = EventType.getEventType(StepPhaseEvent.class);
+        static final EventType PAINT = EventType.getEventType(PaintEvent.class);
+        static final EventType FILE = EventType.getEventType(FileEvent.class);
+    }
+
+    private FlightEvents() {
+    }
+
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Start timing a physics step
+     * @return The event to pass to commitPhysicsStep, or null when JFR is not available or
+     *         no recording enables the event
+     */
+    static PhysicsStepEvent beginPhysicsStep() {
+        if (!AVAILABLE || !Types.PHYSICS_STEP.isEnabled()) {
+            return null;
+        }
+        PhysicsStepEvent event = new PhysicsStepEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitPhysicsStep(PhysicsStepEvent event, GameState gameState) {
+        if (event != null && event.shouldCommit()) {
+            event.ballCount = gameState.getBalls().size();
+            event.obstacleCount = gameState.getObstacles().size();
+            event.substeps = gameState.getSubsteps();
+            event.candidatePairs = gameState.getCandidatePairCount();
+            event.collisionPairs = gameState.getCollisionPairCount();
+            event.broadphase = gameState.getBroadphase().name();
+            event.commit();
+        }
+    }
+
+    static StepPhaseEvent beginStepPhase() {
+        if (!AVAILABLE || !Types.STEP_PHASE.isEnabled()) {
+            return null;
+        }
+        StepPhaseEvent event = new StepPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitStepPhase(StepPhaseEvent event, GameState.StepPhase phase, int ballCount,
+                                int candidatePairs, int collisionPairs) {
+        if (event != null && event.shouldCommit()) {
+            event.phase = phase.name();
+            event.ballCount = ballCount;
+            event.candidatePairs = candidatePairs;
+            event.collisionPairs = collisionPairs;
+            event.commit();
+        }
+    }
+
+    static PaintEvent beginPaint() {
+        if (!AVAILABLE || !Types.PAINT.isEnabled()) {
+            return null;
+        }
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitPaint(PaintEvent event, String surface, int width, int height, int ballCount,
+                           GamePanel.DetailLevel detailLevel) {
+        if (event != null && event.shouldCommit()) {
+            event.surface = surface;
+            event.width = width;
+            event.height = height;
+            event.ballCount = ballCount;
+            event.detailLevel = detailLevel.name();
+            event.commit();
+        }
+    }
+
+    static FileEvent beginFile() {
+        if (!AVAILABLE || !Types.FILE.isEnabled()) {
+            return null;
+        }
+        FileEvent event = new FileEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitFile(FileEvent event, String operation, File file, int ballCount, int obstacleCount,
+                           boolean succeeded) {
+        if (event != null && event.shouldCommit()) {
+            event.operation = operation;
+            event.path = file.getPath();
+            event.ballCount = ballCount;
+            event.obstacleCount = obstacleCount;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+}
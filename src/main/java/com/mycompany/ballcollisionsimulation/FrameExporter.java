@@ -0,0 +1,247 @@
+/*
+ * Frame Exporter - Headless offline rendering of a simulation run
+ * Renders frames with the GamePanel drawing code and encodes them on worker threads
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Frame Exporter - Steps the simulation on the calling thread and pipelines the encoding.
+ * The simulation thread renders each frame into an image taken from a fixed pool and hands
+ * it to a bounded queue; encoder threads write the frame and return the image to the pool.
+ * Both queues are bounded, so memory stays constant however long the run is.
+ * @author Sentinail
+ */
+public class FrameExporter {
+    public enum Format {
+        PNG, // Numbered frame_000000.png files in the output directory
+        RAW  // One frames.rgb file of packed 24-bit RGB frames, e.g. for ffmpeg -f rawvideo
+    }
+
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final GameState gameState;
+    private final GamePanel gamePanel;
+    private int width = 800;
+    private int height = 600;
+    private int frameRate = 60;
+    private int physicsRate = FixedStepClock.DEFAULT_PHYSICS_RATE;
+    private int encoderThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private Format format = Format.PNG;
+    private PrintStream progress = System.err;
+
+    /**
+     * A rendered frame waiting to be encoded; index -1 tells an encoder to stop
+     */
+    private static final class Frame {
+        final int index;
+        final BufferedImage image;
+
+        Frame(int index, BufferedImage image) {
+            this.index = index;
+            this.image = image;
+        }
+    }
+
+    public FrameExporter(GameState gameState) {
+        this.gameState = gameState;
+        this.gamePanel = new GamePanel(gameState);
+        gamePanel.setInstructionsVisible(false);
+    }
+
+    public void setFrameSize(int width, int height) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+    }
+
+    /**
+     * Set the frame rate of the recording; simulated time advances 1/rate per frame
+     */
+    public void setFrameRate(int frameRate) {
+        this.frameRate = Math.max(1, frameRate);
+    }
+
+    public void setPhysicsRate(int physicsRate) {
+        this.physicsRate = Math.max(1, physicsRate);
+    }
+
+    public void setEncoderThreads(int threads) {
+        this.encoderThreads = Math.max(1, threads);
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Set where progress lines are printed, or null for a quiet export
+     */
+    public void setProgressStream(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * The panel whose drawing code renders the frames, e.g. to show the HUD or move the camera
+     */
+    public GamePanel getGamePanel() {
+        return gamePanel;
+    }
+
+    /**
+     * Simulate and export a number of frames into the output directory
+     */
+    public void export(File outputDirectory, int frameCount) throws IOException, InterruptedException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outputDirectory);
+        }
+
+        // Two frames in flight per encoder keeps every encoder busy while the next frame renders
+        int poolSize = encoderThreads * 2 + 1;
+        BlockingQueue<BufferedImage> freeImages = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            freeImages.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+        BlockingQueue<Frame> pending = new ArrayBlockingQueue<>(encoderThreads * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        FileChannel rawChannel = null;
+        if (format == Format.RAW) {
+            RandomAccessFile rawFile = new RandomAccessFile(new File(outputDirectory, "frames.rgb"), "rw");
+            rawFile.setLength(0);
+            rawChannel = rawFile.getChannel();
+        }
+
+        List<Thread> encoders = new ArrayList<>();
+        for (int i = 0; i < encoderThreads; i++) {
+            Thread encoder = new Thread(encodeLoop(pending, freeImages, outputDirectory, rawChannel, failure),
+                "frame-encoder-" + (i + 1));
+            encoder.setDaemon(true);
+            encoder.start();
+            encoders.add(encoder);
+        }
+
+        // Synthetic time drives the same fixed-step clock as the live view
+        FixedStepClock clock = new FixedStepClock();
+        clock.setPhysicsRate(physicsRate);
+        long frameNanos = 1_000_000_000L / frameRate;
+        clock.advance(0);
+
+        long start = System.nanoTime();
+        long lastProgress = start;
+        try {
+            for (int frame = 0; frame < frameCount && failure.get() == null; frame++) {
+                int steps = clock.advance((frame + 1) * frameNanos);
+                for (int i = 0; i < steps; i++) {
+                    gameState.updateBalls(width, height, clock.getStepSeconds());
+                }
+                gamePanel.setInterpolationAlpha(clock.getAlpha());
+
+                BufferedImage image = freeImages.take();
+                FlightEvents.PaintEvent paintEvent = FlightEvents.beginPaint();
+                Graphics2D g2d = image.createGraphics();
+                try {
+                    gamePanel.renderFrame(g2d, width, height);
+                } finally {
+                    g2d.dispose();
+                }
+                gamePanel.commitPaintEvent(paintEvent, "export", width, height);
+                pending.put(new Frame(frame, image));
+
+                long now = System.nanoTime();
+                if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    progress.printf("Exported %d / %d frames (%.1f fps)%n",
+                        frame + 1, frameCount, (frame + 1) * 1e9 / (now - start));
+                }
+            }
+        } finally {
+            for (int i = 0; i < encoders.size(); i++) {
+                pending.put(new Frame(-1, null));
+            }
+            for (Thread encoder : encoders) {
+                encoder.join();
+            }
+            if (rawChannel != null) {
+                rawChannel.close();
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IOException("Frame encoding failed", error);
+        }
+        if (progress != null) {
+            long elapsed = System.nanoTime() - start;
+            progress.printf("Exported %d frames of %dx%d to %s in %.1f s (%.1f fps, %d encoder threads)%n",
+                frameCount, width, height, outputDirectory, elapsed / 1e9, frameCount * 1e9 / elapsed, encoderThreads);
+        }
+    }
+
+    private Runnable encodeLoop(BlockingQueue<Frame> pending, BlockingQueue<BufferedImage> freeImages,
+                                File outputDirectory, FileChannel rawChannel, AtomicReference<Throwable> failure) {
+        return () -> {
+            ByteBuffer rgb = rawChannel != null ? ByteBuffer.allocate(width * height * 3) : null;
+            while (true) {
+                Frame frame;
+                try {
+                    frame = pending.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (frame.index < 0) {
+                    return;
+                }
+                try {
+                    if (failure.get() == null) {
+                        if (rawChannel != null) {
+                            writeRaw(frame, rgb, rawChannel);
+                        } else {
+                            File file = new File(outputDirectory, String.format("frame_%06d.png", frame.index));
+                            if (!ImageIO.write(frame.image, "png", file)) {
+                                throw new IOException("No PNG writer available");
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    freeImages.add(frame.image);
+                }
+            }
+        };
+    }
+
+    /**
+     * Pack a frame to RGB bytes and write it at its own offset, so encoders never wait on each other
+     */
+    private void writeRaw(Frame frame, ByteBuffer rgb, FileChannel channel) throws IOException {
+        int[] pixels = ((DataBufferInt) frame.image.getRaster().getDataBuffer()).getData();
+        rgb.clear();
+        for (int pixel : pixels) {
+            rgb.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+        }
+        rgb.flip();
+        long position = (long) frame.index * rgb.capacity();
+        while (rgb.hasRemaining()) {
+            position += channel.write(rgb, position);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Game Canvas - Heavyweight surface for active rendering
+ * Presents GamePanel frames through a BufferStrategy
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Game Canvas - Active rendering target that draws GamePanel frames with page flipping
+ * @author Sentinail
+ */
+public class GameCanvas extends Canvas {
+    private static final long serialVersionUID = 1L;
+    private final GamePanel gamePanel;
+
+    public GameCanvas(GamePanel gamePanel) {
+        this.gamePanel = gamePanel;
+        setBackground(Color.WHITE);
+        setPreferredSize(gamePanel.getPreferredSize());
+        setIgnoreRepaint(true); // Frames are presented only by the render loop
+        setFocusable(false); // Keep keyboard focus in Swing so the key bindings keep working
+        gamePanel.installMouseListeners(this);
+    }
+
+    /**
+     * Render one frame into the back buffer and present it
+     * @return Nanoseconds spent presenting the frame, or -1 if the canvas is not ready
+     */
+    public long renderAndPresent() {
+        int width = getWidth();
+        int height = getHeight();
+        if (!isDisplayable() || width <= 0 || height <= 0) {
+            return -1;
+        }
+
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            createBufferStrategy(2);
+            strategy = getBufferStrategy();
+        }
+
+        long presentNanos;
+        do {
+            do {
+                FlightEvents.PaintEvent paintEvent = FlightEvents.beginPaint();
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    gamePanel.renderFrame(g2d, width, height);
+                } finally {
+                    g2d.dispose();
+                }
+                gamePanel.commitPaintEvent(paintEvent, "canvas", width, height);
+            } while (strategy.contentsRestored());
+
+            long presentStart = System.nanoTime();
+            strategy.show();
+            Toolkit.getDefaultToolkit().sync();
+            presentNanos = System.nanoTime() - presentStart;
+        } while (strategy.contentsLost());
+
+        return presentNanos;
+    }
+}
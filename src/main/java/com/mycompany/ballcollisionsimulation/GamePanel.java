@@ -8,46 +8,201 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseMotionAdapter;
+import java.awt.event.MouseWheelEvent;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Game Panel - View component for rendering and interaction in collision simulation
  * @author Sentinail
  */
 public class GamePanel extends JPanel {
+    /**
+     * Level of detail used to draw balls, chosen from the current ball count
+     */
+    public enum DetailLevel {
+        FULL,    // Anti-aliased circles with outlines
+        REDUCED, // No anti-aliasing or outlines, drawn in color order
+        MINIMAL  // Quantized colors batched into one Path2D fill per color, tiny balls as rects
+    }
+
+    public static final int DEFAULT_REDUCED_DETAIL_THRESHOLD = 2000;
+    public static final int DEFAULT_MINIMAL_DETAIL_THRESHOLD = 10000;
+    private static final int SMALL_BALL_RADIUS = 3; // Balls this small are drawn as rects in MINIMAL
+    private static final int COLOR_BUCKET_BITS = 3; // Bits kept per channel when batching colors
+    private static final int COLOR_BUCKETS = 1 << (COLOR_BUCKET_BITS * 3);
+    public static final double DEFAULT_DIRTY_AREA_THRESHOLD = 0.4; // Fraction of the panel
+    private static final int PAINT_MARGIN = 2; // Covers the widest ball and obstacle borders
+    private static final long DIRTY_STATUS_INTERVAL_NANOS = 500_000_000L;
+    private static final int GRID_SIZE = 25; // Grid cell size in pixels
+    private static final Color GRID_COLOR = new Color(230, 230, 230);
+    private static final Color OUTSIDE_WORLD_COLOR = new Color(200, 200, 200);
+    private static final int MIN_GRID_SPACING = 4; // Screen pixels below which the grid is hidden
+    private static final double WHEEL_ZOOM_STEP = 1.1;
+    private static final Font HUD_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final BasicStroke DEFAULT_STROKE = new BasicStroke(1);
+    private static final BasicStroke DRAG_LINE_STROKE =
+        new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{5}, 0);
+    private static final String[] STATIC_INSTRUCTIONS = {
+        "Controls: A=Add Ball | C=Clear All | G=Toggle Gravity | 1-5=Add Multiple Balls | P=Pause | Left/Right=Step Back/Forward",
+        "Mouse: Click & Drag to move balls | Double-click empty space to add ball | Right-drag pan, wheel zoom"
+    };
+
     private GameState gameState;
+    private final Camera camera = new Camera();
     private boolean gridVisible = true; // Grid visibility toggle
+    private int reducedDetailThreshold = DEFAULT_REDUCED_DETAIL_THRESHOLD;
+    private int minimalDetailThreshold = DEFAULT_MINIMAL_DETAIL_THRESHOLD;
+    private DetailLevel detailLevel = DetailLevel.FULL;
+    private double interpolationAlpha = 1.0; // Blend between previous and current physics state
+
+    // Reusable per-frame buffers for the cheaper detail levels
+    private long[] drawOrder = new long[0];
+    private final Path2D.Float[] colorBatches = new Path2D.Float[COLOR_BUCKETS];
+    private final Color[] batchColors = new Color[COLOR_BUCKETS];
     private boolean instructionsVisible = true; // Instructions visibility toggle
+
+    // Visible part of the world for the frame being drawn, used to cull balls
+    private double viewLeft;
+    private double viewTop;
+    private double viewRight;
+    private double viewBottom;
+    private int paintMargin = PAINT_MARGIN; // PAINT_MARGIN scaled up by the zoom
+
+    // Cached background layer (grid + obstacles), rebuilt on resize or obstacle edits
+    private BufferedImage backgroundLayer;
+    private boolean backgroundGridVisible;
+    private int backgroundObstacleRevision = -1;
+    private int backgroundCameraRevision = -1;
+    private int backgroundWorldWidth = -1;
+    private int backgroundWorldHeight = -1;
+    private int backgroundVersion; // Incremented on every rebuild of the background layer
+
+    // Optional parallel software renderer, created when enabled
+    private RasterRenderer rasterRenderer;
+
+    // Dirty-region repainting: the scene is kept in frameBuffer and only changed tiles are redrawn
+    private boolean dirtyRegionRepaint = true;
+    private double dirtyAreaThreshold = DEFAULT_DIRTY_AREA_THRESHOLD;
+    private final DirtyRegionTracker dirtyTracker = new DirtyRegionTracker();
+    private BufferedImage frameBuffer;
+    private boolean fullRedrawPending = true;
+    private boolean frameGridVisible;
+    private DetailLevel frameDetailLevel;
+    private int frameBallRevision;
+    private int frameObstacleRevision;
+    private int frameCameraRevision;
+    private int paintedBallCount;
+    private int[] paintedBallBounds = new int[0]; // World x, y, size per ball as last drawn into frameBuffer
+    private int paintedObstacleCount;
+    private int[] paintedObstacleBounds = new int[0]; // x, y, width, height per obstacle
+    private final Rectangle dragLineBounds = new Rectangle();
+    private boolean dragLinePainted;
+    private int[][] dirtyTileBalls = new int[0][];
+    private int[] dirtyTileCounts = new int[0];
+    private int[] ballRunStamp = new int[0];
+    private int runStamp; // Increases for every redrawn run so ballRunStamp never needs clearing
+    private long[] runDrawOrder = new long[0];
+    private final Rectangle runRect = new Rectangle();
+    private long lastDirtyStatusTime;
+
+    // Cached HUD glyphs, re-laid-out only when the displayed values change
+    private final GlyphVector[] hudLines = new GlyphVector[STATIC_INSTRUCTIONS.length + 7];
+    private FontRenderContext hudRenderContext;
+    private int hudBallCount = -1;
+    private boolean hudGravityEnabled;
+    private double hudGravityX;
+    private double hudGravityY;
+    private int hudObstacleCount = -1;
+    private boolean hudEditMode;
+    private int hudCameraRevision = -1;
+    private int hudWorldWidth = -1;
+    private int hudWorldHeight = -1;
+    private boolean hudWorldSizeFixed;
+    private DetailLevel hudDetailLevel;
+    private int hudReducedThreshold = -1;
+    private int hudMinimalThreshold = -1;
+    private boolean hudRasterRendering;
+    private String renderStatus; // Optional line published by the active render loop
+    private String rewindStatus; // Optional line describing a paused or rewound simulation
+    private String dirtyStatus; // Dirty-region repaint statistics, null while that mode is off
+
+    // Frame, paint and physics timing shown in the performance overlay
+    private final PerformanceMonitor performanceMonitor = new PerformanceMonitor();
+    private boolean performanceOverlayVisible;
+    private int overlayRevision = -1;
+    private final Rectangle performanceOverlayBounds = new Rectangle();
+    private String hudRenderStatus;
+    private String hudRewindStatus;
+    private String hudDirtyStatus;
     
     public GamePanel(GameState gameState) {
         this.gameState = gameState;
         setBackground(Color.WHITE);
         setPreferredSize(new Dimension(800, 600));
-        setupMouseListeners();
+        installMouseListeners(this);
+
+        int levels = 1 << COLOR_BUCKET_BITS;
+        for (int i = 0; i < COLOR_BUCKETS; i++) {
+            colorBatches[i] = new Path2D.Float(Path2D.WIND_NON_ZERO, 64);
+            int r = (i >> (COLOR_BUCKET_BITS * 2)) & (levels - 1);
+            int g = (i >> COLOR_BUCKET_BITS) & (levels - 1);
+            int b = i & (levels - 1);
+            batchColors[i] = new Color(r * 255 / (levels - 1), g * 255 / (levels - 1), b * 255 / (levels - 1));
+        }
     }
     
-    private void setupMouseListeners() {
-        // Mouse press and release for dragging
-        addMouseListener(new MouseAdapter() {
+    /**
+     * Install the simulation mouse handling on a component showing this panel's frames.
+     * Screen positions are converted to world coordinates through the camera.
+     */
+    public void installMouseListeners(Component target) {
+        MouseAdapter handler = new MouseAdapter() {
+            private boolean panning;
+            private int panLastX;
+            private int panLastY;
+
             @Override
             public void mousePressed(MouseEvent e) {
+                // Middle-drag always pans; right-drag pans unless right-click removes obstacles
+                if (SwingUtilities.isMiddleMouseButton(e)
+                        || (SwingUtilities.isRightMouseButton(e) && !gameState.isObstacleEditMode())) {
+                    panning = true;
+                    panLastX = e.getX();
+                    panLastY = e.getY();
+                    return;
+                }
+
+                double worldX = camera.toWorldX(e.getX());
+                double worldY = camera.toWorldY(e.getY());
                 if (gameState.isObstacleEditMode()) {
                     if (SwingUtilities.isRightMouseButton(e)) {
-                        gameState.removeObstacleAt(e.getX(), e.getY());
+                        gameState.removeObstacleAt(worldX, worldY);
                     } else if (SwingUtilities.isLeftMouseButton(e)) {
-                        boolean grabbed = gameState.handleObstacleMousePressed(e.getX(), e.getY());
+                        boolean grabbed = gameState.handleObstacleMousePressed(worldX, worldY);
                         if (!grabbed) {
-                            gameState.addObstacleAt(e.getX(), e.getY());
-                            gameState.handleObstacleMousePressed(e.getX(), e.getY());
+                            gameState.addObstacleAt(worldX, worldY);
+                            gameState.handleObstacleMousePressed(worldX, worldY);
                         }
                     }
                 } else if (SwingUtilities.isLeftMouseButton(e)) {
-                    gameState.handleMousePressed(e.getX(), e.getY());
+                    gameState.handleMousePressed(worldX, worldY);
                 }
             }
             
             @Override
             public void mouseReleased(MouseEvent e) {
+                if (panning) {
+                    if (!SwingUtilities.isLeftMouseButton(e)) {
+                        panning = false;
+                    }
+                    return;
+                }
                 if (gameState.isObstacleEditMode()) {
                     gameState.handleObstacleMouseReleased();
                 } else if (SwingUtilities.isLeftMouseButton(e)) {
@@ -62,31 +217,54 @@ public class GamePanel extends JPanel {
                 }
 
                 if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 2) {
-                    boolean hitBall = false;
-                    for (Ball ball : gameState.getBalls()) {
-                        if (ball.contains(e.getX(), e.getY())) {
-                            hitBall = true;
-                            break;
-                        }
-                    }
-                    if (!hitBall) {
-                        gameState.addBallAt(e.getX(), e.getY());
+                    double worldX = camera.toWorldX(e.getX());
+                    double worldY = camera.toWorldY(e.getY());
+                    if (gameState.pickBall(worldX, worldY) == null) {
+                        gameState.addBallAt(worldX, worldY);
                     }
                 }
             }
-        });
-        
-        // Mouse motion for dragging
-        addMouseMotionListener(new MouseMotionAdapter() {
+
             @Override
             public void mouseDragged(MouseEvent e) {
+                if (panning) {
+                    camera.pan(e.getX() - panLastX, e.getY() - panLastY);
+                    panLastX = e.getX();
+                    panLastY = e.getY();
+                    return;
+                }
+                double worldX = camera.toWorldX(e.getX());
+                double worldY = camera.toWorldY(e.getY());
                 if (gameState.isObstacleEditMode()) {
-                    gameState.handleObstacleMouseDragged(e.getX(), e.getY());
+                    gameState.handleObstacleMouseDragged(worldX, worldY);
                 } else {
-                    gameState.handleMouseDragged(e.getX(), e.getY());
+                    gameState.handleMouseDragged(worldX, worldY);
                 }
             }
-        });
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                camera.zoomAt(e.getX(), e.getY(), Math.pow(WHEEL_ZOOM_STEP, -e.getPreciseWheelRotation()));
+            }
+        };
+        target.addMouseListener(handler);
+        target.addMouseMotionListener(handler);
+        target.addMouseWheelListener(handler);
+    }
+
+    /**
+     * Get the camera used to pan and zoom the view
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Show the world from its origin at 100% zoom
+     */
+    public void resetCamera() {
+        camera.reset();
+        repaint();
     }
     
     /**
@@ -94,6 +272,7 @@ public class GamePanel extends JPanel {
      */
     public void setGridVisible(boolean visible) {
         this.gridVisible = visible;
+        fullRedrawPending = true;
         repaint();
     }
     
@@ -120,71 +299,941 @@ public class GamePanel extends JPanel {
     }
     
     /**
-     * Draw a grid background for better visual reference
+     * Enable or disable the parallel direct-to-raster renderer
      */
-    private void drawGrid(Graphics2D g2d) {
-        int gridSize = 25; // Grid cell size in pixels
-        int width = getWidth();
-        int height = getHeight();
-        
-        // Set grid color (light gray)
-        g2d.setColor(new Color(230, 230, 230));
-        g2d.setStroke(new BasicStroke(1));
+    public void setRasterRendering(boolean enabled) {
+        if (enabled && rasterRenderer == null) {
+            rasterRenderer = new RasterRenderer();
+        } else if (!enabled && rasterRenderer != null) {
+            rasterRenderer.dispose();
+            rasterRenderer = null;
+        }
+        fullRedrawPending = true;
+        repaint();
+    }
+
+    /**
+     * Enable or disable dirty-region repainting; when disabled every frame is a full repaint
+     */
+    public void setDirtyRegionRepaint(boolean enabled) {
+        this.dirtyRegionRepaint = enabled;
+        fullRedrawPending = true;
+        if (!enabled) {
+            frameBuffer = null;
+            dirtyStatus = null;
+        }
+        repaint();
+    }
+
+    public boolean isDirtyRegionRepaint() {
+        return dirtyRegionRepaint;
+    }
+
+    /**
+     * Set the fraction of the panel above which a frame falls back to a full repaint
+     */
+    public void setDirtyAreaThreshold(double threshold) {
+        this.dirtyAreaThreshold = Math.max(0, Math.min(1, threshold));
+    }
+
+    public double getDirtyAreaThreshold() {
+        return dirtyAreaThreshold;
+    }
+
+    public boolean isRasterRendering() {
+        return rasterRenderer != null;
+    }
+
+    /**
+     * Set how far the next frame lies between the previous and the current physics step,
+     * as left over in the fixed-step accumulator
+     */
+    public void setInterpolationAlpha(double alpha) {
+        this.interpolationAlpha = Math.max(0, Math.min(1, alpha));
+    }
+
+    public double getInterpolationAlpha() {
+        return interpolationAlpha;
+    }
+
+    /**
+     * Get the monitor that the game loops report frame and step timings to
+     */
+    public PerformanceMonitor getPerformanceMonitor() {
+        return performanceMonitor;
+    }
+
+    /**
+     * Show or hide the frame-time and physics phase overlay
+     */
+    public void setPerformanceOverlayVisible(boolean visible) {
+        this.performanceOverlayVisible = visible;
+        repaint();
+    }
+
+    public boolean isPerformanceOverlayVisible() {
+        return performanceOverlayVisible;
+    }
+
+    /**
+     * Set an extra HUD line describing the render loop, or null to hide it
+     */
+    public void setRenderStatus(String status) {
+        this.renderStatus = status;
+    }
+
+    /**
+     * Set an extra HUD line describing pause and rewind, or null to hide it
+     */
+    public void setRewindStatus(String status) {
+        this.rewindStatus = status;
+    }
+
+    /**
+     * Set the ball counts at which drawing switches to the REDUCED and MINIMAL detail levels
+     */
+    public void setDetailThresholds(int reducedThreshold, int minimalThreshold) {
+        this.reducedDetailThreshold = Math.max(0, reducedThreshold);
+        this.minimalDetailThreshold = Math.max(this.reducedDetailThreshold, minimalThreshold);
+        fullRedrawPending = true;
+        repaint();
+    }
+
+    public int getReducedDetailThreshold() {
+        return reducedDetailThreshold;
+    }
+
+    public int getMinimalDetailThreshold() {
+        return minimalDetailThreshold;
+    }
+
+    /**
+     * Get the detail level used for the most recent frame
+     */
+    public DetailLevel getDetailLevel() {
+        return detailLevel;
+    }
+
+    private DetailLevel selectDetailLevel(int ballCount) {
+        if (ballCount >= minimalDetailThreshold) {
+            return DetailLevel.MINIMAL;
+        }
+        if (ballCount >= reducedDetailThreshold) {
+            return DetailLevel.REDUCED;
+        }
+        return DetailLevel.FULL;
+    }
+
+    /**
+     * Record the part of the world covered by a view of the given size
+     */
+    private void updateView(int width, int height) {
+        double zoom = camera.getZoom();
+        viewLeft = camera.getX();
+        viewTop = camera.getY();
+        viewRight = camera.toWorldX(width);
+        viewBottom = camera.toWorldY(height);
+        paintMargin = Math.max(PAINT_MARGIN, (int) Math.ceil(PAINT_MARGIN * zoom));
+    }
+
+    /**
+     * Whether any part of the ball lies inside the current view. Uses the same truncated
+     * corner as Ball.paint so culling only changes when the drawn bounds change.
+     */
+    private boolean isVisible(Ball ball) {
+        int radius = ball.getRadius();
+        int left = (int) (ball.getRenderX(interpolationAlpha) - radius);
+        int top = (int) (ball.getRenderY(interpolationAlpha) - radius);
+        return left + radius * 2 + PAINT_MARGIN >= viewLeft && left - PAINT_MARGIN <= viewRight
+            && top + radius * 2 + PAINT_MARGIN >= viewTop && top - PAINT_MARGIN <= viewBottom;
+    }
+
+    /**
+     * Paint all visible balls in world coordinates using the strategy of the current detail level
+     */
+    private void paintBalls(Graphics2D g2d, List<Ball> balls) {
+        switch (detailLevel) {
+            case MINIMAL:
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                paintBallsBatched(g2d, balls);
+                break;
+            case REDUCED:
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                paintBallsColorSorted(g2d, balls);
+                break;
+            default:
+                for (Ball ball : balls) {
+                    if (isVisible(ball)) {
+                        ball.paint(g2d, interpolationAlpha);
+                    }
+                }
+                return;
+        }
+
+        // The dragged ball keeps its full-detail look so it stays easy to follow
+        Ball draggedBall = gameState.getDraggedBall();
+        if (draggedBall != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            draggedBall.paint(g2d, interpolationAlpha);
+        }
+    }
+
+    /**
+     * Fill balls without outlines, sorted by color so the color only changes between runs
+     */
+    private void paintBallsColorSorted(Graphics2D g2d, List<Ball> balls) {
+        if (drawOrder.length < balls.size()) {
+            drawOrder = new long[balls.size() + (balls.size() >> 1)];
+        }
+        int count = 0;
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            if (isVisible(ball)) {
+                drawOrder[count++] = ((long) (ball.getColor().getRGB() & 0xFFFFFF) << 32) | i;
+            }
+        }
+        Arrays.sort(drawOrder, 0, count);
+
+        int currentRgb = -1;
+        for (int i = 0; i < count; i++) {
+            int rgb = (int) (drawOrder[i] >>> 32);
+            Ball ball = balls.get((int) drawOrder[i]);
+            if (rgb != currentRgb) {
+                g2d.setColor(ball.getColor());
+                currentRgb = rgb;
+            }
+            int radius = ball.getRadius();
+            g2d.fillOval((int) (ball.getRenderX(interpolationAlpha) - radius), (int) (ball.getRenderY(interpolationAlpha) - radius), radius * 2, radius * 2);
+        }
+    }
+
+    /**
+     * Batch balls into one path per quantized color and fill each path once
+     */
+    private void paintBallsBatched(Graphics2D g2d, List<Ball> balls) {
+        double zoom = camera.getZoom();
+        for (Ball ball : balls) {
+            if (!isVisible(ball)) {
+                continue;
+            }
+            Path2D.Float path = colorBatches[colorBucket(ball.getColor().getRGB())];
+            float radius = ball.getRadius();
+            float left = (float) ball.getRenderX(interpolationAlpha) - radius;
+            float top = (float) ball.getRenderY(interpolationAlpha) - radius;
+            float size = radius * 2;
+            if (radius * zoom <= SMALL_BALL_RADIUS) {
+                path.moveTo(left, top);
+                path.lineTo(left + size, top);
+                path.lineTo(left + size, top + size);
+                path.lineTo(left, top + size);
+                path.closePath();
+            } else {
+                appendCircle(path, left + radius, top + radius, radius);
+            }
+        }
+
+        // Buckets are visited in color order, so each color is set exactly once
+        for (int i = 0; i < COLOR_BUCKETS; i++) {
+            Path2D.Float path = colorBatches[i];
+            if (path.getCurrentPoint() != null) {
+                g2d.setColor(batchColors[i]);
+                g2d.fill(path);
+                path.reset();
+            }
+        }
+    }
+
+    private static int colorBucket(int rgb) {
+        int shift = 8 - COLOR_BUCKET_BITS;
+        return (((rgb >> 16) & 0xFF) >> shift) << (COLOR_BUCKET_BITS * 2)
+            | (((rgb >> 8) & 0xFF) >> shift) << COLOR_BUCKET_BITS
+            | ((rgb & 0xFF) >> shift);
+    }
+
+    /**
+     * Append a circle made of four cubic arcs, avoiding a temporary Ellipse2D per ball
+     */
+    private static void appendCircle(Path2D.Float path, float cx, float cy, float r) {
+        float k = 0.5522848f * r; // Control point offset for a cubic quarter circle
+        path.moveTo(cx + r, cy);
+        path.curveTo(cx + r, cy + k, cx + k, cy + r, cx, cy + r);
+        path.curveTo(cx - k, cy + r, cx - r, cy + k, cx - r, cy);
+        path.curveTo(cx - r, cy - k, cx - k, cy - r, cx, cy - r);
+        path.curveTo(cx + k, cy - r, cx + r, cy - k, cx + r, cy);
+        path.closePath();
+    }
+
+    /**
+     * Return the cached background layer, rebuilding it if the panel was resized, the grid
+     * was toggled, the camera moved, the world was resized or the obstacles changed
+     */
+    private BufferedImage getBackgroundLayer(int width, int height) {
+        int obstacleRevision = gameState.getObstacleRevision();
+        int worldWidth = gameState.getWorldWidth();
+        int worldHeight = gameState.getWorldHeight();
+        if (backgroundLayer == null
+                || backgroundLayer.getWidth() != width
+                || backgroundLayer.getHeight() != height) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            backgroundLayer = config != null
+                ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            backgroundObstacleRevision = -1;
+        }
+        if (backgroundObstacleRevision != obstacleRevision || backgroundGridVisible != gridVisible
+                || backgroundCameraRevision != camera.getRevision()
+                || backgroundWorldWidth != worldWidth || backgroundWorldHeight != worldHeight) {
+            updateView(width, height);
+            Graphics2D g2d = backgroundLayer.createGraphics();
+            try {
+                drawWorldArea(g2d, width, height, worldWidth, worldHeight);
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                if (gridVisible) {
+                    drawGrid(g2d, width, height, worldWidth, worldHeight);
+                }
+                camera.applyTo(g2d);
+                for (Obstacle obstacle : gameState.getObstacles()) {
+                    obstacle.paint(g2d);
+                }
+            } finally {
+                g2d.dispose();
+            }
+            backgroundObstacleRevision = obstacleRevision;
+            backgroundGridVisible = gridVisible;
+            backgroundCameraRevision = camera.getRevision();
+            backgroundWorldWidth = worldWidth;
+            backgroundWorldHeight = worldHeight;
+            backgroundVersion++;
+        }
+        return backgroundLayer;
+    }
+
+    /**
+     * Fill the view with the background color, shading whatever lies outside the world
+     */
+    private void drawWorldArea(Graphics2D g2d, int width, int height, int worldWidth, int worldHeight) {
+        if (worldWidth <= 0 || worldHeight <= 0) {
+            // No physics step has sized the world yet
+            g2d.setColor(getBackground());
+            g2d.fillRect(0, 0, width, height);
+            return;
+        }
+        int left = (int) Math.round(camera.toScreenX(0));
+        int top = (int) Math.round(camera.toScreenY(0));
+        int right = (int) Math.round(camera.toScreenX(worldWidth));
+        int bottom = (int) Math.round(camera.toScreenY(worldHeight));
+        if (left > 0 || top > 0 || right < width || bottom < height) {
+            g2d.setColor(OUTSIDE_WORLD_COLOR);
+            g2d.fillRect(0, 0, width, height);
+        }
+        g2d.setColor(getBackground());
+        g2d.fillRect(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Draw a grid background for better visual reference. Lines sit on world
+     * coordinates but are drawn in screen space so they stay one pixel wide.
+     */
+    private void drawGrid(Graphics2D g2d, int width, int height, int worldWidth, int worldHeight) {
+        double zoom = camera.getZoom();
+        if (GRID_SIZE * zoom < MIN_GRID_SPACING) {
+            return; // Too dense to be useful when zoomed far out
+        }
+        g2d.setColor(GRID_COLOR);
+        g2d.setStroke(DEFAULT_STROKE);
+
+        // Without a world size yet, the grid spans the whole view
+        double minX = worldWidth > 0 ? Math.max(0, viewLeft) : viewLeft;
+        double maxX = worldWidth > 0 ? Math.min(worldWidth, viewRight) : viewRight;
+        double minY = worldHeight > 0 ? Math.max(0, viewTop) : viewTop;
+        double maxY = worldHeight > 0 ? Math.min(worldHeight, viewBottom) : viewBottom;
+        int top = (int) Math.round(camera.toScreenY(minY));
+        int bottom = worldHeight > 0 ? (int) Math.round(camera.toScreenY(maxY)) : height;
+        int left = (int) Math.round(camera.toScreenX(minX));
+        int right = worldWidth > 0 ? (int) Math.round(camera.toScreenX(maxX)) : width;
         
         // Draw vertical lines
-        for (int x = gridSize; x < width; x += gridSize) {
-            g2d.drawLine(x, 0, x, height);
+        for (double x = (Math.floor(minX / GRID_SIZE) + 1) * GRID_SIZE; x < maxX; x += GRID_SIZE) {
+            int screenX = (int) Math.round(camera.toScreenX(x));
+            g2d.drawLine(screenX, top, screenX, bottom);
         }
         
         // Draw horizontal lines
-        for (int y = gridSize; y < height; y += gridSize) {
-            g2d.drawLine(0, y, width, y);
+        for (double y = (Math.floor(minY / GRID_SIZE) + 1) * GRID_SIZE; y < maxY; y += GRID_SIZE) {
+            int screenY = (int) Math.round(camera.toScreenY(y));
+            g2d.drawLine(left, screenY, right, screenY);
         }
-        
-        // Reset stroke for other drawing operations
-        g2d.setStroke(new BasicStroke(1));
     }
     
     /**
      * Draw instruction text and game information
      */
     private void drawInstructions(Graphics2D g2d) {
+        updateHudLines(g2d.getFontRenderContext());
         g2d.setColor(Color.GRAY);
-        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-        
-        // Draw instruction lines
-        g2d.drawString("Controls: A=Add Ball | C=Clear All | G=Toggle Gravity | 1-5=Add Multiple Balls", 10, 20);
-        g2d.drawString("Mouse: Click & Drag to move balls | Double-click empty space to add ball", 10, 35);
-        g2d.drawString(String.format("Balls: %d | Gravity: %s (%.1f, %.1f)", 
-            gameState.getBalls().size(), 
-            gameState.isGravityEnabled() ? "ON" : "OFF",
-            gameState.getGravityX(),
-            gameState.getGravityY()), 10, 50);
-        g2d.drawString(String.format("Obstacles: %d | Mode: %s (left-click add/move, right-click remove)",
-            gameState.getObstacles().size(),
-            gameState.isObstacleEditMode() ? "EDIT" : "VIEW"), 10, 65);
+        for (int i = 0; i < hudLines.length; i++) {
+            if (hudLines[i] != null) {
+                g2d.drawGlyphVector(hudLines[i], 10, 20 + i * 15);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the HUD glyph vectors only when one of the displayed values changed
+     */
+    private void updateHudLines(FontRenderContext frc) {
+        int ballCount = gameState.getBalls().size();
+        boolean gravityEnabled = gameState.isGravityEnabled();
+        double gravityX = gameState.getGravityX();
+        double gravityY = gameState.getGravityY();
+        int obstacleCount = gameState.getObstacles().size();
+        boolean editMode = gameState.isObstacleEditMode();
+        int worldWidth = gameState.getWorldWidth();
+        int worldHeight = gameState.getWorldHeight();
+        boolean worldSizeFixed = gameState.isWorldSizeFixed();
+        int detailIndex = STATIC_INSTRUCTIONS.length + 3;
+
+        boolean contextChanged = !frc.equals(hudRenderContext);
+        if (contextChanged) {
+            hudRenderContext = frc;
+            for (int i = 0; i < STATIC_INSTRUCTIONS.length; i++) {
+                hudLines[i] = HUD_FONT.createGlyphVector(frc, STATIC_INSTRUCTIONS[i]);
+            }
+        }
+        if (contextChanged || ballCount != hudBallCount || gravityEnabled != hudGravityEnabled
+                || gravityX != hudGravityX || gravityY != hudGravityY) {
+            hudBallCount = ballCount;
+            hudGravityEnabled = gravityEnabled;
+            hudGravityX = gravityX;
+            hudGravityY = gravityY;
+            hudLines[STATIC_INSTRUCTIONS.length] = HUD_FONT.createGlyphVector(frc,
+                String.format("Balls: %d | Gravity: %s (%.1f, %.1f)",
+                    ballCount, gravityEnabled ? "ON" : "OFF", gravityX, gravityY));
+        }
+        if (contextChanged || obstacleCount != hudObstacleCount || editMode != hudEditMode) {
+            hudObstacleCount = obstacleCount;
+            hudEditMode = editMode;
+            hudLines[STATIC_INSTRUCTIONS.length + 1] = HUD_FONT.createGlyphVector(frc,
+                String.format("Obstacles: %d | Mode: %s (left-click add/move, right-click remove)",
+                    obstacleCount, editMode ? "EDIT" : "VIEW"));
+        }
+        if (contextChanged || camera.getRevision() != hudCameraRevision || worldWidth != hudWorldWidth
+                || worldHeight != hudWorldHeight || worldSizeFixed != hudWorldSizeFixed) {
+            hudCameraRevision = camera.getRevision();
+            hudWorldWidth = worldWidth;
+            hudWorldHeight = worldHeight;
+            hudWorldSizeFixed = worldSizeFixed;
+            hudLines[STATIC_INSTRUCTIONS.length + 2] = HUD_FONT.createGlyphVector(frc,
+                String.format("View: (%.0f, %.0f) at %.0f%% | World: %d x %d (%s)",
+                    camera.getX(), camera.getY(), camera.getZoom() * 100, worldWidth, worldHeight,
+                    worldSizeFixed ? "fixed" : "follows window"));
+        }
+        boolean rasterRendering = isRasterRendering();
+        if (contextChanged || detailLevel != hudDetailLevel || rasterRendering != hudRasterRendering
+                || reducedDetailThreshold != hudReducedThreshold || minimalDetailThreshold != hudMinimalThreshold) {
+            hudDetailLevel = detailLevel;
+            hudRasterRendering = rasterRendering;
+            hudReducedThreshold = reducedDetailThreshold;
+            hudMinimalThreshold = minimalDetailThreshold;
+            String text = rasterRendering
+                ? String.format("Detail: RASTER (%d render threads)", rasterRenderer.getThreadCount())
+                : String.format("Detail: %s (reduced at %d balls, minimal at %d balls)",
+                    detailLevel, reducedDetailThreshold, minimalDetailThreshold);
+            hudLines[detailIndex] = HUD_FONT.createGlyphVector(frc, text);
+        }
+        if (contextChanged || renderStatus != hudRenderStatus) {
+            hudRenderStatus = renderStatus;
+            hudLines[detailIndex + 1] = renderStatus != null ? HUD_FONT.createGlyphVector(frc, renderStatus) : null;
+        }
+        if (contextChanged || rewindStatus != hudRewindStatus) {
+            hudRewindStatus = rewindStatus;
+            hudLines[detailIndex + 2] = rewindStatus != null ? HUD_FONT.createGlyphVector(frc, rewindStatus) : null;
+        }
+        if (contextChanged || dirtyStatus != hudDirtyStatus) {
+            hudDirtyStatus = dirtyStatus;
+            hudLines[detailIndex + 3] = dirtyStatus != null ? HUD_FONT.createGlyphVector(frc, dirtyStatus) : null;
+        }
     }
     
+    /**
+     * Request the next frame after a physics step. With dirty-region repainting enabled, the
+     * tiles touched by moved balls and edited obstacles are redrawn into the frame buffer and
+     * only that area is repainted; larger changes fall back to a full repaint.
+     */
+    public void requestFrame() {
+        int width = getWidth();
+        int height = getHeight();
+        if (!dirtyRegionRepaint || rasterRenderer != null || width <= 0 || height <= 0) {
+            repaint();
+            return;
+        }
+        FlightEvents.PaintEvent paintEvent = FlightEvents.beginPaint();
+        long start = System.nanoTime();
+        try {
+            updateFrameBuffer(width, height);
+        } finally {
+            performanceMonitor.addPaintNanos(System.nanoTime() - start);
+            commitPaintEvent(paintEvent, "frame buffer", width, height);
+        }
+    }
+
+    /**
+     * Bring the frame buffer up to date and repaint the area that changed
+     */
+    private void updateFrameBuffer(int width, int height) {
+        BufferedImage background = getBackgroundLayer(width, height);
+        List<Ball> balls = gameState.getBalls();
+        detailLevel = selectDetailLevel(balls.size());
+        updateView(width, height);
+        // A camera move shifts every pixel, so it always takes a full redraw
+        if (fullRedrawPending || frameBuffer == null
+                || frameBuffer.getWidth() != width || frameBuffer.getHeight() != height
+                || frameGridVisible != gridVisible || frameDetailLevel != detailLevel
+                || frameCameraRevision != camera.getRevision()
+                || frameBallRevision != gameState.getBallRevision() || paintedBallCount != balls.size()) {
+            redrawFrameBuffer(background, balls, width, height);
+            repaint();
+            return;
+        }
+
+        dirtyTracker.reset(width, height);
+        markObstacleChanges();
+        markBallChanges(balls);
+        if (dirtyTracker.getDirtyFraction() > dirtyAreaThreshold) {
+            redrawFrameBuffer(background, balls, width, height);
+            repaint();
+            return;
+        }
+
+        Rectangle repaintArea = dirtyTracker.isEmpty() ? null : redrawDirtyRuns(background, balls);
+        repaintArea = union(repaintArea, overlayRepaintArea(width));
+        updateDirtyStatus();
+        if (repaintArea != null) {
+            repaint(repaintArea);
+        }
+    }
+
+    /**
+     * Render the whole scene into the frame buffer and remember where everything was drawn
+     */
+    private void redrawFrameBuffer(BufferedImage background, List<Ball> balls, int width, int height) {
+        if (frameBuffer == null || frameBuffer.getWidth() != width || frameBuffer.getHeight() != height) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            frameBuffer = config != null
+                ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g2d = frameBuffer.createGraphics();
+        try {
+            g2d.drawImage(background, 0, 0, null);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            camera.applyTo(g2d);
+            paintBalls(g2d, balls);
+        } finally {
+            g2d.dispose();
+        }
+
+        ensurePaintedBallCapacity(balls.size());
+        for (int i = 0; i < balls.size(); i++) {
+            storeBallBounds(balls.get(i), i);
+        }
+        paintedBallCount = balls.size();
+        storeObstacleBounds();
+        fullRedrawPending = false;
+        frameGridVisible = gridVisible;
+        frameDetailLevel = detailLevel;
+        frameCameraRevision = camera.getRevision();
+        frameBallRevision = gameState.getBallRevision();
+        dirtyTracker.reset(width, height);
+        updateDirtyStatus();
+    }
+
+    private void ensurePaintedBallCapacity(int count) {
+        if (paintedBallBounds.length < count * 3) {
+            paintedBallBounds = new int[(count + (count >> 1) + 16) * 3];
+            ballRunStamp = new int[count + (count >> 1) + 16];
+            runStamp = 0;
+        }
+    }
+
+    /**
+     * Remember the truncated world corner Ball.paint draws from; comparing these rather than
+     * screen bounds also catches sub-pixel moves when zoomed out
+     */
+    private void storeBallBounds(Ball ball, int index) {
+        int radius = ball.getRadius();
+        paintedBallBounds[index * 3] = (int) (ball.getRenderX(interpolationAlpha) - radius);
+        paintedBallBounds[index * 3 + 1] = (int) (ball.getRenderY(interpolationAlpha) - radius);
+        paintedBallBounds[index * 3 + 2] = radius * 2;
+    }
+
+    /**
+     * Screen position of a world box edge, widened by the border margin
+     */
+    private int screenLeft(int worldX) {
+        return (int) Math.floor(camera.toScreenX(worldX)) - paintMargin;
+    }
+
+    private int screenTop(int worldY) {
+        return (int) Math.floor(camera.toScreenY(worldY)) - paintMargin;
+    }
+
+    private int screenSize(int worldSize) {
+        return (int) Math.ceil(worldSize * camera.getZoom()) + paintMargin * 2 + 1;
+    }
+
+    private void markWorldBox(int worldX, int worldY, int worldSize) {
+        int size = screenSize(worldSize);
+        dirtyTracker.mark(screenLeft(worldX), screenTop(worldY), size, size);
+    }
+
+    /**
+     * Mark old and new bounds of every ball that moved since it was last drawn
+     */
+    private void markBallChanges(List<Ball> balls) {
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            int radius = ball.getRadius();
+            int x = (int) (ball.getRenderX(interpolationAlpha) - radius);
+            int y = (int) (ball.getRenderY(interpolationAlpha) - radius);
+            int size = radius * 2;
+            int base = i * 3;
+            if (x != paintedBallBounds[base] || y != paintedBallBounds[base + 1] || size != paintedBallBounds[base + 2]) {
+                markWorldBox(paintedBallBounds[base], paintedBallBounds[base + 1], paintedBallBounds[base + 2]);
+                markWorldBox(x, y, size);
+                paintedBallBounds[base] = x;
+                paintedBallBounds[base + 1] = y;
+                paintedBallBounds[base + 2] = size;
+            }
+        }
+    }
+
+    /**
+     * Mark old and new bounds of all obstacles when the obstacle layer was edited
+     */
+    private void markObstacleChanges() {
+        if (frameObstacleRevision == gameState.getObstacleRevision()) {
+            return;
+        }
+        for (int i = 0; i < paintedObstacleCount; i++) {
+            dirtyTracker.mark(paintedObstacleBounds[i * 4], paintedObstacleBounds[i * 4 + 1],
+                paintedObstacleBounds[i * 4 + 2], paintedObstacleBounds[i * 4 + 3]);
+        }
+        storeObstacleBounds();
+        for (int i = 0; i < paintedObstacleCount; i++) {
+            dirtyTracker.mark(paintedObstacleBounds[i * 4], paintedObstacleBounds[i * 4 + 1],
+                paintedObstacleBounds[i * 4 + 2], paintedObstacleBounds[i * 4 + 3]);
+        }
+    }
+
+    private void storeObstacleBounds() {
+        List<Obstacle> obstacles = gameState.getObstacles();
+        if (paintedObstacleBounds.length < obstacles.size() * 4) {
+            paintedObstacleBounds = new int[obstacles.size() * 8];
+        }
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle obstacle = obstacles.get(i);
+            paintedObstacleBounds[i * 4] = screenLeft((int) Math.round(obstacle.getX()));
+            paintedObstacleBounds[i * 4 + 1] = screenTop((int) Math.round(obstacle.getY()));
+            paintedObstacleBounds[i * 4 + 2] = screenSize((int) Math.round(obstacle.getWidth()));
+            paintedObstacleBounds[i * 4 + 3] = screenSize((int) Math.round(obstacle.getHeight()));
+        }
+        paintedObstacleCount = obstacles.size();
+        frameObstacleRevision = gameState.getObstacleRevision();
+    }
+
+    /**
+     * Redraw each run of dirty tiles into the frame buffer, clipped to the run
+     * @return The bounding box of all redrawn runs
+     */
+    private Rectangle redrawDirtyRuns(BufferedImage background, List<Ball> balls) {
+        binBallsIntoDirtyTiles(balls);
+        int tilesX = dirtyTracker.getTilesX();
+        Rectangle bounds = null;
+
+        Graphics2D g2d = frameBuffer.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, detailLevel == DetailLevel.FULL
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+            AffineTransform screenTransform = g2d.getTransform();
+            int runCount = dirtyTracker.buildRuns();
+            for (int r = 0; r < runCount; r++) {
+                dirtyTracker.getRun(r, runRect);
+                // Clip and background are in screen space, balls are drawn in world space
+                g2d.setTransform(screenTransform);
+                g2d.setClip(runRect);
+                g2d.drawImage(background, runRect.x, runRect.y, runRect.x + runRect.width, runRect.y + runRect.height,
+                    runRect.x, runRect.y, runRect.x + runRect.width, runRect.y + runRect.height, null);
+                camera.applyTo(g2d);
+
+                // Collect each ball once per run, then draw in the same order a full frame would
+                int stamp = ++runStamp;
+                int drawCount = 0;
+                int tileY = runRect.y / DirtyRegionTracker.TILE_SIZE;
+                int firstTile = tileY * tilesX + runRect.x / DirtyRegionTracker.TILE_SIZE;
+                int lastTile = tileY * tilesX + (runRect.x + runRect.width - 1) / DirtyRegionTracker.TILE_SIZE;
+                for (int tile = firstTile; tile <= lastTile; tile++) {
+                    int[] bin = dirtyTileBalls[tile];
+                    for (int n = 0; n < dirtyTileCounts[tile]; n++) {
+                        int index = bin[n];
+                        if (ballRunStamp[index] != stamp) {
+                            ballRunStamp[index] = stamp;
+                            if (runDrawOrder.length == drawCount) {
+                                runDrawOrder = Arrays.copyOf(runDrawOrder, Math.max(64, drawCount * 2));
+                            }
+                            runDrawOrder[drawCount++] = drawOrderKey(balls.get(index), index);
+                        }
+                    }
+                }
+                Arrays.sort(runDrawOrder, 0, drawCount);
+                for (int n = 0; n < drawCount; n++) {
+                    paintSingleBall(g2d, balls.get((int) runDrawOrder[n]));
+                }
+                bounds = union(bounds, runRect);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return bounds;
+    }
+
+    /**
+     * Bin every ball into the dirty tiles its bounds overlap; clean tiles are skipped
+     */
+    private void binBallsIntoDirtyTiles(List<Ball> balls) {
+        int tilesX = dirtyTracker.getTilesX();
+        int tilesY = dirtyTracker.getTilesY();
+        int tileCount = tilesX * tilesY;
+        if (dirtyTileCounts.length != tileCount) {
+            dirtyTileBalls = new int[tileCount][8];
+            dirtyTileCounts = new int[tileCount];
+        } else {
+            Arrays.fill(dirtyTileCounts, 0);
+        }
+        for (int i = 0; i < balls.size(); i++) {
+            int x = screenLeft(paintedBallBounds[i * 3]);
+            int y = screenTop(paintedBallBounds[i * 3 + 1]);
+            int size = screenSize(paintedBallBounds[i * 3 + 2]);
+            if (x + size < 0 || y + size < 0) {
+                continue;
+            }
+            int minTileX = Math.max(0, x / DirtyRegionTracker.TILE_SIZE);
+            int minTileY = Math.max(0, y / DirtyRegionTracker.TILE_SIZE);
+            int maxTileX = Math.min(tilesX - 1, (x + size) / DirtyRegionTracker.TILE_SIZE);
+            int maxTileY = Math.min(tilesY - 1, (y + size) / DirtyRegionTracker.TILE_SIZE);
+            for (int ty = minTileY; ty <= maxTileY; ty++) {
+                for (int tx = minTileX; tx <= maxTileX; tx++) {
+                    if (dirtyTracker.isTileDirty(tx, ty)) {
+                        int tile = ty * tilesX + tx;
+                        int[] bin = dirtyTileBalls[tile];
+                        if (dirtyTileCounts[tile] == bin.length) {
+                            bin = Arrays.copyOf(bin, bin.length * 2);
+                            dirtyTileBalls[tile] = bin;
+                        }
+                        bin[dirtyTileCounts[tile]++] = i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort key matching the order paintBalls draws in at the current detail level
+     */
+    private long drawOrderKey(Ball ball, int index) {
+        if (detailLevel != DetailLevel.FULL && ball == gameState.getDraggedBall()) {
+            return ((long) Integer.MAX_VALUE << 32) | index; // Drawn last, as in paintBalls
+        }
+        switch (detailLevel) {
+            case REDUCED:
+                return ((long) (ball.getColor().getRGB() & 0xFFFFFF) << 32) | index;
+            case MINIMAL:
+                return ((long) colorBucket(ball.getColor().getRGB()) << 32) | index;
+            default:
+                return index;
+        }
+    }
+
+    /**
+     * Draw one ball the way paintBalls would draw it at the current detail level
+     */
+    private void paintSingleBall(Graphics2D g2d, Ball ball) {
+        int radius = ball.getRadius();
+        int left = (int) (ball.getRenderX(interpolationAlpha) - radius);
+        int top = (int) (ball.getRenderY(interpolationAlpha) - radius);
+        if (detailLevel == DetailLevel.FULL || ball == gameState.getDraggedBall()) {
+            ball.paint(g2d, interpolationAlpha);
+        } else if (detailLevel == DetailLevel.REDUCED) {
+            g2d.setColor(ball.getColor());
+            g2d.fillOval(left, top, radius * 2, radius * 2);
+        } else {
+            g2d.setColor(batchColors[colorBucket(ball.getColor().getRGB())]);
+            if (radius * camera.getZoom() <= SMALL_BALL_RADIUS) {
+                g2d.fillRect(left, top, radius * 2, radius * 2);
+            } else {
+                g2d.fillOval(left, top, radius * 2, radius * 2);
+            }
+        }
+    }
+
+    /**
+     * Area covered by overlays drawn on top of the frame buffer that need refreshing this frame
+     */
+    private Rectangle overlayRepaintArea(int width) {
+        Rectangle area = null;
+        if (instructionsVisible && hudValuesChanged()) {
+            area = new Rectangle(0, 0, width, 20 + hudLines.length * 15);
+        }
+
+        // The drag line is redrawn wherever it was and wherever it is now
+        if (dragLinePainted) {
+            area = union(area, dragLineBounds);
+            dragLinePainted = false;
+        }
+        if (performanceOverlayVisible && performanceMonitor.getRevision() != overlayRevision) {
+            area = union(area, performanceOverlayBounds(width));
+        }
+        Ball draggedBall = gameState.getDraggedBall();
+        if (draggedBall != null) {
+            int x1 = (int) camera.toScreenX(draggedBall.getRenderX(interpolationAlpha));
+            int y1 = (int) camera.toScreenY(draggedBall.getRenderY(interpolationAlpha));
+            int x2 = (int) camera.toScreenX(gameState.getMouseX());
+            int y2 = (int) camera.toScreenY(gameState.getMouseY());
+            dragLineBounds.setBounds(Math.min(x1, x2) - PAINT_MARGIN, Math.min(y1, y2) - PAINT_MARGIN,
+                Math.abs(x2 - x1) + PAINT_MARGIN * 2 + 1, Math.abs(y2 - y1) + PAINT_MARGIN * 2 + 1);
+            area = union(area, dragLineBounds);
+            dragLinePainted = true;
+        }
+        return area;
+    }
+
+    /**
+     * Whether any value shown in the HUD differs from what was last laid out
+     */
+    private boolean hudValuesChanged() {
+        return gameState.getBalls().size() != hudBallCount
+            || gameState.isGravityEnabled() != hudGravityEnabled
+            || gameState.getGravityX() != hudGravityX
+            || gameState.getGravityY() != hudGravityY
+            || gameState.getObstacles().size() != hudObstacleCount
+            || gameState.isObstacleEditMode() != hudEditMode
+            || camera.getRevision() != hudCameraRevision
+            || gameState.getWorldWidth() != hudWorldWidth
+            || gameState.getWorldHeight() != hudWorldHeight
+            || gameState.isWorldSizeFixed() != hudWorldSizeFixed
+            || detailLevel != hudDetailLevel
+            || isRasterRendering() != hudRasterRendering
+            || reducedDetailThreshold != hudReducedThreshold
+            || minimalDetailThreshold != hudMinimalThreshold
+            || renderStatus != hudRenderStatus
+            || rewindStatus != hudRewindStatus
+            || dirtyStatus != hudDirtyStatus;
+    }
+
+    private void updateDirtyStatus() {
+        long now = System.nanoTime();
+        if (now - lastDirtyStatusTime >= DIRTY_STATUS_INTERVAL_NANOS) {
+            lastDirtyStatusTime = now;
+            dirtyStatus = String.format("Dirty repaint: %.1f%% of panel (full above %.0f%%)",
+                dirtyTracker.getDirtyFraction() * 100, dirtyAreaThreshold * 100);
+        }
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        if (a == null) {
+            return b == null ? null : new Rectangle(b);
+        }
+        if (b != null) {
+            a.add(b);
+        }
+        return a;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        FlightEvents.PaintEvent paintEvent = FlightEvents.beginPaint();
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = getWidth();
+        int height = getHeight();
+        if (dirtyRegionRepaint && rasterRenderer == null && frameBuffer != null
+                && frameBuffer.getWidth() == width && frameBuffer.getHeight() == height) {
+            // The frame buffer is kept current by requestFrame; only the overlays are drawn here
+            long start = System.nanoTime();
+            g2d.drawImage(frameBuffer, 0, 0, null);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderOverlays(g2d);
+            performanceMonitor.addPaintNanos(System.nanoTime() - start);
+            paintPerformanceOverlay(g2d, width);
+        } else {
+            fullRedrawPending = true;
+            renderFrame(g2d, width, height);
+        }
+        commitPaintEvent(paintEvent, "panel", width, height);
+    }
+
+    /**
+     * Finish a flight recorder paint event for a frame drawn on the given surface
+     */
+    void commitPaintEvent(FlightEvents.PaintEvent event, String surface, int width, int height) {
+        FlightEvents.commitPaint(event, surface, width, height, gameState.getBalls().size(), detailLevel);
+    }
 
-        // Draw grid background only if visible
-        if (gridVisible) {
-            drawGrid(g2d);
+    /**
+     * Draw a complete frame of the given size; used for full repaints and by active rendering
+     */
+    public void renderFrame(Graphics2D g2d, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
         }
+        long start = System.nanoTime();
 
-        for (Obstacle obstacle : gameState.getObstacles()) {
-            obstacle.paint(g2d);
+        BufferedImage background = getBackgroundLayer(width, height);
+        List<Ball> balls = gameState.getBalls();
+        detailLevel = selectDetailLevel(balls.size());
+        updateView(width, height);
+        if (rasterRenderer != null) {
+            // Background and balls are rasterized in parallel and blitted in one call
+            g2d.drawImage(rasterRenderer.render(balls, gameState.getDraggedBall(), camera, interpolationAlpha,
+                background, backgroundVersion, width, height), 0, 0, null);
+        } else {
+            // Grid and obstacles come from the cached background layer
+            g2d.drawImage(background, 0, 0, null);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            
+            // Paint the visible balls at the detail level matching the current ball count
+            AffineTransform screenTransform = g2d.getTransform();
+            camera.applyTo(g2d);
+            paintBalls(g2d, balls);
+            g2d.setTransform(screenTransform);
         }
-        
-        // Paint all balls
-        for (Ball ball : gameState.getBalls()) {
-            ball.paint(g2d);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        renderOverlays(g2d);
+        performanceMonitor.addPaintNanos(System.nanoTime() - start);
+        paintPerformanceOverlay(g2d, width);
+    }
+
+    /**
+     * Draw the performance overlay in the top-right corner. It is painted after paint time
+     * was recorded so that showing it does not change the measured numbers.
+     */
+    private void paintPerformanceOverlay(Graphics2D g2d, int width) {
+        if (performanceOverlayVisible) {
+            Rectangle bounds = performanceOverlayBounds(width);
+            performanceMonitor.paint(g2d, bounds.x, bounds.y);
+            overlayRevision = performanceMonitor.getRevision();
         }
-        
+    }
+
+    private Rectangle performanceOverlayBounds(int width) {
+        performanceOverlayBounds.setBounds(width - performanceMonitor.getWidth() - 10, 10,
+            performanceMonitor.getWidth(), performanceMonitor.getHeight());
+        return performanceOverlayBounds;
+    }
+
+    /**
+     * Draw the HUD and drag line, which sit on top of the scene
+     */
+    private void renderOverlays(Graphics2D g2d) {
         // Paint instructions only if visible
         if (instructionsVisible) {
             drawInstructions(g2d);
@@ -193,13 +1242,11 @@ public class GamePanel extends JPanel {
         // Draw dragged ball connection line
         if (gameState.getDraggedBall() != null) {
             Ball draggedBall = gameState.getDraggedBall();
-            Point mousePos = getMousePosition();
-            if (mousePos != null) {
-                g2d.setColor(Color.RED);
-                g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{5}, 0));
-                g2d.drawLine((int)draggedBall.getX(), (int)draggedBall.getY(), mousePos.x, mousePos.y);
-                g2d.setStroke(new BasicStroke(1));
-            }
+            g2d.setColor(Color.RED);
+            g2d.setStroke(DRAG_LINE_STROKE);
+            g2d.drawLine((int)camera.toScreenX(draggedBall.getRenderX(interpolationAlpha)), (int)camera.toScreenY(draggedBall.getRenderY(interpolationAlpha)),
+                (int)camera.toScreenX(gameState.getMouseX()), (int)camera.toScreenY(gameState.getMouseY()));
+            g2d.setStroke(DEFAULT_STROKE);
         }
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@
 package com.mycompany.ballcollisionsimulation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -13,6 +14,28 @@ import java.util.List;
  * @author Sentinail
  */
 public class GameState {
+    /**
+     * Phases of one physics step, timed separately for the performance overlay
+     */
+    public enum StepPhase {
+        INTEGRATION, OBSTACLES, BROADPHASE, NARROWPHASE, EVENTS
+    }
+
+    /**
+     * Algorithms for finding the pairs of balls that may be colliding
+     */
+    public enum Broadphase {
+        ALL_PAIRS,     // Test every pair; cheapest for a few dozen balls
+        SORT_AND_SWEEP // Keep balls sorted along x and only test overlapping intervals
+    }
+
+    private static final StepPhase[] STEP_PHASES = StepPhase.values();
+    public static final int MAX_SUBSTEPS = 16;
+    public static final double DEFAULT_WALL_RESTITUTION = 0.8;
+    public static final double DEFAULT_OBSTACLE_RESTITUTION = 0.9;
+    public static final double DEFAULT_DRAG_DAMPING = 0.9;
+    private static final int MAX_EVENTS_PER_STEP = 256; // Collision events beyond this are dropped
+
     private List<Ball> balls;
     private boolean gravityEnabled;
     private double gravityX;
@@ -22,12 +45,49 @@ public class GameState {
     private double mouseX;
     private double mouseY;
     private double springConstant;
+    private double wallRestitution = DEFAULT_WALL_RESTITUTION; // Speed kept when bouncing off a wall
+    private double obstacleRestitution = DEFAULT_OBSTACLE_RESTITUTION; // Speed kept when bouncing off an obstacle
+    private double dragDamping = DEFAULT_DRAG_DAMPING; // Velocity kept per step by a dragged ball
     private ControlPanel controlPanel; // NEW: Reference for dynamic radius
     private List<Obstacle> obstacles;
     private Obstacle draggedObstacle;
     private double obstacleOffsetX;
     private double obstacleOffsetY;
     private boolean obstacleEditMode;
+    private int obstacleRevision; // Bumped whenever obstacle layout or selection changes
+    private int ballRevision; // Bumped whenever balls are added or removed
+    private int ballMotionRevision; // Bumped whenever balls are moved outside a physics step
+    private boolean worldSizeFixed; // When false the world follows the size of the view
+    private int worldWidth;
+    private int worldHeight;
+
+    // Per-step timings and buffers, allocated once and reused by every step
+    private final long[] stepPhaseNanos = new long[STEP_PHASES.length];
+    private int[] candidatePairs = new int[256]; // Ball index pairs found by the broadphase
+    private int candidatePairCount;
+    private int collisionPairCount;
+    private final BallEvent.Type[] pendingEventTypes = new BallEvent.Type[MAX_EVENTS_PER_STEP];
+    private final double[] pendingEventData = new double[MAX_EVENTS_PER_STEP * 4]; // Two positions per event
+    private int pendingEventCount;
+    private int[] sweepOrder = new int[0]; // Ball indices sorted by left edge, kept between steps
+    private double[] sweepMinX = new double[0];
+    private int sweepRevision = -1;
+    private FlightEvents.StepPhaseEvent phaseEvent; // Flight recorder event of the running phase, null unless recorded
+
+    // Solver settings and running totals
+    private Broadphase broadphase = Broadphase.ALL_PAIRS;
+    private int substeps = 1;
+    private ObstacleDistanceField obstacleField; // Baked obstacle distances, null while exact tests are used
+    private final double[] fieldNormal = new double[2];
+    private final SpatialIndex spatialIndex = new SpatialIndex(); // Rebuilt lazily for queries
+    private int indexedBallRevision = -1;
+    private int indexedMotionRevision = -1;
+    private boolean ballIndexCurrent; // False once a step moved a ball too far for the index to follow
+    private int indexedObstacleRevision = -1;
+    private long stepCount;
+    private long lastStepNanos;
+    private long totalCollisionCount;
+    private long droppedEventCount;
     
     public GameState() {
         balls = new ArrayList<>();
@@ -59,12 +119,40 @@ public class GameState {
         if (!enabled && draggedObstacle != null) {
             draggedObstacle.setSelected(false);
             draggedObstacle = null;
+            obstacleRevision++;
         }
         if (enabled) {
             draggedBall = null;
         }
     }
     
+    /**
+     * Fix the world bounds independently of the view, or pass a non-positive size
+     * to let the walls follow the view size again
+     */
+    public void setWorldSize(int width, int height) {
+        worldSizeFixed = width > 0 && height > 0;
+        if (worldSizeFixed) {
+            worldWidth = width;
+            worldHeight = height;
+        }
+    }
+
+    public boolean isWorldSizeFixed() {
+        return worldSizeFixed;
+    }
+
+    /**
+     * Width of the world used by the last physics step
+     */
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
     // Observer pattern methods
     public void addBallEventListener(BallEventListener listener) {
         listeners.add(listener);
@@ -86,6 +174,7 @@ public class GameState {
         
         Ball ball = new Ball(200 + Math.random() * 300, 100 + Math.random() * 200, radius);
         balls.add(ball);
+        ballRevision++;
         fireBallEvent(BallEvent.Type.BALL_CREATED, 
             String.format("Ball created at (%.0f, %.0f) with radius %d. Total balls: %d. Mass: %.1f", 
                 ball.getX(), ball.getY(), radius, balls.size(), ball.getMass()));
@@ -101,15 +190,73 @@ public class GameState {
 
         Ball ball = new Ball(x, y, radius);
         balls.add(ball);
+        ballRevision++;
         fireBallEvent(BallEvent.Type.BALL_CREATED, 
             String.format("Ball created at (%.0f, %.0f) with radius %d. Total balls: %d. Mass: %.1f", 
                 ball.getX(), ball.getY(), radius, balls.size(), ball.getMass()));
     }
 
+    /**
+     * Add many non-overlapping balls across the world in one bulk update, firing a single
+     * BALLS_GENERATED event. The new balls avoid each other, the balls already present and the
+     * obstacles.
+     * @param minRadius Smallest radius; radii are drawn uniformly between minRadius and maxRadius
+     * @param seed Seed for placement, radii, velocities and colors; equal seeds give equal scenes
+     * @return The number of balls added, fewer than count if the world cannot hold them all
+     */
+    public int addBalls(int count, SceneGenerator.Distribution distribution, int minRadius, int maxRadius, long seed) {
+        long start = System.nanoTime();
+        // An empty world needs no occupancy queries
+        SceneGenerator.Occupancy occupancy = balls.isEmpty() && obstacles.isEmpty() ? null : this::isSpaceOccupied;
+        List<Ball> generated = SceneGenerator.generate(count, distribution, minRadius, maxRadius, seed,
+            worldWidth, worldHeight, occupancy);
+        if (balls instanceof ArrayList) {
+            ((ArrayList<Ball>) balls).ensureCapacity(balls.size() + generated.size());
+        }
+        balls.addAll(generated);
+        ballRevision++;
+        fireBallEvent(BallEvent.Type.BALLS_GENERATED,
+            String.format("%d balls generated (%s, radius %d-%d, seed %d) in %.0f ms. Total balls: %d",
+                generated.size(), distribution, minRadius, maxRadius, seed,
+                (System.nanoTime() - start) / 1e6, balls.size()));
+        return generated.size();
+    }
+
+    /**
+     * Whether a ball at this position would touch a ball or obstacle already in the world
+     */
+    private boolean isSpaceOccupied(double x, double y, int radius) {
+        if (!ballIndex().findBallsInCircle(x, y, radius).isEmpty()) {
+            return true;
+        }
+        for (Obstacle obstacle : obstacleIndex().findObstaclesInRect(x - radius, y - radius, x + radius, y + radius)) {
+            double dx = x - clamp(x, obstacle.getX(), obstacle.getX() + obstacle.getWidth());
+            double dy = y - clamp(y, obstacle.getY(), obstacle.getY() + obstacle.getHeight());
+            if (dx * dx + dy * dy < radius * radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public List<Obstacle> getObstacles() {
         return obstacles;
     }
 
+    /**
+     * Revision counter for the ball list, used by views to detect added or removed balls
+     */
+    public int getBallRevision() {
+        return ballRevision;
+    }
+
+    /**
+     * Revision counter for the obstacle layer, used by views to cache obstacle rendering
+     */
+    public int getObstacleRevision() {
+        return obstacleRevision;
+    }
+
     public void addObstacleAt(double centerX, double centerY) {
         double width = controlPanel != null ? controlPanel.getObstacleWidth() : Obstacle.DEFAULT_WIDTH;
         double height = controlPanel != null ? controlPanel.getObstacleHeight() : Obstacle.DEFAULT_HEIGHT;
@@ -117,6 +264,8 @@ public class GameState {
         double topLeftY = centerY - height / 2.0;
         Obstacle obstacle = new Obstacle(topLeftX, topLeftY, width, height);
         obstacles.add(obstacle);
+        obstacleRevision++;
+        invalidateObstacleField(obstacle);
         fireBallEvent(BallEvent.Type.OBSTACLE_CREATED,
             String.format("Obstacle created at (%.0f, %.0f) size %.0fx%.0f. Total obstacles: %d",
                 topLeftX, topLeftY, width, height, obstacles.size()));
@@ -125,41 +274,112 @@ public class GameState {
     public void addObstacleRaw(double x, double y, double width, double height) {
         Obstacle obstacle = new Obstacle(x, y, width, height);
         obstacles.add(obstacle);
+        obstacleRevision++;
+        invalidateObstacleField(obstacle);
         fireBallEvent(BallEvent.Type.OBSTACLE_CREATED,
             String.format("Obstacle loaded at (%.0f, %.0f) size %.0fx%.0f. Total obstacles: %d",
                 obstacle.getX(), obstacle.getY(), obstacle.getWidth(), obstacle.getHeight(), obstacles.size()));
     }
 
+    /**
+     * Add many obstacles in one bulk update, e.g. from an imported level image. Listeners
+     * get a single OBSTACLES_IMPORTED event instead of one OBSTACLE_CREATED per obstacle.
+     * @param source Where the obstacles came from, for the log
+     */
+    public void addObstacles(List<Obstacle> newObstacles, String source) {
+        if (obstacles instanceof ArrayList) {
+            ((ArrayList<Obstacle>) obstacles).ensureCapacity(obstacles.size() + newObstacles.size());
+        }
+        obstacles.addAll(newObstacles);
+        obstacleRevision++;
+        if (obstacleField != null) {
+            obstacleField.invalidateAll();
+        }
+        fireBallEvent(BallEvent.Type.OBSTACLES_IMPORTED,
+            String.format("%d obstacles imported from %s. Total obstacles: %d",
+                newObstacles.size(), source, obstacles.size()));
+    }
+
     public void removeObstacleAt(double x, double y) {
-        for (int i = obstacles.size() - 1; i >= 0; i--) {
-            Obstacle obstacle = obstacles.get(i);
-            if (obstacle.contains(x, y)) {
-                obstacles.remove(i);
-                if (obstacle == draggedObstacle) {
-                    draggedObstacle = null;
-                }
-                fireBallEvent(BallEvent.Type.OBSTACLE_REMOVED,
-                    String.format("Obstacle removed from (%.0f, %.0f). Remaining obstacles: %d",
-                        obstacle.getX(), obstacle.getY(), obstacles.size()));
-                break;
-            }
+        int index = obstacleIndex().pickObstacleIndex(x, y);
+        if (index < 0) {
+            return;
         }
+        Obstacle obstacle = obstacles.remove(index);
+        obstacleRevision++;
+        invalidateObstacleField(obstacle);
+        if (obstacle == draggedObstacle) {
+            draggedObstacle = null;
+        }
+        fireBallEvent(BallEvent.Type.OBSTACLE_REMOVED,
+            String.format("Obstacle removed from (%.0f, %.0f). Remaining obstacles: %d",
+                obstacle.getX(), obstacle.getY(), obstacles.size()));
     }
 
     public void clearObstacles() {
         int count = obstacles.size();
         obstacles.clear();
         draggedObstacle = null;
+        obstacleRevision++;
+        if (obstacleField != null) {
+            obstacleField.invalidateAll();
+        }
         if (count > 0) {
             fireBallEvent(BallEvent.Type.OBSTACLES_CLEARED,
                 String.format("All %d obstacles cleared", count));
         }
     }
     
+    /**
+     * Replace all balls, obstacles and physics settings in one bulk update. Listeners get a
+     * single SCENE_LOADED event instead of one event per ball, obstacle and setting, which
+     * keeps loading large scenes fast.
+     */
+    public void loadScene(List<Ball> newBalls, List<Obstacle> newObstacles, boolean gravityEnabled,
+                          double gravityX, double gravityY, double springConstant) {
+        balls.clear();
+        if (balls instanceof ArrayList) {
+            ((ArrayList<Ball>) balls).ensureCapacity(newBalls.size());
+        }
+        balls.addAll(newBalls);
+        obstacles.clear();
+        obstacles.addAll(newObstacles);
+        draggedBall = null;
+        draggedObstacle = null;
+        ballRevision++;
+        obstacleRevision++;
+        if (obstacleField != null) {
+            obstacleField.invalidateAll();
+        }
+        this.gravityEnabled = gravityEnabled;
+        this.gravityX = gravityX;
+        this.gravityY = gravityY;
+        this.springConstant = springConstant;
+        fireBallEvent(BallEvent.Type.SCENE_LOADED,
+            String.format("Scene loaded: %d balls, %d obstacles, gravity %s (%.1f, %.1f), spring constant %.1f",
+                balls.size(), obstacles.size(), gravityEnabled ? "on" : "off", gravityX, gravityY, springConstant));
+    }
+    
+    /**
+     * Show another list of balls without notifying listeners, e.g. the frames of a recording
+     * @return The list that was shown before, to swap back later
+     */
+    public List<Ball> swapBalls(List<Ball> newBalls) {
+        List<Ball> previous = balls;
+        balls = newBalls;
+        if (draggedBall != null) {
+            draggedBall.stopDrag();
+            draggedBall = null;
+        }
+        ballRevision++;
+        return previous;
+    }
+
     public void clearAllBalls() {
         int count = balls.size();
         balls.clear();
         draggedBall = null;
+        ballRevision++;
         fireBallEvent(BallEvent.Type.BALLS_CLEARED, 
             String.format("All %d balls cleared", count));
     }
@@ -183,14 +403,12 @@ public class GameState {
         mouseY = y;
         
         // Find ball under mouse cursor
-        for (Ball ball : balls) {
-            if (ball.contains(x, y)) {
-                draggedBall = ball;
-                ball.startDrag(x, y);
-                fireBallEvent(BallEvent.Type.BALL_DRAGGED, 
-                    String.format("Ball at (%.0f, %.0f) started dragging", ball.getX(), ball.getY()));
-                break;
-            }
+        Ball ball = pickBall(x, y);
+        if (ball != null) {
+            draggedBall = ball;
+            ball.startDrag(x, y);
+            fireBallEvent(BallEvent.Type.BALL_DRAGGED, 
+                String.format("Ball at (%.0f, %.0f) started dragging", ball.getX(), ball.getY()));
         }
     }
     
@@ -210,14 +428,14 @@ public class GameState {
     }
 
     public boolean handleObstacleMousePressed(double x, double y) {
-        for (Obstacle obstacle : obstacles) {
-            if (obstacle.contains(x, y)) {
-                draggedObstacle = obstacle;
-                obstacleOffsetX = x - obstacle.getX();
-                obstacleOffsetY = y - obstacle.getY();
-                obstacle.setSelected(true);
-                return true;
-            }
+        Obstacle obstacle = pickObstacle(x, y);
+        if (obstacle != null) {
+            draggedObstacle = obstacle;
+            obstacleOffsetX = x - obstacle.getX();
+            obstacleOffsetY = y - obstacle.getY();
+            obstacle.setSelected(true);
+            obstacleRevision++;
+            return true;
         }
         draggedObstacle = null;
         return false;
@@ -227,13 +445,17 @@ public class GameState {
         if (draggedObstacle != null) {
             double newX = x - obstacleOffsetX;
             double newY = y - obstacleOffsetY;
+            invalidateObstacleField(draggedObstacle); // The area it leaves
             draggedObstacle.setPosition(newX, newY);
+            invalidateObstacleField(draggedObstacle); // The area it moves into
+            obstacleRevision++;
         }
     }
 
     public void handleObstacleMouseReleased() {
         if (draggedObstacle != null) {
             draggedObstacle.setSelected(false);
+            obstacleRevision++;
             fireBallEvent(BallEvent.Type.OBSTACLE_MOVED,
                 String.format("Obstacle moved to (%.0f, %.0f)",
                     draggedObstacle.getX(), draggedObstacle.getY()));
@@ -241,45 +463,377 @@ public class GameState {
         }
     }
     
-    // Physics update
+    // Physics update; the view size is only used while the world size is not fixed
     public void updateBalls(int panelWidth, int panelHeight, double deltaTime) {
+        if (!worldSizeFixed) {
+            worldWidth = panelWidth;
+            worldHeight = panelHeight;
+        }
+        FlightEvents.PhysicsStepEvent stepEvent = FlightEvents.beginPhysicsStep();
+        long stepStart = System.nanoTime();
+        Arrays.fill(stepPhaseNanos, 0);
+        candidatePairCount = 0;
+        collisionPairCount = 0;
+
+        // Rendering interpolates from the state before the whole step, not the last substep
+        for (Ball ball : balls) {
+            ball.savePreviousPosition();
+        }
+        int candidatePairTotal = 0;
+        int collisionPairTotal = 0;
+        for (int s = 0; s < substeps; s++) {
+            updateSubstep(deltaTime / substeps);
+            candidatePairTotal += candidatePairCount;
+            collisionPairTotal += collisionPairCount;
+        }
+        candidatePairCount = candidatePairTotal;
+        collisionPairCount = collisionPairTotal;
+
+        long phaseStart = beginPhase();
+        fireQueuedEvents();
+        endPhase(StepPhase.EVENTS, phaseStart);
+
+        stepCount++;
+        moveIndexedBalls();
+        totalCollisionCount += collisionPairCount;
+        lastStepNanos = System.nanoTime() - stepStart;
+        FlightEvents.commitPhysicsStep(stepEvent, this);
+    }
+
+    /**
+     * Integrate and resolve collisions over one substep
+     */
+    private void updateSubstep(double deltaTime) {
+        long phaseStart = beginPhase();
+
         // Update ball physics
         for (Ball ball : balls) {
             if (ball == draggedBall) {
-                ball.applyDragForce(mouseX, mouseY, springConstant, deltaTime, panelWidth, panelHeight);
+                ball.applyDragForce(mouseX, mouseY, springConstant, deltaTime, worldWidth, worldHeight, dragDamping);
             } else {
-                ball.update(panelWidth, panelHeight, gravityEnabled, gravityX, gravityY, deltaTime);
+                ball.update(worldWidth, worldHeight, gravityEnabled, gravityX, gravityY, deltaTime, wallRestitution);
             }
+        }
+        phaseStart = nextPhase(StepPhase.INTEGRATION, phaseStart);
 
-            for (Obstacle obstacle : obstacles) {
-                if (resolveBallObstacleCollision(ball, obstacle)) {
-                    fireBallEvent(BallEvent.Type.BALL_OBSTACLE_COLLISION,
-                        String.format("Ball at (%.0f, %.0f) collided with obstacle at (%.0f, %.0f)",
-                            ball.getX(), ball.getY(), obstacle.getX(), obstacle.getY()));
-                }
+        if (obstacleField != null && !obstacles.isEmpty()) {
+            obstacleField.update(obstacles, obstacleIndex(), worldWidth, worldHeight);
+            for (Ball ball : balls) {
+                resolveBallObstacleCollisionByField(ball);
+            }
+        } else {
+            for (Ball ball : balls) {
+                resolveBallObstacleCollisions(ball);
             }
         }
-        
-        // Check collisions between all pairs of balls
+        phaseStart = nextPhase(StepPhase.OBSTACLES, phaseStart);
+
+        if (broadphase == Broadphase.SORT_AND_SWEEP) {
+            findCandidatePairsBySweep();
+        } else {
+            findCandidatePairs();
+        }
+        phaseStart = nextPhase(StepPhase.BROADPHASE, phaseStart);
+
+        // Check collisions between the candidate pairs
+        collisionPairCount = 0;
+        for (int p = 0; p < candidatePairCount; p++) {
+            Ball ball1 = balls.get(candidatePairs[p * 2]);
+            Ball ball2 = balls.get(candidatePairs[p * 2 + 1]);
+            
+            // Check if collision occurred
+            double dx = ball2.getX() - ball1.getX();
+            double dy = ball2.getY() - ball1.getY();
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            
+            if (distance < (ball1.getRadius() + ball2.getRadius())) {
+                ball1.handleCollision(ball2);
+                collisionPairCount++;
+                queueEvent(BallEvent.Type.BALL_COLLISION,
+                    ball1.getX(), ball1.getY(), ball2.getX(), ball2.getY());
+            }
+        }
+        endPhase(StepPhase.NARROWPHASE, phaseStart);
+    }
+
+    /**
+     * Broadphase: collect every pair of balls whose bounding boxes overlap
+     */
+    private void findCandidatePairs() {
+        candidatePairCount = 0;
         for (int i = 0; i < balls.size(); i++) {
+            Ball ball1 = balls.get(i);
             for (int j = i + 1; j < balls.size(); j++) {
-                Ball ball1 = balls.get(i);
                 Ball ball2 = balls.get(j);
-                
-                // Check if collision occurred
-                double dx = ball2.getX() - ball1.getX();
-                double dy = ball2.getY() - ball1.getY();
-                double distance = Math.sqrt(dx * dx + dy * dy);
-                
-                if (distance < (ball1.getRadius() + ball2.getRadius())) {
-                    ball1.handleCollision(ball2);
-                    fireBallEvent(BallEvent.Type.BALL_COLLISION, 
-                        String.format("Collision between balls at (%.0f, %.0f) and (%.0f, %.0f)", 
-                            ball1.getX(), ball1.getY(), ball2.getX(), ball2.getY()));
+                double reach = ball1.getRadius() + ball2.getRadius();
+                if (Math.abs(ball2.getX() - ball1.getX()) < reach && Math.abs(ball2.getY() - ball1.getY()) < reach) {
+                    addCandidatePair(i, j);
                 }
             }
         }
     }
+
+    /**
+     * Broadphase: sort balls by the left edge of their bounding box and only compare balls
+     * whose x intervals overlap. The order is kept between steps, so the insertion sort
+     * usually has little to do.
+     */
+    private void findCandidatePairsBySweep() {
+        candidatePairCount = 0;
+        int count = balls.size();
+        if (sweepOrder.length != count || sweepRevision != ballRevision) {
+            sweepOrder = new int[count];
+            sweepMinX = new double[count];
+            for (int i = 0; i < count; i++) {
+                sweepOrder[i] = i;
+            }
+            sweepRevision = ballRevision;
+        }
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            sweepMinX[i] = ball.getX() - ball.getRadius();
+        }
+        for (int a = 1; a < count; a++) {
+            int index = sweepOrder[a];
+            double minX = sweepMinX[index];
+            int b = a - 1;
+            // Ties (e.g. balls resting on the left wall) go by list position, so the order, and with
+            // it the order pairs are resolved in, depends only on the balls and not on earlier steps
+            while (b >= 0 && (sweepMinX[sweepOrder[b]] > minX
+                    || (sweepMinX[sweepOrder[b]] == minX && sweepOrder[b] > index))) {
+                sweepOrder[b + 1] = sweepOrder[b];
+                b--;
+            }
+            sweepOrder[b + 1] = index;
+        }
+
+        for (int a = 0; a < count; a++) {
+            int i = sweepOrder[a];
+            Ball ball1 = balls.get(i);
+            double maxX = ball1.getX() + ball1.getRadius();
+            for (int b = a + 1; b < count && sweepMinX[sweepOrder[b]] < maxX; b++) {
+                int j = sweepOrder[b];
+                Ball ball2 = balls.get(j);
+                double reach = ball1.getRadius() + ball2.getRadius();
+                if (Math.abs(ball2.getY() - ball1.getY()) < reach) {
+                    addCandidatePair(Math.min(i, j), Math.max(i, j));
+                }
+            }
+        }
+    }
+
+    private void addCandidatePair(int first, int second) {
+        if (candidatePairs.length < (candidatePairCount + 1) * 2) {
+            candidatePairs = Arrays.copyOf(candidatePairs, candidatePairs.length * 2);
+        }
+        candidatePairs[candidatePairCount * 2] = first;
+        candidatePairs[candidatePairCount * 2 + 1] = second;
+        candidatePairCount++;
+    }
+
+    private long beginPhase() {
+        phaseEvent = FlightEvents.beginStepPhase();
+        return System.nanoTime();
+    }
+
+    private void endPhase(StepPhase phase, long phaseStart) {
+        stepPhaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+        FlightEvents.commitStepPhase(phaseEvent, phase, balls.size(), candidatePairCount, collisionPairCount);
+        phaseEvent = null;
+    }
+
+    /**
+     * End one phase and start timing the phase after it
+     */
+    private long nextPhase(StepPhase phase, long phaseStart) {
+        endPhase(phase, phaseStart);
+        return beginPhase();
+    }
+
+    /**
+     * Record a collision event; messages are only formatted once the step has finished.
+     * Events past the per-step budget are counted and dropped so dense scenes do not
+     * spend their frame formatting log lines.
+     */
+    private void queueEvent(BallEvent.Type type, double x1, double y1, double x2, double y2) {
+        if (pendingEventCount == MAX_EVENTS_PER_STEP) {
+            droppedEventCount++;
+            return;
+        }
+        pendingEventTypes[pendingEventCount] = type;
+        int base = pendingEventCount * 4;
+        pendingEventData[base] = x1;
+        pendingEventData[base + 1] = y1;
+        pendingEventData[base + 2] = x2;
+        pendingEventData[base + 3] = y2;
+        pendingEventCount++;
+    }
+
+    private void fireQueuedEvents() {
+        // Headless worlds (batch runs, exports) have no listeners, so skip formatting the messages
+        for (int i = 0; i < pendingEventCount && !listeners.isEmpty(); i++) {
+            int base = i * 4;
+            String format = pendingEventTypes[i] == BallEvent.Type.BALL_COLLISION
+                ? "Collision between balls at (%.0f, %.0f) and (%.0f, %.0f)"
+                : "Ball at (%.0f, %.0f) collided with obstacle at (%.0f, %.0f)";
+            fireBallEvent(pendingEventTypes[i], String.format(format, pendingEventData[base],
+                pendingEventData[base + 1], pendingEventData[base + 2], pendingEventData[base + 3]));
+            pendingEventTypes[i] = null;
+        }
+        pendingEventCount = 0;
+    }
+
+    /**
+     * Time spent in one phase of the most recent physics step
+     */
+    public long getStepPhaseNanos(StepPhase phase) {
+        return stepPhaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Pairs the broadphase passed to the narrowphase in the most recent step
+     */
+    public int getCandidatePairCount() {
+        return candidatePairCount;
+    }
+
+    /**
+     * Pairs that actually collided in the most recent step
+     */
+    public int getCollisionPairCount() {
+        return collisionPairCount;
+    }
+
+    /**
+     * Number of physics steps run since the simulation started
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Wall-clock duration of the most recent physics step, including all substeps
+     */
+    public long getLastStepNanos() {
+        return lastStepNanos;
+    }
+
+    /**
+     * Ball-ball collisions resolved since the simulation started
+     */
+    public long getTotalCollisionCount() {
+        return totalCollisionCount;
+    }
+
+    /**
+     * Collision events not delivered to listeners because a step exceeded its event budget
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    public Broadphase getBroadphase() {
+        return broadphase;
+    }
+
+    public void setBroadphase(Broadphase broadphase) {
+        if (broadphase == this.broadphase) {
+            return;
+        }
+        this.broadphase = broadphase;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            "Broadphase changed to " + broadphase);
+    }
+
+    public double getWallRestitution() {
+        return wallRestitution;
+    }
+
+    /**
+     * Fraction of a ball's speed kept when it bounces off a wall, from 0 (dead stop) to 1 (elastic)
+     */
+    public void setWallRestitution(double wallRestitution) {
+        checkFraction("Wall restitution", wallRestitution);
+        this.wallRestitution = wallRestitution;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            String.format("Wall restitution changed to %.2f", wallRestitution));
+    }
+
+    public double getObstacleRestitution() {
+        return obstacleRestitution;
+    }
+
+    /**
+     * Fraction of a ball's normal speed kept when it bounces off an obstacle
+     */
+    public void setObstacleRestitution(double obstacleRestitution) {
+        checkFraction("Obstacle restitution", obstacleRestitution);
+        this.obstacleRestitution = obstacleRestitution;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            String.format("Obstacle restitution changed to %.2f", obstacleRestitution));
+    }
+
+    public double getDragDamping() {
+        return dragDamping;
+    }
+
+    /**
+     * Fraction of a dragged ball's velocity kept each step; lower values follow the mouse more stiffly
+     */
+    public void setDragDamping(double dragDamping) {
+        checkFraction("Drag damping", dragDamping);
+        this.dragDamping = dragDamping;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            String.format("Drag damping changed to %.2f", dragDamping));
+    }
+
+    private static void checkFraction(String name, double value) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1, got " + value);
+        }
+    }
+
+    public boolean isObstacleFieldEnabled() {
+        return obstacleField != null;
+    }
+
+    /**
+     * Resolve ball-obstacle contacts with a baked signed-distance field, one lookup per ball
+     * whatever the obstacle count, instead of testing every ball against every obstacle.
+     * Obstacle edits rebake only the area around the edited obstacle.
+     */
+    public void setObstacleFieldEnabled(boolean enabled) {
+        if (enabled == (obstacleField != null)) {
+            return;
+        }
+        obstacleField = enabled ? new ObstacleDistanceField() : null;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            "Obstacle collisions " + (enabled ? "use the baked distance field" : "test every obstacle"));
+    }
+
+    /**
+     * The baked field, or null while obstacle collisions are tested exactly
+     */
+    public ObstacleDistanceField getObstacleField() {
+        return obstacleField;
+    }
+
+    public int getSubsteps() {
+        return substeps;
+    }
+
+    /**
+     * Split every physics step into a number of smaller steps, for stiffer collisions
+     */
+    public void setSubsteps(int substeps) {
+        substeps = Math.max(1, Math.min(MAX_SUBSTEPS, substeps));
+        if (substeps == this.substeps) {
+            return;
+        }
+        this.substeps = substeps;
+        fireBallEvent(BallEvent.Type.PHYSICS_SETTINGS_CHANGED,
+            String.format("Physics substeps changed to %d", substeps));
+    }
     
     // Getters
     public List<Ball> getBalls() { 
@@ -302,6 +856,14 @@ public class GameState {
         return draggedBall;
     }
     
+    public double getMouseX() {
+        return mouseX;
+    }
+    
+    public double getMouseY() {
+        return mouseY;
+    }
+    
     public double getSpringConstant() {
         return springConstant;
     }
@@ -313,6 +875,158 @@ public class GameState {
             String.format("Spring constant changed from %.1f to %.1f", oldConstant, springConstant));
     }
 
+    /**
+     * Test one ball against every obstacle
+     */
+    private void resolveBallObstacleCollisions(Ball ball) {
+        for (Obstacle obstacle : obstacles) {
+            if (resolveBallObstacleCollision(ball, obstacle)) {
+                queueEvent(BallEvent.Type.BALL_OBSTACLE_COLLISION,
+                    ball.getX(), ball.getY(), obstacle.getX(), obstacle.getY());
+            }
+        }
+    }
+
+    /**
+     * Test one ball against the baked distance field with a single lookup. Balls the field
+     * cannot answer for (off the grid, larger than its band, or midway between two edges)
+     * fall back to the exact test.
+     */
+    private void resolveBallObstacleCollisionByField(Ball ball) {
+        double x = ball.getX();
+        double y = ball.getY();
+        double radius = ball.getRadius();
+        if (!obstacleField.covers(x, y, radius)) {
+            resolveBallObstacleCollisions(ball);
+            return;
+        }
+        double distance = obstacleField.distanceAt(x, y);
+        if (distance > radius) {
+            return;
+        }
+        if (!obstacleField.normalAt(x, y, fieldNormal)) {
+            resolveBallObstacleCollisions(ball);
+            return;
+        }
+        double nx = fieldNormal[0];
+        double ny = fieldNormal[1];
+        double penetration = radius - distance;
+        ball.moveBy(nx * penetration, ny * penetration);
+
+        double dot = ball.getVelocityX() * nx + ball.getVelocityY() * ny;
+        if (dot < 0) {
+            ball.setVelocity(ball.getVelocityX() - (1 + obstacleRestitution) * dot * nx,
+                ball.getVelocityY() - (1 + obstacleRestitution) * dot * ny);
+            // The field does not know which obstacle was hit, so the event reports the contact point
+            queueEvent(BallEvent.Type.BALL_OBSTACLE_COLLISION, ball.getX(), ball.getY(),
+                x - nx * distance, y - ny * distance);
+        }
+    }
+
+    // Spatial queries, answered from a grid index rebuilt at most once per change
+
+    /**
+     * Tell the spatial index that balls were moved outside a physics step, e.g. by a rewind
+     */
+    public void markBallsMoved() {
+        ballMotionRevision++;
+    }
+
+    private boolean isBallIndexCurrent() {
+        return ballIndexCurrent && indexedBallRevision == ballRevision
+            && indexedMotionRevision == ballMotionRevision;
+    }
+
+    /**
+     * Let the index follow the balls this step moved by relinking the ones that changed cell.
+     * Nothing is done once the index is out of date, as the next query rebuilds it anyway.
+     */
+    private void moveIndexedBalls() {
+        if (isBallIndexCurrent()) {
+            ballIndexCurrent = spatialIndex.moveBalls();
+        }
+    }
+
+    /**
+     * The index, rebuilt only when balls were added, removed or moved outside a step, or a
+     * step moved one past the edge of the grid
+     */
+    private SpatialIndex ballIndex() {
+        if (!isBallIndexCurrent()) {
+            spatialIndex.buildBalls(balls);
+            indexedBallRevision = ballRevision;
+            indexedMotionRevision = ballMotionRevision;
+            ballIndexCurrent = true;
+        }
+        return spatialIndex;
+    }
+
+    private SpatialIndex obstacleIndex() {
+        if (indexedObstacleRevision != obstacleRevision) {
+            spatialIndex.buildObstacles(obstacles);
+            indexedObstacleRevision = obstacleRevision;
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * The ball under a point, or null; where balls overlap, the earliest in the ball list
+     */
+    public Ball pickBall(double x, double y) {
+        return ballIndex().pickBall(x, y);
+    }
+
+    /**
+     * Balls that overlap a rectangle, in no particular order
+     */
+    public List<Ball> findBallsInRect(double minX, double minY, double maxX, double maxY) {
+        return ballIndex().findBallsInRect(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Balls that overlap a circle, in no particular order
+     */
+    public List<Ball> findBallsInCircle(double x, double y, double radius) {
+        return ballIndex().findBallsInCircle(x, y, radius);
+    }
+
+    /**
+     * The k balls whose centers are nearest to a point, nearest first
+     */
+    public List<Ball> findNearestBalls(double x, double y, int k) {
+        return ballIndex().findNearestBalls(x, y, k);
+    }
+
+    /**
+     * The obstacle under a point, or null; where obstacles overlap, the one drawn on top
+     */
+    public Obstacle pickObstacle(double x, double y) {
+        int index = obstacleIndex().pickObstacleIndex(x, y);
+        return index < 0 ? null : obstacles.get(index);
+    }
+
+    /**
+     * Obstacles that overlap a rectangle, in no particular order
+     */
+    public List<Obstacle> findObstaclesInRect(double minX, double minY, double maxX, double maxY) {
+        return obstacleIndex().findObstaclesInRect(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * The first ball or obstacle along a ray, or null if nothing is hit within maxDistance
+     */
+    public SpatialIndex.RayHit castRay(double originX, double originY, double directionX, double directionY,
+                                       double maxDistance) {
+        ballIndex();
+        return obstacleIndex().castRay(originX, originY, directionX, directionY, maxDistance);
+    }
+
+    private void invalidateObstacleField(Obstacle obstacle) {
+        if (obstacleField != null) {
+            obstacleField.invalidate(obstacle);
+        }
+    }
+
     private boolean resolveBallObstacleCollision(Ball ball, Obstacle obstacle) {
         double closestX = clamp(ball.getX(), obstacle.getX(), obstacle.getX() + obstacle.getWidth());
         double closestY = clamp(ball.getY(), obstacle.getY(), obstacle.getY() + obstacle.getHeight());
@@ -352,9 +1066,8 @@ public class GameState {
 
         double dot = ball.getVelocityX() * nx + ball.getVelocityY() * ny;
         if (dot < 0) {
-            double restitution = 0.9;
-            double newVx = ball.getVelocityX() - (1 + restitution) * dot * nx;
-            double newVy = ball.getVelocityY() - (1 + restitution) * dot * ny;
+            double newVx = ball.getVelocityX() - (1 + obstacleRestitution) * dot * nx;
+            double newVy = ball.getVelocityY() - (1 + obstacleRestitution) * dot * ny;
             ball.setVelocity(newVx, newVy);
             return true;
         }
@@ -91,20 +91,32 @@ public class LogPanel extends JPanel implements BallEventListener {
             // Add special formatting for physics parameter changes
             if (event.getEventType() == BallEvent.Type.GRAVITY_DIRECTION_CHANGED ||
                 event.getEventType() == BallEvent.Type.SPRING_CONSTANT_CHANGED ||
-                event.getEventType() == BallEvent.Type.GRAVITY_TOGGLED) {
+                event.getEventType() == BallEvent.Type.GRAVITY_TOGGLED ||
+                event.getEventType() == BallEvent.Type.PHYSICS_SETTINGS_CHANGED) {
                 message = "[Physics] " + message;
             }
 
             if (event.getEventType() == BallEvent.Type.OBSTACLE_CREATED ||
                 event.getEventType() == BallEvent.Type.OBSTACLE_REMOVED ||
                 event.getEventType() == BallEvent.Type.OBSTACLE_MOVED ||
-                event.getEventType() == BallEvent.Type.OBSTACLES_CLEARED) {
+                event.getEventType() == BallEvent.Type.OBSTACLES_CLEARED ||
+                event.getEventType() == BallEvent.Type.OBSTACLES_IMPORTED) {
                 message = "[Obstacle] " + message;
             }
 
             if (event.getEventType() == BallEvent.Type.BALL_OBSTACLE_COLLISION) {
                 message = "[Obstacle Collision] " + message;
             }
+
+            if (event.getEventType() == BallEvent.Type.SCENE_LOADED ||
+                event.getEventType() == BallEvent.Type.AUTOSAVE) {
+                message = "[System] " + message;
+            }
+
+            if (event.getEventType() == BallEvent.Type.AUTOSAVE_FAILED ||
+                event.getEventType() == BallEvent.Type.RENDER_FAILED) {
+                message = "[Error] " + message;
+            }
             
             addLogMessage(message);
         }
@@ -6,6 +6,8 @@
 package com.mycompany.ballcollisionsimulation;
 
 import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import java.awt.event.KeyEvent;
 
 /**
@@ -58,12 +60,67 @@ public class MenuBarManager {
         loadItem.setAccelerator(KeyStroke.getKeyStroke("control O"));
         loadItem.addActionListener(e -> mainApp.loadSimulation());
         
+        JMenuItem generateItem = new JMenuItem("Generate Balls...");
+        generateItem.addActionListener(e -> mainApp.showGenerateDialog());
+        
+        JMenuItem importObstaclesItem = new JMenuItem("Import Obstacles from Image...");
+        importObstaclesItem.addActionListener(e -> mainApp.importObstacles());
+        
+        JCheckBoxMenuItem autosaveItem = new JCheckBoxMenuItem("Autosave Every Minute", mainApp.isAutosaveEnabled());
+        autosaveItem.addActionListener(e -> mainApp.setAutosaveEnabled(autosaveItem.isSelected()));
+        
+        JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("Record Trajectory...");
+        recordItem.addActionListener(e -> {
+            if (mainApp.isRecording()) {
+                mainApp.stopRecording();
+            } else {
+                mainApp.startRecording();
+            }
+        });
+        
+        JCheckBoxMenuItem shareItem = new JCheckBoxMenuItem("Share Live State...");
+        shareItem.addActionListener(e -> {
+            if (mainApp.isSharing()) {
+                mainApp.stopSharing();
+            } else {
+                mainApp.startSharing();
+            }
+        });
+        
+        JMenuItem playItem = new JMenuItem("Play Recording...");
+        playItem.addActionListener(e -> mainApp.playRecording());
+        
+        // Recording and sharing can also stop on their own, so the check marks are synced whenever the menu opens
+        fileMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                recordItem.setSelected(mainApp.isRecording());
+                shareItem.setSelected(mainApp.isSharing());
+            }
+            
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+            
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+        
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.setMnemonic(KeyEvent.VK_X);
         exitItem.addActionListener(e -> System.exit(0));
         
         fileMenu.add(saveItem);
         fileMenu.add(loadItem);
+        fileMenu.add(autosaveItem);
+        fileMenu.addSeparator();
+        fileMenu.add(generateItem);
+        fileMenu.add(importObstaclesItem);
+        fileMenu.addSeparator();
+        fileMenu.add(recordItem);
+        fileMenu.add(playItem);
+        fileMenu.add(shareItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         
@@ -96,11 +153,74 @@ public class MenuBarManager {
         
         toggleInstructionsItem.addActionListener(e -> gamePanel.setInstructionsVisible(toggleInstructionsItem.isSelected()));
         
+        JCheckBoxMenuItem rasterItem = new JCheckBoxMenuItem("Parallel Raster Renderer", gamePanel.isRasterRendering());
+        rasterItem.addActionListener(e -> gamePanel.setRasterRendering(rasterItem.isSelected()));
+        
+        JCheckBoxMenuItem activeRenderingItem = new JCheckBoxMenuItem("Active Rendering (BufferStrategy)", false);
+        activeRenderingItem.addActionListener(e -> mainApp.setActiveRendering(activeRenderingItem.isSelected()));
+        
+        JMenu frameRateMenu = new JMenu("Target Frame Rate");
+        ButtonGroup frameRateGroup = new ButtonGroup();
+        for (int fps : new int[]{30, 60, 120, 144}) {
+            JRadioButtonMenuItem fpsItem = new JRadioButtonMenuItem(fps + " FPS", fps == mainApp.getTargetFps());
+            fpsItem.addActionListener(e -> mainApp.setTargetFps(fps));
+            frameRateGroup.add(fpsItem);
+            frameRateMenu.add(fpsItem);
+        }
+        
+        JMenu physicsRateMenu = new JMenu("Physics Rate");
+        ButtonGroup physicsRateGroup = new ButtonGroup();
+        for (int rate : new int[]{30, 60, 120}) {
+            JRadioButtonMenuItem rateItem = new JRadioButtonMenuItem(rate + " Hz", rate == mainApp.getPhysicsRate());
+            rateItem.addActionListener(e -> mainApp.setPhysicsRate(rate));
+            physicsRateGroup.add(rateItem);
+            physicsRateMenu.add(rateItem);
+        }
+        
+        JCheckBoxMenuItem dirtyRegionItem = new JCheckBoxMenuItem("Dirty-Region Repaint", gamePanel.isDirtyRegionRepaint());
+        dirtyRegionItem.addActionListener(e -> gamePanel.setDirtyRegionRepaint(dirtyRegionItem.isSelected()));
+        
+        JCheckBoxMenuItem performanceItem = new JCheckBoxMenuItem("Performance Overlay", gamePanel.isPerformanceOverlayVisible());
+        performanceItem.addActionListener(e -> gamePanel.setPerformanceOverlayVisible(performanceItem.isSelected()));
+        
+        JMenuItem detailItem = new JMenuItem("Level of Detail Thresholds...");
+        detailItem.addActionListener(e -> mainApp.showDetailThresholdsDialog());
+        
+        JCheckBoxMenuItem obstacleFieldItem = new JCheckBoxMenuItem("Baked Obstacle Distance Field",
+            mainApp.isObstacleFieldEnabled());
+        obstacleFieldItem.addActionListener(e -> mainApp.setObstacleFieldEnabled(obstacleFieldItem.isSelected()));
+        
+        JMenuItem physicsConstantsItem = new JMenuItem("Physics Constants...");
+        physicsConstantsItem.addActionListener(e -> mainApp.showPhysicsConstantsDialog());
+        
+        JMenuItem rewindItem = new JMenuItem("Rewind...");
+        rewindItem.addActionListener(e -> mainApp.showRewindDialog());
+        
+        JMenuItem worldSizeItem = new JMenuItem("World Size...");
+        worldSizeItem.addActionListener(e -> mainApp.showWorldSizeDialog());
+        
+        JMenuItem resetCameraItem = new JMenuItem("Reset Camera");
+        resetCameraItem.addActionListener(e -> gamePanel.resetCamera());
+        
         viewMenu.add(toggleLogItem);
         viewMenu.add(toggleControlItem);
         viewMenu.addSeparator();
         viewMenu.add(toggleGridItem);
         viewMenu.add(toggleInstructionsItem);
+        viewMenu.add(performanceItem);
+        viewMenu.addSeparator();
+        viewMenu.add(activeRenderingItem);
+        viewMenu.add(frameRateMenu);
+        viewMenu.add(physicsRateMenu);
+        viewMenu.add(obstacleFieldItem);
+        viewMenu.add(physicsConstantsItem);
+        viewMenu.add(rewindItem);
+        viewMenu.add(rasterItem);
+        viewMenu.add(dirtyRegionItem);
+        viewMenu.add(detailItem);
+        viewMenu.addSeparator();
+        viewMenu.add(worldSizeItem);
+        viewMenu.add(resetCameraItem);
         
         return viewMenu;
     }
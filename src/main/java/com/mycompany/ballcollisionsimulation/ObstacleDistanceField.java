@@ -0,0 +1,253 @@
+/*
+ * Obstacle Distance Field - Baked signed distances to the static obstacles
+ * Turns ball-obstacle contact into one grid lookup per ball
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Obstacle Distance Field - A grid over the world holding, at every node, the signed distance
+ * to the nearest obstacle edge (negative inside an obstacle) and the direction away from it.
+ * A ball touches an obstacle when the interpolated distance at its center is at most its
+ * radius, whatever the number of obstacles. Distances are only baked within BAND of an
+ * obstacle; edits rebake just the nodes within BAND of the old and new obstacle bounds,
+ * from just the obstacles that reach those nodes.
+ * @author Sentinail
+ */
+public class ObstacleDistanceField {
+    public static final double CELL_SIZE = 2.0; // Node spacing in pixels for worlds of normal size
+    public static final double BAND = 64.0; // Distance baked around each obstacle; farther nodes hold BAND
+    private static final int MAX_NODES = 1 << 21; // Larger worlds get a coarser grid instead of more memory
+
+    private double cellSize = CELL_SIZE;
+    private int columns; // Nodes per row, one more than the cells
+    private int rows;
+    private int worldWidth = -1;
+    private int worldHeight = -1;
+    private float[] distance = new float[0];
+    private float[] gradientX = new float[0];
+    private float[] gradientY = new float[0];
+
+    // World-space region waiting to be rebaked, empty while dirtyMinX > dirtyMaxX
+    private double dirtyMinX = Double.POSITIVE_INFINITY;
+    private double dirtyMinY = Double.POSITIVE_INFINITY;
+    private double dirtyMaxX = Double.NEGATIVE_INFINITY;
+    private double dirtyMaxY = Double.NEGATIVE_INFINITY;
+    private boolean rebakeAll = true;
+    private int lastBakedNodes;
+
+    /**
+     * Mark the area around an obstacle's bounds for rebaking; call with the old bounds when
+     * an obstacle moves or is removed and with the new bounds when it moves or is added
+     */
+    public void invalidate(double x, double y, double width, double height) {
+        dirtyMinX = Math.min(dirtyMinX, x - BAND);
+        dirtyMinY = Math.min(dirtyMinY, y - BAND);
+        dirtyMaxX = Math.max(dirtyMaxX, x + width + BAND);
+        dirtyMaxY = Math.max(dirtyMaxY, y + height + BAND);
+    }
+
+    public void invalidate(Obstacle obstacle) {
+        invalidate(obstacle.getX(), obstacle.getY(), obstacle.getWidth(), obstacle.getHeight());
+    }
+
+    /**
+     * Rebake the whole field before the next lookup, e.g. after all obstacles were replaced
+     */
+    public void invalidateAll() {
+        rebakeAll = true;
+    }
+
+    /**
+     * Bring the field up to date with the obstacles; called once per step before lookups.
+     * A change of world size rebuilds the grid, otherwise only the invalidated region is baked.
+     * @param index Spatial index over the same obstacles, used to find those near the region
+     */
+    public void update(List<Obstacle> obstacles, SpatialIndex index, int worldWidth, int worldHeight) {
+        if (worldWidth != this.worldWidth || worldHeight != this.worldHeight) {
+            resize(worldWidth, worldHeight);
+        }
+        lastBakedNodes = 0;
+        if (columns == 0) {
+            return;
+        }
+        if (rebakeAll) {
+            bake(obstacles, null, 0, 0, columns - 1, rows - 1);
+        } else if (dirtyMinX <= dirtyMaxX) {
+            int left = Math.max(0, (int) Math.floor(dirtyMinX / cellSize));
+            int top = Math.max(0, (int) Math.floor(dirtyMinY / cellSize));
+            int right = Math.min(columns - 1, (int) Math.ceil(dirtyMaxX / cellSize));
+            int bottom = Math.min(rows - 1, (int) Math.ceil(dirtyMaxY / cellSize));
+            if (left <= right && top <= bottom) {
+                // Only obstacles within BAND of the region's nodes can change their distances
+                int[] nearby = index.findObstacleIndicesInRect(left * cellSize - BAND, top * cellSize - BAND,
+                    right * cellSize + BAND, bottom * cellSize + BAND);
+                bake(obstacles, nearby, left, top, right, bottom);
+            }
+        }
+        rebakeAll = false;
+        dirtyMinX = Double.POSITIVE_INFINITY;
+        dirtyMinY = Double.POSITIVE_INFINITY;
+        dirtyMaxX = Double.NEGATIVE_INFINITY;
+        dirtyMaxY = Double.NEGATIVE_INFINITY;
+    }
+
+    private void resize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        rebakeAll = true;
+        if (worldWidth <= 0 || worldHeight <= 0) {
+            columns = 0;
+            rows = 0;
+            return;
+        }
+        cellSize = Math.max(CELL_SIZE, Math.sqrt((double) worldWidth * worldHeight / MAX_NODES));
+        columns = (int) Math.ceil(worldWidth / cellSize) + 1;
+        rows = (int) Math.ceil(worldHeight / cellSize) + 1;
+        int nodes = columns * rows;
+        if (distance.length < nodes || distance.length > nodes * 2) {
+            distance = new float[nodes];
+            gradientX = new float[nodes];
+            gradientY = new float[nodes];
+        }
+    }
+
+    /**
+     * Reset the nodes of a region to BAND, then take the nearest obstacle for each node
+     * @param selection Positions of the obstacles to bake in ascending order, or null for all;
+     *                  list order keeps ties between equally near obstacles as in a full bake
+     */
+    private void bake(List<Obstacle> obstacles, int[] selection, int left, int top, int right, int bottom) {
+        for (int row = top; row <= bottom; row++) {
+            int start = row * columns + left;
+            int end = row * columns + right + 1;
+            Arrays.fill(distance, start, end, (float) BAND);
+            Arrays.fill(gradientX, start, end, 0f);
+            Arrays.fill(gradientY, start, end, 0f);
+        }
+        lastBakedNodes = (right - left + 1) * (bottom - top + 1);
+
+        int count = selection != null ? selection.length : obstacles.size();
+        for (int k = 0; k < count; k++) {
+            Obstacle obstacle = obstacles.get(selection != null ? selection[k] : k);
+            double halfWidth = obstacle.getWidth() / 2.0;
+            double halfHeight = obstacle.getHeight() / 2.0;
+            double centerX = obstacle.getX() + halfWidth;
+            double centerY = obstacle.getY() + halfHeight;
+            int fromColumn = Math.max(left, (int) Math.ceil((obstacle.getX() - BAND) / cellSize));
+            int toColumn = Math.min(right, (int) Math.floor((obstacle.getX() + obstacle.getWidth() + BAND) / cellSize));
+            int fromRow = Math.max(top, (int) Math.ceil((obstacle.getY() - BAND) / cellSize));
+            int toRow = Math.min(bottom, (int) Math.floor((obstacle.getY() + obstacle.getHeight() + BAND) / cellSize));
+
+            for (int row = fromRow; row <= toRow; row++) {
+                double offsetY = row * cellSize - centerY;
+                double qy = Math.abs(offsetY) - halfHeight; // Distance past the top or bottom edge
+                double signY = offsetY >= 0 ? 1 : -1;
+                int index = row * columns + fromColumn;
+                for (int column = fromColumn; column <= toColumn; column++, index++) {
+                    double offsetX = column * cellSize - centerX;
+                    double qx = Math.abs(offsetX) - halfWidth;
+                    double signX = offsetX >= 0 ? 1 : -1;
+
+                    double d;
+                    double gx;
+                    double gy;
+                    if (qx > 0 || qy > 0) {
+                        // Outside: away from the nearest edge or corner
+                        double ox = Math.max(qx, 0);
+                        double oy = Math.max(qy, 0);
+                        d = Math.sqrt(ox * ox + oy * oy);
+                        gx = signX * ox / d;
+                        gy = signY * oy / d;
+                    } else if (qx > qy) {
+                        // Inside, closer to a left or right edge
+                        d = qx;
+                        gx = signX;
+                        gy = 0;
+                    } else {
+                        d = qy;
+                        gx = 0;
+                        gy = signY;
+                    }
+                    if (d < distance[index]) {
+                        distance[index] = (float) d;
+                        gradientX[index] = (float) gx;
+                        gradientY[index] = (float) gy;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a lookup for this ball is reliable: the center lies on the grid and the ball
+     * is small enough that any contact falls inside the baked band
+     */
+    public boolean covers(double x, double y, double radius) {
+        return columns > 0 && x >= 0 && y >= 0
+            && x <= (columns - 1) * cellSize && y <= (rows - 1) * cellSize
+            && radius + 2 * cellSize < BAND;
+    }
+
+    /**
+     * Interpolate the signed distance at a point on the grid, BAND where no obstacle is near
+     */
+    public double distanceAt(double x, double y) {
+        return interpolate(distance, x, y);
+    }
+
+    /**
+     * Interpolate the direction away from the nearest obstacle at a point on the grid
+     * @param normal Receives the unit direction
+     * @return False where the direction is undefined (e.g. midway between two obstacle
+     *         edges or outside the band), in which case the caller should test exactly
+     */
+    public boolean normalAt(double x, double y, double[] normal) {
+        double nx = interpolate(gradientX, x, y);
+        double ny = interpolate(gradientY, x, y);
+        double length = Math.sqrt(nx * nx + ny * ny);
+        if (length < 1e-3) {
+            return false;
+        }
+        normal[0] = nx / length;
+        normal[1] = ny / length;
+        return true;
+    }
+
+    /**
+     * Bilinear interpolation between the four nodes around a point
+     */
+    private double interpolate(float[] values, double x, double y) {
+        double gridX = x / cellSize;
+        double gridY = y / cellSize;
+        int column = Math.min((int) gridX, columns - 2);
+        int row = Math.min((int) gridY, rows - 2);
+        double fx = gridX - column;
+        double fy = gridY - row;
+        int index = row * columns + column;
+        double upper = values[index] + (values[index + 1] - values[index]) * fx;
+        double lower = values[index + columns] + (values[index + columns + 1] - values[index + columns]) * fx;
+        return upper + (lower - upper) * fy;
+    }
+
+    /**
+     * Grid nodes rebaked by the most recent update, 0 when nothing changed
+     */
+    public int getLastBakedNodes() {
+        return lastBakedNodes;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Bytes held by the distance and gradient grids
+     */
+    public long getMemoryBytes() {
+        return (long) distance.length * 3 * Float.BYTES;
+    }
+}
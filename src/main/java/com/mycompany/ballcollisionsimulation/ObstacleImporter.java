@@ -0,0 +1,161 @@
+/*
+ * Obstacle Importer - Level layouts from black-and-white images
+ * Converts the filled pixels of a mask into a few large obstacles
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Obstacle Importer - Reads an image mask where dark, opaque pixels are solid and turns
+ * them into axis-aligned obstacles. Each pixel is one grid cell; neighbouring filled cells
+ * are greedily merged into maximal rectangles (as wide as possible, then as tall as the
+ * whole width allows), so a level costs a handful of obstacles instead of one per pixel.
+ * @author Sentinail
+ */
+public class ObstacleImporter {
+    private static final int SOLID_THRESHOLD = 128; // Pixels darker and more opaque than this are filled
+
+    /**
+     * Rectangles produced from a mask, with the counts for reporting
+     */
+    public static class Result {
+        private final List<Obstacle> obstacles;
+        private final int filledCells;
+        private final int columns;
+        private final int rows;
+
+        private Result(List<Obstacle> obstacles, int filledCells, int columns, int rows) {
+            this.obstacles = obstacles;
+            this.filledCells = filledCells;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public List<Obstacle> getObstacles() {
+            return obstacles;
+        }
+
+        /**
+         * Filled cells in the mask, the number of obstacles without merging
+         */
+        public int getFilledCells() {
+            return filledCells;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * One-line report of the merge, e.g. for the log or the command line
+         */
+        public String getSummary() {
+            return String.format("%d filled cells of a %d x %d mask merged into %d rectangles (%.1fx fewer)",
+                filledCells, columns, rows, obstacles.size(),
+                obstacles.isEmpty() ? 0.0 : (double) filledCells / obstacles.size());
+        }
+    }
+
+    private ObstacleImporter() {
+    }
+
+    /**
+     * Read an image in any format ImageIO supports (PNG, GIF, BMP, JPEG)
+     */
+    public static BufferedImage readImage(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Not a supported image: " + file.getName());
+        }
+        return image;
+    }
+
+    /**
+     * Convert the filled pixels of an image into merged obstacles
+     * @param cellSize World size of one pixel; the mask's top-left corner sits at the world origin
+     */
+    public static Result fromImage(BufferedImage image, double cellSize) {
+        int columns = image.getWidth();
+        int rows = image.getHeight();
+        boolean[] filled = new boolean[columns * rows];
+        int[] line = new int[columns];
+        for (int y = 0; y < rows; y++) {
+            image.getRGB(0, y, columns, 1, line, 0, columns);
+            for (int x = 0; x < columns; x++) {
+                filled[y * columns + x] = isSolid(line[x]);
+            }
+        }
+        return fromMask(filled, columns, rows, cellSize);
+    }
+
+    private static boolean isSolid(int argb) {
+        int alpha = argb >>> 24;
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
+        int luminance = (red * 299 + green * 587 + blue * 114) / 1000;
+        return alpha >= SOLID_THRESHOLD && luminance < SOLID_THRESHOLD;
+    }
+
+    /**
+     * Greedily cover the filled cells of a row-major mask with non-overlapping rectangles.
+     * Scanning in row order, each uncovered filled cell starts a rectangle that grows right
+     * along its row and then down for as long as every cell of the next row span is free.
+     * The mask is consumed: covered cells are cleared.
+     */
+    public static Result fromMask(boolean[] filled, int columns, int rows, double cellSize) {
+        List<Obstacle> obstacles = new ArrayList<>();
+        int filledCells = 0;
+        for (boolean cell : filled) {
+            if (cell) {
+                filledCells++;
+            }
+        }
+
+        for (int y = 0; y < rows; y++) {
+            int rowStart = y * columns;
+            for (int x = 0; x < columns; x++) {
+                if (!filled[rowStart + x]) {
+                    continue;
+                }
+                int width = 1;
+                while (x + width < columns && filled[rowStart + x + width]) {
+                    width++;
+                }
+                int height = 1;
+                while (y + height < rows && isRunFilled(filled, (y + height) * columns + x, width)) {
+                    height++;
+                }
+                for (int r = 0; r < height; r++) {
+                    int start = (y + r) * columns + x;
+                    for (int c = 0; c < width; c++) {
+                        filled[start + c] = false;
+                    }
+                }
+                obstacles.add(new Obstacle(x * cellSize, y * cellSize, width * cellSize, height * cellSize));
+                x += width - 1;
+            }
+        }
+        return new Result(obstacles, filledCells, columns, rows);
+    }
+
+    private static boolean isRunFilled(boolean[] filled, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (!filled[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,714 @@
+/*
+ * Parameter Sweep - One scene run under every combination of physics constants
+ * Steps a world per grid point on a thread pool and appends its statistics as it finishes
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Parameter Sweep - Runs the Cartesian product of a few parameter axes from one base scene.
+ * The scene is read once and copied into a fresh world per grid point; statistics are kept
+ * as running values while the world steps, so a point costs no memory per step. Each point
+ * is appended to the CSV as soon as it finishes, and a sweep started again on the same file
+ * skips the points already there, so a long sweep can be stopped and resumed. The settings
+ * every row depends on are kept next to the CSV in a .sweep file, and a resume under other
+ * settings is refused.
+ * @author Sentinail
+ */
+public class ParameterSweep {
+    public static final double DEFAULT_SETTLE_FRACTION = 0.01;
+    public static final String SETTINGS_EXTENSION = "sweep";
+
+    /**
+     * A physics constant that can be swept, named as on the command line
+     */
+    public enum Parameter {
+        GRAVITY_X("gravity-x"),
+        GRAVITY_Y("gravity-y"),
+        SPRING_CONSTANT("spring-constant"),
+        WALL_RESTITUTION("wall-restitution"),
+        OBSTACLE_RESTITUTION("obstacle-restitution"),
+        DRAG_DAMPING("drag-damping");
+
+        private final String optionName;
+
+        Parameter(String optionName) {
+            this.optionName = optionName;
+        }
+
+        public String getOptionName() {
+            return optionName;
+        }
+
+        /**
+         * Set this parameter on a world; a gravity component also turns gravity on
+         */
+        void apply(GameState gameState, double value) {
+            switch (this) {
+                case GRAVITY_X:
+                    gameState.setGravityDirection(value, gameState.getGravityY());
+                    break;
+                case GRAVITY_Y:
+                    gameState.setGravityDirection(gameState.getGravityX(), value);
+                    break;
+                case SPRING_CONSTANT:
+                    gameState.setSpringConstant(value);
+                    return;
+                case WALL_RESTITUTION:
+                    gameState.setWallRestitution(value);
+                    return;
+                case OBSTACLE_RESTITUTION:
+                    gameState.setObstacleRestitution(value);
+                    return;
+                case DRAG_DAMPING:
+                    gameState.setDragDamping(value);
+                    return;
+            }
+            if (!gameState.isGravityEnabled()) {
+                gameState.toggleGravity();
+            }
+        }
+    }
+
+    /**
+     * One dimension of the grid: a parameter and the values it takes
+     */
+    public static class Axis {
+        private final Parameter parameter;
+        private final double[] values;
+
+        public Axis(Parameter parameter, double[] values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("No values for " + parameter.optionName);
+            }
+            for (double value : values) {
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new IllegalArgumentException("Values for " + parameter.optionName + " must be finite");
+                }
+            }
+            this.parameter = parameter;
+            this.values = values.clone();
+        }
+
+        /**
+         * Parse "v1,v2,..." for a list of values, or "start:end:count" for count evenly spaced
+         * values from start to end inclusive
+         */
+        public static Axis parse(Parameter parameter, String text) {
+            String name = "--" + parameter.optionName;
+            try {
+                String[] range = text.split(":");
+                if (range.length == 3) {
+                    double start = Double.parseDouble(range[0]);
+                    double end = Double.parseDouble(range[1]);
+                    int count = Integer.parseInt(range[2]);
+                    if (count < 1) {
+                        throw new IllegalArgumentException(name + " needs a count of at least 1: " + text);
+                    }
+                    double[] values = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        values[i] = count == 1 ? start : start + (end - start) * i / (count - 1);
+                    }
+                    return new Axis(parameter, values);
+                }
+                if (range.length != 1) {
+                    throw new IllegalArgumentException(name + " expects v1,v2,... or start:end:count, got: " + text);
+                }
+                String[] parts = text.split(",");
+                double[] values = new double[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    values[i] = Double.parseDouble(parts[i].trim());
+                }
+                return new Axis(parameter, values);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " expects numbers, got: " + text);
+            }
+        }
+
+        public Parameter getParameter() {
+            return parameter;
+        }
+
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * Counts for one call of run
+     */
+    public static class Summary {
+        private final int points;
+        private final int resumed;
+        private final int ran;
+        private final int failed;
+
+        private Summary(int points, int resumed, int ran, int failed) {
+            this.points = points;
+            this.resumed = resumed;
+            this.ran = ran;
+            this.failed = failed;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        /**
+         * Points found in the output file and skipped
+         */
+        public int getResumed() {
+            return resumed;
+        }
+
+        public int getRan() {
+            return ran;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Running statistics of one grid point
+     */
+    private static class PointResult {
+        private final int point;
+        private final double[] values;
+        private int ballCount;
+        private double initialEnergy;
+        private double finalEnergy;
+        private double halfLifeSeconds = -1; // Time until the energy first fell to half, -1 if it never did
+        private double settleSeconds = -1; // Time after which the energy stayed below the settle fraction
+        private long collisions;
+        private double collisionsPerStepMean;
+        private double collisionsPerStepM2; // Sum of squared deviations, for Welford's variance
+        private long collisionsPerStepMax;
+        private long stepNanos;
+        private String error;
+
+        private PointResult(int point, double[] values) {
+            this.point = point;
+            this.values = values;
+        }
+    }
+
+    private final SceneSnapshot base;
+    private final String baseName;
+    private final long baseChecksum;
+    private final List<Axis> axes;
+    private final int pointCount;
+    private int steps = 600;
+    private int width = BatchRunner.DEFAULT_WIDTH;
+    private int height = BatchRunner.DEFAULT_HEIGHT;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int physicsRate = FixedStepClock.DEFAULT_PHYSICS_RATE;
+    private GameState.Broadphase broadphase = GameState.Broadphase.SORT_AND_SWEEP;
+    private double settleFraction = DEFAULT_SETTLE_FRACTION;
+    private PrintStream progress = System.err;
+
+    /**
+     * Read the base scene once; every grid point starts from a copy of it
+     */
+    public ParameterSweep(File baseScene, List<Axis> axes) throws IOException {
+        if (axes.isEmpty()) {
+            throw new IllegalArgumentException("A sweep needs at least one parameter to vary");
+        }
+        long points = 1;
+        for (Axis axis : axes) {
+            points *= axis.size();
+            if (points > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many grid points");
+            }
+        }
+        GameState gameState = new GameState();
+        SimulationFile.readScene(baseScene, gameState);
+        this.base = SceneSnapshot.capture(gameState, 0);
+        this.baseName = baseScene.getName();
+        this.baseChecksum = checksum(base);
+        this.axes = new ArrayList<>(axes);
+        this.pointCount = (int) points;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * File name of the base scene, for reports
+     */
+    public String getBaseName() {
+        return baseName;
+    }
+
+    public void setSteps(int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("Step count must be positive");
+        }
+        this.steps = steps;
+    }
+
+    public void setWorldSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("World size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    public void setPhysicsRate(int physicsRate) {
+        if (physicsRate <= 0) {
+            throw new IllegalArgumentException("Physics rate must be positive");
+        }
+        this.physicsRate = physicsRate;
+    }
+
+    public void setBroadphase(GameState.Broadphase broadphase) {
+        this.broadphase = broadphase;
+    }
+
+    /**
+     * Fraction of the starting kinetic energy below which a world counts as settled
+     */
+    public void setSettleFraction(double settleFraction) {
+        if (!(settleFraction > 0 && settleFraction < 1)) {
+            throw new IllegalArgumentException("Settle fraction must be between 0 and 1");
+        }
+        this.settleFraction = settleFraction;
+    }
+
+    /**
+     * Where to print a line as each point finishes, or null for none
+     */
+    public void setProgressStream(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Parameter values of a grid point; the last axis varies fastest
+     */
+    private double[] pointValues(int point) {
+        double[] values = new double[axes.size()];
+        for (int a = axes.size() - 1; a >= 0; a--) {
+            Axis axis = axes.get(a);
+            values[a] = axis.values[point % axis.size()];
+            point /= axis.size();
+        }
+        return values;
+    }
+
+    /**
+     * Run every grid point not yet in the output file, appending a row as each one finishes
+     * @param restart Overwrite the file instead of resuming from it
+     */
+    public Summary run(File output, boolean restart) throws IOException, InterruptedException {
+        File settingsFile = settingsFile(output);
+        if (!restart && output.length() > 0) {
+            checkSettings(settingsFile, output);
+        }
+        BitSet done = restart ? new BitSet() : readFinishedPoints(output);
+        int resumed = done.cardinality();
+        List<Integer> pending = new ArrayList<>();
+        for (int point = done.nextClearBit(0); point < pointCount; point = done.nextClearBit(point + 1)) {
+            pending.add(point);
+        }
+
+        AtomicInteger failed = new AtomicInteger();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(output, !restart && output.length() > 0), StandardCharsets.UTF_8))) {
+            if (restart || output.length() == 0) {
+                writeSettings(settingsFile);
+                writer.println(header());
+                writer.flush();
+            }
+            if (pending.isEmpty()) {
+                return new Summary(pointCount, resumed, 0, 0);
+            }
+            AtomicInteger finished = new AtomicInteger(resumed);
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()), runnable -> {
+                Thread thread = new Thread(runnable, "sweep-world-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>(pending.size());
+                for (int point : pending) {
+                    futures.add(executor.submit(() -> {
+                        PointResult result = runPoint(point);
+                        if (Thread.currentThread().isInterrupted()) {
+                            return; // Left out of the file so a resumed sweep runs it again
+                        }
+                        if (result.error != null) {
+                            failed.incrementAndGet();
+                        }
+                        writeRow(writer, result, output);
+                        reportProgress(result, finished.incrementAndGet());
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof UncheckedIOException) {
+                            throw ((UncheckedIOException) e.getCause()).getCause();
+                        }
+                        throw new IllegalStateException("Sweep task failed", e.getCause()); // runPoint catches everything
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return new Summary(pointCount, resumed, pending.size(), failed.get());
+    }
+
+    /**
+     * Find the points an earlier run of the same sweep already wrote. A row cut short when that
+     * run was stopped is dropped from the file, and so is a row of a point that failed, so that
+     * the point runs again; a file from a different sweep is refused.
+     */
+    private BitSet readFinishedPoints(File output) throws IOException {
+        BitSet done = new BitSet(pointCount);
+        if (!output.exists() || output.length() == 0) {
+            return done;
+        }
+        byte[] bytes = Files.readAllBytes(output.toPath());
+        int complete = bytes.length;
+        while (complete > 0 && bytes[complete - 1] != '\n') {
+            complete--;
+        }
+        if (complete == 0) {
+            truncate(output, 0);
+            return done;
+        }
+        String[] lines = new String(bytes, 0, complete, StandardCharsets.UTF_8).split("\r?\n");
+        if (!lines[0].equals(header())) {
+            throw new IOException(output + " holds a different sweep; use --restart to overwrite it or choose another --out");
+        }
+        StringBuilder kept = new StringBuilder(lines[0]).append(System.lineSeparator());
+        boolean droppedFailures = false;
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(",", axes.size() + 4); // Point, parameters, balls, steps, the rest
+            try {
+                int point = Integer.parseInt(fields[0]);
+                double[] values = pointValues(point);
+                for (int a = 0; a < values.length; a++) {
+                    if (!formatParameter(values[a]).equals(fields[a + 1])) {
+                        throw new IOException(output + " line " + (i + 1) + " has other "
+                            + axes.get(a).parameter.optionName + " values than this sweep; use --restart to overwrite it");
+                    }
+                }
+                if (Integer.parseInt(fields[axes.size() + 2]) != steps) {
+                    throw new IOException(output + " line " + (i + 1) + " was run for " + fields[axes.size() + 2]
+                        + " steps, not " + steps + "; use --restart to overwrite it");
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException(output + " line " + (i + 1) + " is not a sweep row");
+            }
+            if (!lines[i].endsWith(",")) {
+                droppedFailures = true; // The last column, error, is only filled in for a failed point
+                continue;
+            }
+            done.set(Integer.parseInt(fields[0]));
+            kept.append(lines[i]).append(System.lineSeparator());
+        }
+
+        if (droppedFailures) {
+            Files.write(output.toPath(), kept.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (complete < bytes.length) {
+            truncate(output, complete);
+        }
+        return done;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.setLength(length);
+        }
+    }
+
+    /**
+     * The .sweep file kept next to an output CSV
+     */
+    public static File settingsFile(File output) {
+        return new File(output.getPath() + "." + SETTINGS_EXTENSION);
+    }
+
+    /**
+     * Everything besides the grid point that the numbers in a row depend on
+     */
+    private Map<String, String> settings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("base", baseName);
+        settings.put("base_checksum", String.format("%08x", baseChecksum));
+        settings.put("steps", Integer.toString(steps));
+        settings.put("world_width", Integer.toString(width));
+        settings.put("world_height", Integer.toString(height));
+        settings.put("physics_rate", Integer.toString(physicsRate));
+        settings.put("broadphase", broadphase.name());
+        settings.put("settle_fraction", formatParameter(settleFraction));
+        return settings;
+    }
+
+    private void writeSettings(File settingsFile) throws IOException {
+        StringBuilder text = new StringBuilder("# Settings of the sweep in ")
+            .append(settingsFile.getName(), 0, settingsFile.getName().length() - SETTINGS_EXTENSION.length() - 1)
+            .append("; resuming it under other settings is refused").append(System.lineSeparator());
+        for (Map.Entry<String, String> setting : settings().entrySet()) {
+            text.append(setting.getKey()).append('=').append(setting.getValue()).append(System.lineSeparator());
+        }
+        Files.write(settingsFile.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Refuse to add rows to an output whose earlier rows were measured under other settings
+     */
+    private void checkSettings(File settingsFile, File output) throws IOException {
+        if (!settingsFile.exists()) {
+            throw new IOException(output + " has no " + settingsFile.getName()
+                + " recording how it was run; use --restart to overwrite it or choose another --out");
+        }
+        Map<String, String> recorded = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(settingsFile.toPath(), StandardCharsets.UTF_8)) {
+            int equals = line.indexOf('=');
+            if (!line.startsWith("#") && equals > 0) {
+                recorded.put(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+            }
+        }
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, String> setting : settings().entrySet()) {
+            String before = recorded.get(setting.getKey());
+            if (!setting.getValue().equals(before)) {
+                differences.add(setting.getKey() + " " + (before == null ? "missing" : before) + " -> " + setting.getValue());
+            }
+        }
+        if (!differences.isEmpty()) {
+            throw new IOException(output + " was run with other settings (" + String.join(", ", differences)
+                + "); use --restart to overwrite it or choose another --out");
+        }
+    }
+
+    /**
+     * CRC-32 of everything in a scene, so a resume notices an edited base scene of the same name
+     */
+    private static long checksum(SceneSnapshot scene) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(6 * Double.BYTES);
+        for (int i = 0; i < scene.getBallCount(); i++) {
+            buffer.clear();
+            buffer.putDouble(scene.getBallX(i)).putDouble(scene.getBallY(i))
+                .putDouble(scene.getBallVelocityX(i)).putDouble(scene.getBallVelocityY(i))
+                .putInt(scene.getBallRadius(i)).putInt(scene.getBallColor(i));
+            crc.update(buffer.array(), 0, buffer.position());
+        }
+        for (int i = 0; i < scene.getObstacleCount(); i++) {
+            buffer.clear();
+            buffer.putDouble(scene.getObstacleX(i)).putDouble(scene.getObstacleY(i))
+                .putDouble(scene.getObstacleWidth(i)).putDouble(scene.getObstacleHeight(i));
+            crc.update(buffer.array(), 0, buffer.position());
+        }
+        buffer.clear();
+        buffer.putDouble(scene.getGravityX()).putDouble(scene.getGravityY()).putDouble(scene.getSpringConstant())
+            .put((byte) (scene.isGravityEnabled() ? 1 : 0));
+        crc.update(buffer.array(), 0, buffer.position());
+        return crc.getValue();
+    }
+
+    /**
+     * Copy the base scene into a new world, apply the point's parameters and step it
+     */
+    private PointResult runPoint(int point) {
+        PointResult result = new PointResult(point, pointValues(point));
+        try {
+            List<Ball> balls = new ArrayList<>(base.getBallCount());
+            for (int i = 0; i < base.getBallCount(); i++) {
+                balls.add(new Ball(base.getBallX(i), base.getBallY(i), base.getBallVelocityX(i), base.getBallVelocityY(i),
+                    base.getBallRadius(i), new Color(base.getBallColor(i))));
+            }
+            List<Obstacle> obstacles = new ArrayList<>(base.getObstacleCount());
+            for (int i = 0; i < base.getObstacleCount(); i++) {
+                obstacles.add(new Obstacle(base.getObstacleX(i), base.getObstacleY(i),
+                    base.getObstacleWidth(i), base.getObstacleHeight(i)));
+            }
+            GameState gameState = new GameState();
+            gameState.loadScene(balls, obstacles, base.isGravityEnabled(), base.getGravityX(), base.getGravityY(),
+                base.getSpringConstant());
+            gameState.setWorldSize(width, height);
+            gameState.setBroadphase(broadphase);
+            for (int a = 0; a < axes.size(); a++) {
+                axes.get(a).parameter.apply(gameState, result.values[a]);
+            }
+            result.ballCount = balls.size();
+
+            double deltaTime = 1.0 / physicsRate;
+            double energy = kineticEnergy(gameState);
+            result.initialEnergy = energy;
+            int lastUnsettledStep = energy > 0 ? 0 : -1;
+            long collisions = gameState.getTotalCollisionCount();
+            for (int step = 1; step <= steps; step++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                gameState.updateBalls(width, height, deltaTime);
+                result.stepNanos += gameState.getLastStepNanos();
+
+                energy = kineticEnergy(gameState);
+                if (result.halfLifeSeconds < 0 && energy <= result.initialEnergy / 2) {
+                    result.halfLifeSeconds = step * deltaTime;
+                }
+                if (energy > result.initialEnergy * settleFraction) {
+                    lastUnsettledStep = step;
+                }
+
+                long total = gameState.getTotalCollisionCount();
+                long stepCollisions = total - collisions;
+                collisions = total;
+                double delta = stepCollisions - result.collisionsPerStepMean;
+                result.collisionsPerStepMean += delta / step;
+                result.collisionsPerStepM2 += delta * (stepCollisions - result.collisionsPerStepMean);
+                result.collisionsPerStepMax = Math.max(result.collisionsPerStepMax, stepCollisions);
+            }
+            result.finalEnergy = energy;
+            result.collisions = collisions;
+            if (lastUnsettledStep < steps) {
+                result.settleSeconds = (lastUnsettledStep + 1) * deltaTime;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.error = "Interrupted";
+        } catch (RuntimeException | OutOfMemoryError e) {
+            result.error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        }
+        return result;
+    }
+
+    private static double kineticEnergy(GameState gameState) {
+        double energy = 0;
+        for (Ball ball : gameState.getBalls()) {
+            double vx = ball.getVelocityX();
+            double vy = ball.getVelocityY();
+            energy += 0.5 * ball.getMass() * (vx * vx + vy * vy);
+        }
+        return energy;
+    }
+
+    private void reportProgress(PointResult result, int finished) {
+        if (progress == null) {
+            return;
+        }
+        StringBuilder values = new StringBuilder();
+        for (int a = 0; a < axes.size(); a++) {
+            values.append(a == 0 ? "" : ", ").append(axes.get(a).parameter.optionName).append('=')
+                .append(formatParameter(result.values[a]));
+        }
+        if (result.error != null) {
+            progress.printf("[%d/%d] %s failed: %s%n", finished, pointCount, values, result.error);
+        } else {
+            progress.printf("[%d/%d] %s: energy x%.3g, %d collisions%n", finished, pointCount, values,
+                result.initialEnergy > 0 ? result.finalEnergy / result.initialEnergy : 0.0, result.collisions);
+        }
+    }
+
+    private static final String[] STAT_COLUMNS = {
+        "balls", "steps", "initial_energy", "final_energy", "energy_ratio", "energy_decay_per_second",
+        "energy_half_life_s", "settle_time_s", "collisions", "collisions_per_second",
+        "collisions_per_step_mean", "collisions_per_step_stddev", "collisions_per_step_max", "step_mean_ms", "error"
+    };
+
+    private String header() {
+        StringBuilder header = new StringBuilder("point");
+        for (Axis axis : axes) {
+            header.append(',').append(axis.parameter.optionName);
+        }
+        for (String column : STAT_COLUMNS) {
+            header.append(',').append(column);
+        }
+        return header.toString();
+    }
+
+    /**
+     * Append one finished point and flush it, so a stopped sweep loses at most the rows being written
+     */
+    private void writeRow(PrintWriter writer, PointResult result, File output) {
+        StringBuilder line = new StringBuilder().append(result.point);
+        for (double value : result.values) {
+            line.append(',').append(formatParameter(value));
+        }
+        double seconds = (double) steps / physicsRate;
+        boolean ok = result.error == null;
+        boolean hasEnergy = ok && result.initialEnergy > 0;
+        Object[] stats = {
+            ok ? result.ballCount : null, steps,
+            ok ? result.initialEnergy : null, ok ? result.finalEnergy : null,
+            hasEnergy ? result.finalEnergy / result.initialEnergy : null,
+            hasEnergy && result.finalEnergy > 0 ? Math.log(result.initialEnergy / result.finalEnergy) / seconds : null,
+            ok && result.halfLifeSeconds >= 0 ? result.halfLifeSeconds : null,
+            ok && result.settleSeconds >= 0 ? result.settleSeconds : null,
+            ok ? result.collisions : null, ok ? result.collisions / seconds : null,
+            ok ? result.collisionsPerStepMean : null,
+            ok ? Math.sqrt(result.collisionsPerStepM2 / steps) : null,
+            ok ? result.collisionsPerStepMax : null,
+            ok ? result.stepNanos / 1e6 / steps : null,
+            result.error
+        };
+        for (Object value : stats) {
+            line.append(',');
+            if (value instanceof Double) {
+                line.append(String.format(Locale.ROOT, "%.6g", (Double) value));
+            } else if (value instanceof String) {
+                line.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+            } else if (value != null) {
+                line.append(value);
+            }
+        }
+        synchronized (writer) {
+            writer.println(line);
+            writer.flush();
+            if (writer.checkError()) {
+                throw new UncheckedIOException(new IOException("Error writing " + output));
+            }
+        }
+    }
+
+    /**
+     * Shortest plain form of a parameter value, used both to write rows and to match them on resume
+     */
+    private static String formatParameter(double value) {
+        return new BigDecimal(String.format(Locale.ROOT, "%.9g", value)).stripTrailingZeros().toPlainString();
+    }
+}
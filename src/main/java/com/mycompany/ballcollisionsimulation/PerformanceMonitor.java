@@ -0,0 +1,295 @@
+/*
+ * Performance Monitor - Frame and physics timing for the performance overlay
+ * Records into preallocated ring buffers so measuring does not allocate
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Performance Monitor - Collects frame times, paint times, physics phase times and the
+ * allocation rate of the simulation thread, and paints them as an overlay.
+ * All samples are taken with System.nanoTime() into fixed-size rings; statistics and
+ * overlay text are only rebuilt a few times per second. What the overlay allocates while
+ * painting on the measured thread is counted separately and left out of the reported rate.
+ * @author Sentinail
+ */
+public class PerformanceMonitor {
+    private static final int WINDOW = 240; // Samples kept per ring, about four seconds at 60 FPS
+    private static final long REFRESH_INTERVAL_NANOS = 250_000_000L;
+    private static final int HISTOGRAM_BINS = 40; // One bin per millisecond of frame time
+    private static final int HISTOGRAM_HEIGHT = 40;
+    private static final int BAR_WIDTH = 6;
+    private static final int LINE_HEIGHT = 15;
+    private static final int PADDING = 8;
+    private static final int WIDTH = 460;
+    private static final double FRAME_BUDGET_MILLIS = 1000.0 / 60;
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(255, 255, 255, 220);
+    private static final Color BAR_COLOR = new Color(70, 130, 180);
+    private static final Color BUDGET_COLOR = new Color(220, 80, 60);
+    private static final GameState.StepPhase[] PHASES = GameState.StepPhase.values();
+    private static final String[] PHASE_LABELS = {"integrate", "obstacles", "broad", "narrow", "events"};
+
+    // Rings, written once per frame or step
+    private final long[] frameNanos = new long[WINDOW];
+    private final long[] paintNanos = new long[WINDOW];
+    private final long[][] phaseNanos = new long[PHASES.length][WINDOW];
+    private int frameCount;
+    private int stepCount;
+    private long lastFrameTime = -1;
+    private long pendingPaintNanos;
+
+    // Allocation tracking through the HotSpot extension of ThreadMXBean, when available
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private long measuredThreadId = -1;
+    private long lastAllocatedBytes = -1;
+    private long lastAllocationTime;
+    private long overlayAllocatedBytes; // Allocated by paint() on the measured thread since the last sample
+    private double allocationBytesPerSecond = -1;
+
+    // Statistics and overlay, rebuilt every REFRESH_INTERVAL_NANOS
+    private final long[] sortScratch = new long[WINDOW];
+    private final int[] histogram = new int[HISTOGRAM_BINS];
+    private final double[] phaseMillis = new double[PHASES.length];
+    private final GlyphVector[] lines = new GlyphVector[5];
+    private FontRenderContext linesRenderContext;
+    private long lastRefresh;
+    private int revision; // Bumped whenever the overlay content changes
+    private int ballCount;
+    private int candidatePairs;
+    private int collisionPairs;
+
+    public PerformanceMonitor() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hotspotBean = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            hotspotBean = (com.sun.management.ThreadMXBean) bean;
+            if (!hotspotBean.isThreadAllocatedMemorySupported()) {
+                hotspotBean = null;
+            } else if (!hotspotBean.isThreadAllocatedMemoryEnabled()) {
+                hotspotBean.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        this.allocationBean = hotspotBean;
+    }
+
+    /**
+     * Mark the start of a new frame; called once per tick of the game loop on the thread
+     * that runs the simulation, whose allocations are the ones reported
+     */
+    public void recordFrame(long now) {
+        if (lastFrameTime >= 0) {
+            int slot = frameCount % WINDOW;
+            frameNanos[slot] = now - lastFrameTime;
+            paintNanos[slot] = pendingPaintNanos;
+            frameCount++;
+        }
+        lastFrameTime = now;
+        pendingPaintNanos = 0;
+        refresh(now);
+    }
+
+    /**
+     * Add time spent drawing to the current frame
+     */
+    public void addPaintNanos(long nanos) {
+        pendingPaintNanos += nanos;
+    }
+
+    /**
+     * Copy the phase timings and pair counts of the step that just finished
+     */
+    public void recordStep(GameState gameState) {
+        int slot = stepCount % WINDOW;
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p][slot] = gameState.getStepPhaseNanos(PHASES[p]);
+        }
+        stepCount++;
+        ballCount = gameState.getBalls().size();
+        candidatePairs = gameState.getCandidatePairCount();
+        collisionPairs = gameState.getCollisionPairCount();
+    }
+
+    /**
+     * Sample the allocation counter and invalidate the overlay once per refresh interval
+     */
+    private void refresh(long now) {
+        if (now - lastRefresh < REFRESH_INTERVAL_NANOS) {
+            return;
+        }
+        lastRefresh = now;
+        sampleAllocation(now);
+        linesRenderContext = null; // Statistics and text are rebuilt on the next paint
+        revision++;
+    }
+
+    /**
+     * Changes whenever the overlay needs to be painted again
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    private void sampleAllocation(long now) {
+        if (allocationBean == null) {
+            return;
+        }
+        long threadId = Thread.currentThread().getId();
+        if (threadId != measuredThreadId) {
+            measuredThreadId = threadId; // E.g. after switching render modes; start over
+            lastAllocatedBytes = -1;
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId);
+        if (lastAllocatedBytes >= 0 && now > lastAllocationTime) {
+            long simulationBytes = Math.max(0, allocated - lastAllocatedBytes - overlayAllocatedBytes);
+            allocationBytesPerSecond = simulationBytes * 1e9 / (now - lastAllocationTime);
+        }
+        lastAllocatedBytes = allocated;
+        lastAllocationTime = now;
+        overlayAllocatedBytes = 0;
+    }
+
+    /**
+     * Allocation counter of the measured thread if called on it, otherwise -1
+     */
+    private long overlayAllocationCounter() {
+        if (allocationBean == null || Thread.currentThread().getId() != measuredThreadId) {
+            return -1;
+        }
+        return allocationBean.getThreadAllocatedBytes(measuredThreadId);
+    }
+
+    public int getWidth() {
+        return WIDTH;
+    }
+
+    public int getHeight() {
+        return PADDING * 2 + lines.length * LINE_HEIGHT + HISTOGRAM_HEIGHT + 6;
+    }
+
+    /**
+     * Paint the overlay with its top-left corner at the given position
+     */
+    public void paint(Graphics2D g2d, int x, int y) {
+        long allocatedBefore = overlayAllocationCounter();
+        FontRenderContext frc = g2d.getFontRenderContext();
+        if (!frc.equals(linesRenderContext)) {
+            layoutLines(frc);
+        }
+
+        g2d.setColor(BACKGROUND);
+        g2d.fillRect(x, y, WIDTH, getHeight());
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawRect(x, y, WIDTH - 1, getHeight() - 1);
+
+        int lineY = y + PADDING + 11;
+        g2d.drawGlyphVector(lines[0], x + PADDING, lineY);
+        paintHistogram(g2d, x + PADDING, lineY + 4);
+        lineY += HISTOGRAM_HEIGHT + 6;
+        g2d.setColor(Color.DARK_GRAY);
+        for (int i = 1; i < lines.length; i++) {
+            lineY += LINE_HEIGHT;
+            g2d.drawGlyphVector(lines[i], x + PADDING, lineY);
+        }
+        if (allocatedBefore >= 0) {
+            overlayAllocatedBytes += overlayAllocationCounter() - allocatedBefore;
+        }
+    }
+
+    private void paintHistogram(Graphics2D g2d, int x, int y) {
+        int maxBin = 1;
+        for (int count : histogram) {
+            maxBin = Math.max(maxBin, count);
+        }
+        g2d.setColor(BAR_COLOR);
+        for (int i = 0; i < HISTOGRAM_BINS; i++) {
+            int barHeight = histogram[i] * HISTOGRAM_HEIGHT / maxBin;
+            if (barHeight > 0) {
+                g2d.fillRect(x + i * BAR_WIDTH, y + HISTOGRAM_HEIGHT - barHeight, BAR_WIDTH - 1, barHeight);
+            }
+        }
+        // Mark the 60 FPS budget
+        int budgetX = x + (int) (FRAME_BUDGET_MILLIS * BAR_WIDTH);
+        g2d.setColor(BUDGET_COLOR);
+        g2d.drawLine(budgetX, y, budgetX, y + HISTOGRAM_HEIGHT);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawLine(x, y + HISTOGRAM_HEIGHT, x + HISTOGRAM_BINS * BAR_WIDTH, y + HISTOGRAM_HEIGHT);
+    }
+
+    /**
+     * Compute the statistics and lay out the overlay text
+     */
+    private void layoutLines(FontRenderContext frc) {
+        linesRenderContext = frc;
+        int frames = Math.min(frameCount, WINDOW);
+        int steps = Math.min(stepCount, WINDOW);
+
+        // Frame time percentiles and histogram
+        System.arraycopy(frameNanos, 0, sortScratch, 0, frames);
+        Arrays.sort(sortScratch, 0, frames);
+        Arrays.fill(histogram, 0);
+        long totalFrameNanos = 0;
+        for (int i = 0; i < frames; i++) {
+            totalFrameNanos += sortScratch[i];
+            histogram[(int) Math.min(HISTOGRAM_BINS - 1, sortScratch[i] / 1_000_000)]++;
+        }
+        double fps = totalFrameNanos > 0 ? frames * 1e9 / totalFrameNanos : 0;
+        lines[0] = OVERLAY_FONT.createGlyphVector(frc, String.format(
+            "FPS %5.1f | frame p50 %5.2f  p99 %5.2f  max %5.2f ms",
+            fps, percentileMillis(frames, 0.50), percentileMillis(frames, 0.99), percentileMillis(frames, 1.0)));
+
+        // Average physics time per step, by phase
+        double stepMillis = 0;
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseMillis[p] = averageMillis(phaseNanos[p], steps);
+            stepMillis += phaseMillis[p];
+        }
+        lines[1] = OVERLAY_FONT.createGlyphVector(frc, String.format(
+            "Physics %6.3f ms/step | %s %.3f  %s %.3f",
+            stepMillis, PHASE_LABELS[0], phaseMillis[0], PHASE_LABELS[1], phaseMillis[1]));
+        lines[2] = OVERLAY_FONT.createGlyphVector(frc, String.format(
+            "  %s %.3f  %s %.3f  %s %.3f ms",
+            PHASE_LABELS[2], phaseMillis[2], PHASE_LABELS[3], phaseMillis[3], PHASE_LABELS[4], phaseMillis[4]));
+        lines[3] = OVERLAY_FONT.createGlyphVector(frc, String.format(
+            "Paint %6.3f ms/frame | alloc %s",
+            averageMillis(paintNanos, frames), formatAllocationRate()));
+        lines[4] = OVERLAY_FONT.createGlyphVector(frc, String.format(
+            "Balls %d | candidate pairs %d | colliding %d",
+            ballCount, candidatePairs, collisionPairs));
+    }
+
+    private double percentileMillis(int count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+        return sortScratch[Math.max(0, index)] / 1e6;
+    }
+
+    private static double averageMillis(long[] ring, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += ring[i];
+        }
+        return total / 1e6 / count;
+    }
+
+    private String formatAllocationRate() {
+        if (allocationBean == null) {
+            return "n/a";
+        }
+        if (allocationBytesPerSecond < 0) {
+            return "...";
+        }
+        return String.format("%.2f MB/s", allocationBytesPerSecond / (1024 * 1024));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Playback Bar - Controls for playing back a trajectory recording
+ * Play/pause, a scrubbing slider and the playback speed
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Playback Bar - Drives a TrajectoryPlayer from the Swing thread. The slider seeks directly
+ * to a frame; refresh() moves it along while the game loop advances the playback.
+ * @author Sentinail
+ */
+public class PlaybackBar extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final double[] SPEEDS = {-4, -2, -1, -0.5, -0.25, 0.25, 0.5, 1, 2, 4, 8, 16};
+    private static final String[] SPEED_LABELS =
+        {"-4x", "-2x", "-1x", "-0.5x", "-0.25x", "0.25x", "0.5x", "1x", "2x", "4x", "8x", "16x"};
+
+    private final TrajectoryPlayer player;
+    private final GameState gameState;
+    private final JButton playButton = new JButton("Play");
+    private final JSlider frameSlider;
+    private final JLabel positionLabel = new JLabel();
+    private boolean refreshing; // Set while refresh() moves the slider, so it does not seek
+
+    public PlaybackBar(TrajectoryPlayer player, GameState gameState, Runnable onClose) {
+        super(new BorderLayout(5, 0));
+        this.player = player;
+        this.gameState = gameState;
+        setBorder(BorderFactory.createEmptyBorder(3, 5, 3, 5));
+
+        frameSlider = new JSlider(0, Math.max(0, player.getFrameCount() - 1), 0);
+        frameSlider.addChangeListener(e -> {
+            if (!refreshing) {
+                player.seek(frameSlider.getValue(), gameState);
+                refresh();
+            }
+        });
+
+        playButton.addActionListener(e -> {
+            int last = player.getFrameCount() - 1;
+            int shown = player.getShownFrame();
+            boolean atEnd = player.getSpeed() > 0 ? shown >= last : shown <= 0;
+            if (!player.isPlaying() && atEnd) {
+                player.seek(player.getSpeed() > 0 ? 0 : last, gameState); // Replay from the start
+            }
+            player.setPlaying(!player.isPlaying());
+            refresh();
+        });
+
+        JComboBox<String> speedBox = new JComboBox<>(SPEED_LABELS);
+        speedBox.setSelectedItem("1x");
+        speedBox.addActionListener(e -> player.setSpeed(SPEEDS[speedBox.getSelectedIndex()]));
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> onClose.run());
+
+        JPanel left = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        left.add(new JLabel("Playback: " + player.getFile().getName()));
+        left.add(playButton);
+        left.add(speedBox);
+
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        right.add(positionLabel);
+        right.add(closeButton);
+
+        add(left, BorderLayout.WEST);
+        add(frameSlider, BorderLayout.CENTER);
+        add(right, BorderLayout.EAST);
+        refresh();
+    }
+
+    /**
+     * Bring the slider, label and play button in line with the player
+     */
+    public void refresh() {
+        int frame = Math.max(0, player.getShownFrame());
+        refreshing = true;
+        try {
+            frameSlider.setValue(frame);
+        } finally {
+            refreshing = false;
+        }
+        playButton.setText(player.isPlaying() ? "Pause" : "Play");
+        if (player.getFrameCount() == 0) {
+            positionLabel.setText("Empty recording");
+        } else {
+            positionLabel.setText(String.format("Frame %d / %d | step %d | t = %.2f s | %d balls",
+                frame + 1, player.getFrameCount(), player.getFrameStep(frame), player.getFrameTime(frame),
+                player.getBallCount(frame)));
+        }
+    }
+}
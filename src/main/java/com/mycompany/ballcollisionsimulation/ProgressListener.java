@@ -0,0 +1,17 @@
+/*
+ * Progress Listener - Callback for long-running file operations
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+/**
+ * Progress Listener - Receives progress from saving and loading, on the thread doing the work
+ * @author Sentinail
+ */
+public interface ProgressListener {
+    /**
+     * @param done Units of work finished so far
+     * @param total Units of work in the whole operation
+     */
+    void progressChanged(long done, long total);
+}
@@ -0,0 +1,255 @@
+/*
+ * Raster Renderer - Parallel software renderer for dense scenes
+ * Writes ball pixels straight into the int[] behind a BufferedImage
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Raster Renderer - Splits the frame into tiles and rasterizes balls into them on a thread pool
+ * @author Sentinail
+ */
+public class RasterRenderer {
+    private static final int TILE_SIZE = 64;
+    private static final int BORDER_RGB = Color.BLACK.getRGB();
+    private static final int DRAGGED_BORDER_RGB = Color.RED.getRGB();
+
+    private final int threadCount;
+    private final ExecutorService pool;
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width;
+    private int height;
+    private int tilesX;
+    private int tilesY;
+
+    // Background pixels, refreshed only when the background layer changes
+    private int[] backgroundPixels;
+    private BufferedImage backgroundSource;
+    private int backgroundVersion = -1;
+
+    // Per-frame ball snapshot, filled on the calling thread and read by the workers
+    private float[] ballX = new float[0];
+    private float[] ballY = new float[0];
+    private float[] ballRadius = new float[0];
+    private int[] ballRgb = new int[0];
+    private int[] ballBorderRgb = new int[0];
+    private float[] ballBorderWidth = new float[0];
+
+    // Ball indices binned per tile, in draw order
+    private int[][] tileBalls = new int[0][];
+    private int[] tileCounts = new int[0];
+    private final List<Callable<Void>> tileTasks = new ArrayList<>();
+
+    public RasterRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RasterRenderer(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "raster-renderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Render the background and all balls seen by the camera into the frame image and return it
+     * @param alpha Interpolation between each ball's previous and current physics position
+     * @param background Opaque background layer of the same size as the frame
+     * @param version Changes whenever the background layer content changes
+     */
+    public BufferedImage render(List<Ball> balls, Ball draggedBall, Camera camera, double alpha,
+                                BufferedImage background, int version, int frameWidth, int frameHeight) {
+        ensureFrame(frameWidth, frameHeight);
+        updateBackground(background, version);
+        snapshotAndBin(balls, draggedBall, camera, alpha);
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tileTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tile rasterization failed", e.getCause());
+        }
+        return image;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Stop the worker threads; the renderer can no longer be used afterwards
+     */
+    public void dispose() {
+        pool.shutdownNow();
+    }
+
+    private void ensureFrame(int frameWidth, int frameHeight) {
+        if (image != null && width == frameWidth && height == frameHeight) {
+            return;
+        }
+        width = frameWidth;
+        height = frameHeight;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        backgroundPixels = new int[width * height];
+        backgroundVersion = -1;
+
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int tileCount = tilesX * tilesY;
+        tileBalls = new int[tileCount][16];
+        tileCounts = new int[tileCount];
+        tileTasks.clear();
+        for (int i = 0; i < tileCount; i++) {
+            final int tile = i;
+            tileTasks.add(() -> {
+                rasterizeTile(tile);
+                return null;
+            });
+        }
+    }
+
+    private void updateBackground(BufferedImage background, int version) {
+        if (background == backgroundSource && version == backgroundVersion) {
+            return;
+        }
+        background.getRGB(0, 0, width, height, backgroundPixels, 0, width);
+        backgroundSource = background;
+        backgroundVersion = version;
+    }
+
+    /**
+     * Copy ball positions into screen space and bin them into tiles; balls outside the
+     * frame touch no tile and are never rasterized
+     */
+    private void snapshotAndBin(List<Ball> balls, Ball draggedBall, Camera camera, double alpha) {
+        float zoom = (float) camera.getZoom();
+        int count = balls.size();
+        if (ballX.length < count) {
+            int capacity = count + (count >> 1);
+            ballX = new float[capacity];
+            ballY = new float[capacity];
+            ballRadius = new float[capacity];
+            ballRgb = new int[capacity];
+            ballBorderRgb = new int[capacity];
+            ballBorderWidth = new float[capacity];
+        }
+        Arrays.fill(tileCounts, 0);
+
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            boolean dragged = ball == draggedBall;
+            float radius = ball.getRadius() * zoom;
+            float x = (float) camera.toScreenX(ball.getRenderX(alpha));
+            float y = (float) camera.toScreenY(ball.getRenderY(alpha));
+            ballX[i] = x;
+            ballY[i] = y;
+            ballRadius[i] = radius;
+            ballRgb[i] = ball.getColor().getRGB();
+            ballBorderRgb[i] = dragged ? DRAGGED_BORDER_RGB : BORDER_RGB;
+            ballBorderWidth[i] = Math.max(1f, (dragged ? 3f : 1f) * zoom);
+
+            int minTileX = Math.max(0, (int) Math.floor((x - radius) / TILE_SIZE));
+            int maxTileX = Math.min(tilesX - 1, (int) Math.floor((x + radius) / TILE_SIZE));
+            int minTileY = Math.max(0, (int) Math.floor((y - radius) / TILE_SIZE));
+            int maxTileY = Math.min(tilesY - 1, (int) Math.floor((y + radius) / TILE_SIZE));
+            for (int ty = minTileY; ty <= maxTileY; ty++) {
+                for (int tx = minTileX; tx <= maxTileX; tx++) {
+                    addToTile(ty * tilesX + tx, i);
+                }
+            }
+        }
+    }
+
+    private void addToTile(int tile, int ballIndex) {
+        int[] bin = tileBalls[tile];
+        int size = tileCounts[tile];
+        if (size == bin.length) {
+            bin = Arrays.copyOf(bin, size * 2);
+            tileBalls[tile] = bin;
+        }
+        bin[size] = ballIndex;
+        tileCounts[tile] = size + 1;
+    }
+
+    /**
+     * Copy the background into one tile and draw every ball binned to it, clipped to the tile
+     */
+    private void rasterizeTile(int tile) {
+        int tileLeft = (tile % tilesX) * TILE_SIZE;
+        int tileTop = (tile / tilesX) * TILE_SIZE;
+        int tileRight = Math.min(width, tileLeft + TILE_SIZE) - 1;
+        int tileBottom = Math.min(height, tileTop + TILE_SIZE) - 1;
+        int tileWidth = tileRight - tileLeft + 1;
+
+        for (int y = tileTop; y <= tileBottom; y++) {
+            int offset = y * width + tileLeft;
+            System.arraycopy(backgroundPixels, offset, pixels, offset, tileWidth);
+        }
+
+        int[] bin = tileBalls[tile];
+        int count = tileCounts[tile];
+        for (int n = 0; n < count; n++) {
+            int i = bin[n];
+            float cx = ballX[i];
+            float cy = ballY[i];
+            float radius = ballRadius[i];
+            float innerRadius = Math.max(0f, radius - ballBorderWidth[i]);
+            float radiusSquared = radius * radius;
+            float innerSquared = innerRadius * innerRadius;
+            int fill = ballRgb[i];
+            int border = ballBorderRgb[i];
+
+            int rowStart = Math.max(tileTop, (int) Math.ceil(cy - radius - 0.5f));
+            int rowEnd = Math.min(tileBottom, (int) Math.floor(cy + radius - 0.5f));
+            for (int y = rowStart; y <= rowEnd; y++) {
+                float dy = y + 0.5f - cy;
+                float outerSpan = radiusSquared - dy * dy;
+                if (outerSpan < 0) {
+                    continue;
+                }
+                float outerHalf = (float) Math.sqrt(outerSpan);
+                int x0 = Math.max(tileLeft, (int) Math.ceil(cx - outerHalf - 0.5f));
+                int x1 = Math.min(tileRight, (int) Math.floor(cx + outerHalf - 0.5f));
+                if (x0 > x1) {
+                    continue;
+                }
+
+                float innerSpan = innerSquared - dy * dy;
+                int innerX0 = Integer.MAX_VALUE;
+                int innerX1 = Integer.MIN_VALUE;
+                if (innerSpan > 0) {
+                    float innerHalf = (float) Math.sqrt(innerSpan);
+                    innerX0 = (int) Math.ceil(cx - innerHalf - 0.5f);
+                    innerX1 = (int) Math.floor(cx + innerHalf - 0.5f);
+                }
+
+                int row = y * width;
+                for (int x = x0; x <= x1; x++) {
+                    pixels[row + x] = (x >= innerX0 && x <= innerX1) ? fill : border;
+                }
+            }
+        }
+    }
+}
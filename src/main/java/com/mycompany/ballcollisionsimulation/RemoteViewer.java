@@ -0,0 +1,311 @@
+/*
+ * Remote Viewer - Watches a simulation streamed by a StateStreamServer
+ * Decodes keyframes and deltas and draws them with the normal GamePanel
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remote Viewer - A window with a GamePanel over a local GameState that mirrors the server.
+ * A network thread decodes frames as fast as they arrive; the Swing thread only shows the
+ * newest one, so a slow display skips frames instead of falling behind.
+ * @author Sentinail
+ */
+public class RemoteViewer {
+
+    /**
+     * Rebuilds the server's world from the stream; used by the window and by the loopback test
+     */
+    static class Decoder {
+        private final DataInputStream in;
+        private long step = -1;
+        private int worldWidth;
+        private int worldHeight;
+        private int[] x = new int[0];
+        private int[] y = new int[0];
+        private int[] radius = new int[0];
+        private Color[] colors = new Color[0];
+        private List<Obstacle> obstacles = Collections.emptyList();
+        private boolean keyframe;
+        private long frames;
+        private long keyframes;
+        private long bytes;
+        private int lastFrameBytes;
+
+        Decoder(InputStream stream) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+            if (in.readInt() != StateStreamServer.MAGIC) {
+                throw new IOException("Not a simulation stream");
+            }
+            int version = in.readInt();
+            if (version != StateStreamServer.VERSION) {
+                throw new IOException("Unsupported stream version " + version);
+            }
+            bytes = 8;
+        }
+
+        /**
+         * Read and apply the next frame
+         * @return False when the server closed the stream
+         */
+        boolean readFrame() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte type = in.readByte();
+            long frameStep = in.readLong();
+            if (type == StateStreamServer.KEYFRAME) {
+                readKeyframe();
+                keyframe = true;
+                keyframes++;
+            } else if (type == StateStreamServer.DELTA) {
+                long baseStep = in.readLong();
+                if (baseStep != step) {
+                    throw new IOException("Delta against step " + baseStep + " but the viewer is at step " + step);
+                }
+                for (int i = 0; i < x.length; i++) {
+                    x[i] += readVarint();
+                    y[i] += readVarint();
+                }
+                keyframe = false;
+            } else {
+                throw new IOException("Unknown frame type " + type);
+            }
+            step = frameStep;
+            frames++;
+            lastFrameBytes = 4 + length;
+            bytes += lastFrameBytes;
+            return true;
+        }
+
+        private void readKeyframe() throws IOException {
+            worldWidth = in.readInt();
+            worldHeight = in.readInt();
+            int obstacleCount = in.readInt();
+            List<Obstacle> newObstacles = new ArrayList<>(obstacleCount);
+            for (int i = 0; i < obstacleCount; i++) {
+                newObstacles.add(new Obstacle(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()));
+            }
+            obstacles = newObstacles;
+            int count = in.readInt();
+            x = new int[count];
+            y = new int[count];
+            radius = new int[count];
+            colors = new Color[count];
+            for (int i = 0; i < count; i++) {
+                x[i] = in.readInt();
+                y[i] = in.readInt();
+                radius[i] = in.readShort();
+                int red = in.readUnsignedByte();
+                colors[i] = new Color((red << 16) | in.readUnsignedShort());
+            }
+        }
+
+        private int readVarint() throws IOException {
+            int zigzag = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.readUnsignedByte();
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        /**
+         * New ball objects at the current positions, for handing to another thread
+         */
+        List<Ball> toBalls() {
+            List<Ball> balls = new ArrayList<>(x.length);
+            for (int i = 0; i < x.length; i++) {
+                balls.add(new Ball((double) x[i] / StateStreamServer.QUANTUM, (double) y[i] / StateStreamServer.QUANTUM,
+                    0, 0, radius[i], colors[i]));
+            }
+            return balls;
+        }
+
+        /**
+         * Quantized position of a ball, as the server sent it
+         */
+        int getQuantizedX(int index) {
+            return x[index];
+        }
+
+        int getQuantizedY(int index) {
+            return y[index];
+        }
+
+        int getBallCount() {
+            return x.length;
+        }
+
+        /**
+         * The obstacles of the last keyframe; the same list until the next keyframe
+         */
+        List<Obstacle> getObstacles() {
+            return obstacles;
+        }
+
+        long getStep() {
+            return step;
+        }
+
+        boolean isKeyframe() {
+            return keyframe;
+        }
+
+        long getFrames() {
+            return frames;
+        }
+
+        long getKeyframes() {
+            return keyframes;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        int getLastFrameBytes() {
+            return lastFrameBytes;
+        }
+    }
+
+    /**
+     * A decoded frame waiting for the Swing thread
+     */
+    private static class View {
+        final List<Ball> balls;
+        final List<Obstacle> obstacles;
+        final int worldWidth;
+        final int worldHeight;
+        final String status;
+
+        View(List<Ball> balls, List<Obstacle> obstacles, int worldWidth, int worldHeight, String status) {
+            this.balls = balls;
+            this.obstacles = obstacles;
+            this.worldWidth = worldWidth;
+            this.worldHeight = worldHeight;
+            this.status = status;
+        }
+    }
+
+    private final GameState gameState = new GameState();
+    private final GamePanel gamePanel = new GamePanel(gameState);
+    private final AtomicReference<View> pending = new AtomicReference<>();
+    private List<Obstacle> shownObstacles;
+
+    private RemoteViewer() {
+    }
+
+    /**
+     * Open a viewer window for a server and return once the window is closed
+     */
+    public static void show(String host, int port) throws IOException, InterruptedException {
+        RemoteViewer viewer = new RemoteViewer();
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        Decoder decoder = new Decoder(socket.getInputStream());
+        CountDownLatch closed = new CountDownLatch(1);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Ball Collision Simulation - Remote Viewer - " + host + ":" + port);
+            frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            frame.add(viewer.gamePanel, BorderLayout.CENTER);
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    closed.countDown();
+                }
+            });
+            viewer.gamePanel.setInstructionsVisible(false);
+            viewer.gamePanel.setRenderStatus("Connected to " + host + ":" + port + ", waiting for the first frame");
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+
+        Thread reader = new Thread(() -> viewer.receive(decoder, host + ":" + port), "viewer-receive");
+        reader.setDaemon(true);
+        reader.start();
+        closed.await();
+        socket.close();
+    }
+
+    /**
+     * Network thread: decode frames and offer the newest to the Swing thread
+     */
+    private void receive(Decoder decoder, String address) {
+        String end = "Disconnected from " + address;
+        long rateStart = System.nanoTime();
+        long rateFrames = 0;
+        double framesPerSecond = 0;
+        try {
+            while (decoder.readFrame()) {
+                rateFrames++;
+                long now = System.nanoTime();
+                if (now - rateStart >= 1_000_000_000L) {
+                    framesPerSecond = rateFrames * 1e9 / (now - rateStart);
+                    rateStart = now;
+                    rateFrames = 0;
+                }
+                String status = String.format("Remote %s: step %d, %.0f frames/s, %d bytes this frame, %.0f bytes/frame average",
+                    address, decoder.getStep(), framesPerSecond, decoder.getLastFrameBytes(),
+                    (double) decoder.getBytes() / decoder.getFrames());
+                View view = new View(decoder.toBalls(), decoder.getObstacles(), decoder.worldWidth,
+                    decoder.worldHeight, status);
+                if (pending.getAndSet(view) == null) {
+                    SwingUtilities.invokeLater(this::showPending);
+                }
+            }
+        } catch (IOException e) {
+            end = "Connection to " + address + " lost: " + e.getMessage();
+        }
+        String status = end;
+        SwingUtilities.invokeLater(() -> {
+            gamePanel.setRenderStatus(status);
+            gamePanel.repaint();
+        });
+    }
+
+    /**
+     * Swing thread: show the newest decoded frame, dropping any older one still waiting
+     */
+    private void showPending() {
+        View view = pending.getAndSet(null);
+        if (view == null) {
+            return;
+        }
+        if (view.worldWidth != gameState.getWorldWidth() || view.worldHeight != gameState.getWorldHeight()) {
+            gameState.setWorldSize(view.worldWidth, view.worldHeight);
+        }
+        if (view.obstacles != shownObstacles) {
+            gameState.loadScene(view.balls, view.obstacles, false, 0, 0, gameState.getSpringConstant());
+            shownObstacles = view.obstacles;
+        } else {
+            gameState.swapBalls(view.balls);
+        }
+        gamePanel.setRenderStatus(view.status);
+        gamePanel.requestFrame();
+    }
+}
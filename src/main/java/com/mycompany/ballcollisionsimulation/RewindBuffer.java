@@ -0,0 +1,495 @@
+/*
+ * Rewind Buffer - Recent ball states kept in memory for stepping backward and forward
+ * Keyframes plus deltas of the balls that changed, stored off-heap under a memory cap
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rewind Buffer - Captures the balls after every physics step into a ring of entries in one
+ * direct buffer. Every KEYFRAME_INTERVAL steps, and whenever balls are added or removed, the
+ * full ball arrays are stored; in between only a bitmask of the balls whose position or
+ * velocity changed and the new values of those balls. The oldest entries are evicted once the
+ * buffer spans more than the configured seconds or would exceed the memory cap.
+ * <pre>
+ * Keyframe: int ball count, x[] y[] vx[] vy[] doubles, radius[] rgb[] ints
+ * Delta:    int ball count, int changed count, long[] changed bitmask,
+ *           x y vx vy doubles per changed ball in index order
+ * </pre>
+ * Capturing compares against the last captured state held in plain arrays and writes only the
+ * changes, so it stays a small fraction of the step time. Obstacles and physics settings are
+ * not part of the rewind. Nothing is allocated until the first capture, and release() hands
+ * the memory back while rewinding is off.
+ * @author Sentinail
+ */
+public class RewindBuffer {
+    public static final double DEFAULT_SECONDS = 10;
+    public static final int DEFAULT_MEMORY_MB = 64;
+    private static final int KEYFRAME_INTERVAL = 30; // Deltas replayed at most to restore a step
+    private static final int MAX_ENTRIES = 1 << 16;
+    private static final int KEYFRAME_BALL_BYTES = 4 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int DELTA_BALL_BYTES = 4 * Double.BYTES;
+
+    private ByteBuffer storage; // Null until the first capture
+    private int memoryBytes;
+    private double maxSeconds = DEFAULT_SECONDS;
+
+    // Ring of entries; slot (head + i) % MAX_ENTRIES holds the i-th oldest
+    private int[] entryOffsets;
+    private int[] entryLengths;
+    private long[] entrySteps;
+    private double[] entryTimes;
+    private boolean[] entryKeyframes;
+    private int head;
+    private int count;
+    private int writePosition;
+    private long usedBytes;
+    private double time; // Simulated seconds captured since the buffer was cleared
+    private int cursor = -1; // Entry shown while rewound, or -1 when showing the live state
+
+    // State of the last captured or restored entry, compared against to find changed balls
+    private int lastCount;
+    private double[] lastX = new double[0];
+    private double[] lastY = new double[0];
+    private double[] lastVelocityX = new double[0];
+    private double[] lastVelocityY = new double[0];
+    private int[] lastRadius = new int[0];
+    private int[] lastColor = new int[0];
+    private int lastBallRevision;
+    private int stepsSinceKeyframe;
+    private long[] changedMask = new long[0];
+
+    public RewindBuffer() {
+        setLimits(DEFAULT_SECONDS, DEFAULT_MEMORY_MB);
+    }
+
+    /**
+     * Set how many seconds are kept and how much memory they may use; clears the buffer
+     */
+    public void setLimits(double seconds, int memoryMegabytes) {
+        maxSeconds = Math.max(0.1, seconds);
+        int bytes = Math.max(1, Math.min(memoryMegabytes, 2047)) * 1024 * 1024;
+        if (storage != null && storage.capacity() != bytes) {
+            storage = null; // Reallocated at the new size by the next capture
+        }
+        memoryBytes = bytes;
+        clear();
+    }
+
+    /**
+     * Forget all captured steps and drop the storage and entry tables. The direct buffer is
+     * freed once the garbage collector finds it unreachable; the next capture allocates anew.
+     */
+    public void release() {
+        clear();
+        storage = null;
+        entryOffsets = null;
+        entryLengths = null;
+        entrySteps = null;
+        entryTimes = null;
+        entryKeyframes = null;
+        lastX = new double[0];
+        lastY = new double[0];
+        lastVelocityX = new double[0];
+        lastVelocityY = new double[0];
+        lastRadius = new int[0];
+        lastColor = new int[0];
+        changedMask = new long[0];
+    }
+
+    /**
+     * Whether the storage is allocated, i.e. something was captured since creation or release
+     */
+    public boolean isAllocated() {
+        return storage != null;
+    }
+
+    private void allocateStorage() {
+        if (storage == null) {
+            storage = ByteBuffer.allocateDirect(memoryBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (entryOffsets == null) {
+            entryOffsets = new int[MAX_ENTRIES];
+            entryLengths = new int[MAX_ENTRIES];
+            entrySteps = new long[MAX_ENTRIES];
+            entryTimes = new double[MAX_ENTRIES];
+            entryKeyframes = new boolean[MAX_ENTRIES];
+        }
+    }
+
+    public double getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    public int getMemoryMegabytes() {
+        return memoryBytes / (1024 * 1024);
+    }
+
+    /**
+     * Forget all captured steps
+     */
+    public void clear() {
+        head = 0;
+        count = 0;
+        writePosition = 0;
+        usedBytes = 0;
+        time = 0;
+        cursor = -1;
+        lastCount = -1;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Simulated seconds between the oldest and the newest captured step
+     */
+    public double getBufferedSeconds() {
+        return count > 1 ? entryTimes[slot(count - 1)] - entryTimes[slot(0)] : 0;
+    }
+
+    /**
+     * Whether an earlier step is shown instead of the live state
+     */
+    public boolean isRewound() {
+        return cursor >= 0;
+    }
+
+    /**
+     * Seconds the shown step lies behind the newest captured step
+     */
+    public double getRewoundSeconds() {
+        return cursor >= 0 ? entryTimes[slot(count - 1)] - entryTimes[slot(cursor)] : 0;
+    }
+
+    public long getShownStep() {
+        return cursor >= 0 ? entrySteps[slot(cursor)] : count > 0 ? entrySteps[slot(count - 1)] : 0;
+    }
+
+    /**
+     * Record the balls after a physics step
+     */
+    public void capture(GameState gameState, double stepSeconds) {
+        allocateStorage();
+        if (cursor >= 0) {
+            resume(gameState);
+        }
+        List<Ball> balls = gameState.getBalls();
+        int ballCount = balls.size();
+        time += stepSeconds;
+        boolean keyframe = ballCount != lastCount || gameState.getBallRevision() != lastBallRevision
+            || stepsSinceKeyframe >= KEYFRAME_INTERVAL - 1 || count == 0;
+
+        int length;
+        int changed = 0;
+        if (keyframe) {
+            ensureCapacity(ballCount);
+            length = Integer.BYTES + ballCount * KEYFRAME_BALL_BYTES;
+        } else {
+            changed = findChangedBalls(balls);
+            length = 2 * Integer.BYTES + changedMask.length * Long.BYTES + changed * DELTA_BALL_BYTES;
+        }
+        int offset = allocate(length);
+        if (offset >= 0 && !keyframe && count == 0) {
+            // Making room evicted the keyframe this delta builds on; store a keyframe instead
+            keyframe = true;
+            ensureCapacity(ballCount);
+            length = Integer.BYTES + ballCount * KEYFRAME_BALL_BYTES;
+            offset = allocate(length);
+        }
+        if (offset < 0) {
+            clear(); // A single keyframe does not fit under the memory cap
+            return;
+        }
+
+        if (keyframe) {
+            writeKeyframe(balls, offset);
+            stepsSinceKeyframe = 0;
+        } else {
+            writeDelta(balls, offset, changed);
+            stepsSinceKeyframe++;
+        }
+        lastCount = ballCount;
+        lastBallRevision = gameState.getBallRevision();
+
+        int slot = slot(count);
+        entryOffsets[slot] = offset;
+        entryLengths[slot] = length;
+        entrySteps[slot] = gameState.getStepCount();
+        entryTimes[slot] = time;
+        entryKeyframes[slot] = keyframe;
+        count++;
+        usedBytes += length;
+        writePosition = offset + length;
+
+        // Keep only the configured span, starting at a keyframe
+        while (count > 1 && time - entryTimes[slot(0)] > maxSeconds) {
+            evictOldest();
+        }
+        dropLeadingDeltas();
+    }
+
+    private int findChangedBalls(List<Ball> balls) {
+        Arrays.fill(changedMask, 0);
+        int changed = 0;
+        for (int i = 0; i < lastCount; i++) {
+            Ball ball = balls.get(i);
+            if (ball.getX() != lastX[i] || ball.getY() != lastY[i]
+                    || ball.getVelocityX() != lastVelocityX[i] || ball.getVelocityY() != lastVelocityY[i]) {
+                changedMask[i >>> 6] |= 1L << i;
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void writeKeyframe(List<Ball> balls, int offset) {
+        int ballCount = balls.size();
+        storage.putInt(offset, ballCount);
+        int xColumn = offset + Integer.BYTES;
+        int yColumn = xColumn + ballCount * Double.BYTES;
+        int vxColumn = yColumn + ballCount * Double.BYTES;
+        int vyColumn = vxColumn + ballCount * Double.BYTES;
+        int radiusColumn = vyColumn + ballCount * Double.BYTES;
+        int colorColumn = radiusColumn + ballCount * Integer.BYTES;
+        for (int i = 0; i < ballCount; i++) {
+            Ball ball = balls.get(i);
+            lastX[i] = ball.getX();
+            lastY[i] = ball.getY();
+            lastVelocityX[i] = ball.getVelocityX();
+            lastVelocityY[i] = ball.getVelocityY();
+            lastRadius[i] = ball.getRadius();
+            lastColor[i] = ball.getColor().getRGB();
+            int doubleOffset = i * Double.BYTES;
+            int intOffset = i * Integer.BYTES;
+            storage.putDouble(xColumn + doubleOffset, lastX[i]);
+            storage.putDouble(yColumn + doubleOffset, lastY[i]);
+            storage.putDouble(vxColumn + doubleOffset, lastVelocityX[i]);
+            storage.putDouble(vyColumn + doubleOffset, lastVelocityY[i]);
+            storage.putInt(radiusColumn + intOffset, lastRadius[i]);
+            storage.putInt(colorColumn + intOffset, lastColor[i]);
+        }
+    }
+
+    private void writeDelta(List<Ball> balls, int offset, int changed) {
+        storage.putInt(offset, lastCount);
+        storage.putInt(offset + Integer.BYTES, changed);
+        int position = offset + 2 * Integer.BYTES;
+        for (long word : changedMask) {
+            storage.putLong(position, word);
+            position += Long.BYTES;
+        }
+        for (int w = 0; w < changedMask.length; w++) {
+            long word = changedMask[w];
+            while (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                Ball ball = balls.get(i);
+                lastX[i] = ball.getX();
+                lastY[i] = ball.getY();
+                lastVelocityX[i] = ball.getVelocityX();
+                lastVelocityY[i] = ball.getVelocityY();
+                storage.putDouble(position, lastX[i]);
+                storage.putDouble(position + 8, lastY[i]);
+                storage.putDouble(position + 16, lastVelocityX[i]);
+                storage.putDouble(position + 24, lastVelocityY[i]);
+                position += DELTA_BALL_BYTES;
+            }
+        }
+    }
+
+    /**
+     * Find room for an entry at the write position, evicting the oldest entries it overlaps
+     * @return The offset of the entry, or -1 if it is larger than the whole buffer
+     */
+    private int allocate(int length) {
+        if (length > storage.capacity()) {
+            return -1;
+        }
+        int start = count > 0 ? writePosition : 0;
+        if (start + length > storage.capacity()) {
+            // Wrap around; whatever lies past the write position is older than everything in front
+            while (count > 0 && entryOffsets[slot(0)] >= start) {
+                evictOldest();
+            }
+            start = 0;
+        }
+        while (count > 0 && entryOffsets[slot(0)] < start + length
+                && start < entryOffsets[slot(0)] + entryLengths[slot(0)]) {
+            evictOldest();
+        }
+        if (count == MAX_ENTRIES) {
+            evictOldest();
+        }
+        dropLeadingDeltas();
+        return start;
+    }
+
+    private void evictOldest() {
+        usedBytes -= entryLengths[slot(0)];
+        head = (head + 1) % MAX_ENTRIES;
+        count--;
+        if (cursor >= 0) {
+            cursor = Math.max(0, cursor - 1);
+        }
+    }
+
+    /**
+     * Deltas are useless without the keyframe before them
+     */
+    private void dropLeadingDeltas() {
+        while (count > 0 && !entryKeyframes[slot(0)]) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Show the step before the one shown now
+     * @return false if there is no older step
+     */
+    public boolean stepBack(GameState gameState) {
+        int target = (cursor >= 0 ? cursor : count - 1) - 1;
+        if (target < 0) {
+            return false;
+        }
+        restore(target, gameState);
+        return true;
+    }
+
+    /**
+     * Show the step after the one shown now
+     * @return false if the newest step is already shown
+     */
+    public boolean stepForward(GameState gameState) {
+        if (cursor < 0 || cursor >= count - 1) {
+            return false;
+        }
+        restore(cursor + 1, gameState);
+        return true;
+    }
+
+    /**
+     * Continue from the shown step; the steps after it are discarded
+     */
+    public void resume(GameState gameState) {
+        if (cursor < 0) {
+            return;
+        }
+        while (count > cursor + 1) {
+            count--;
+            usedBytes -= entryLengths[slot(count)];
+        }
+        writePosition = entryOffsets[slot(cursor)] + entryLengths[slot(cursor)];
+        time = entryTimes[slot(cursor)];
+        stepsSinceKeyframe = 0;
+        for (int i = cursor; !entryKeyframes[slot(i)]; i--) {
+            stepsSinceKeyframe++;
+        }
+        lastBallRevision = gameState.getBallRevision();
+        cursor = -1;
+    }
+
+    /**
+     * Rebuild an entry from the keyframe before it and show it in the game state
+     */
+    private void restore(int index, GameState gameState) {
+        int keyframe = index;
+        while (!entryKeyframes[slot(keyframe)]) {
+            keyframe--;
+        }
+        readKeyframe(entryOffsets[slot(keyframe)]);
+        for (int i = keyframe + 1; i <= index; i++) {
+            readDelta(entryOffsets[slot(i)]);
+        }
+        cursor = index;
+
+        List<Ball> balls = gameState.getBalls();
+        boolean sameBalls = balls.size() == lastCount;
+        for (int i = 0; sameBalls && i < lastCount; i++) {
+            Ball ball = balls.get(i);
+            sameBalls = ball.getRadius() == lastRadius[i] && ball.getColor().getRGB() == lastColor[i];
+        }
+        if (!sameBalls) {
+            balls = new ArrayList<>(lastCount);
+            for (int i = 0; i < lastCount; i++) {
+                balls.add(new Ball(0, 0, 0, 0, lastRadius[i], new Color(lastColor[i], true)));
+            }
+            gameState.swapBalls(balls);
+        }
+        for (int i = 0; i < lastCount; i++) {
+            Ball ball = balls.get(i);
+            ball.setPosition(lastX[i], lastY[i]);
+            ball.setVelocity(lastVelocityX[i], lastVelocityY[i]);
+        }
+        gameState.markBallsMoved();
+        lastBallRevision = gameState.getBallRevision();
+    }
+
+    private void readKeyframe(int offset) {
+        int ballCount = storage.getInt(offset);
+        ensureCapacity(ballCount);
+        lastCount = ballCount;
+        int xColumn = offset + Integer.BYTES;
+        int yColumn = xColumn + ballCount * Double.BYTES;
+        int vxColumn = yColumn + ballCount * Double.BYTES;
+        int vyColumn = vxColumn + ballCount * Double.BYTES;
+        int radiusColumn = vyColumn + ballCount * Double.BYTES;
+        int colorColumn = radiusColumn + ballCount * Integer.BYTES;
+        for (int i = 0; i < ballCount; i++) {
+            int doubleOffset = i * Double.BYTES;
+            int intOffset = i * Integer.BYTES;
+            lastX[i] = storage.getDouble(xColumn + doubleOffset);
+            lastY[i] = storage.getDouble(yColumn + doubleOffset);
+            lastVelocityX[i] = storage.getDouble(vxColumn + doubleOffset);
+            lastVelocityY[i] = storage.getDouble(vyColumn + doubleOffset);
+            lastRadius[i] = storage.getInt(radiusColumn + intOffset);
+            lastColor[i] = storage.getInt(colorColumn + intOffset);
+        }
+    }
+
+    private void readDelta(int offset) {
+        int words = (storage.getInt(offset) + 63) >>> 6;
+        int maskPosition = offset + 2 * Integer.BYTES;
+        int position = maskPosition + words * Long.BYTES;
+        for (int w = 0; w < words; w++) {
+            long word = storage.getLong(maskPosition + w * Long.BYTES);
+            while (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                lastX[i] = storage.getDouble(position);
+                lastY[i] = storage.getDouble(position + 8);
+                lastVelocityX[i] = storage.getDouble(position + 16);
+                lastVelocityY[i] = storage.getDouble(position + 24);
+                position += DELTA_BALL_BYTES;
+            }
+        }
+    }
+
+    private void ensureCapacity(int ballCount) {
+        if (lastX.length < ballCount) {
+            int capacity = Math.max(ballCount, lastX.length * 2);
+            lastX = Arrays.copyOf(lastX, capacity);
+            lastY = Arrays.copyOf(lastY, capacity);
+            lastVelocityX = Arrays.copyOf(lastVelocityX, capacity);
+            lastVelocityY = Arrays.copyOf(lastVelocityY, capacity);
+            lastRadius = Arrays.copyOf(lastRadius, capacity);
+            lastColor = Arrays.copyOf(lastColor, capacity);
+        }
+        int words = (ballCount + 63) >>> 6;
+        if (changedMask.length != words) {
+            changedMask = new long[words];
+        }
+    }
+
+    private int slot(int index) {
+        return (head + index) % MAX_ENTRIES;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Scene Generator - Procedural placement of many balls at once
+ * Builds large non-overlapping stress scenes for GameState.addBalls
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Scene Generator - Places balls that do not overlap each other, or anything already in the
+ * scene, inside a rectangle.
+ * Grid jitter puts each ball somewhere inside its own grid cell and is the fastest way to
+ * fill a large area; Poisson-disk sampling (Bridson's algorithm) gives an irregular, evenly
+ * spread layout without the grid showing through. The same seed always gives the same scene.
+ * @author Sentinail
+ */
+public class SceneGenerator {
+    public enum Distribution {
+        GRID_JITTER,  // One ball per grid cell, jittered inside the cell
+        POISSON_DISK  // Random samples at least one ball apart, spread over the whole area
+    }
+
+    /**
+     * Space already taken by the scene the balls are added to
+     */
+    public interface Occupancy {
+        /**
+         * Whether a ball of this radius centered at (x, y) would touch something already there
+         */
+        boolean isOccupied(double x, double y, int radius);
+    }
+
+    private static final int POISSON_ATTEMPTS = 30; // Candidates tried around a sample before it retires
+    private static final double POISSON_PACKING = 0.6; // Just below the ~0.62 samples per squared spacing of a full Bridson set
+    private static final double MAX_SPEED = 100; // Largest starting velocity component, as for single balls
+    private static final int JITTER_ATTEMPTS = 4; // Positions tried inside a grid cell before it is skipped
+
+    private SceneGenerator() {
+    }
+
+    /**
+     * Generate up to count balls that do not overlap inside a width x height area
+     * @param minRadius Smallest radius; radii are drawn uniformly between minRadius and maxRadius
+     * @return The balls, fewer than count if the area cannot hold them all
+     */
+    public static List<Ball> generate(int count, Distribution distribution, int minRadius, int maxRadius,
+                                      long seed, double width, double height) {
+        return generate(count, distribution, minRadius, maxRadius, seed, width, height, null);
+    }
+
+    /**
+     * Generate up to count balls that overlap neither each other nor the occupied space
+     * @param occupancy Space to keep clear, or null for an empty area
+     * @return The balls, fewer than count if the free space cannot hold them all
+     */
+    public static List<Ball> generate(int count, Distribution distribution, int minRadius, int maxRadius,
+                                      long seed, double width, double height, Occupancy occupancy) {
+        if (minRadius < 1 || maxRadius < minRadius) {
+            throw new IllegalArgumentException("Invalid radius range " + minRadius + "-" + maxRadius);
+        }
+        if (count <= 0 || width < 2 * maxRadius || height < 2 * maxRadius) {
+            return new ArrayList<>();
+        }
+        Random random = new Random(seed);
+        return distribution == Distribution.POISSON_DISK
+            ? generatePoissonDisk(count, minRadius, maxRadius, random, width, height, occupancy)
+            : generateGridJitter(count, minRadius, maxRadius, random, width, height, occupancy);
+    }
+
+    /**
+     * Pick count cells of a grid at least as wide as the largest ball and jitter a ball inside each.
+     * A cell whose positions keep landing on occupied space is skipped for the next one.
+     */
+    private static List<Ball> generateGridJitter(int count, int minRadius, int maxRadius, Random random,
+                                                 double width, double height, Occupancy occupancy) {
+        // Cells as large as the area allows for count balls, so that sparse scenes spread out
+        double minCellSize = 2 * maxRadius + 1;
+        double cellSize = Math.max(minCellSize, Math.sqrt(width * height / count));
+        int columns = (int) (width / cellSize);
+        int rows = (int) (height / cellSize);
+        while ((long) columns * rows < count && cellSize > minCellSize) {
+            cellSize = Math.max(minCellSize, cellSize * 0.99);
+            columns = (int) (width / cellSize);
+            rows = (int) (height / cellSize);
+        }
+        long cellCount = (long) columns * rows;
+        if (cellCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Area too large for grid placement: " + columns + " x " + rows + " cells");
+        }
+        List<Ball> balls = new ArrayList<>((int) Math.min(count, cellCount));
+
+        // A partial shuffle picks distinct cells spread over the whole grid
+        int[] cells = new int[(int) cellCount];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        for (int i = 0; i < cells.length && balls.size() < count; i++) {
+            int pick = i + random.nextInt(cells.length - i);
+            int cell = cells[pick];
+            cells[pick] = cells[i];
+            int radius = randomRadius(random, minRadius, maxRadius);
+            double slack = cellSize / 2 - radius; // How far the center may move off the cell center
+            for (int attempt = 0; attempt < JITTER_ATTEMPTS; attempt++) {
+                double x = (cell % columns + 0.5) * cellSize + (random.nextDouble() * 2 - 1) * slack;
+                double y = (cell / columns + 0.5) * cellSize + (random.nextDouble() * 2 - 1) * slack;
+                if (occupancy == null || !occupancy.isOccupied(x, y, radius)) {
+                    balls.add(newBall(random, x, y, radius));
+                    break;
+                }
+            }
+        }
+        return balls;
+    }
+
+    /**
+     * Bridson's Poisson-disk sampling with per-ball radii. Two balls are at least the sum of
+     * their radii apart, and at least a spacing chosen so that count samples cover the area.
+     * Whenever the growing region runs out of room, a new one is started at a random free
+     * point, so that space split up by existing balls and obstacles is still filled.
+     */
+    private static List<Ball> generatePoissonDisk(int count, int minRadius, int maxRadius, Random random,
+                                                  double width, double height, Occupancy occupancy) {
+        double spacing = Math.sqrt(POISSON_PACKING * width * height / count);
+        double minDistance = Math.max(2 * minRadius, spacing); // Closest any two centers can be
+        double searchDistance = Math.max(2 * maxRadius, spacing); // Farthest a conflicting center can be
+
+        // Background grid small enough that no cell can hold two centers
+        double cellSize = minDistance / Math.sqrt(2);
+        int columns = (int) Math.ceil(width / cellSize);
+        int rows = (int) Math.ceil(height / cellSize);
+        if ((long) columns * rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Area too large for Poisson-disk placement");
+        }
+        int[] grid = new int[columns * rows]; // Sample index + 1 per cell, 0 when empty
+        int reach = (int) Math.ceil(searchDistance / cellSize);
+
+        double[] xs = new double[Math.min(count, 1024)];
+        double[] ys = new double[xs.length];
+        int[] radii = new int[xs.length];
+        int[] active = new int[xs.length];
+        int activeCount = 0;
+        int sampleCount = 0;
+
+        // Start from a random point and grow outward until the area is full or count is reached
+        while (sampleCount < count) {
+            boolean seeding = activeCount == 0;
+            int activeIndex = seeding ? -1 : random.nextInt(activeCount);
+            int sample = seeding ? -1 : active[activeIndex];
+            boolean found = false;
+            for (int attempt = 0; attempt < POISSON_ATTEMPTS && !found; attempt++) {
+                int radius = randomRadius(random, minRadius, maxRadius);
+                double x;
+                double y;
+                if (seeding) {
+                    x = radius + random.nextDouble() * (width - 2 * radius);
+                    y = radius + random.nextDouble() * (height - 2 * radius);
+                } else {
+                    double distance = Math.max(radii[sample] + radius, spacing);
+                    double angle = random.nextDouble() * 2 * Math.PI;
+                    double r = distance * (1 + random.nextDouble()); // Annulus between d and 2d
+                    x = xs[sample] + Math.cos(angle) * r;
+                    y = ys[sample] + Math.sin(angle) * r;
+                }
+                if (x < radius || y < radius || x > width - radius || y > height - radius) {
+                    continue;
+                }
+                int column = (int) (x / cellSize);
+                int row = (int) (y / cellSize);
+                if (grid[row * columns + column] != 0 || !isFree(x, y, radius, spacing, xs, ys, radii, grid,
+                        columns, rows, column, row, reach)
+                        || occupancy != null && occupancy.isOccupied(x, y, radius)) {
+                    continue;
+                }
+
+                if (sampleCount == xs.length) {
+                    int capacity = (int) Math.min(count, xs.length * 2L);
+                    xs = Arrays.copyOf(xs, capacity);
+                    ys = Arrays.copyOf(ys, capacity);
+                    radii = Arrays.copyOf(radii, capacity);
+                    active = Arrays.copyOf(active, capacity);
+                }
+                xs[sampleCount] = x;
+                ys[sampleCount] = y;
+                radii[sampleCount] = radius;
+                grid[row * columns + column] = sampleCount + 1;
+                active[activeCount++] = sampleCount;
+                sampleCount++;
+                found = true;
+            }
+            if (seeding && !found) {
+                break; // No free point left to start another region from
+            }
+            if (!found) {
+                active[activeIndex] = active[--activeCount]; // No room left around this sample
+            }
+        }
+
+        List<Ball> balls = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            balls.add(newBall(random, xs[i], ys[i], radii[i]));
+        }
+        return balls;
+    }
+
+    /**
+     * Check the grid cells around a candidate for a sample that is too close
+     */
+    private static boolean isFree(double x, double y, int radius, double spacing, double[] xs, double[] ys,
+                                  int[] radii, int[] grid, int columns, int rows, int column, int row, int reach) {
+        int top = Math.max(0, row - reach);
+        int bottom = Math.min(rows - 1, row + reach);
+        int left = Math.max(0, column - reach);
+        int right = Math.min(columns - 1, column + reach);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                int other = grid[r * columns + c] - 1;
+                if (other >= 0) {
+                    double dx = xs[other] - x;
+                    double dy = ys[other] - y;
+                    double minDistance = Math.max(radii[other] + radius, spacing);
+                    if (dx * dx + dy * dy < minDistance * minDistance) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int randomRadius(Random random, int minRadius, int maxRadius) {
+        return minRadius + random.nextInt(maxRadius - minRadius + 1);
+    }
+
+    private static Ball newBall(Random random, double x, double y, int radius) {
+        return new Ball(x, y, (random.nextDouble() * 2 - 1) * MAX_SPEED, (random.nextDouble() * 2 - 1) * MAX_SPEED,
+            radius, new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Scene Snapshot - Point-in-time copy of the simulation for background saving
+ * Taken on the Swing thread, then written out on another thread while the physics keeps running
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.util.List;
+
+/**
+ * Scene Snapshot - Immutable copy of every ball, obstacle and physics setting, stored in
+ * primitive columns. Capturing is a flat copy that takes a few milliseconds even for very
+ * large scenes; after that the game state can change freely without affecting the save.
+ * @author Sentinail
+ */
+public class SceneSnapshot {
+    private final int ballCount;
+    private final double[] ballX;
+    private final double[] ballY;
+    private final double[] ballVelocityX;
+    private final double[] ballVelocityY;
+    private final int[] ballRadius;
+    private final int[] ballColor; // 24-bit RGB
+    private final int obstacleCount;
+    private final double[] obstacleX;
+    private final double[] obstacleY;
+    private final double[] obstacleWidth;
+    private final double[] obstacleHeight;
+    private final boolean gravityEnabled;
+    private final double gravityX;
+    private final double gravityY;
+    private final double springConstant;
+    private final int newBallRadius;
+
+    private SceneSnapshot(GameState gameState, int newBallRadius) {
+        List<Ball> balls = gameState.getBalls();
+        ballCount = balls.size();
+        ballX = new double[ballCount];
+        ballY = new double[ballCount];
+        ballVelocityX = new double[ballCount];
+        ballVelocityY = new double[ballCount];
+        ballRadius = new int[ballCount];
+        ballColor = new int[ballCount];
+        for (int i = 0; i < ballCount; i++) {
+            Ball ball = balls.get(i);
+            ballX[i] = ball.getX();
+            ballY[i] = ball.getY();
+            ballVelocityX[i] = ball.getVelocityX();
+            ballVelocityY[i] = ball.getVelocityY();
+            ballRadius[i] = ball.getRadius();
+            ballColor[i] = ball.getColor().getRGB() & 0xFFFFFF;
+        }
+
+        List<Obstacle> obstacles = gameState.getObstacles();
+        obstacleCount = obstacles.size();
+        obstacleX = new double[obstacleCount];
+        obstacleY = new double[obstacleCount];
+        obstacleWidth = new double[obstacleCount];
+        obstacleHeight = new double[obstacleCount];
+        for (int i = 0; i < obstacleCount; i++) {
+            Obstacle obstacle = obstacles.get(i);
+            obstacleX[i] = obstacle.getX();
+            obstacleY[i] = obstacle.getY();
+            obstacleWidth[i] = obstacle.getWidth();
+            obstacleHeight[i] = obstacle.getHeight();
+        }
+
+        gravityEnabled = gameState.isGravityEnabled();
+        gravityX = gameState.getGravityX();
+        gravityY = gameState.getGravityY();
+        springConstant = gameState.getSpringConstant();
+        this.newBallRadius = newBallRadius;
+    }
+
+    /**
+     * Copy the current state; must be called on the thread that runs the simulation
+     * @param newBallRadius Radius the control panel uses for new balls
+     */
+    public static SceneSnapshot capture(GameState gameState, int newBallRadius) {
+        return new SceneSnapshot(gameState, newBallRadius);
+    }
+
+    public int getBallCount() {
+        return ballCount;
+    }
+
+    public double getBallX(int index) {
+        return ballX[index];
+    }
+
+    public double getBallY(int index) {
+        return ballY[index];
+    }
+
+    public double getBallVelocityX(int index) {
+        return ballVelocityX[index];
+    }
+
+    public double getBallVelocityY(int index) {
+        return ballVelocityY[index];
+    }
+
+    public int getBallRadius(int index) {
+        return ballRadius[index];
+    }
+
+    public int getBallColor(int index) {
+        return ballColor[index];
+    }
+
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    public double getObstacleX(int index) {
+        return obstacleX[index];
+    }
+
+    public double getObstacleY(int index) {
+        return obstacleY[index];
+    }
+
+    public double getObstacleWidth(int index) {
+        return obstacleWidth[index];
+    }
+
+    public double getObstacleHeight(int index) {
+        return obstacleHeight[index];
+    }
+
+    public boolean isGravityEnabled() {
+        return gravityEnabled;
+    }
+
+    public double getGravityX() {
+        return gravityX;
+    }
+
+    public double getGravityY() {
+        return gravityY;
+    }
+
+    public double getSpringConstant() {
+        return springConstant;
+    }
+
+    public int getNewBallRadius() {
+        return newBallRadius;
+    }
+}
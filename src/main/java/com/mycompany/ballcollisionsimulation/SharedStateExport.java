@@ -0,0 +1,267 @@
+/*
+ * Shared State Export - Live ball arrays in a memory-mapped file for other processes
+ * Analysis tools map the same file and read the current step without sockets or copies
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Shared State Export - Overwrites one memory-mapped .simlive file with the state of every
+ * ball after each publish. The writer never waits for readers: it guards the data with a
+ * sequence counter (a seqlock) that is odd while a write is in progress. A reader reads the
+ * sequence, reads the data it needs straight from the mapping, then reads the sequence again;
+ * if the two differ or are odd, the data may be torn and it simply tries again.
+ * <pre>
+ * Header (64 bytes, little-endian)
+ *   0  "SIML"              magic
+ *   4  int    version      currently 1
+ *   8  long   sequence     odd while the writer is updating the file, even when consistent
+ *  16  int    capacity     balls the columns have room for; the file is capacity-sized
+ *  20  int    ball count   balls in the current state, at most capacity
+ *  24  long   step         step counter of the game state
+ *  32  int    world width
+ *  36  int    world height
+ *  40  long   publish time System.currentTimeMillis() of the write
+ *  48  int    flags        1 = the writer has closed the file
+ *  52  reserved
+ * Columns, at fixed offsets for a given capacity
+ *  64                      double x[capacity]
+ *  64 +  8 * capacity      double y[capacity]
+ *  64 + 16 * capacity      double vx[capacity]
+ *  64 + 24 * capacity      double vy[capacity]
+ *  64 + 32 * capacity      int    radius[capacity]
+ *  64 + 36 * capacity      int    rgb[capacity]
+ * </pre>
+ * When the balls outgrow the capacity, the file is grown to twice the ball count inside the
+ * write, so a reader that sees a larger capacity than it mapped maps the file again.
+ * @author Sentinail
+ */
+public class SharedStateExport implements Closeable {
+    public static final String EXTENSION = "simlive";
+    public static final int VERSION = 1;
+    static final int MAGIC = 0x4C4D4953; // "SIML" read as a little-endian int
+    static final int HEADER_SIZE = 64;
+    static final int BALL_BYTES = 4 * Double.BYTES + 2 * Integer.BYTES;
+    static final int SEQUENCE = 8;
+    static final int CAPACITY = 16;
+    static final int COUNT = 20;
+    static final int STEP = 24;
+    static final int WORLD_WIDTH = 32;
+    static final int WORLD_HEIGHT = 36;
+    static final int PUBLISH_TIME = 40;
+    static final int FLAGS = 48;
+    static final int FLAG_CLOSED = 1;
+    private static final int MIN_CAPACITY = 1024;
+
+    // Fences keep the JIT and CPU from moving the data stores across the sequence stores
+    private static final MethodHandle RELEASE_FENCE = fence("releaseFence", "storeFence");
+    private static final MethodHandle ACQUIRE_FENCE = fence("acquireFence", "loadFence");
+
+    private final File file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private long sequence;
+    private long publishCount;
+
+    /**
+     * Create or overwrite an export file
+     * @param initialCapacity Balls to make room for up front
+     */
+    public SharedStateExport(File file, int initialCapacity) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            map(Math.max(MIN_CAPACITY, initialCapacity));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(SEQUENCE, sequence);
+            buffer.putInt(CAPACITY, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public SharedStateExport(File file) throws IOException {
+        this(file, MIN_CAPACITY);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Number of states published so far
+     */
+    public long getPublishCount() {
+        return publishCount;
+    }
+
+    /**
+     * Write the current state of every ball. Call on the simulation thread after a step; it
+     * only stores into mapped memory, apart from growing the file when the balls outgrow it.
+     */
+    public void publish(GameState gameState) throws IOException {
+        List<Ball> balls = gameState.getBalls();
+        int count = balls.size();
+
+        beginWrite();
+        if (count > capacity) {
+            map(Math.max(count * 2L, capacity * 2L));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(SEQUENCE, sequence);
+            buffer.putInt(CAPACITY, capacity);
+        }
+        buffer.putInt(COUNT, count);
+        buffer.putLong(STEP, gameState.getStepCount());
+        buffer.putInt(WORLD_WIDTH, gameState.getWorldWidth());
+        buffer.putInt(WORLD_HEIGHT, gameState.getWorldHeight());
+        buffer.putLong(PUBLISH_TIME, System.currentTimeMillis());
+
+        int xColumn = xColumn();
+        int yColumn = yColumn(capacity);
+        int vxColumn = vxColumn(capacity);
+        int vyColumn = vyColumn(capacity);
+        int radiusColumn = radiusColumn(capacity);
+        int colorColumn = colorColumn(capacity);
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            int doubleOffset = i * Double.BYTES;
+            int intOffset = i * Integer.BYTES;
+            buffer.putDouble(xColumn + doubleOffset, ball.getX());
+            buffer.putDouble(yColumn + doubleOffset, ball.getY());
+            buffer.putDouble(vxColumn + doubleOffset, ball.getVelocityX());
+            buffer.putDouble(vyColumn + doubleOffset, ball.getVelocityY());
+            buffer.putInt(radiusColumn + intOffset, ball.getRadius());
+            buffer.putInt(colorColumn + intOffset, ball.getColor().getRGB());
+        }
+        endWrite();
+        publishCount++;
+    }
+
+    private void beginWrite() {
+        sequence++;
+        buffer.putLong(SEQUENCE, sequence);
+        releaseFence(); // The odd sequence becomes visible before any data store
+    }
+
+    private void endWrite() {
+        releaseFence(); // Every data store becomes visible before the even sequence
+        sequence++;
+        buffer.putLong(SEQUENCE, sequence);
+    }
+
+    /**
+     * Map the file for a capacity, growing it as needed
+     */
+    private void map(long newCapacity) throws IOException {
+        if (newCapacity > (Integer.MAX_VALUE - HEADER_SIZE) / BALL_BYTES) {
+            throw new IOException("Too many balls to export (" + newCapacity + ")");
+        }
+        capacity = (int) newCapacity;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) capacity * BALL_BYTES;
+    }
+
+    static int xColumn() {
+        return HEADER_SIZE;
+    }
+
+    static int yColumn(int capacity) {
+        return HEADER_SIZE + capacity * Double.BYTES;
+    }
+
+    static int vxColumn(int capacity) {
+        return HEADER_SIZE + 2 * capacity * Double.BYTES;
+    }
+
+    static int vyColumn(int capacity) {
+        return HEADER_SIZE + 3 * capacity * Double.BYTES;
+    }
+
+    static int radiusColumn(int capacity) {
+        return HEADER_SIZE + 4 * capacity * Double.BYTES;
+    }
+
+    static int colorColumn(int capacity) {
+        return radiusColumn(capacity) + capacity * Integer.BYTES;
+    }
+
+    /**
+     * Mark the file as closed so readers stop waiting for new states, and close it. The file
+     * is left in place with the last state; the mapping is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            beginWrite();
+            buffer.putInt(FLAGS, FLAG_CLOSED);
+            endWrite();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Orders earlier loads and stores before later stores
+     */
+    static void releaseFence() {
+        try {
+            RELEASE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Orders earlier loads before later loads and stores
+     */
+    static void acquireFence() {
+        try {
+            ACQUIRE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Find a memory fence: VarHandle's on Java 9 and later, sun.misc.Unsafe's on Java 8
+     */
+    private static MethodHandle fence(String varHandleName, String unsafeName) {
+        MethodType type = MethodType.methodType(void.class);
+        try {
+            Class<?> varHandle = Class.forName("java.lang.invoke.VarHandle");
+            return MethodHandles.publicLookup().findStatic(varHandle, varHandleName, type);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup().findVirtual(unsafeClass, unsafeName, type).bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
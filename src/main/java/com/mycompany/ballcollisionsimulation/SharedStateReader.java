@@ -0,0 +1,238 @@
+/*
+ * Shared State Reader - Consistent snapshots of a live .simlive export
+ * Lets Java analysis tools follow a running simulation from another process
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Shared State Reader - Maps a file written by SharedStateExport and copies the current state
+ * out of it with the seqlock protocol: read the sequence, copy the columns, read the sequence
+ * again and retry if a write happened in between. The writer is never blocked or even seen by
+ * the reader. One reader object is meant for one thread.
+ * @author Sentinail
+ */
+public class SharedStateReader implements Closeable {
+
+    /**
+     * One consistent state of every ball; its arrays are reused by later reads
+     */
+    public static class Snapshot {
+        private long step;
+        private int ballCount;
+        private int worldWidth;
+        private int worldHeight;
+        private long publishTime;
+        private double[] x = new double[0];
+        private double[] y = new double[0];
+        private double[] velocityX = new double[0];
+        private double[] velocityY = new double[0];
+        private int[] radius = new int[0];
+        private int[] rgb = new int[0];
+
+        private void ensureCapacity(int count) {
+            if (x.length < count) {
+                x = new double[count];
+                y = new double[count];
+                velocityX = new double[count];
+                velocityY = new double[count];
+                radius = new int[count];
+                rgb = new int[count];
+            }
+        }
+
+        public long getStep() {
+            return step;
+        }
+
+        public int getBallCount() {
+            return ballCount;
+        }
+
+        public int getWorldWidth() {
+            return worldWidth;
+        }
+
+        public int getWorldHeight() {
+            return worldHeight;
+        }
+
+        /**
+         * System.currentTimeMillis() of the writer when it published this state
+         */
+        public long getPublishTime() {
+            return publishTime;
+        }
+
+        /**
+         * Ball columns; only the first getBallCount() entries belong to this state
+         */
+        public double[] getX() {
+            return x;
+        }
+
+        public double[] getY() {
+            return y;
+        }
+
+        public double[] getVelocityX() {
+            return velocityX;
+        }
+
+        public double[] getVelocityY() {
+            return velocityY;
+        }
+
+        public int[] getRadius() {
+            return radius;
+        }
+
+        public int[] getRgb() {
+            return rgb;
+        }
+    }
+
+    private final FileChannel channel;
+    private ByteBuffer header;
+    private int mappedCapacity = -1;
+    private DoubleBuffer xColumn;
+    private DoubleBuffer yColumn;
+    private DoubleBuffer vxColumn;
+    private DoubleBuffer vyColumn;
+    private IntBuffer radiusColumn;
+    private IntBuffer colorColumn;
+    private long retries;
+
+    public SharedStateReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() < SharedStateExport.HEADER_SIZE) {
+                throw new IOException("Not a live state file: " + file.getName());
+            }
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SharedStateExport.HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != SharedStateExport.MAGIC) {
+                throw new IOException("Not a live state file: " + file.getName());
+            }
+            int version = header.getInt(4);
+            if (version != SharedStateExport.VERSION) {
+                throw new IOException("Unsupported live state version " + version);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The writer's sequence counter; it changes whenever a new state is published, so polling
+     * it is a cheap way to wait for the next state
+     */
+    public long getSequence() {
+        return header.getLong(SharedStateExport.SEQUENCE);
+    }
+
+    /**
+     * Whether the writer has closed the file; the last state stays readable
+     */
+    public boolean isWriterClosed() {
+        return (header.getInt(SharedStateExport.FLAGS) & SharedStateExport.FLAG_CLOSED) != 0;
+    }
+
+    /**
+     * Reads that were thrown away because the writer was updating the file
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Copy the current state into a snapshot, retrying until the copy was not torn by a write
+     * @return The sequence number of the state that was copied
+     */
+    public long read(Snapshot snapshot) throws IOException {
+        while (true) {
+            long before = header.getLong(SharedStateExport.SEQUENCE);
+            if ((before & 1) != 0) {
+                retries++;
+                Thread.yield();
+                continue;
+            }
+            SharedStateExport.acquireFence();
+            int capacity = header.getInt(SharedStateExport.CAPACITY);
+            int count = header.getInt(SharedStateExport.COUNT);
+            if (capacity != mappedCapacity) {
+                map(capacity);
+            }
+            if (count < 0 || count > capacity) {
+                retries++;
+                continue;
+            }
+            snapshot.ensureCapacity(count);
+            snapshot.step = header.getLong(SharedStateExport.STEP);
+            snapshot.worldWidth = header.getInt(SharedStateExport.WORLD_WIDTH);
+            snapshot.worldHeight = header.getInt(SharedStateExport.WORLD_HEIGHT);
+            snapshot.publishTime = header.getLong(SharedStateExport.PUBLISH_TIME);
+            xColumn.position(0);
+            xColumn.get(snapshot.x, 0, count);
+            yColumn.position(0);
+            yColumn.get(snapshot.y, 0, count);
+            vxColumn.position(0);
+            vxColumn.get(snapshot.velocityX, 0, count);
+            vyColumn.position(0);
+            vyColumn.get(snapshot.velocityY, 0, count);
+            radiusColumn.position(0);
+            radiusColumn.get(snapshot.radius, 0, count);
+            colorColumn.position(0);
+            colorColumn.get(snapshot.rgb, 0, count);
+            SharedStateExport.acquireFence();
+            if (header.getLong(SharedStateExport.SEQUENCE) == before) {
+                snapshot.ballCount = count;
+                return before;
+            }
+            retries++;
+        }
+    }
+
+    /**
+     * Map the columns for a capacity; the writer grows the file before announcing a new one
+     */
+    private void map(int capacity) throws IOException {
+        if (capacity <= 0 || SharedStateExport.fileSize(capacity) > channel.size()) {
+            throw new IOException("Live state file has an invalid capacity: " + capacity);
+        }
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, SharedStateExport.fileSize(capacity));
+        xColumn = column(data, SharedStateExport.xColumn(), capacity * Double.BYTES).asDoubleBuffer();
+        yColumn = column(data, SharedStateExport.yColumn(capacity), capacity * Double.BYTES).asDoubleBuffer();
+        vxColumn = column(data, SharedStateExport.vxColumn(capacity), capacity * Double.BYTES).asDoubleBuffer();
+        vyColumn = column(data, SharedStateExport.vyColumn(capacity), capacity * Double.BYTES).asDoubleBuffer();
+        radiusColumn = column(data, SharedStateExport.radiusColumn(capacity), capacity * Integer.BYTES).asIntBuffer();
+        colorColumn = column(data, SharedStateExport.colorColumn(capacity), capacity * Integer.BYTES).asIntBuffer();
+        mappedCapacity = capacity;
+    }
+
+    private static ByteBuffer column(ByteBuffer data, int offset, int length) {
+        ByteBuffer column = data.duplicate();
+        column.position(offset);
+        column.limit(offset + length);
+        return column.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Close the file; the mappings are released by the garbage collector
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Simulation Binary File - Compact .simb save files
+ * Column-oriented binary counterpart of the text .sim format, for very large scenes
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Simulation Binary File - Versioned little-endian format with one column per field.
+ * <pre>
+ * Header (64 bytes)
+ *   0  "SIMB"             magic
+ *   4  int    version     currently 1
+ *   8  int    flags       1 = gravity enabled, 2 = payload is deflate-compressed
+ *  12  int    ball count
+ *  16  int    obstacle count
+ *  20  int    new ball radius
+ *  24  double gravity x
+ *  32  double gravity y
+ *  40  double spring constant
+ *  48  long   payload length, uncompressed
+ *  56  long   stored payload length
+ * Payload
+ *   ball x, y, vx, vy          doubles, one column each
+ *   obstacle x, y, w, h        doubles, one column each
+ *   ball radius, ball RGB      ints, one column each
+ * </pre>
+ * Uncompressed files are read straight from a memory-mapped channel without parsing.
+ * @author Sentinail
+ */
+public class SimulationBinaryFile {
+    public static final String EXTENSION = "simb";
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x424D4953; // "SIMB" read as a little-endian int
+    private static final int HEADER_SIZE = 64;
+    private static final int FLAG_GRAVITY_ENABLED = 1;
+    private static final int FLAG_COMPRESSED = 2;
+    private static final int BALL_BYTES = 4 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int OBSTACLE_BYTES = 4 * Double.BYTES;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 16384; // Balls between progress reports
+
+    private SimulationBinaryFile() {
+    }
+
+    /**
+     * Check the header of a file for the .simb magic number
+     */
+    public static boolean isBinaryFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write the state of the simulation to a .simb file
+     * @param newBallRadius Radius the control panel uses for new balls
+     * @param compress Deflate the payload; smaller files, slower saving and loading
+     */
+    public static void write(File file, GameState gameState, int newBallRadius, boolean compress) throws IOException {
+        write(file, SceneSnapshot.capture(gameState, newBallRadius), compress, null);
+    }
+
+    /**
+     * Write a snapshot to a .simb file; safe to call from any thread
+     * @param progress Notified as columns are written, or null
+     */
+    public static void write(File file, SceneSnapshot scene, boolean compress, ProgressListener progress) throws IOException {
+        FlightEvents.FileEvent fileEvent = FlightEvents.beginFile();
+        boolean succeeded = false;
+        int ballCount = scene.getBallCount();
+        int obstacleCount = scene.getObstacleCount();
+        long payloadLength = (long) ballCount * BALL_BYTES + (long) obstacleCount * OBSTACLE_BYTES;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Columns are streamed through a small buffer; the header is filled in last
+            channel.position(HEADER_SIZE);
+            OutputStream channelOut = Channels.newOutputStream(channel);
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            OutputStream out = compress ? new DeflaterOutputStream(channelOut, deflater, CHUNK_SIZE) : channelOut;
+            try {
+                ColumnWriter columns = new ColumnWriter(out, progress, payloadLength);
+                columns.writeDoubles(ballCount, scene::getBallX);
+                columns.writeDoubles(ballCount, scene::getBallY);
+                columns.writeDoubles(ballCount, scene::getBallVelocityX);
+                columns.writeDoubles(ballCount, scene::getBallVelocityY);
+                columns.writeDoubles(obstacleCount, scene::getObstacleX);
+                columns.writeDoubles(obstacleCount, scene::getObstacleY);
+                columns.writeDoubles(obstacleCount, scene::getObstacleWidth);
+                columns.writeDoubles(obstacleCount, scene::getObstacleHeight);
+                columns.writeInts(ballCount, scene::getBallRadius);
+                columns.writeInts(ballCount, scene::getBallColor);
+                columns.flush();
+                if (compress) {
+                    ((DeflaterOutputStream) out).finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt((scene.isGravityEnabled() ? FLAG_GRAVITY_ENABLED : 0) | (compress ? FLAG_COMPRESSED : 0));
+            header.putInt(ballCount);
+            header.putInt(obstacleCount);
+            header.putInt(scene.getNewBallRadius());
+            header.putDouble(scene.getGravityX());
+            header.putDouble(scene.getGravityY());
+            header.putDouble(scene.getSpringConstant());
+            header.putLong(payloadLength);
+            header.putLong(channel.position() - HEADER_SIZE);
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            succeeded = true;
+        } finally {
+            FlightEvents.commitFile(fileEvent, "save", file, ballCount, obstacleCount, succeeded);
+        }
+    }
+
+    /**
+     * Streams columns of values through a fixed buffer, reporting progress per chunk
+     */
+    private static final class ColumnWriter {
+        private final OutputStream out;
+        private final ProgressListener progress;
+        private final long total;
+        private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        ColumnWriter(OutputStream out, ProgressListener progress, long total) {
+            this.out = out;
+            this.progress = progress;
+            this.total = total;
+        }
+
+        void writeDoubles(int count, IntToDoubleFunction column) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (chunk.remaining() < Double.BYTES) {
+                    flush();
+                }
+                chunk.putDouble(column.applyAsDouble(i));
+            }
+        }
+
+        void writeInts(int count, IntUnaryOperator column) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (chunk.remaining() < Integer.BYTES) {
+                    flush();
+                }
+                chunk.putInt(column.applyAsInt(i));
+            }
+        }
+
+        void flush() throws IOException {
+            out.write(chunk.array(), 0, chunk.position());
+            written += chunk.position();
+            chunk.clear();
+            SimulationFile.reportProgress(progress, written, total);
+        }
+    }
+
+    /**
+     * Replace the balls, obstacles and physics settings of the game state with those in a .simb file
+     */
+    public static SimulationFile.LoadResult read(File file, GameState gameState) throws IOException {
+        SimulationFile.LoadResult result = parse(file, null);
+        result.applyTo(gameState);
+        return result;
+    }
+
+    /**
+     * Read a .simb file into a LoadResult without touching any game state
+     */
+    static SimulationFile.LoadResult parse(File file, ProgressListener progress) throws IOException {
+        FlightEvents.FileEvent fileEvent = FlightEvents.beginFile();
+        int ballsRead = 0;
+        int obstaclesRead = 0;
+        boolean succeeded = false;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a .simb file: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a .simb file: " + file);
+            }
+            int version = mapped.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported .simb version " + version + " in " + file);
+            }
+            int flags = mapped.getInt(8);
+            int ballCount = mapped.getInt(12);
+            int obstacleCount = mapped.getInt(16);
+            int newBallRadius = mapped.getInt(20);
+            double gravityX = mapped.getDouble(24);
+            double gravityY = mapped.getDouble(32);
+            double springConstant = mapped.getDouble(40);
+            long payloadLength = mapped.getLong(48);
+            long storedLength = mapped.getLong(56);
+            if (ballCount < 0 || obstacleCount < 0
+                    || payloadLength != (long) ballCount * BALL_BYTES + (long) obstacleCount * OBSTACLE_BYTES
+                    || storedLength < 0 || storedLength > channel.size() - HEADER_SIZE
+                    || payloadLength > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt or truncated .simb file: " + file);
+            }
+
+            mapped.position(HEADER_SIZE);
+            mapped.limit(HEADER_SIZE + (int) storedLength);
+            boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+            ByteBuffer payload = compressed
+                ? inflate(mapped, (int) payloadLength, file, progress)
+                : mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+            if (payload.capacity() < payloadLength) {
+                throw new IOException("Corrupt or truncated .simb file: " + file);
+            }
+
+            // Column offsets within the payload
+            int xColumn = 0;
+            int yColumn = xColumn + ballCount * Double.BYTES;
+            int vxColumn = yColumn + ballCount * Double.BYTES;
+            int vyColumn = vxColumn + ballCount * Double.BYTES;
+            int obstacleXColumn = vyColumn + ballCount * Double.BYTES;
+            int obstacleYColumn = obstacleXColumn + obstacleCount * Double.BYTES;
+            int obstacleWidthColumn = obstacleYColumn + obstacleCount * Double.BYTES;
+            int obstacleHeightColumn = obstacleWidthColumn + obstacleCount * Double.BYTES;
+            int radiusColumn = obstacleHeightColumn + obstacleCount * Double.BYTES;
+            int colorColumn = radiusColumn + ballCount * Integer.BYTES;
+
+            // Inflating takes the first half of the progress of a compressed file
+            long progressOffset = compressed ? ballCount : 0;
+            long progressTotal = progressOffset + ballCount;
+            List<Ball> balls = new ArrayList<>(ballCount);
+            for (int i = 0; i < ballCount; i++) {
+                int doubleOffset = i * Double.BYTES;
+                int intOffset = i * Integer.BYTES;
+                balls.add(new Ball(
+                    payload.getDouble(xColumn + doubleOffset), payload.getDouble(yColumn + doubleOffset),
+                    payload.getDouble(vxColumn + doubleOffset), payload.getDouble(vyColumn + doubleOffset),
+                    payload.getInt(radiusColumn + intOffset), new Color(payload.getInt(colorColumn + intOffset))));
+                if (i % PROGRESS_INTERVAL == 0) {
+                    SimulationFile.reportProgress(progress, progressOffset + i, progressTotal);
+                }
+            }
+            ballsRead = ballCount;
+            List<Obstacle> obstacles = new ArrayList<>(obstacleCount);
+            for (int i = 0; i < obstacleCount; i++) {
+                int offset = i * Double.BYTES;
+                obstacles.add(new Obstacle(payload.getDouble(obstacleXColumn + offset), payload.getDouble(obstacleYColumn + offset),
+                    payload.getDouble(obstacleWidthColumn + offset), payload.getDouble(obstacleHeightColumn + offset)));
+            }
+            obstaclesRead = obstacleCount;
+            SimulationFile.reportProgress(progress, progressTotal, progressTotal);
+
+            succeeded = true;
+            return new SimulationFile.LoadResult(balls, obstacles, (flags & FLAG_GRAVITY_ENABLED) != 0,
+                gravityX, gravityY, springConstant, newBallRadius);
+        } finally {
+            FlightEvents.commitFile(fileEvent, "load", file, ballsRead, obstaclesRead, succeeded);
+        }
+    }
+
+    /**
+     * Inflate a compressed payload, feeding the inflater from the mapped file in chunks and
+     * stopping between chunks if the load was cancelled
+     * @param progress Notified as the payload is inflated, as the first half of the load, or null
+     */
+    private static ByteBuffer inflate(ByteBuffer stored, int payloadLength, File file,
+                                      ProgressListener progress) throws IOException {
+        byte[] payload = new byte[payloadLength];
+        byte[] input = new byte[CHUNK_SIZE];
+        Inflater inflater = new Inflater();
+        try {
+            int inflated = 0;
+            while (inflated < payloadLength && !inflater.finished()) {
+                if (inflater.needsDictionary()) {
+                    throw new IOException("Corrupt compressed .simb file: " + file);
+                }
+                if (inflater.needsInput()) {
+                    if (!stored.hasRemaining()) {
+                        break;
+                    }
+                    int length = Math.min(input.length, stored.remaining());
+                    stored.get(input, 0, length);
+                    inflater.setInput(input, 0, length);
+                }
+                inflated += inflater.inflate(payload, inflated, payloadLength - inflated);
+                SimulationFile.reportProgress(progress, inflated, 2L * payloadLength);
+            }
+            if (inflated != payloadLength) {
+                throw new IOException("Corrupt or truncated .simb file: " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed .simb file: " + file, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,564 @@
+/*
+ * Simulation File - Reading and writing of .sim save files
+ * Shared by the Swing front end and the headless command line tools
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simulation File - Text .sim format with one setting, ball or obstacle per line.
+ * The binary .simb format lives in SimulationBinaryFile; readScene accepts either.
+ * @author Sentinail
+ */
+public class SimulationFile {
+
+    /**
+     * What a load read from the file. Parsing fills it without touching the game state, so it
+     * can happen on a background thread; applyTo then hands the scene over in one update.
+     */
+    public static class LoadResult {
+        private int ballsLoaded;
+        private int obstaclesLoaded;
+        private boolean gravityEnabled = true;
+        private double gravityX;
+        private double gravityY;
+        private double springConstant; // 0 when the file has none
+        private int newBallRadius; // 0 when the file has none
+        private boolean hasGravityEnabled; // Settings missing from the file keep their current value
+        private boolean hasGravityX;
+        private boolean hasGravityY;
+        private List<Ball> balls;
+        private List<Obstacle> obstacles;
+
+        LoadResult() {
+        }
+
+        LoadResult(List<Ball> balls, List<Obstacle> obstacles, boolean gravityEnabled, double gravityX,
+                   double gravityY, double springConstant, int newBallRadius) {
+            this.balls = balls;
+            this.obstacles = obstacles;
+            this.ballsLoaded = balls.size();
+            this.obstaclesLoaded = obstacles.size();
+            this.gravityEnabled = gravityEnabled;
+            this.gravityX = gravityX;
+            this.gravityY = gravityY;
+            this.springConstant = springConstant;
+            this.newBallRadius = newBallRadius;
+            this.hasGravityEnabled = true;
+            this.hasGravityX = true;
+            this.hasGravityY = true;
+        }
+
+        /**
+         * Replace the scene of the game state with the loaded one; call on the simulation thread
+         */
+        public void applyTo(GameState gameState) {
+            if (balls == null) {
+                throw new IllegalStateException("Scene was already applied");
+            }
+            if (!hasGravityEnabled) {
+                gravityEnabled = gameState.isGravityEnabled();
+            }
+            if (!hasGravityX) {
+                gravityX = gameState.getGravityX();
+            }
+            if (!hasGravityY) {
+                gravityY = gameState.getGravityY();
+            }
+            gameState.loadScene(balls, obstacles, gravityEnabled, gravityX, gravityY,
+                springConstant > 0 ? springConstant : gameState.getSpringConstant());
+            balls = null; // The game state owns the balls now
+            obstacles = null;
+        }
+
+        public int getBallsLoaded() {
+            return ballsLoaded;
+        }
+
+        public int getObstaclesLoaded() {
+            return obstaclesLoaded;
+        }
+
+        public boolean isGravityEnabled() {
+            return gravityEnabled;
+        }
+
+        public double getGravityX() {
+            return gravityX;
+        }
+
+        public double getGravityY() {
+            return gravityY;
+        }
+
+        public double getSpringConstant() {
+            return springConstant;
+        }
+
+        public int getNewBallRadius() {
+            return newBallRadius;
+        }
+    }
+
+    private static final int PROGRESS_INTERVAL = 4096; // Items between progress reports
+
+    private SimulationFile() {
+    }
+
+    /**
+     * Write the state of the simulation to a .sim file
+     * @param newBallRadius Radius the control panel uses for new balls
+     */
+    public static void write(File file, GameState gameState, int newBallRadius) throws IOException {
+        write(file, SceneSnapshot.capture(gameState, newBallRadius), null);
+    }
+
+    /**
+     * Write a snapshot to a .sim file; safe to call from any thread
+     * @param progress Notified as balls are written, or null
+     */
+    public static void write(File file, SceneSnapshot scene, ProgressListener progress) throws IOException {
+        FlightEvents.FileEvent fileEvent = FlightEvents.beginFile();
+        boolean succeeded = false;
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            // Save gravity settings
+            writer.println("GRAVITY_ENABLED:" + scene.isGravityEnabled());
+            writer.println("GRAVITY_X:" + scene.getGravityX());
+            writer.println("GRAVITY_Y:" + scene.getGravityY());
+            writer.println("SPRING_CONSTANT: " + scene.getSpringConstant());
+            writer.println("NEW_BALL_RADIUS: " + scene.getNewBallRadius());
+            writer.println("BALL_COUNT:" + scene.getBallCount());
+
+            // Save each ball's state
+            int ballCount = scene.getBallCount();
+            for (int i = 0; i < ballCount; i++) {
+                int color = scene.getBallColor(i);
+                writer.println(String.format("BALL:%.2f,%.2f,%.2f,%.2f,%d,%d,%d,%d",
+                    scene.getBallX(i), scene.getBallY(i),
+                    scene.getBallVelocityX(i), scene.getBallVelocityY(i),
+                    scene.getBallRadius(i),
+                    (color >> 16) & 0xFF,
+                    (color >> 8) & 0xFF,
+                    color & 0xFF
+                ));
+                if (i % PROGRESS_INTERVAL == 0) {
+                    reportProgress(progress, i, ballCount);
+                }
+            }
+
+            writer.println("OBSTACLE_COUNT:" + scene.getObstacleCount());
+            for (int i = 0; i < scene.getObstacleCount(); i++) {
+                writer.println(String.format("OBSTACLE:RECT,%.2f,%.2f,%.2f,%.2f",
+                    scene.getObstacleX(i), scene.getObstacleY(i), scene.getObstacleWidth(i), scene.getObstacleHeight(i)));
+            }
+            if (writer.checkError()) {
+                throw new IOException("Failed to write " + file);
+            }
+            reportProgress(progress, ballCount, ballCount);
+            succeeded = true;
+        } finally {
+            FlightEvents.commitFile(fileEvent, "save", file, scene.getBallCount(), scene.getObstacleCount(), succeeded);
+        }
+    }
+
+    /**
+     * Report progress and stop the operation if its thread was interrupted, e.g. by a cancel
+     */
+    static void reportProgress(ProgressListener progress, long done, long total) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Cancelled");
+        }
+        if (progress != null) {
+            progress.progressChanged(done, total);
+        }
+    }
+
+    /**
+     * Read a scene saved in either the text .sim or the binary .simb format, told apart by the header
+     */
+    public static LoadResult readScene(File file, GameState gameState) throws IOException {
+        LoadResult result = parseScene(file, null);
+        result.applyTo(gameState);
+        return result;
+    }
+
+    /**
+     * Parse a .sim or .simb file without touching any game state; safe to call from any thread
+     * @param progress Notified as the file is read, or null
+     */
+    public static LoadResult parseScene(File file, ProgressListener progress) throws IOException {
+        if (SimulationBinaryFile.isBinaryFile(file)) {
+            return SimulationBinaryFile.parse(file, progress);
+        }
+        return parse(file, progress);
+    }
+
+    /**
+     * Write a scene in the format given by the file extension: binary for .simb, text otherwise
+     */
+    public static void writeScene(File file, GameState gameState, int newBallRadius) throws IOException {
+        writeScene(file, SceneSnapshot.capture(gameState, newBallRadius), null);
+    }
+
+    /**
+     * Write a snapshot in the format given by the file extension. The data goes to a temporary
+     * file that then replaces the target, so an interrupted save never leaves a broken file.
+     */
+    public static void writeScene(File file, SceneSnapshot scene, ProgressListener progress) throws IOException {
+        File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        boolean moved = false;
+        try {
+            if (file.getName().toLowerCase().endsWith("." + SimulationBinaryFile.EXTENSION)) {
+                SimulationBinaryFile.write(temporary, scene, false, progress);
+            } else {
+                write(temporary, scene, progress);
+            }
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary.toPath());
+            }
+        }
+    }
+
+    /**
+     * Replace the balls, obstacles and physics settings of the game state with those in a .sim file.
+     * The whole file is parsed before the game state is touched, which then takes the scene in
+     * one bulk update; a malformed file leaves the current simulation as it was.
+     */
+    public static LoadResult read(File file, GameState gameState) throws IOException {
+        LoadResult result = parse(file, null);
+        result.applyTo(gameState);
+        return result;
+    }
+
+    /**
+     * Parse a .sim file into a LoadResult without touching any game state
+     */
+    static LoadResult parse(File file, ProgressListener progress) throws IOException {
+        LoadResult result = new LoadResult();
+        FlightEvents.FileEvent fileEvent = FlightEvents.beginFile();
+        List<Ball> balls = new ArrayList<>();
+        List<Obstacle> obstacles = new ArrayList<>();
+        boolean succeeded = false;
+        try (Reader reader = new FileReader(file)) {
+            SceneParser parser = new SceneParser(reader, file.length(), progress);
+            double[] values = new double[8];
+
+            while (parser.nextLine()) {
+                if (parser.startsWith("GRAVITY_ENABLED:")) {
+                    result.gravityEnabled = parser.isTrue(16);
+                    result.hasGravityEnabled = true;
+                } else if (parser.startsWith("GRAVITY_X:")) {
+                    result.gravityX = parser.parseDouble(10, parser.length());
+                    result.hasGravityX = true;
+                } else if (parser.startsWith("GRAVITY_Y:")) {
+                    result.gravityY = parser.parseDouble(10, parser.length());
+                    result.hasGravityY = true;
+                } else if (parser.startsWith("SPRING_CONSTANT:")) {
+                    try {
+                        result.springConstant = parser.parseDouble(16, parser.length());
+                    } catch (NumberFormatException ignored) {
+                        // Ignore malformed value to maintain backward compatibility
+                    }
+                } else if (parser.startsWith("NEW_BALL_RADIUS:")) {
+                    try {
+                        result.newBallRadius = parser.parseInt(16, parser.length());
+                    } catch (NumberFormatException ignored) {
+                        // Ignore malformed value for backward compatibility
+                    }
+                } else if (parser.startsWith("BALL_COUNT:")) {
+                    try {
+                        ((ArrayList<Ball>) balls).ensureCapacity(parser.parseInt(11, parser.length()));
+                    } catch (NumberFormatException ignored) {
+                        // The count is only a capacity hint
+                    }
+                } else if (parser.startsWith("BALL:")) {
+                    if (parser.countFields(5) == 8) {
+                        parser.parseDoubles(5, values, 4);
+                        int radius = parser.parseIntField(5, 4);
+                        int r = parser.parseIntField(5, 5);
+                        int g = parser.parseIntField(5, 6);
+                        int b = parser.parseIntField(5, 7);
+                        balls.add(new Ball(values[0], values[1], values[2], values[3], radius, new Color(r, g, b)));
+                    }
+                } else if (parser.startsWith("OBSTACLE:")) {
+                    // Fields are the shape followed by its dimensions; only RECT exists so far
+                    if (parser.countFields(9) >= 5 && parser.fieldEqualsIgnoreCase(9, 0, "RECT")) {
+                        int dimensions = parser.fieldStart(9, 1);
+                        parser.parseDoubles(dimensions, values, 4);
+                        obstacles.add(new Obstacle(values[0], values[1], values[2], values[3]));
+                    }
+                }
+            }
+
+            result.balls = balls;
+            result.obstacles = obstacles;
+            result.ballsLoaded = balls.size();
+            result.obstaclesLoaded = obstacles.size();
+            succeeded = true;
+        } finally {
+            FlightEvents.commitFile(fileEvent, "load", file, balls.size(), obstacles.size(), succeeded);
+        }
+        return result;
+    }
+
+    /**
+     * Streaming .sim parser. Lines are read into a reusable character buffer and numbers are
+     * parsed in place, so loading creates no strings apart from the rare number that needs
+     * the fallback to Double.parseDouble.
+     */
+    private static final class SceneParser {
+        private static final long MAX_EXACT_MANTISSA = 1L << 53;
+        private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        private final Reader reader;
+        private final long totalLength;
+        private final ProgressListener progress;
+        private final char[] buffer = new char[64 * 1024];
+        private long charactersRead;
+        private int bufferPosition;
+        private int bufferLimit;
+        private char[] line = new char[256];
+        private int lineLength;
+
+        SceneParser(Reader reader, long totalLength, ProgressListener progress) {
+            this.reader = reader;
+            this.totalLength = totalLength;
+            this.progress = progress;
+        }
+
+        /**
+         * Read the next line into the line buffer, without its line terminator
+         * @return false at the end of the input
+         */
+        boolean nextLine() throws IOException {
+            lineLength = 0;
+            boolean read = false;
+            while (true) {
+                if (bufferPosition == bufferLimit) {
+                    bufferLimit = reader.read(buffer, 0, buffer.length);
+                    bufferPosition = 0;
+                    if (bufferLimit <= 0) {
+                        bufferLimit = 0;
+                        return read;
+                    }
+                    charactersRead += bufferLimit;
+                    reportProgress(progress, Math.min(charactersRead, totalLength), totalLength);
+                }
+                read = true;
+                char c = buffer[bufferPosition++];
+                if (c == '\n') {
+                    break;
+                }
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = c;
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+            return true;
+        }
+
+        int length() {
+            return lineLength;
+        }
+
+        boolean startsWith(String prefix) {
+            if (lineLength < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (line[i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Same rule as Boolean.parseBoolean for the rest of the line
+         */
+        boolean isTrue(int from) {
+            return regionEqualsIgnoreCase(from, lineLength, "true");
+        }
+
+        private boolean regionEqualsIgnoreCase(int from, int to, String text) {
+            if (to - from != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (Character.toLowerCase(line[from + i]) != Character.toLowerCase(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Number of comma-separated fields from a position to the end of the line
+         */
+        int countFields(int from) {
+            int fields = 1;
+            for (int i = from; i < lineLength; i++) {
+                if (line[i] == ',') {
+                    fields++;
+                }
+            }
+            return fields;
+        }
+
+        int fieldStart(int from, int field) {
+            int position = from;
+            for (int i = 0; i < field; i++) {
+                position = fieldEnd(position) + 1;
+            }
+            return position;
+        }
+
+        private int fieldEnd(int start) {
+            int position = start;
+            while (position < lineLength && line[position] != ',') {
+                position++;
+            }
+            return position;
+        }
+
+        boolean fieldEqualsIgnoreCase(int from, int field, String text) {
+            int start = fieldStart(from, field);
+            int end = fieldEnd(start);
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            return regionEqualsIgnoreCase(start, end, text);
+        }
+
+        /**
+         * Parse a number of consecutive comma-separated doubles into an array
+         */
+        void parseDoubles(int from, double[] values, int count) {
+            int start = from;
+            for (int i = 0; i < count; i++) {
+                int end = fieldEnd(start);
+                values[i] = parseDouble(start, end);
+                start = end + 1;
+            }
+        }
+
+        int parseIntField(int from, int field) {
+            int start = fieldStart(from, field);
+            return parseInt(start, fieldEnd(start));
+        }
+
+        /**
+         * Parse a plain decimal such as -12.34 in place. The digits are collected into an exact
+         * long and divided once by an exact power of ten, which rounds the same way as
+         * Double.parseDouble; anything else, such as exponents, falls back to it.
+         */
+        double parseDouble(int from, int to) {
+            int start = from;
+            int end = to;
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            int position = start;
+            boolean negative = false;
+            if (position < end && (line[position] == '-' || line[position] == '+')) {
+                negative = line[position] == '-';
+                position++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            for (; position < end; position++) {
+                char c = line[position];
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                    if (mantissa >= MAX_EXACT_MANTISSA) {
+                        break;
+                    }
+                } else if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    break;
+                }
+            }
+            if (position < end || digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+                return Double.parseDouble(new String(line, start, end - start));
+            }
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+
+        /**
+         * Parse an int in place with the rules of Integer.parseInt, after trimming whitespace
+         */
+        int parseInt(int from, int to) {
+            int start = from;
+            int end = to;
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            int position = start;
+            boolean negative = false;
+            if (position < end && (line[position] == '-' || line[position] == '+')) {
+                negative = line[position] == '-';
+                position++;
+            }
+            long value = 0;
+            for (; position < end; position++) {
+                char c = line[position];
+                if (c < '0' || c > '9' || value > Integer.MAX_VALUE) {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (position < end || position == start || value > Integer.MAX_VALUE
+                    || (position == start + 1 && !Character.isDigit(line[start]))) {
+                // Let Integer.parseInt produce the usual error, or handle Integer.MIN_VALUE
+                return Integer.parseInt(new String(line, start, end - start));
+            }
+            return (int) (negative ? -value : value);
+        }
+    }
+}
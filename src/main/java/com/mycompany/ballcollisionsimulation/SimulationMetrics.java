@@ -0,0 +1,306 @@
+/*
+ * Simulation Metrics - JMX view of a running simulation
+ * Lets JConsole and JMX scrapers watch and tune long-running instances
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.awt.EventQueue;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Simulation Metrics - Standard MBean over a GameState.
+ * JMX calls arrive on their own threads while the game state belongs to the Swing thread,
+ * so counters are snapshotted after every step and setters are handed to the Swing thread,
+ * where they go through the same GameState setters as the menus.
+ * @author Sentinail
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+    public static final String OBJECT_NAME = "com.mycompany.ballcollisionsimulation:type=SimulationMetrics";
+    private static final int STEP_WINDOW = 1024; // Recent step times used for percentiles
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final GameState gameState;
+    private final long[] stepNanos = new long[STEP_WINDOW];
+    private int recordedSteps;
+
+    // Snapshot taken on the Swing thread after each step
+    private volatile long stepCount;
+    private volatile int ballCount;
+    private volatile int obstacleCount;
+    private volatile long droppedEventCount;
+    private volatile double collisionsPerSecond;
+    private volatile boolean gravityEnabled;
+    private volatile double gravityX;
+    private volatile double gravityY;
+    private volatile double springConstant;
+    private volatile double wallRestitution;
+    private volatile double obstacleRestitution;
+    private volatile double dragDamping;
+    private volatile int substeps;
+    private volatile GameState.Broadphase broadphase;
+    private volatile boolean obstacleDistanceField;
+    private long rateWindowStart = -1;
+    private long rateWindowCollisions;
+
+    public SimulationMetrics(GameState gameState) {
+        this.gameState = gameState;
+        recordStep();
+    }
+
+    /**
+     * Register with the platform MBean server so JConsole can find it
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * Take a snapshot of the game state; called on the Swing thread after every physics step
+     */
+    public void recordStep() {
+        synchronized (stepNanos) {
+            if (gameState.getStepCount() > stepCount) {
+                stepNanos[recordedSteps % STEP_WINDOW] = gameState.getLastStepNanos();
+                recordedSteps++;
+            }
+        }
+        stepCount = gameState.getStepCount();
+        ballCount = gameState.getBalls().size();
+        obstacleCount = gameState.getObstacles().size();
+        droppedEventCount = gameState.getDroppedEventCount();
+        gravityEnabled = gameState.isGravityEnabled();
+        gravityX = gameState.getGravityX();
+        gravityY = gameState.getGravityY();
+        springConstant = gameState.getSpringConstant();
+        wallRestitution = gameState.getWallRestitution();
+        obstacleRestitution = gameState.getObstacleRestitution();
+        dragDamping = gameState.getDragDamping();
+        substeps = gameState.getSubsteps();
+        broadphase = gameState.getBroadphase();
+        obstacleDistanceField = gameState.isObstacleFieldEnabled();
+
+        long now = System.nanoTime();
+        long collisions = gameState.getTotalCollisionCount();
+        if (rateWindowStart < 0) {
+            rateWindowStart = now;
+            rateWindowCollisions = collisions;
+        } else if (now - rateWindowStart >= RATE_INTERVAL_NANOS) {
+            collisionsPerSecond = (collisions - rateWindowCollisions) * 1e9 / (now - rateWindowStart);
+            rateWindowStart = now;
+            rateWindowCollisions = collisions;
+        }
+    }
+
+    @Override
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    @Override
+    public double getStepTimeP50Millis() {
+        return stepTimePercentile(0.50);
+    }
+
+    @Override
+    public double getStepTimeP99Millis() {
+        return stepTimePercentile(0.99);
+    }
+
+    @Override
+    public double getStepTimeMaxMillis() {
+        return stepTimePercentile(1.0);
+    }
+
+    private double stepTimePercentile(double percentile) {
+        long[] sorted;
+        synchronized (stepNanos) {
+            sorted = Arrays.copyOf(stepNanos, Math.min(recordedSteps, STEP_WINDOW));
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    @Override
+    public double getCollisionsPerSecond() {
+        return collisionsPerSecond;
+    }
+
+    @Override
+    public int getBallCount() {
+        return ballCount;
+    }
+
+    @Override
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    /**
+     * Used heap divided by the number of balls; a rough figure that includes everything
+     * else on the heap, useful for watching growth as scenes get larger
+     */
+    @Override
+    public double getHeapBytesPerBall() {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        int balls = ballCount;
+        return balls > 0 ? (double) used / balls : 0;
+    }
+
+    @Override
+    public boolean isGravityEnabled() {
+        return gravityEnabled;
+    }
+
+    @Override
+    public void setGravityEnabled(boolean enabled) {
+        EventQueue.invokeLater(() -> {
+            if (gameState.isGravityEnabled() != enabled) {
+                gameState.toggleGravity();
+            }
+        });
+    }
+
+    @Override
+    public double getGravityX() {
+        return gravityX;
+    }
+
+    @Override
+    public void setGravityX(double gravityX) {
+        checkFinite("Gravity X", gravityX);
+        EventQueue.invokeLater(() -> gameState.setGravityDirection(gravityX, gameState.getGravityY()));
+    }
+
+    @Override
+    public double getGravityY() {
+        return gravityY;
+    }
+
+    @Override
+    public void setGravityY(double gravityY) {
+        checkFinite("Gravity Y", gravityY);
+        EventQueue.invokeLater(() -> gameState.setGravityDirection(gameState.getGravityX(), gravityY));
+    }
+
+    @Override
+    public double getSpringConstant() {
+        return springConstant;
+    }
+
+    @Override
+    public void setSpringConstant(double springConstant) {
+        if (!(springConstant > 0)) {
+            throw new IllegalArgumentException("Spring constant must be positive");
+        }
+        EventQueue.invokeLater(() -> gameState.setSpringConstant(springConstant));
+    }
+
+    @Override
+    public double getWallRestitution() {
+        return wallRestitution;
+    }
+
+    @Override
+    public void setWallRestitution(double wallRestitution) {
+        checkFraction("Wall restitution", wallRestitution);
+        EventQueue.invokeLater(() -> gameState.setWallRestitution(wallRestitution));
+    }
+
+    @Override
+    public double getObstacleRestitution() {
+        return obstacleRestitution;
+    }
+
+    @Override
+    public void setObstacleRestitution(double obstacleRestitution) {
+        checkFraction("Obstacle restitution", obstacleRestitution);
+        EventQueue.invokeLater(() -> gameState.setObstacleRestitution(obstacleRestitution));
+    }
+
+    @Override
+    public double getDragDamping() {
+        return dragDamping;
+    }
+
+    @Override
+    public void setDragDamping(double dragDamping) {
+        checkFraction("Drag damping", dragDamping);
+        EventQueue.invokeLater(() -> gameState.setDragDamping(dragDamping));
+    }
+
+    /**
+     * Reject bad values here, where JConsole shows the error, rather than later on the Swing thread
+     */
+    private static void checkFraction(String name, double value) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+    }
+
+    private static void checkFinite(String name, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(name + " must be a finite number");
+        }
+    }
+
+    @Override
+    public int getSubsteps() {
+        return substeps;
+    }
+
+    @Override
+    public void setSubsteps(int substeps) {
+        if (substeps < 1 || substeps > GameState.MAX_SUBSTEPS) {
+            throw new IllegalArgumentException("Substeps must be between 1 and " + GameState.MAX_SUBSTEPS);
+        }
+        EventQueue.invokeLater(() -> gameState.setSubsteps(substeps));
+    }
+
+    @Override
+    public String getBroadphase() {
+        return broadphase.name();
+    }
+
+    /**
+     * @param broadphase ALL_PAIRS or SORT_AND_SWEEP
+     */
+    @Override
+    public void setBroadphase(String broadphase) {
+        GameState.Broadphase value;
+        try {
+            value = GameState.Broadphase.valueOf(broadphase.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Broadphase must be one of " + Arrays.toString(GameState.Broadphase.values()));
+        }
+        EventQueue.invokeLater(() -> gameState.setBroadphase(value));
+    }
+
+    @Override
+    public boolean isObstacleDistanceField() {
+        return obstacleDistanceField;
+    }
+
+    @Override
+    public void setObstacleDistanceField(boolean enabled) {
+        EventQueue.invokeLater(() -> gameState.setObstacleFieldEnabled(enabled));
+    }
+}
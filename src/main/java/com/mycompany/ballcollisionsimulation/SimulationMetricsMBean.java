@@ -0,0 +1,72 @@
+/*
+ * Simulation Metrics MBean - Management interface for JMX clients
+ * Attributes show up in JConsole under com.mycompany.ballcollisionsimulation
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+/**
+ * Simulation Metrics MBean - Read-only counters and live physics tunables
+ * @author Sentinail
+ */
+public interface SimulationMetricsMBean {
+    // Counters
+    long getStepCount();
+
+    double getStepTimeP50Millis();
+
+    double getStepTimeP99Millis();
+
+    double getStepTimeMaxMillis();
+
+    double getCollisionsPerSecond();
+
+    int getBallCount();
+
+    int getObstacleCount();
+
+    long getDroppedEventCount();
+
+    double getHeapBytesPerBall();
+
+    // Tunables
+    boolean isGravityEnabled();
+
+    void setGravityEnabled(boolean enabled);
+
+    double getGravityX();
+
+    void setGravityX(double gravityX);
+
+    double getGravityY();
+
+    void setGravityY(double gravityY);
+
+    double getSpringConstant();
+
+    void setSpringConstant(double springConstant);
+
+    double getWallRestitution();
+
+    void setWallRestitution(double wallRestitution);
+
+    double getObstacleRestitution();
+
+    void setObstacleRestitution(double obstacleRestitution);
+
+    double getDragDamping();
+
+    void setDragDamping(double dragDamping);
+
+    int getSubsteps();
+
+    void setSubsteps(int substeps);
+
+    String getBroadphase();
+
+    void setBroadphase(String broadphase);
+
+    boolean isObstacleDistanceField();
+
+    void setObstacleDistanceField(boolean enabled);
+}
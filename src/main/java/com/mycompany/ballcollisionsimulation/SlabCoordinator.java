@@ -0,0 +1,323 @@
+/*
+ * Slab Coordinator - Distributed simulation across worker processes on one host
+ * Splits the world into vertical slabs, starts a worker JVM per slab and gathers the result
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slab Coordinator - Runs one scene on several SlabWorker processes, each holding only the
+ * balls of its own vertical slab. The coordinator listens on a loopback port, starts the
+ * workers with the same Java and class path, deals out the balls by x, then waits for every
+ * worker to send its balls back after the last step. Neighbouring workers talk to each other
+ * directly; the coordinator takes no part in the steps.
+ * <p>
+ * The halo, how far from a border balls are copied to the neighbour, must cover the reach of
+ * any pair that can collide across the border within one step. By default it is four times
+ * the largest radius plus twice the farthest a ball can travel in a step, with gravity
+ * allowed to turn the whole world's height into speed.
+ * <p>
+ * Workers resolve collisions in the same order as the single-process engine, so a run gives
+ * bit-identical results as long as no chain of contacts reaches past the halo within one
+ * step. Dense resting piles across a border can form such chains; there the runs drift apart
+ * like runs with any other collision order.
+ * @author Sentinail
+ */
+public class SlabCoordinator {
+    private static final int CONNECT_TIMEOUT_MS = 60_000; // Time for all workers to start and connect
+
+    /**
+     * The final balls in scene order, with timing
+     */
+    public static class Result {
+        private final List<Ball> balls;
+        private final long runNanos;
+        private final double halo;
+
+        private Result(List<Ball> balls, long runNanos, double halo) {
+            this.balls = balls;
+            this.runNanos = runNanos;
+            this.halo = halo;
+        }
+
+        public List<Ball> getBalls() {
+            return balls;
+        }
+
+        /**
+         * Time from dealing out the balls to receiving the last result
+         */
+        public long getRunNanos() {
+            return runNanos;
+        }
+
+        public double getHalo() {
+            return halo;
+        }
+    }
+
+    private int workers = 2;
+    private int steps = 600;
+    private int physicsRate = FixedStepClock.DEFAULT_PHYSICS_RATE;
+    private double halo = -1; // Negative to derive it from the scene
+    private String workerHeap; // -Xmx value for the workers, or null for the JVM default
+    private PrintStream progress = System.err;
+
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1");
+        }
+        this.workers = workers;
+    }
+
+    public void setSteps(int steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("Step count must not be negative");
+        }
+        this.steps = steps;
+    }
+
+    public void setPhysicsRate(int physicsRate) {
+        if (physicsRate <= 0) {
+            throw new IllegalArgumentException("Physics rate must be positive");
+        }
+        this.physicsRate = physicsRate;
+    }
+
+    /**
+     * Width of the border strip copied to each neighbour every step, or a negative value to
+     * derive it from the scene
+     */
+    public void setHalo(double halo) {
+        this.halo = halo;
+    }
+
+    /**
+     * Maximum heap of each worker JVM, e.g. "4g"
+     */
+    public void setWorkerHeap(String workerHeap) {
+        this.workerHeap = workerHeap;
+    }
+
+    /**
+     * Where to print worker statistics, or null for none
+     */
+    public void setProgressStream(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Default halo for a scene: any two balls that can touch by the end of a step start
+     * within this distance of each other, with room for short chains of collisions
+     */
+    public double defaultHalo(GameState scene) {
+        double maxRadius = 0;
+        double maxSpeed = 0;
+        for (Ball ball : scene.getBalls()) {
+            maxRadius = Math.max(maxRadius, ball.getRadius());
+            maxSpeed = Math.max(maxSpeed, Math.hypot(ball.getVelocityX(), ball.getVelocityY()));
+        }
+        double gravity = scene.isGravityEnabled() ? Math.hypot(scene.getGravityX(), scene.getGravityY()) : 0;
+        double deltaTime = 1.0 / physicsRate;
+        double fall = Math.hypot(scene.getWorldWidth(), scene.getWorldHeight());
+        double speed = Math.sqrt(maxSpeed * maxSpeed + 2 * gravity * fall);
+        return 4 * maxRadius + 2 * (speed * deltaTime + gravity * deltaTime * deltaTime);
+    }
+
+    /**
+     * Run the scene's balls for the configured steps on the worker processes. The scene's world
+     * size, physics settings and obstacles are given to every worker; the scene itself is not
+     * changed.
+     */
+    public Result run(GameState scene) throws IOException, InterruptedException {
+        int width = scene.getWorldWidth();
+        int height = scene.getWorldHeight();
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The scene needs a world size");
+        }
+        double haloWidth = halo >= 0 ? halo : defaultHalo(scene);
+        double slabWidth = (double) width / workers;
+        if (workers > 1 && slabWidth < haloWidth) {
+            throw new IllegalArgumentException(String.format(
+                "Slabs of %.0f px are narrower than the %.0f px halo; use fewer workers or a wider world",
+                slabWidth, haloWidth));
+        }
+
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        List<DataInputStream> inputs = new ArrayList<>();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(0, workers, loopback)) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MS);
+            for (int i = 0; i < workers; i++) {
+                processes.add(startWorker(server.getLocalPort()));
+            }
+
+            // Workers are numbered in the order they connect
+            int[] neighbourPorts = new int[workers];
+            for (int i = 0; i < workers; i++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Only " + i + " of " + workers + " workers connected");
+                }
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                DataInputStream in = SlabWorker.input(socket);
+                inputs.add(in);
+                if (in.readInt() != SlabWorker.HELLO) {
+                    throw new IOException("Unexpected connection on the coordinator port");
+                }
+                neighbourPorts[i] = in.readInt();
+            }
+
+            long start = System.nanoTime();
+            List<List<SlabWorker.Particle>> slabs = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                slabs.add(new ArrayList<SlabWorker.Particle>());
+            }
+            List<Ball> balls = scene.getBalls();
+            for (int id = 0; id < balls.size(); id++) {
+                Ball ball = balls.get(id);
+                int slab = (int) Math.floor(ball.getX() / slabWidth);
+                slabs.get(Math.max(0, Math.min(workers - 1, slab))).add(new SlabWorker.Particle(id, ball));
+            }
+            for (int i = 0; i < workers; i++) {
+                sendSetup(SlabWorker.output(sockets.get(i)), scene, i, i + 1 < workers ? neighbourPorts[i + 1] : -1,
+                    slabWidth, haloWidth, slabs.get(i));
+                slabs.set(i, null);
+            }
+
+            List<SlabWorker.Particle> finished = new ArrayList<>(balls.size());
+            for (int i = 0; i < workers; i++) {
+                SlabWorker.Report report;
+                try {
+                    report = SlabWorker.Report.read(inputs.get(i));
+                } catch (EOFException e) {
+                    throw new IOException("Worker " + i + " exited before sending its result", e);
+                }
+                finished.addAll(report.particles);
+                if (progress != null) {
+                    progress.printf("Worker %d: %d balls, physics %.0f ms, exchange %.0f ms, %d ghosts received, %d balls migrated%n",
+                        i, report.particles.size(), report.stepNanos / 1e6, report.exchangeNanos / 1e6,
+                        report.ghostsReceived, report.migrated);
+                }
+            }
+            long runNanos = System.nanoTime() - start;
+
+            if (finished.size() != balls.size()) {
+                throw new IOException("Workers returned " + finished.size() + " of " + balls.size() + " balls");
+            }
+            finished.sort(SlabWorker.BY_ID);
+            List<Ball> result = new ArrayList<>(finished.size());
+            for (SlabWorker.Particle particle : finished) {
+                result.add(particle.ball);
+            }
+            for (Process process : processes) {
+                process.waitFor(10, TimeUnit.SECONDS);
+            }
+            return new Result(result, runNanos, haloWidth);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Start a worker JVM with this JVM's java executable and class path
+     */
+    private Process startWorker(int coordinatorPort) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Djava.awt.headless=true");
+        if (workerHeap != null) {
+            command.add("-Xmx" + workerHeap);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BallCollisionSimulation.class.getName());
+        command.add("slab-worker");
+        command.add("--coordinator");
+        command.add(Integer.toString(coordinatorPort));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Send a worker its slab, the physics settings and obstacles, and its starting balls,
+     * in the order SlabWorker reads them
+     */
+    private void sendSetup(DataOutputStream out, GameState scene, int index, int rightPort, double slabWidth,
+                           double haloWidth, List<SlabWorker.Particle> particles) throws IOException {
+        out.writeInt(index);
+        out.writeInt(workers);
+        out.writeInt(rightPort);
+        if (index > 0) {
+            out.writeDouble(index * slabWidth);
+        }
+        if (index < workers - 1) {
+            out.writeDouble((index + 1) * slabWidth);
+        }
+        out.writeDouble(haloWidth);
+        out.writeInt(scene.getWorldWidth());
+        out.writeInt(scene.getWorldHeight());
+        out.writeInt(steps);
+        out.writeDouble(1.0 / physicsRate);
+
+        out.writeBoolean(scene.isGravityEnabled());
+        out.writeDouble(scene.getGravityX());
+        out.writeDouble(scene.getGravityY());
+        out.writeDouble(scene.getSpringConstant());
+        out.writeDouble(scene.getWallRestitution());
+        out.writeDouble(scene.getObstacleRestitution());
+        out.writeDouble(scene.getDragDamping());
+        out.writeInt(scene.getSubsteps());
+        out.writeInt(scene.getBroadphase().ordinal());
+        out.writeBoolean(scene.isObstacleFieldEnabled());
+
+        out.writeInt(scene.getObstacles().size());
+        for (Obstacle obstacle : scene.getObstacles()) {
+            out.writeDouble(obstacle.getX());
+            out.writeDouble(obstacle.getY());
+            out.writeDouble(obstacle.getWidth());
+            out.writeDouble(obstacle.getHeight());
+        }
+        SlabWorker.writeParticles(out, particles);
+        out.flush();
+    }
+
+    /**
+     * Largest distance between the same ball in two runs of a scene, for checking a
+     * distributed run against the single-process engine
+     */
+    public static double maxDeviation(List<Ball> expected, List<Ball> actual) {
+        if (expected.size() != actual.size()) {
+            throw new IllegalArgumentException("Runs have " + expected.size() + " and " + actual.size() + " balls");
+        }
+        double max = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            Ball a = expected.get(i);
+            Ball b = actual.get(i);
+            max = Math.max(max, Math.hypot(a.getX() - b.getX(), a.getY() - b.getY()));
+        }
+        return max;
+    }
+}
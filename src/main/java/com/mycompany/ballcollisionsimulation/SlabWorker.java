@@ -0,0 +1,362 @@
+/*
+ * Slab Worker - One process of a distributed run
+ * Simulates the balls of one vertical slab of the world and trades border balls with its neighbours
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Slab Worker - Started by the SlabCoordinator as a separate JVM. It owns the balls whose
+ * centers lie in [left, right) and keeps a full GameState for them plus ghost copies of the
+ * neighbours' balls within the halo of each border. Every step it:
+ * <ol>
+ *   <li>hands balls that crossed a border in the last step to that neighbour, and sends
+ *       copies of its balls near each border, in one message per neighbour,</li>
+ *   <li>steps its balls and the ghosts together in global ball order, so pairs across the
+ *       border are resolved exactly as the single-process engine resolves them,</li>
+ *   <li>drops the ghosts.</li>
+ * </ol>
+ * All traffic is length-prefixed records over loopback TCP; a send thread writes while the
+ * main thread reads, so two neighbours sending at once cannot block each other.
+ * @author Sentinail
+ */
+public class SlabWorker {
+    static final int HELLO = 0x534C4142; // "SLAB", first word a worker sends the coordinator
+
+    /**
+     * A ball with its index in the scene, which fixes its place in the step order
+     */
+    static class Particle {
+        final int id;
+        final Ball ball;
+
+        Particle(int id, Ball ball) {
+            this.id = id;
+            this.ball = ball;
+        }
+    }
+
+    static final Comparator<Particle> BY_ID = Comparator.comparingInt(p -> p.id);
+
+    private final GameState gameState = new GameState();
+    private final List<Particle> local = new ArrayList<>();
+    private int index;
+    private int workerCount;
+    private double left;
+    private double right;
+    private double halo;
+    private int worldWidth;
+    private int worldHeight;
+    private int steps;
+    private double deltaTime;
+    private long stepNanos; // Time in GameState.updateBalls
+    private long exchangeNanos; // Time waiting for neighbours
+    private long ghostsReceived;
+    private long migrated;
+
+    private SlabWorker() {
+    }
+
+    /**
+     * Worker entry point: connect to the coordinator on this host, run the slab it assigns,
+     * and send the final balls back
+     */
+    public static void run(int coordinatorPort) throws IOException, InterruptedException {
+        SlabWorker worker = new SlabWorker();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (Socket coordinator = new Socket(loopback, coordinatorPort);
+             ServerSocket neighbourServer = new ServerSocket(0, 1, loopback)) {
+            coordinator.setTcpNoDelay(true);
+            DataOutputStream toCoordinator = output(coordinator);
+            DataInputStream fromCoordinator = input(coordinator);
+            toCoordinator.writeInt(HELLO);
+            toCoordinator.writeInt(neighbourServer.getLocalPort());
+            toCoordinator.flush();
+
+            int rightPort = worker.readSetup(fromCoordinator);
+
+            // Connect to the right neighbour, whose server is already listening, then accept the left
+            Socket rightSocket = rightPort >= 0 ? new Socket(loopback, rightPort) : null;
+            Socket leftSocket = worker.index > 0 ? neighbourServer.accept() : null;
+            ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "slab-send-" + worker.index);
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Link leftLink = leftSocket != null ? new Link(leftSocket) : null;
+                Link rightLink = rightSocket != null ? new Link(rightSocket) : null;
+                worker.simulate(leftLink, rightLink, sender);
+            } finally {
+                sender.shutdownNow();
+                if (leftSocket != null) {
+                    leftSocket.close();
+                }
+                if (rightSocket != null) {
+                    rightSocket.close();
+                }
+            }
+            worker.writeResult(toCoordinator);
+        }
+    }
+
+    /**
+     * Read the slab bounds, physics settings, obstacles and starting balls
+     * @return Port of the right neighbour's server, or -1 for the last slab
+     */
+    private int readSetup(DataInputStream in) throws IOException {
+        index = in.readInt();
+        workerCount = in.readInt();
+        int rightPort = in.readInt();
+        left = index == 0 ? Double.NEGATIVE_INFINITY : in.readDouble();
+        right = index == workerCount - 1 ? Double.POSITIVE_INFINITY : in.readDouble();
+        halo = in.readDouble();
+        worldWidth = in.readInt();
+        worldHeight = in.readInt();
+        steps = in.readInt();
+        deltaTime = in.readDouble();
+
+        boolean gravityEnabled = in.readBoolean();
+        double gravityX = in.readDouble();
+        double gravityY = in.readDouble();
+        double springConstant = in.readDouble();
+        gameState.setWallRestitution(in.readDouble());
+        gameState.setObstacleRestitution(in.readDouble());
+        gameState.setDragDamping(in.readDouble());
+        gameState.setSubsteps(in.readInt());
+        gameState.setBroadphase(GameState.Broadphase.values()[in.readInt()]);
+        gameState.setObstacleFieldEnabled(in.readBoolean());
+
+        int obstacleCount = in.readInt();
+        List<Obstacle> obstacles = new ArrayList<>(obstacleCount);
+        for (int i = 0; i < obstacleCount; i++) {
+            obstacles.add(new Obstacle(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble()));
+        }
+        readParticles(in, local);
+        gameState.loadScene(new ArrayList<Ball>(), obstacles, gravityEnabled, gravityX, gravityY, springConstant);
+        gameState.setWorldSize(worldWidth, worldHeight);
+        return rightPort;
+    }
+
+    private void simulate(Link leftLink, Link rightLink, ExecutorService sender)
+            throws IOException, InterruptedException {
+        Exchange toLeft = new Exchange();
+        Exchange toRight = new Exchange();
+        Exchange fromLeft = new Exchange();
+        Exchange fromRight = new Exchange();
+        List<Particle> combined = new ArrayList<>();
+        List<Ball> stepBalls = new ArrayList<>();
+
+        for (int step = 0; step < steps; step++) {
+            long start = System.nanoTime();
+            toLeft.clear();
+            toRight.clear();
+            int kept = 0;
+            for (Particle particle : local) {
+                double x = particle.ball.getX();
+                if (x < left) {
+                    toLeft.migrants.add(particle); // Centered in the neighbour's slab after the last step
+                } else if (x >= right) {
+                    toRight.migrants.add(particle);
+                } else {
+                    local.set(kept++, particle);
+                    if (leftLink != null && x - left < halo) {
+                        toLeft.ghosts.add(particle); // May touch a ball across the border this step
+                    }
+                    if (rightLink != null && right - x <= halo) {
+                        toRight.ghosts.add(particle);
+                    }
+                }
+            }
+            local.subList(kept, local.size()).clear();
+            migrated += toLeft.migrants.size() + toRight.migrants.size();
+            exchange(leftLink, toLeft, fromLeft, rightLink, toRight, fromRight, sender);
+            local.addAll(fromLeft.migrants);
+            local.addAll(fromRight.migrants);
+            ghostsReceived += fromLeft.ghosts.size() + fromRight.ghosts.size();
+            exchangeNanos += System.nanoTime() - start;
+
+            // The neighbour's balls near the border are its ghosts plus the balls just handed to it,
+            // whose state this worker already has
+            combined.clear();
+            combined.addAll(local);
+            combined.addAll(fromLeft.ghosts);
+            combined.addAll(toLeft.migrants);
+            combined.addAll(fromRight.ghosts);
+            combined.addAll(toRight.migrants);
+            combined.sort(BY_ID);
+            stepBalls.clear();
+            for (Particle particle : combined) {
+                stepBalls.add(particle.ball);
+            }
+
+            // Step local balls and ghosts together, in the order the single-process engine uses
+            gameState.swapBalls(stepBalls);
+            gameState.updateBalls(worldWidth, worldHeight, deltaTime);
+            stepNanos += gameState.getLastStepNanos();
+        }
+        gameState.swapBalls(new ArrayList<Ball>());
+    }
+
+    /**
+     * What one worker sends a neighbour each step: balls it hands over, then ghost copies
+     */
+    private static class Exchange {
+        final List<Particle> migrants = new ArrayList<>();
+        final List<Particle> ghosts = new ArrayList<>();
+
+        void clear() {
+            migrants.clear();
+            ghosts.clear();
+        }
+    }
+
+    /**
+     * Send to each neighbour on the send thread while reading what they sent on this one
+     */
+    private static void exchange(Link leftLink, Exchange toLeft, Exchange fromLeft,
+                                 Link rightLink, Exchange toRight, Exchange fromRight,
+                                 ExecutorService sender) throws IOException, InterruptedException {
+        Future<?> sent = sender.submit(() -> {
+            if (leftLink != null) {
+                writeParticles(leftLink.out, toLeft.migrants);
+                writeParticles(leftLink.out, toLeft.ghosts);
+                leftLink.out.flush();
+            }
+            if (rightLink != null) {
+                writeParticles(rightLink.out, toRight.migrants);
+                writeParticles(rightLink.out, toRight.ghosts);
+                rightLink.out.flush();
+            }
+            return null;
+        });
+        fromLeft.clear();
+        fromRight.clear();
+        try {
+            if (leftLink != null) {
+                readParticles(leftLink.in, fromLeft.migrants);
+                readParticles(leftLink.in, fromLeft.ghosts);
+            }
+            if (rightLink != null) {
+                readParticles(rightLink.in, fromRight.migrants);
+                readParticles(rightLink.in, fromRight.ghosts);
+            }
+        } catch (EOFException e) {
+            throw new IOException("A neighbouring worker closed its connection", e);
+        }
+        try {
+            sent.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Sending to a neighbour failed", e.getCause());
+        }
+    }
+
+    private void writeResult(DataOutputStream out) throws IOException {
+        local.sort(BY_ID);
+        out.writeLong(stepNanos);
+        out.writeLong(exchangeNanos);
+        out.writeLong(ghostsReceived);
+        out.writeLong(migrated);
+        writeParticles(out, local);
+        out.flush();
+    }
+
+    /**
+     * Both directions of the connection to one neighbour
+     */
+    private static class Link {
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Link(Socket socket) throws IOException {
+            socket.setTcpNoDelay(true);
+            in = input(socket);
+            out = output(socket);
+        }
+    }
+
+    static DataInputStream input(Socket socket) throws IOException {
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+    }
+
+    static DataOutputStream output(Socket socket) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+    }
+
+    /**
+     * Write a count followed by one fixed-size record per ball; doubles travel bit for bit,
+     * so a ghost steps exactly like the ball it copies
+     */
+    static void writeParticles(DataOutputStream out, List<Particle> particles) throws IOException {
+        out.writeInt(particles.size());
+        for (Particle particle : particles) {
+            Ball ball = particle.ball;
+            out.writeInt(particle.id);
+            out.writeDouble(ball.getX());
+            out.writeDouble(ball.getY());
+            out.writeDouble(ball.getVelocityX());
+            out.writeDouble(ball.getVelocityY());
+            out.writeInt(ball.getRadius());
+            out.writeInt(ball.getColor().getRGB() & 0xFFFFFF);
+        }
+    }
+
+    static void readParticles(DataInputStream in, List<Particle> particles) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad ball count from peer: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            double x = in.readDouble();
+            double y = in.readDouble();
+            double vx = in.readDouble();
+            double vy = in.readDouble();
+            int radius = in.readInt();
+            Color color = new Color(in.readInt());
+            particles.add(new Particle(id, new Ball(x, y, vx, vy, radius, color)));
+        }
+    }
+
+    /**
+     * Statistics a worker reports with its final balls
+     */
+    static class Report {
+        long stepNanos;
+        long exchangeNanos;
+        long ghostsReceived;
+        long migrated;
+        final List<Particle> particles = new ArrayList<>();
+
+        static Report read(DataInputStream in) throws IOException {
+            Report report = new Report();
+            report.stepNanos = in.readLong();
+            report.exchangeNanos = in.readLong();
+            report.ghostsReceived = in.readLong();
+            report.migrated = in.readLong();
+            readParticles(in, report.particles);
+            return report;
+        }
+    }
+}
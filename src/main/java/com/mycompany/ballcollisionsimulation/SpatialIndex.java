@@ -0,0 +1,755 @@
+/*
+ * Spatial Index - Uniform grids over balls and obstacles
+ * Answers picking, range, nearest-neighbour and ray queries without scanning every object
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial Index - Buckets balls by center into cells at least one ball wide, and obstacles
+ * into every cell they overlap. A query only visits the cells around it. The obstacle cells
+ * are filled with a counting sort, so a rebuild is two passes over the obstacles and
+ * allocates nothing once the arrays have grown. The ball cells are linked lists instead, so
+ * after a physics step only the balls that crossed into another cell are relinked; the grid
+ * is built with a margin for the balls to move into, and only rebuilt once one leaves it or
+ * balls are added or removed. GameState decides when to move and when to rebuild.
+ * @author Sentinail
+ */
+public class SpatialIndex {
+    private static final double MIN_OBSTACLE_CELL = 8.0; // Keeps tiny obstacles from making a huge grid
+    private static final int MIN_CELLS = 64;
+    private static final int BALL_MARGIN_CELLS = 2; // Room around the balls before a move forces a rebuild
+
+    /**
+     * The first ball or obstacle along a ray
+     */
+    public static class RayHit {
+        private final Ball ball;
+        private final Obstacle obstacle;
+        private final double distance;
+        private final double x;
+        private final double y;
+        private final double normalX;
+        private final double normalY;
+
+        private RayHit(Ball ball, Obstacle obstacle, double distance, double x, double y,
+                       double normalX, double normalY) {
+            this.ball = ball;
+            this.obstacle = obstacle;
+            this.distance = distance;
+            this.x = x;
+            this.y = y;
+            this.normalX = normalX;
+            this.normalY = normalY;
+        }
+
+        /**
+         * The ball that was hit, or null if the ray hit an obstacle
+         */
+        public Ball getBall() {
+            return ball;
+        }
+
+        /**
+         * The obstacle that was hit, or null if the ray hit a ball
+         */
+        public Obstacle getObstacle() {
+            return obstacle;
+        }
+
+        /**
+         * Distance along the ray to the hit, 0 if the ray starts inside the object
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * Unit surface normal at the hit, facing back along the ray for hits from inside
+         */
+        public double getNormalX() {
+            return normalX;
+        }
+
+        public double getNormalY() {
+            return normalY;
+        }
+    }
+
+    /**
+     * Called for each cell a ray crosses, nearest first
+     * @return False to stop walking
+     */
+    private interface CellVisitor {
+        boolean visit(int column, int row, double entryDistance);
+    }
+
+    /**
+     * A uniform grid whose cells list object indices, stored as one array sliced by cellStart
+     */
+    private static final class Grid {
+        double originX;
+        double originY;
+        double cellSize = 1;
+        int columns;
+        int rows;
+        int[] cellStart = new int[1]; // Entries of cell c are entries[cellStart[c]] to entries[cellStart[c + 1] - 1]
+        int[] entries = new int[0];
+
+        void resize(double minX, double minY, double maxX, double maxY, double cellSize, int maxCells) {
+            double width = maxX - minX;
+            double height = maxY - minY;
+            if ((width / cellSize + 1) * (height / cellSize + 1) > maxCells) {
+                cellSize = Math.max(cellSize, Math.sqrt(width * height / maxCells) + 1e-9);
+                while ((Math.floor(width / cellSize) + 1) * (Math.floor(height / cellSize) + 1) > maxCells) {
+                    cellSize *= 1.1;
+                }
+            }
+            this.cellSize = cellSize;
+            originX = minX;
+            originY = minY;
+            columns = (int) (width / cellSize) + 1;
+            rows = (int) (height / cellSize) + 1;
+            int cells = columns * rows;
+            if (cellStart.length < cells + 1) {
+                cellStart = new int[cells + 1];
+            } else {
+                Arrays.fill(cellStart, 0, cells + 1, 0);
+            }
+        }
+
+        int column(double x) {
+            return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - originX) / cellSize)));
+        }
+
+        int row(double y) {
+            return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellSize)));
+        }
+
+        /**
+         * Turn per-cell counts in cellStart[c + 1] into start offsets, ready for filling
+         */
+        void countsToOffsets(int entryCount) {
+            int cells = columns * rows;
+            for (int c = 0; c < cells; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            if (entries.length < entryCount) {
+                entries = new int[Math.max(entryCount, entries.length * 2)];
+            }
+        }
+
+        /**
+         * Visit the cells crossed by a ray with a unit direction, in order (Amanatides-Woo)
+         */
+        void walk(double originX, double originY, double directionX, double directionY,
+                  double maxDistance, CellVisitor visitor) {
+            if (columns == 0) {
+                return;
+            }
+            // Clip the ray to the grid
+            double enter = 0;
+            double exit = maxDistance;
+            double[] range = {enter, exit};
+            if (!clipSlab(originX, directionX, this.originX, this.originX + columns * cellSize, range)
+                || !clipSlab(originY, directionY, this.originY, this.originY + rows * cellSize, range)) {
+                return;
+            }
+            enter = range[0];
+            exit = range[1];
+
+            int column = column(originX + directionX * enter);
+            int row = row(originY + directionY * enter);
+            int stepX = directionX > 0 ? 1 : -1;
+            int stepY = directionY > 0 ? 1 : -1;
+            double nextX = directionX == 0 ? Double.POSITIVE_INFINITY
+                : (this.originX + (column + (stepX > 0 ? 1 : 0)) * cellSize - originX) / directionX;
+            double nextY = directionY == 0 ? Double.POSITIVE_INFINITY
+                : (this.originY + (row + (stepY > 0 ? 1 : 0)) * cellSize - originY) / directionY;
+            double deltaX = directionX == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(directionX);
+            double deltaY = directionY == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(directionY);
+
+            double entryDistance = enter;
+            while (visitor.visit(column, row, entryDistance)) {
+                if (nextX < nextY) {
+                    entryDistance = nextX;
+                    column += stepX;
+                    nextX += deltaX;
+                } else {
+                    entryDistance = nextY;
+                    row += stepY;
+                    nextY += deltaY;
+                }
+                if (entryDistance > exit || column < 0 || column >= columns || row < 0 || row >= rows) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Grid ballGrid = new Grid(); // Only its geometry; the cells are the lists below
+    private List<Ball> balls = new ArrayList<>();
+    private int ballCount;
+    private int[] cellFirstBall = new int[0]; // -1 for an empty cell
+    private int[] ballCell = new int[0];
+    private int[] nextBall = new int[0]; // Next ball in the same cell, -1 at the end
+    private int[] previousBall = new int[0];
+    private int maxRadius;
+
+    private final Grid obstacleGrid = new Grid();
+    private List<Obstacle> obstacles = new ArrayList<>();
+    private int[] obstacleStamps = new int[0]; // Query number that last reported each obstacle, for de-duplication
+    private int queryStamp;
+
+    /**
+     * Bucket the balls by their current centers
+     */
+    public void buildBalls(List<Ball> balls) {
+        this.balls = balls;
+        int count = balls.size();
+        ballCount = count;
+        if (ballCell.length < count) {
+            ballCell = new int[Math.max(count, ballCell.length * 2)];
+            nextBall = new int[ballCell.length];
+            previousBall = new int[ballCell.length];
+        }
+        maxRadius = 0;
+        if (count == 0) {
+            ballGrid.columns = 0;
+            ballGrid.rows = 0;
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            maxRadius = Math.max(maxRadius, ball.getRadius());
+            minX = Math.min(minX, ball.getX());
+            minY = Math.min(minY, ball.getY());
+            maxX = Math.max(maxX, ball.getX());
+            maxY = Math.max(maxY, ball.getY());
+        }
+
+        // Cells at least one ball across, so a ball overlaps only the cells next to its own,
+        // and a margin so that every ball lies entirely inside the grid while it moves a little
+        double cellSize = Math.max(1.0, 2.0 * maxRadius);
+        double margin = maxRadius + BALL_MARGIN_CELLS * cellSize;
+        ballGrid.resize(minX - margin, minY - margin, maxX + margin, maxY + margin,
+            cellSize, Math.max(MIN_CELLS, count * 2));
+        int cells = ballGrid.columns * ballGrid.rows;
+        if (cellFirstBall.length < cells) {
+            cellFirstBall = new int[cells];
+        }
+        Arrays.fill(cellFirstBall, 0, cells, -1);
+        for (int i = count - 1; i >= 0; i--) {
+            // Linking backwards leaves every cell in ascending ball order
+            Ball ball = balls.get(i);
+            linkBall(i, cellOf(ballGrid, ball.getX(), ball.getY()));
+        }
+    }
+
+    /**
+     * Relink the balls whose centers crossed into another cell since the last build or move.
+     * Costs one pass over the balls, with no allocation and no sorting.
+     * @return False if a ball came too close to the edge of the grid or the number of balls
+     * changed; the grid is then out of date and must be rebuilt
+     */
+    public boolean moveBalls() {
+        if (balls.size() != ballCount) {
+            return false;
+        }
+        if (ballCount == 0) {
+            return true;
+        }
+        double minX = ballGrid.originX + maxRadius;
+        double minY = ballGrid.originY + maxRadius;
+        double maxX = ballGrid.originX + ballGrid.columns * ballGrid.cellSize - maxRadius;
+        double maxY = ballGrid.originY + ballGrid.rows * ballGrid.cellSize - maxRadius;
+        for (int i = 0; i < ballCount; i++) {
+            Ball ball = balls.get(i);
+            double x = ball.getX();
+            double y = ball.getY();
+            if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+                return false;
+            }
+            int cell = cellOf(ballGrid, x, y);
+            if (cell != ballCell[i]) {
+                unlinkBall(i);
+                linkBall(i, cell);
+            }
+        }
+        return true;
+    }
+
+    private void linkBall(int ball, int cell) {
+        int first = cellFirstBall[cell];
+        ballCell[ball] = cell;
+        previousBall[ball] = -1;
+        nextBall[ball] = first;
+        if (first >= 0) {
+            previousBall[first] = ball;
+        }
+        cellFirstBall[cell] = ball;
+    }
+
+    private void unlinkBall(int ball) {
+        int previous = previousBall[ball];
+        int next = nextBall[ball];
+        if (previous >= 0) {
+            nextBall[previous] = next;
+        } else {
+            cellFirstBall[ballCell[ball]] = next;
+        }
+        if (next >= 0) {
+            previousBall[next] = previous;
+        }
+    }
+
+    /**
+     * Bucket the obstacles into every cell they overlap
+     */
+    public void buildObstacles(List<Obstacle> obstacles) {
+        this.obstacles = obstacles;
+        int count = obstacles.size();
+        if (obstacleStamps.length < count) {
+            obstacleStamps = new int[Math.max(count, obstacleStamps.length * 2)];
+        }
+        if (count == 0) {
+            obstacleGrid.columns = 0;
+            obstacleGrid.rows = 0;
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Obstacle obstacle : obstacles) {
+            minX = Math.min(minX, obstacle.getX());
+            minY = Math.min(minY, obstacle.getY());
+            maxX = Math.max(maxX, obstacle.getX() + obstacle.getWidth());
+            maxY = Math.max(maxY, obstacle.getY() + obstacle.getHeight());
+        }
+        double cellSize = Math.max(MIN_OBSTACLE_CELL, Math.sqrt((maxX - minX) * (maxY - minY) / count));
+        obstacleGrid.resize(minX, minY, maxX, maxY, cellSize, Math.max(MIN_CELLS, count * 4));
+
+        int[] cellStart = obstacleGrid.cellStart;
+        int entryCount = 0;
+        for (Obstacle obstacle : obstacles) {
+            int left = obstacleGrid.column(obstacle.getX());
+            int right = obstacleGrid.column(obstacle.getX() + obstacle.getWidth());
+            int top = obstacleGrid.row(obstacle.getY());
+            int bottom = obstacleGrid.row(obstacle.getY() + obstacle.getHeight());
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    cellStart[row * obstacleGrid.columns + column + 1]++;
+                }
+            }
+            entryCount += (right - left + 1) * (bottom - top + 1);
+        }
+        obstacleGrid.countsToOffsets(entryCount);
+        int[] fill = obstacleGrid.entries;
+        for (int i = count - 1; i >= 0; i--) {
+            Obstacle obstacle = obstacles.get(i);
+            int left = obstacleGrid.column(obstacle.getX());
+            int right = obstacleGrid.column(obstacle.getX() + obstacle.getWidth());
+            int top = obstacleGrid.row(obstacle.getY());
+            int bottom = obstacleGrid.row(obstacle.getY() + obstacle.getHeight());
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    fill[--cellStart[row * obstacleGrid.columns + column + 1]] = i;
+                }
+            }
+        }
+        rebuildStarts(obstacleGrid, entryCount);
+    }
+
+    private static int cellOf(Grid grid, double x, double y) {
+        return grid.row(y) * grid.columns + grid.column(x);
+    }
+
+    /**
+     * After filling backwards, cellStart[c + 1] holds the start of cell c; shift it into place
+     */
+    private static void rebuildStarts(Grid grid, int entryCount) {
+        int cells = grid.columns * grid.rows;
+        System.arraycopy(grid.cellStart, 1, grid.cellStart, 0, cells);
+        grid.cellStart[cells] = entryCount;
+    }
+
+    /**
+     * The ball under a point; where balls overlap, the one earliest in the ball list
+     */
+    public Ball pickBall(double x, double y) {
+        if (ballGrid.columns == 0) {
+            return null;
+        }
+        int best = -1;
+        int left = ballGrid.column(x - maxRadius);
+        int right = ballGrid.column(x + maxRadius);
+        int top = ballGrid.row(y - maxRadius);
+        int bottom = ballGrid.row(y + maxRadius);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int cell = row * ballGrid.columns + column;
+                for (int i = cellFirstBall[cell]; i >= 0; i = nextBall[i]) {
+                    if ((best < 0 || i < best) && balls.get(i).contains(x, y)) {
+                        best = i;
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : balls.get(best);
+    }
+
+    /**
+     * Balls that overlap a rectangle, in no particular order
+     */
+    public List<Ball> findBallsInRect(double minX, double minY, double maxX, double maxY) {
+        List<Ball> found = new ArrayList<>();
+        if (ballGrid.columns == 0) {
+            return found;
+        }
+        int left = ballGrid.column(minX - maxRadius);
+        int right = ballGrid.column(maxX + maxRadius);
+        int top = ballGrid.row(minY - maxRadius);
+        int bottom = ballGrid.row(maxY + maxRadius);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int cell = row * ballGrid.columns + column;
+                for (int i = cellFirstBall[cell]; i >= 0; i = nextBall[i]) {
+                    Ball ball = balls.get(i);
+                    double dx = ball.getX() - Math.max(minX, Math.min(maxX, ball.getX()));
+                    double dy = ball.getY() - Math.max(minY, Math.min(maxY, ball.getY()));
+                    double radius = ball.getRadius();
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        found.add(ball);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Balls that overlap a circle, in no particular order
+     */
+    public List<Ball> findBallsInCircle(double x, double y, double radius) {
+        List<Ball> found = new ArrayList<>();
+        if (ballGrid.columns == 0) {
+            return found;
+        }
+        double reach = radius + maxRadius;
+        int left = ballGrid.column(x - reach);
+        int right = ballGrid.column(x + reach);
+        int top = ballGrid.row(y - reach);
+        int bottom = ballGrid.row(y + reach);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int cell = row * ballGrid.columns + column;
+                for (int i = cellFirstBall[cell]; i >= 0; i = nextBall[i]) {
+                    Ball ball = balls.get(i);
+                    double dx = ball.getX() - x;
+                    double dy = ball.getY() - y;
+                    double touch = radius + ball.getRadius();
+                    if (dx * dx + dy * dy <= touch * touch) {
+                        found.add(ball);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The k balls whose centers are closest to a point, nearest first. Searches rings of
+     * cells outward and stops once no unvisited cell can be closer than the k-th ball found.
+     */
+    public List<Ball> findNearestBalls(double x, double y, int k) {
+        List<Ball> found = new ArrayList<>();
+        if (ballGrid.columns == 0 || k <= 0) {
+            return found;
+        }
+        k = Math.min(k, balls.size());
+        // Max-heap of the best k so far, farthest at the root
+        double[] heapDistance = new double[k];
+        int[] heapBall = new int[k];
+        int heapSize = 0;
+
+        int centerColumn = ballGrid.column(x);
+        int centerRow = ballGrid.row(y);
+        int maxRing = Math.max(ballGrid.columns, ballGrid.rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= ballGrid.rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int columnStep = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += columnStep) {
+                    if (column < 0 || column >= ballGrid.columns) {
+                        continue;
+                    }
+                    int cell = row * ballGrid.columns + column;
+                    for (int i = cellFirstBall[cell]; i >= 0; i = nextBall[i]) {
+                        Ball ball = balls.get(i);
+                        double dx = ball.getX() - x;
+                        double dy = ball.getY() - y;
+                        double distance = dx * dx + dy * dy;
+                        if (heapSize < k) {
+                            heapDistance[heapSize] = distance;
+                            heapBall[heapSize] = i;
+                            siftUp(heapDistance, heapBall, heapSize++);
+                        } else if (distance < heapDistance[0]) {
+                            heapDistance[0] = distance;
+                            heapBall[0] = i;
+                            siftDown(heapDistance, heapBall, heapSize);
+                        }
+                    }
+                }
+            }
+            // Every cell beyond this ring is at least ring cells away from the query point
+            double bound = ring * ballGrid.cellSize;
+            if (heapSize == k && heapDistance[0] <= bound * bound) {
+                break;
+            }
+        }
+
+        Ball[] sorted = new Ball[heapSize];
+        for (int n = heapSize - 1; n >= 0; n--) {
+            sorted[n] = balls.get(heapBall[0]);
+            heapDistance[0] = heapDistance[n];
+            heapBall[0] = heapBall[n];
+            siftDown(heapDistance, heapBall, n);
+        }
+        found.addAll(Arrays.asList(sorted));
+        return found;
+    }
+
+    private static void siftUp(double[] distance, int[] ball, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (distance[parent] >= distance[index]) {
+                return;
+            }
+            swap(distance, ball, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(double[] distance, int[] ball, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = index * 2 + 1;
+            int right = left + 1;
+            if (left < size && distance[left] > distance[largest]) {
+                largest = left;
+            }
+            if (right < size && distance[right] > distance[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(distance, ball, largest, index);
+            index = largest;
+        }
+    }
+
+    private static void swap(double[] distance, int[] ball, int a, int b) {
+        double d = distance[a];
+        distance[a] = distance[b];
+        distance[b] = d;
+        int i = ball[a];
+        ball[a] = ball[b];
+        ball[b] = i;
+    }
+
+    /**
+     * Index of the obstacle under a point; where obstacles overlap, the one drawn on top
+     * (latest in the obstacle list). -1 if there is none.
+     */
+    public int pickObstacleIndex(double x, double y) {
+        if (obstacleGrid.columns == 0) {
+            return -1;
+        }
+        int cell = cellOf(obstacleGrid, x, y);
+        for (int e = obstacleGrid.cellStart[cell + 1] - 1; e >= obstacleGrid.cellStart[cell]; e--) {
+            int i = obstacleGrid.entries[e];
+            if (obstacles.get(i).contains(x, y)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Obstacles that overlap a rectangle, in no particular order
+     */
+    public List<Obstacle> findObstaclesInRect(double minX, double minY, double maxX, double maxY) {
+        int[] indices = findObstacleIndicesInRect(minX, minY, maxX, maxY);
+        List<Obstacle> found = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            found.add(obstacles.get(i));
+        }
+        return found;
+    }
+
+    /**
+     * Positions in the obstacle list of the obstacles that overlap a rectangle, in list order
+     */
+    public int[] findObstacleIndicesInRect(double minX, double minY, double maxX, double maxY) {
+        if (obstacleGrid.columns == 0) {
+            return new int[0];
+        }
+        int[] found = new int[16];
+        int count = 0;
+        int stamp = ++queryStamp;
+        int left = obstacleGrid.column(minX);
+        int right = obstacleGrid.column(maxX);
+        int top = obstacleGrid.row(minY);
+        int bottom = obstacleGrid.row(maxY);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int cell = row * obstacleGrid.columns + column;
+                for (int e = obstacleGrid.cellStart[cell]; e < obstacleGrid.cellStart[cell + 1]; e++) {
+                    int i = obstacleGrid.entries[e];
+                    Obstacle obstacle = obstacles.get(i);
+                    if (obstacleStamps[i] != stamp
+                        && obstacle.getX() <= maxX && obstacle.getX() + obstacle.getWidth() >= minX
+                        && obstacle.getY() <= maxY && obstacle.getY() + obstacle.getHeight() >= minY) {
+                        obstacleStamps[i] = stamp;
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = i;
+                    }
+                }
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * The first ball or obstacle along a ray
+     * @param directionX Direction of the ray; it need not be of unit length
+     * @return The nearest hit within maxDistance, or null
+     */
+    public RayHit castRay(double originX, double originY, double directionX, double directionY, double maxDistance) {
+        double length = Math.sqrt(directionX * directionX + directionY * directionY);
+        if (length == 0) {
+            return null;
+        }
+        double dx = directionX / length;
+        double dy = directionY / length;
+        RayHit[] best = new RayHit[1];
+        double[] bestDistance = {maxDistance};
+
+        // A ball hit inside a cell has its center in that cell or a neighbouring one
+        ballGrid.walk(originX, originY, dx, dy, maxDistance, (column, row, entryDistance) -> {
+            if (entryDistance > bestDistance[0]) {
+                return false;
+            }
+            for (int r = Math.max(0, row - 1); r <= Math.min(ballGrid.rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(ballGrid.columns - 1, column + 1); c++) {
+                    int cell = r * ballGrid.columns + c;
+                    for (int i = cellFirstBall[cell]; i >= 0; i = nextBall[i]) {
+                        RayHit hit = rayBall(i, originX, originY, dx, dy);
+                        if (hit != null && hit.distance < bestDistance[0]) {
+                            best[0] = hit;
+                            bestDistance[0] = hit.distance;
+                        }
+                    }
+                }
+            }
+            return true;
+        });
+
+        obstacleGrid.walk(originX, originY, dx, dy, bestDistance[0], (column, row, entryDistance) -> {
+            if (entryDistance > bestDistance[0]) {
+                return false;
+            }
+            int cell = row * obstacleGrid.columns + column;
+            for (int e = obstacleGrid.cellStart[cell]; e < obstacleGrid.cellStart[cell + 1]; e++) {
+                RayHit hit = rayObstacle(obstacles.get(obstacleGrid.entries[e]), originX, originY, dx, dy);
+                if (hit != null && hit.distance < bestDistance[0]) {
+                    best[0] = hit;
+                    bestDistance[0] = hit.distance;
+                }
+            }
+            return true;
+        });
+        return best[0];
+    }
+
+    private RayHit rayBall(int index, double originX, double originY, double dx, double dy) {
+        Ball ball = balls.get(index);
+        double fx = originX - ball.getX();
+        double fy = originY - ball.getY();
+        double radius = ball.getRadius();
+        double b = fx * dx + fy * dy;
+        double c = fx * fx + fy * fy - radius * radius;
+        if (c <= 0) {
+            return new RayHit(ball, null, 0, originX, originY, -dx, -dy); // Starts inside
+        }
+        double discriminant = b * b - c;
+        if (b > 0 || discriminant < 0) {
+            return null;
+        }
+        double t = -b - Math.sqrt(discriminant);
+        double x = originX + dx * t;
+        double y = originY + dy * t;
+        return new RayHit(ball, null, t, x, y, (x - ball.getX()) / radius, (y - ball.getY()) / radius);
+    }
+
+    private static RayHit rayObstacle(Obstacle obstacle, double originX, double originY, double dx, double dy) {
+        if (obstacle.contains(originX, originY)) {
+            return new RayHit(null, obstacle, 0, originX, originY, -dx, -dy);
+        }
+        double[] range = {0, Double.POSITIVE_INFINITY};
+        if (!clipSlab(originX, dx, obstacle.getX(), obstacle.getX() + obstacle.getWidth(), range)) {
+            return null;
+        }
+        double enterX = range[0];
+        if (!clipSlab(originY, dy, obstacle.getY(), obstacle.getY() + obstacle.getHeight(), range)) {
+            return null;
+        }
+        double t = range[0];
+        // The slab entered last is the face that was hit
+        boolean xFace = t == enterX && dx != 0;
+        double normalX = xFace ? (dx > 0 ? -1 : 1) : 0;
+        double normalY = xFace ? 0 : (dy > 0 ? -1 : 1);
+        return new RayHit(null, obstacle, t, originX + dx * t, originY + dy * t, normalX, normalY);
+    }
+
+    /**
+     * Narrow range[0]..range[1] to the part of a ray between two lines along one axis
+     * @return False if that leaves nothing
+     */
+    private static boolean clipSlab(double origin, double direction, double min, double max, double[] range) {
+        if (direction == 0) {
+            return origin >= min && origin <= max;
+        }
+        double t1 = (min - origin) / direction;
+        double t2 = (max - origin) / direction;
+        range[0] = Math.max(range[0], Math.min(t1, t2));
+        range[1] = Math.min(range[1], Math.max(t1, t2));
+        return range[0] <= range[1];
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * State Stream Server - Live world state for remote viewers
+ * Streams keyframes and quantized position deltas over TCP without slowing the simulation
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State Stream Server - Accepts viewer connections and sends each one the latest published
+ * frame. The simulation thread only captures a frame and swaps it into a shared slot; every
+ * client has its own sender thread that encodes the newest frame against the last frame that
+ * client received. A client that falls behind simply skips the frames it missed (conflation),
+ * so a slow viewer never holds up the simulation or the other viewers.
+ * <p>
+ * Wire format, all big-endian: the server first sends MAGIC and VERSION, then messages of
+ * an int length followed by the payload. A payload starts with its type byte and the step
+ * number. A KEYFRAME then holds the world size, the obstacles as floats, and every ball as
+ * quantized x and y (ints of 1/QUANTUM px), radius (short) and 24-bit color. A DELTA holds
+ * the step it is relative to, then per ball the change in quantized x and y as zigzag
+ * varints; balls that did not move cost two bytes. Deltas are only sent while the balls,
+ * radii, colors and obstacles are unchanged; anything else starts with a new keyframe.
+ * @author Sentinail
+ */
+public class StateStreamServer {
+    public static final int MAGIC = 0x42435356; // "BCSV"
+    public static final int VERSION = 1;
+    public static final int DEFAULT_PORT = 7777;
+    public static final int QUANTUM = 16; // Positions are sent in 1/16 px
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    /**
+     * One captured state of the world, quantized; immutable once published
+     */
+    static class Frame {
+        final long sequence; // Publish count, to tell how many frames a client skipped
+        final long step;
+        final int worldWidth;
+        final int worldHeight;
+        final int[] x;
+        final int[] y;
+        final short[] radius;
+        final int[] color;
+        final float[] obstacles; // x, y, width, height per obstacle
+
+        Frame(long sequence, long step, int worldWidth, int worldHeight, int[] x, int[] y, short[] radius, int[] color,
+              float[] obstacles) {
+            this.sequence = sequence;
+            this.step = step;
+            this.worldWidth = worldWidth;
+            this.worldHeight = worldHeight;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.color = color;
+            this.obstacles = obstacles;
+        }
+
+        /**
+         * Whether a delta from the other frame can describe this one
+         */
+        boolean sameShape(Frame other) {
+            return other != null && worldWidth == other.worldWidth && worldHeight == other.worldHeight
+                && Arrays.equals(radius, other.radius) && Arrays.equals(color, other.color)
+                && Arrays.equals(obstacles, other.obstacles);
+        }
+    }
+
+    private final int port;
+    private final Object frameLock = new Object();
+    private Frame latest; // Guarded by frameLock
+    private Frame lastCaptured; // Simulation thread only; shares unchanged arrays with the next capture
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicInteger clientNumber = new AtomicInteger();
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+    private PrintStream log = System.err;
+
+    /**
+     * @param port TCP port to listen on, or 0 for any free port
+     */
+    public StateStreamServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Where to print connects and disconnects, or null for none
+     */
+    public void setLogStream(PrintStream log) {
+        this.log = log;
+    }
+
+    /**
+     * Start accepting viewers on a background thread
+     * @param loopbackOnly Listen on the loopback interface only instead of all interfaces
+     */
+    public void start(boolean loopbackOnly) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(loopbackOnly ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+            : new InetSocketAddress(port));
+        running = true;
+        Thread acceptThread = new Thread(this::acceptLoop, "stream-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Port the server listens on, useful after starting on port 0
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stop accepting viewers and disconnect the connected ones
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        synchronized (frameLock) {
+            frameLock.notifyAll();
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket, clientNumber.incrementAndGet());
+                clients.add(client);
+                Thread thread = new Thread(client, "stream-client-" + client.number);
+                thread.setDaemon(true);
+                thread.start();
+                if (log != null) {
+                    log.println("Viewer " + client.number + " connected from " + socket.getRemoteSocketAddress());
+                }
+            } catch (IOException e) {
+                if (running && log != null) {
+                    log.println("Viewer connection failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Capture the world and make it the frame every viewer sends next. Call on the simulation
+     * thread between steps; it copies and quantizes the positions and never waits for viewers.
+     */
+    public void publish(GameState gameState) {
+        List<Ball> balls = gameState.getBalls();
+        int count = balls.size();
+        int[] x = new int[count];
+        int[] y = new int[count];
+        short[] radius = new short[count];
+        int[] color = new int[count];
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            x[i] = quantize(ball.getX());
+            y[i] = quantize(ball.getY());
+            radius[i] = (short) Math.min(Short.MAX_VALUE, ball.getRadius());
+            color[i] = ball.getColor().getRGB() & 0xFFFFFF;
+        }
+        List<Obstacle> obstacleList = gameState.getObstacles();
+        float[] obstacles = new float[obstacleList.size() * 4];
+        for (int i = 0; i < obstacleList.size(); i++) {
+            Obstacle obstacle = obstacleList.get(i);
+            obstacles[i * 4] = (float) obstacle.getX();
+            obstacles[i * 4 + 1] = (float) obstacle.getY();
+            obstacles[i * 4 + 2] = (float) obstacle.getWidth();
+            obstacles[i * 4 + 3] = (float) obstacle.getHeight();
+        }
+        long sequence = lastCaptured != null ? lastCaptured.sequence + 1 : 0;
+        Frame frame = new Frame(sequence, gameState.getStepCount(), gameState.getWorldWidth(), gameState.getWorldHeight(),
+            x, y, radius, color, obstacles);
+        if (frame.sameShape(lastCaptured)) {
+            // Share the unchanged arrays so clients can compare them by reference
+            frame = new Frame(sequence, frame.step, frame.worldWidth, frame.worldHeight, x, y,
+                lastCaptured.radius, lastCaptured.color, lastCaptured.obstacles);
+        }
+        lastCaptured = frame;
+        synchronized (frameLock) {
+            latest = frame;
+            frameLock.notifyAll();
+        }
+    }
+
+    static int quantize(double value) {
+        return (int) Math.round(value * QUANTUM);
+    }
+
+    /**
+     * Number of viewers connected now
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * One-line summary per connected viewer: frames, keyframes, skipped frames and bytes per frame
+     */
+    public List<String> getClientSummaries() {
+        List<String> summaries = new ArrayList<>();
+        for (Client client : clients) {
+            long frames = client.keyframesSent + client.deltasSent;
+            summaries.add(String.format("Viewer %d: %d frames (%d keyframes), %d skipped, %.0f bytes per frame",
+                client.number, frames, client.keyframesSent, client.framesSkipped,
+                frames == 0 ? 0.0 : (double) client.bytesSent / frames));
+        }
+        return summaries;
+    }
+
+    /**
+     * A connected viewer with its own sender thread and the last frame it was sent
+     */
+    private class Client implements Runnable {
+        private final Socket socket;
+        private final int number;
+        private Frame sent;
+        private volatile long bytesSent;
+        private volatile long keyframesSent;
+        private volatile long deltasSent;
+        private volatile long framesSkipped;
+
+        Client(Socket socket, int number) {
+            this.socket = socket;
+            this.number = number;
+        }
+
+        @Override
+        public void run() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+            DataOutputStream payload = new DataOutputStream(buffer);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.flush();
+                while (running) {
+                    Frame frame;
+                    synchronized (frameLock) {
+                        while (running && (latest == null || latest == sent)) {
+                            frameLock.wait();
+                        }
+                        frame = latest;
+                    }
+                    if (frame == null || !running) {
+                        break;
+                    }
+                    if (sent != null) {
+                        framesSkipped += frame.sequence - sent.sequence - 1;
+                    }
+
+                    buffer.reset();
+                    if (frame.sameShape(sent)) {
+                        writeDelta(payload, sent, frame);
+                        deltasSent++;
+                    } else {
+                        writeKeyframe(payload, frame);
+                        keyframesSent++;
+                    }
+                    out.writeInt(buffer.size());
+                    buffer.writeTo(out);
+                    out.flush(); // Blocks only this client's thread when its connection is slow
+                    bytesSent += 4 + buffer.size();
+                    sent = frame;
+                }
+            } catch (SocketException e) {
+                // Viewer disconnected
+            } catch (IOException e) {
+                if (log != null) {
+                    log.println("Viewer " + number + " failed: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+                clients.remove(this);
+                if (log != null && running) {
+                    log.println("Viewer " + number + " disconnected");
+                }
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    static void writeKeyframe(DataOutputStream out, Frame frame) throws IOException {
+        out.writeByte(KEYFRAME);
+        out.writeLong(frame.step);
+        out.writeInt(frame.worldWidth);
+        out.writeInt(frame.worldHeight);
+        out.writeInt(frame.obstacles.length / 4);
+        for (float value : frame.obstacles) {
+            out.writeFloat(value);
+        }
+        out.writeInt(frame.x.length);
+        for (int i = 0; i < frame.x.length; i++) {
+            out.writeInt(frame.x[i]);
+            out.writeInt(frame.y[i]);
+            out.writeShort(frame.radius[i]);
+            out.writeByte(frame.color[i] >> 16);
+            out.writeShort(frame.color[i]);
+        }
+    }
+
+    static void writeDelta(DataOutputStream out, Frame base, Frame frame) throws IOException {
+        out.writeByte(DELTA);
+        out.writeLong(frame.step);
+        out.writeLong(base.step);
+        for (int i = 0; i < frame.x.length; i++) {
+            writeVarint(out, frame.x[i] - base.x[i]);
+            writeVarint(out, frame.y[i] - base.y[i]);
+        }
+    }
+
+    /**
+     * Zigzag varint: small changes of either sign take one byte
+     */
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Trajectory Player - Playback of recorded ball trajectories
+ * Shows any recorded step in the game view at any speed without running the physics
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trajectory Player - Memory-maps a .simt recording written by TrajectoryRecorder and indexes
+ * the offset and time of every frame once when opened, so seeking to a frame is O(1).
+ * Frames are shown by copying them into the balls of the game state; while the ball count,
+ * radii and colors stay the same only positions and velocities are updated in place.
+ * @author Sentinail
+ */
+public class TrajectoryPlayer implements Closeable {
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer[] segments;
+    private final int frameCount;
+    private final long[] frameOffsets;
+    private final double[] frameTimes; // Simulated seconds at the end of each frame
+    private List<Ball> frameBalls = new ArrayList<>();
+    private int shownFrame = -1;
+    private double position; // Fractional frame index, advanced by playback
+    private double speed = 1.0;
+    private boolean playing;
+
+    /**
+     * Open a recording and index its frames
+     */
+    public TrajectoryPlayer(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TrajectoryRecorder.HEADER_SIZE) {
+                throw new IOException("Not a .simt recording: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TrajectoryRecorder.HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != TrajectoryRecorder.MAGIC) {
+                throw new IOException("Not a .simt recording: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != TrajectoryRecorder.VERSION) {
+                throw new IOException("Unsupported .simt version " + version + " in " + file);
+            }
+            long frames = header.getLong(16);
+            long dataEnd = header.getLong(24);
+            if (header.getLong(8) != TrajectoryRecorder.SEGMENT_SIZE || frames < 0 || frames > Integer.MAX_VALUE
+                    || dataEnd < TrajectoryRecorder.HEADER_SIZE || dataEnd > size) {
+                throw new IOException("Corrupt or truncated .simt recording: " + file);
+            }
+
+            int segmentCount = (int) ((dataEnd + TrajectoryRecorder.SEGMENT_SIZE - 1) / TrajectoryRecorder.SEGMENT_SIZE);
+            segments = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = i * TrajectoryRecorder.SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(TrajectoryRecorder.SEGMENT_SIZE, dataEnd - start)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            frameCount = (int) frames;
+            frameOffsets = new long[frameCount];
+            frameTimes = new double[frameCount];
+            indexFrames(dataEnd);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hop from frame header to frame header, recording where each frame starts
+     */
+    private void indexFrames(long dataEnd) throws IOException {
+        long offset = TrajectoryRecorder.HEADER_SIZE;
+        double time = 0;
+        int frame = 0;
+        while (frame < frameCount) {
+            if (offset + TrajectoryRecorder.FRAME_HEADER_SIZE > dataEnd) {
+                throw new IOException("Corrupt or truncated .simt recording: " + file);
+            }
+            ByteBuffer segment = segments[TrajectoryRecorder.segmentIndex(offset)];
+            int segmentOffset = TrajectoryRecorder.segmentOffset(offset);
+            int count = segment.getInt(segmentOffset);
+            if (count == TrajectoryRecorder.END_OF_SEGMENT) {
+                offset = (TrajectoryRecorder.segmentIndex(offset) + 1) * TrajectoryRecorder.SEGMENT_SIZE;
+                continue;
+            }
+            long frameBytes = TrajectoryRecorder.FRAME_HEADER_SIZE + (long) count * TrajectoryRecorder.BALL_BYTES;
+            if (count < 0 || segmentOffset + frameBytes > segment.capacity()) {
+                throw new IOException("Corrupt or truncated .simt recording: " + file);
+            }
+            time += segment.getDouble(segmentOffset + 16);
+            frameOffsets[frame] = offset;
+            frameTimes[frame] = time;
+            frame++;
+            offset += frameBytes;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Game state step counter when the frame was recorded
+     */
+    public long getFrameStep(int frame) {
+        long offset = frameOffsets[frame];
+        return segments[TrajectoryRecorder.segmentIndex(offset)].getLong(TrajectoryRecorder.segmentOffset(offset) + 8);
+    }
+
+    /**
+     * Simulated seconds from the start of the recording to the end of the frame
+     */
+    public double getFrameTime(int frame) {
+        return frameTimes[frame];
+    }
+
+    public int getBallCount(int frame) {
+        long offset = frameOffsets[frame];
+        return segments[TrajectoryRecorder.segmentIndex(offset)].getInt(TrajectoryRecorder.segmentOffset(offset));
+    }
+
+    public int getShownFrame() {
+        return shownFrame;
+    }
+
+    /**
+     * Set the playback speed relative to the recorded rate; negative speeds play backwards
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setPlaying(boolean playing) {
+        this.playing = playing && frameCount > 0;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Jump to a frame and show it
+     */
+    public void seek(int frame, GameState gameState) {
+        if (frameCount == 0) {
+            return;
+        }
+        position = Math.max(0, Math.min(frameCount - 1, frame));
+        showFrame((int) position, gameState);
+    }
+
+    /**
+     * Move the playback position by the given simulated time scaled by the speed and show
+     * the frame it lands on; playback stops at either end of the recording
+     */
+    public void advance(double deltaTime, GameState gameState) {
+        if (!playing) {
+            return;
+        }
+        int current = Math.max(0, shownFrame);
+        double frameSeconds = current > 0 ? frameTimes[current] - frameTimes[current - 1] : frameTimes[0];
+        position += frameSeconds > 0 ? speed * deltaTime / frameSeconds : speed;
+        if (position <= 0 || position >= frameCount - 1) {
+            position = Math.max(0, Math.min(frameCount - 1, position));
+            playing = false;
+        }
+        showFrame((int) position, gameState);
+    }
+
+    /**
+     * Copy a frame into the balls of the game state
+     */
+    private void showFrame(int frame, GameState gameState) {
+        if (frame == shownFrame) {
+            return;
+        }
+        long offset = frameOffsets[frame];
+        ByteBuffer buffer = segments[TrajectoryRecorder.segmentIndex(offset)];
+        int start = TrajectoryRecorder.segmentOffset(offset);
+        int count = buffer.getInt(start);
+        int xColumn = start + TrajectoryRecorder.FRAME_HEADER_SIZE;
+        int yColumn = xColumn + count * Double.BYTES;
+        int vxColumn = yColumn + count * Double.BYTES;
+        int vyColumn = vxColumn + count * Double.BYTES;
+        int radiusColumn = vyColumn + count * Double.BYTES;
+        int colorColumn = radiusColumn + count * Integer.BYTES;
+
+        // Reuse the shown balls unless the frame has different balls
+        boolean sameBalls = count == frameBalls.size() && gameState.getBalls() == frameBalls;
+        for (int i = 0; sameBalls && i < count; i++) {
+            Ball ball = frameBalls.get(i);
+            sameBalls = ball.getRadius() == buffer.getInt(radiusColumn + i * Integer.BYTES)
+                && ball.getColor().getRGB() == buffer.getInt(colorColumn + i * Integer.BYTES);
+        }
+        if (!sameBalls) {
+            List<Ball> balls = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                balls.add(new Ball(0, 0, 0, 0, buffer.getInt(radiusColumn + i * Integer.BYTES),
+                    new Color(buffer.getInt(colorColumn + i * Integer.BYTES), true)));
+            }
+            frameBalls = balls;
+            gameState.swapBalls(balls);
+        }
+
+        for (int i = 0; i < count; i++) {
+            Ball ball = frameBalls.get(i);
+            int doubleOffset = i * Double.BYTES;
+            ball.setPosition(buffer.getDouble(xColumn + doubleOffset), buffer.getDouble(yColumn + doubleOffset));
+            ball.setVelocity(buffer.getDouble(vxColumn + doubleOffset), buffer.getDouble(vyColumn + doubleOffset));
+        }
+        gameState.markBallsMoved();
+        shownFrame = frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
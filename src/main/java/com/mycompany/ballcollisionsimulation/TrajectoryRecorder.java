@@ -0,0 +1,195 @@
+/*
+ * Trajectory Recorder - Per-step ball states appended to a memory-mapped file
+ * Records what the simulation did so it can be analysed or played back without re-simulating
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trajectory Recorder - Appends the position, velocity, radius and color of every ball after
+ * every physics step to a .simt file. The file grows one memory-mapped segment at a time, so
+ * recording a step is a handful of stores into mapped memory and never a system call.
+ * <pre>
+ * Header (32 bytes, at the start of the file)
+ *   0  "SIMT"              magic
+ *   4  int    version      currently 1
+ *   8  long   segment size frames never cross a segment boundary
+ *  16  long   frame count  updated after every frame, so an interrupted recording stays readable
+ *  24  long   data end     file offset just past the last frame
+ * Frame (24 bytes + 40 per ball)
+ *   0  int    ball count   -1 marks the unused tail of a segment
+ *   4  int    reserved
+ *   8  long   step         step counter of the game state
+ *  16  double step length  seconds
+ *  24  ball x, y, vx, vy   doubles, one column each
+ *      ball radius, RGB    ints, one column each
+ * </pre>
+ * TrajectoryPlayer indexes the frames when it opens a recording and seeks any of them in O(1).
+ * @author Sentinail
+ */
+public class TrajectoryRecorder implements Closeable {
+    public static final String EXTENSION = "simt";
+    public static final int VERSION = 1;
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024 * 1024;
+    static final int MAGIC = 0x544D4953; // "SIMT" read as a little-endian int
+    static final int HEADER_SIZE = 32;
+    static final int FRAME_HEADER_SIZE = 24;
+    static final int BALL_BYTES = 4 * Double.BYTES + 2 * Integer.BYTES;
+    static final int END_OF_SEGMENT = -1;
+    static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long maxBytes;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long position = HEADER_SIZE;
+    private long frameCount;
+
+    /**
+     * Create or overwrite a recording
+     * @param maxBytes Size the file may grow to; append refuses frames beyond it
+     */
+    public TrajectoryRecorder(File file, long maxBytes) throws IOException {
+        this.file = file;
+        this.maxBytes = Math.max(SEGMENT_SIZE, maxBytes);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = segment(0);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putLong(8, SEGMENT_SIZE);
+            writeFrameCount();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public TrajectoryRecorder(File file) throws IOException {
+        this(file, DEFAULT_MAX_BYTES);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Bytes of the file used by frames so far
+     */
+    public long getRecordedBytes() {
+        return position;
+    }
+
+    /**
+     * Append the state of every ball after a physics step
+     * @param stepSeconds Length of the step that produced this state
+     * @return false if the frame would grow the file past its maximum size; nothing is written then
+     */
+    public boolean append(GameState gameState, double stepSeconds) throws IOException {
+        List<Ball> balls = gameState.getBalls();
+        int count = balls.size();
+        long frameBytes = FRAME_HEADER_SIZE + (long) count * BALL_BYTES;
+        if (frameBytes > SEGMENT_SIZE - HEADER_SIZE) {
+            throw new IOException("Too many balls to record (" + count + ")");
+        }
+
+        // Frames never straddle two segments; the rest of a full segment is marked as unused
+        long frameStart = position;
+        long segmentEnd = (frameStart / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+        if (frameStart + frameBytes > segmentEnd) {
+            segment(segmentIndex(frameStart)).putInt(segmentOffset(frameStart), END_OF_SEGMENT);
+            frameStart = segmentEnd;
+        }
+        if (frameStart + frameBytes > maxBytes) {
+            return false;
+        }
+
+        ByteBuffer buffer = segment(segmentIndex(frameStart));
+        int offset = segmentOffset(frameStart);
+        buffer.putInt(offset, count);
+        buffer.putInt(offset + 4, 0);
+        buffer.putLong(offset + 8, gameState.getStepCount());
+        buffer.putDouble(offset + 16, stepSeconds);
+
+        int xColumn = offset + FRAME_HEADER_SIZE;
+        int yColumn = xColumn + count * Double.BYTES;
+        int vxColumn = yColumn + count * Double.BYTES;
+        int vyColumn = vxColumn + count * Double.BYTES;
+        int radiusColumn = vyColumn + count * Double.BYTES;
+        int colorColumn = radiusColumn + count * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            Ball ball = balls.get(i);
+            int doubleOffset = i * Double.BYTES;
+            int intOffset = i * Integer.BYTES;
+            buffer.putDouble(xColumn + doubleOffset, ball.getX());
+            buffer.putDouble(yColumn + doubleOffset, ball.getY());
+            buffer.putDouble(vxColumn + doubleOffset, ball.getVelocityX());
+            buffer.putDouble(vyColumn + doubleOffset, ball.getVelocityY());
+            buffer.putInt(radiusColumn + intOffset, ball.getRadius());
+            buffer.putInt(colorColumn + intOffset, ball.getColor().getRGB());
+        }
+
+        position = frameStart + frameBytes;
+        frameCount++;
+        writeFrameCount();
+        return true;
+    }
+
+    private void writeFrameCount() throws IOException {
+        ByteBuffer header = segment(0);
+        header.putLong(16, frameCount);
+        header.putLong(24, position);
+    }
+
+    /**
+     * The mapped buffer of a segment, mapping it (and growing the file) on first use
+     */
+    private ByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                segments.size() * SEGMENT_SIZE, SEGMENT_SIZE);
+            segments.add(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+        return segments.get(index);
+    }
+
+    static int segmentIndex(long position) {
+        return (int) (position / SEGMENT_SIZE);
+    }
+
+    static int segmentOffset(long position) {
+        return (int) (position % SEGMENT_SIZE);
+    }
+
+    /**
+     * Flush the mapped segments to disk and close the file. The mappings themselves are
+     * released by the garbage collector, as Java offers no way to unmap a buffer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (ByteBuffer segment : segments) {
+                ((MappedByteBuffer) segment).force();
+            }
+        } finally {
+            segments.clear();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Rewind Buffer Test - Captured steps restored exactly
+ * Covers keyframes and deltas, a change of ball count, resuming and the memory and time caps
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rewind Buffer Test - Runs a small simulation, records every step next to the buffer and
+ * checks that stepping back and forward restores each recorded step bit for bit.
+ * @author Sentinail
+ */
+public class RewindBufferTest {
+    private static final double STEP = 1.0 / 60;
+
+    @Test
+    public void everyStepIsRestoredExactly() {
+        GameState gameState = newScene(300);
+        RewindBuffer buffer = new RewindBuffer();
+        assertFalse("Nothing is allocated before the first capture", buffer.isAllocated());
+        Map<Long, double[]> recorded = new HashMap<>();
+        for (int i = 0; i < 90; i++) {
+            if (i == 45) {
+                gameState.addBallAt(400, 100); // A change of ball count forces a keyframe
+            }
+            step(gameState, buffer, recorded);
+        }
+        assertTrue(buffer.isAllocated());
+
+        long newest = gameState.getStepCount();
+        int backSteps = 0;
+        while (buffer.stepBack(gameState)) {
+            backSteps++;
+            assertTrue(buffer.isRewound());
+            assertState(recorded, buffer.getShownStep(), gameState);
+        }
+        assertEquals("All 90 steps are within the default limits", 89, backSteps);
+        assertEquals(newest - 89, buffer.getShownStep());
+
+        while (buffer.stepForward(gameState)) {
+            assertState(recorded, buffer.getShownStep(), gameState);
+        }
+        assertEquals(newest, buffer.getShownStep());
+    }
+
+    @Test
+    public void resumingDiscardsTheStepsAfterTheShownOne() {
+        GameState gameState = newScene(200);
+        RewindBuffer buffer = new RewindBuffer();
+        Map<Long, double[]> recorded = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            step(gameState, buffer, recorded);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.stepBack(gameState));
+        }
+        long shown = buffer.getShownStep();
+        buffer.resume(gameState);
+        assertFalse(buffer.isRewound());
+        assertFalse("The discarded steps cannot be stepped forward to", buffer.stepForward(gameState));
+
+        // Steps run after resuming are captured on top of the shown one
+        for (int i = 0; i < 20; i++) {
+            step(gameState, buffer, recorded);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTrue(buffer.stepBack(gameState));
+            assertState(recorded, buffer.getShownStep(), gameState);
+        }
+        assertEquals("Back at the step resumed from", shown, buffer.getShownStep());
+    }
+
+    @Test
+    public void oldStepsAreEvictedUnderTheMemoryCap() {
+        GameState gameState = newScene(4000);
+        RewindBuffer buffer = new RewindBuffer();
+        buffer.setLimits(60, 1);
+        Map<Long, double[]> recorded = new HashMap<>();
+        for (int i = 0; i < 120; i++) {
+            step(gameState, buffer, recorded);
+            assertTrue(buffer.getUsedBytes() <= 1024 * 1024);
+        }
+        int backSteps = 0;
+        while (buffer.stepBack(gameState)) {
+            backSteps++;
+            assertState(recorded, buffer.getShownStep(), gameState);
+        }
+        assertTrue("Some steps were evicted", backSteps < 119);
+        assertTrue("Some steps are kept", backSteps > 0);
+    }
+
+    @Test
+    public void oldStepsAreEvictedUnderTheTimeCap() {
+        GameState gameState = newScene(100);
+        RewindBuffer buffer = new RewindBuffer();
+        buffer.setLimits(0.5, 64);
+        Map<Long, double[]> recorded = new HashMap<>();
+        for (int i = 0; i < 120; i++) {
+            step(gameState, buffer, recorded);
+        }
+        assertTrue(buffer.getBufferedSeconds() <= 0.5 + 1e-9);
+        assertTrue(buffer.getBufferedSeconds() >= 0.5 - 2 * STEP);
+    }
+
+    @Test
+    public void releaseFreesTheStorageUntilTheNextCapture() {
+        GameState gameState = newScene(50);
+        RewindBuffer buffer = new RewindBuffer();
+        Map<Long, double[]> recorded = new HashMap<>();
+        step(gameState, buffer, recorded);
+        buffer.release();
+        assertFalse(buffer.isAllocated());
+        assertEquals(0, buffer.getUsedBytes());
+        assertFalse(buffer.stepBack(gameState));
+
+        step(gameState, buffer, recorded);
+        step(gameState, buffer, recorded);
+        assertTrue(buffer.isAllocated());
+        assertTrue(buffer.stepBack(gameState));
+        assertState(recorded, buffer.getShownStep(), gameState);
+    }
+
+    private static GameState newScene(int ballCount) {
+        GameState gameState = new GameState();
+        gameState.setWorldSize(1000, 800);
+        gameState.addBalls(ballCount, SceneGenerator.Distribution.GRID_JITTER, 4, 10, 42);
+        return gameState;
+    }
+
+    private static void step(GameState gameState, RewindBuffer buffer, Map<Long, double[]> recorded) {
+        gameState.updateBalls(1000, 800, STEP);
+        buffer.capture(gameState, STEP);
+        recorded.put(gameState.getStepCount(), snapshot(gameState.getBalls()));
+    }
+
+    private static double[] snapshot(List<Ball> balls) {
+        double[] state = new double[balls.size() * 5];
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            state[i * 5] = ball.getX();
+            state[i * 5 + 1] = ball.getY();
+            state[i * 5 + 2] = ball.getVelocityX();
+            state[i * 5 + 3] = ball.getVelocityY();
+            state[i * 5 + 4] = ball.getRadius();
+        }
+        return state;
+    }
+
+    private static void assertState(Map<Long, double[]> recorded, long step, GameState gameState) {
+        double[] expected = recorded.get(step);
+        assertNotNull("Step " + step + " was recorded", expected);
+        double[] actual = snapshot(gameState.getBalls());
+        assertEquals("Ball count at step " + step, expected.length / 5, actual.length / 5);
+        for (int i = 0; i < expected.length; i++) {
+            // Exact: the buffer stores the doubles themselves
+            assertEquals("Value " + i + " at step " + step, Double.doubleToLongBits(expected[i]),
+                Double.doubleToLongBits(actual[i]));
+        }
+    }
+}
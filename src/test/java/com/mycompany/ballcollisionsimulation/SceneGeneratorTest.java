@@ -0,0 +1,124 @@
+/*
+ * Scene Generator Test - Placement rules of the procedural scenes
+ * Covers both distributions, seeding and keeping clear of an existing scene
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scene Generator Test - Generated balls must lie inside the area, overlap neither each other
+ * nor the occupied space, and come out the same for the same seed.
+ * @author Sentinail
+ */
+public class SceneGeneratorTest {
+    private static final double WIDTH = 1200;
+    private static final double HEIGHT = 900;
+
+    @Test
+    public void ballsFitInsideTheAreaWithoutOverlapping() {
+        for (SceneGenerator.Distribution distribution : SceneGenerator.Distribution.values()) {
+            List<Ball> balls = SceneGenerator.generate(1500, distribution, 3, 9, 11, WIDTH, HEIGHT);
+            assertEquals(distribution + " places every ball in a roomy area", 1500, balls.size());
+            assertValid(distribution, balls, 3, 9);
+        }
+    }
+
+    @Test
+    public void sameSeedGivesTheSameScene() {
+        for (SceneGenerator.Distribution distribution : SceneGenerator.Distribution.values()) {
+            List<Ball> first = SceneGenerator.generate(500, distribution, 4, 12, 99, WIDTH, HEIGHT);
+            List<Ball> second = SceneGenerator.generate(500, distribution, 4, 12, 99, WIDTH, HEIGHT);
+            List<Ball> other = SceneGenerator.generate(500, distribution, 4, 12, 100, WIDTH, HEIGHT);
+            assertEquals(first.size(), second.size());
+            for (int i = 0; i < first.size(); i++) {
+                Ball a = first.get(i);
+                Ball b = second.get(i);
+                assertEquals(a.getX(), b.getX(), 0);
+                assertEquals(a.getY(), b.getY(), 0);
+                assertEquals(a.getVelocityX(), b.getVelocityX(), 0);
+                assertEquals(a.getRadius(), b.getRadius());
+                assertEquals(a.getColor(), b.getColor());
+            }
+            assertFalse(distribution + " differs for another seed", first.get(0).getX() == other.get(0).getX()
+                && first.get(0).getY() == other.get(0).getY());
+        }
+    }
+
+    @Test
+    public void crowdedAreaGetsFewerBalls() {
+        for (SceneGenerator.Distribution distribution : SceneGenerator.Distribution.values()) {
+            List<Ball> balls = SceneGenerator.generate(1000000, distribution, 10, 10, 5, 400, 300);
+            assertTrue(distribution + " stops when the area is full", balls.size() < 400 * 300 / (Math.PI * 100));
+            assertTrue(balls.size() > 100);
+            assertValid(distribution, balls, 10, 10);
+        }
+    }
+
+    @Test
+    public void occupiedSpaceIsAvoided() {
+        // A wall down the middle and a disc on the left
+        final double wallLeft = 550;
+        final double wallRight = 650;
+        SceneGenerator.Occupancy occupancy = new SceneGenerator.Occupancy() {
+            @Override
+            public boolean isOccupied(double x, double y, int radius) {
+                double dx = x - 250;
+                double dy = y - 450;
+                double touch = 150 + radius;
+                return x + radius > wallLeft && x - radius < wallRight || dx * dx + dy * dy < touch * touch;
+            }
+        };
+        for (SceneGenerator.Distribution distribution : SceneGenerator.Distribution.values()) {
+            List<Ball> balls = SceneGenerator.generate(3000, distribution, 4, 8, 21, WIDTH, HEIGHT, occupancy);
+            assertValid(distribution, balls, 4, 8);
+            int left = 0;
+            int right = 0;
+            for (Ball ball : balls) {
+                assertFalse(distribution + " ball at " + ball.getX() + ", " + ball.getY() + " in occupied space",
+                    occupancy.isOccupied(ball.getX(), ball.getY(), ball.getRadius()));
+                if (ball.getX() < wallLeft) {
+                    left++;
+                } else {
+                    right++;
+                }
+            }
+            assertTrue(distribution + " fills both sides of the wall", left > 500 && right > 500);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRadiusRangeIsRejected() {
+        SceneGenerator.generate(10, SceneGenerator.Distribution.GRID_JITTER, 10, 5, 1, WIDTH, HEIGHT);
+    }
+
+    private static void assertValid(SceneGenerator.Distribution distribution, List<Ball> balls,
+                                    int minRadius, int maxRadius) {
+        for (int i = 0; i < balls.size(); i++) {
+            Ball ball = balls.get(i);
+            assertTrue(ball.getRadius() >= minRadius && ball.getRadius() <= maxRadius);
+            assertTrue(distribution + " ball " + i + " inside the area",
+                ball.getX() >= ball.getRadius() && ball.getX() <= WIDTH - ball.getRadius()
+                    && ball.getY() >= ball.getRadius() && ball.getY() <= HEIGHT - ball.getRadius());
+        }
+        // Compare neighbours in x order so that the check stays fast for thousands of balls
+        Ball[] sorted = balls.toArray(new Ball[0]);
+        Arrays.sort(sorted, (a, b) -> Double.compare(a.getX(), b.getX()));
+        for (int i = 0; i < sorted.length; i++) {
+            for (int j = i + 1; j < sorted.length && sorted[j].getX() - sorted[i].getX() < 2 * maxRadius; j++) {
+                double dx = sorted[i].getX() - sorted[j].getX();
+                double dy = sorted[i].getY() - sorted[j].getY();
+                double touch = sorted[i].getRadius() + sorted[j].getRadius();
+                assertTrue(distribution + " balls overlap", dx * dx + dy * dy >= touch * touch);
+            }
+        }
+    }
+}
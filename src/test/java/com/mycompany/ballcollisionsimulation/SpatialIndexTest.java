@@ -0,0 +1,206 @@
+/*
+ * Spatial Index Test - Grid queries checked against brute force
+ * Covers fresh builds, incremental relinking and the obstacle grid
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Spatial Index Test - Every query is compared with a scan over all balls or obstacles, on
+ * random scenes with mixed radii and overlapping balls, before and after the balls move.
+ * @author Sentinail
+ */
+public class SpatialIndexTest {
+    private static final int QUERIES = 300;
+
+    @Test
+    public void ballQueriesMatchBruteForce() {
+        Random random = new Random(1);
+        List<Ball> balls = randomBalls(random, 2000, 1200, 900);
+        SpatialIndex index = new SpatialIndex();
+        index.buildBalls(balls);
+        checkBallQueries(index, balls, random);
+    }
+
+    @Test
+    public void movedBallsAreRelinked() {
+        Random random = new Random(2);
+        List<Ball> balls = randomBalls(random, 1500, 1000, 800);
+        SpatialIndex index = new SpatialIndex();
+        index.buildBalls(balls);
+        for (int step = 0; step < 20; step++) {
+            for (Ball ball : balls) {
+                ball.moveBy(random.nextDouble() * 6 - 3, random.nextDouble() * 6 - 3);
+            }
+            assertTrue("Small moves stay inside the grid margin", index.moveBalls());
+            checkBallQueries(index, balls, random);
+        }
+    }
+
+    @Test
+    public void moveBallsReportsWhenRebuildIsNeeded() {
+        Random random = new Random(3);
+        List<Ball> balls = randomBalls(random, 100, 500, 500);
+        SpatialIndex index = new SpatialIndex();
+        index.buildBalls(balls);
+
+        balls.get(0).setPosition(100000, 100000);
+        assertFalse("A ball far outside the grid needs a rebuild", index.moveBalls());
+
+        index.buildBalls(balls);
+        assertTrue(index.moveBalls());
+        balls.add(new Ball(10, 10, 5));
+        assertFalse("A changed ball count needs a rebuild", index.moveBalls());
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        SpatialIndex index = new SpatialIndex();
+        index.buildBalls(new ArrayList<Ball>());
+        index.buildObstacles(new ArrayList<Obstacle>());
+        assertNull(index.pickBall(10, 10));
+        assertTrue(index.findBallsInRect(0, 0, 100, 100).isEmpty());
+        assertTrue(index.findBallsInCircle(50, 50, 100).isEmpty());
+        assertTrue(index.findNearestBalls(50, 50, 5).isEmpty());
+        assertTrue(index.findObstaclesInRect(0, 0, 100, 100).isEmpty());
+        assertEquals(-1, index.pickObstacleIndex(10, 10));
+    }
+
+    @Test
+    public void obstacleQueriesMatchBruteForce() {
+        Random random = new Random(4);
+        List<Obstacle> obstacles = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            obstacles.add(new Obstacle(random.nextDouble() * 1900, random.nextDouble() * 1400,
+                5 + random.nextDouble() * 300, 5 + random.nextDouble() * 100));
+        }
+        SpatialIndex index = new SpatialIndex();
+        index.buildObstacles(obstacles);
+
+        for (int q = 0; q < QUERIES; q++) {
+            double minX = random.nextDouble() * 2200 - 100;
+            double minY = random.nextDouble() * 1700 - 100;
+            double maxX = minX + random.nextDouble() * 400;
+            double maxY = minY + random.nextDouble() * 400;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < obstacles.size(); i++) {
+                Obstacle obstacle = obstacles.get(i);
+                if (obstacle.getX() <= maxX && obstacle.getX() + obstacle.getWidth() >= minX
+                    && obstacle.getY() <= maxY && obstacle.getY() + obstacle.getHeight() >= minY) {
+                    expected.add(i);
+                }
+            }
+            int[] indices = index.findObstacleIndicesInRect(minX, minY, maxX, maxY);
+            assertArrayEquals("Indices in list order", toArray(expected), indices);
+            assertEquals(expected.size(), index.findObstaclesInRect(minX, minY, maxX, maxY).size());
+
+            double x = random.nextDouble() * 2000;
+            double y = random.nextDouble() * 1500;
+            int top = -1;
+            for (int i = 0; i < obstacles.size(); i++) {
+                if (obstacles.get(i).contains(x, y)) {
+                    top = i;
+                }
+            }
+            assertEquals("The latest obstacle under the point", top, index.pickObstacleIndex(x, y));
+        }
+    }
+
+    private static void checkBallQueries(SpatialIndex index, List<Ball> balls, Random random) {
+        for (int q = 0; q < QUERIES; q++) {
+            double x = random.nextDouble() * 1300 - 50;
+            double y = random.nextDouble() * 1000 - 50;
+
+            Ball expectedPick = null;
+            for (Ball ball : balls) {
+                if (ball.contains(x, y)) {
+                    expectedPick = ball;
+                    break;
+                }
+            }
+            assertSame("The earliest ball under the point", expectedPick, index.pickBall(x, y));
+
+            double radius = random.nextDouble() * 120;
+            Set<Ball> inCircle = new HashSet<>();
+            for (Ball ball : balls) {
+                double dx = ball.getX() - x;
+                double dy = ball.getY() - y;
+                double touch = radius + ball.getRadius();
+                if (dx * dx + dy * dy <= touch * touch) {
+                    inCircle.add(ball);
+                }
+            }
+            assertEquals(inCircle, new HashSet<>(index.findBallsInCircle(x, y, radius)));
+
+            double maxX = x + random.nextDouble() * 200;
+            double maxY = y + random.nextDouble() * 200;
+            Set<Ball> inRect = new HashSet<>();
+            for (Ball ball : balls) {
+                double dx = ball.getX() - Math.max(x, Math.min(maxX, ball.getX()));
+                double dy = ball.getY() - Math.max(y, Math.min(maxY, ball.getY()));
+                if (dx * dx + dy * dy <= (double) ball.getRadius() * ball.getRadius()) {
+                    inRect.add(ball);
+                }
+            }
+            List<Ball> foundInRect = index.findBallsInRect(x, y, maxX, maxY);
+            assertEquals("No ball reported twice", foundInRect.size(), new HashSet<>(foundInRect).size());
+            assertEquals(inRect, new HashSet<>(foundInRect));
+
+            // Ties make the ball identities ambiguous, so the distances are compared
+            int k = 1 + random.nextInt(20);
+            double[] expectedDistances = new double[balls.size()];
+            for (int i = 0; i < balls.size(); i++) {
+                expectedDistances[i] = distanceSquared(balls.get(i), x, y);
+            }
+            Arrays.sort(expectedDistances);
+            List<Ball> nearest = index.findNearestBalls(x, y, k);
+            assertEquals(k, nearest.size());
+            for (int i = 0; i < k; i++) {
+                assertEquals("Distance of the " + i + "th nearest ball", expectedDistances[i],
+                    distanceSquared(nearest.get(i), x, y), 1e-9);
+            }
+        }
+    }
+
+    private static double distanceSquared(Ball ball, double x, double y) {
+        double dx = ball.getX() - x;
+        double dy = ball.getY() - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static List<Ball> randomBalls(Random random, int count, double width, double height) {
+        List<Ball> balls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            balls.add(new Ball(random.nextDouble() * width, random.nextDouble() * height, 0, 0,
+                2 + random.nextInt(20), Color.BLACK));
+        }
+        Collections.shuffle(balls, random);
+        return balls;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * State Stream Codec Test - Round trips through the stream encoder and the viewer's decoder
+ * Covers the zigzag varint deltas, keyframes and base-step checking
+ */
+
+package com.mycompany.ballcollisionsimulation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * State Stream Codec Test - Writes frames the way StateStreamServer sends them and reads them
+ * back with RemoteViewer.Decoder, including deltas at the limits of the int range.
+ * @author Sentinail
+ */
+public class StateStreamCodecTest {
+    private static final int[] EDGE_VALUES = {
+        0, 1, -1, 63, -64, 64, -65, 8191, -8192, 8192, -8193, 1 << 20, -(1 << 20), Integer.MAX_VALUE, Integer.MIN_VALUE
+    };
+
+    @Test
+    public void varintLengthGrowsWithMagnitude() throws IOException {
+        assertEquals(1, varintBytes(0));
+        assertEquals(1, varintBytes(63));
+        assertEquals(1, varintBytes(-64));
+        assertEquals(2, varintBytes(64));
+        assertEquals(2, varintBytes(-65));
+        assertEquals(2, varintBytes(8191));
+        assertEquals(3, varintBytes(8192));
+        assertEquals(5, varintBytes(Integer.MAX_VALUE));
+        assertEquals(5, varintBytes(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void keyframeAndDeltasRoundTrip() throws IOException {
+        Random random = new Random(7);
+        int count = EDGE_VALUES.length * EDGE_VALUES.length;
+        short[] radius = new short[count];
+        int[] color = new int[count];
+        for (int i = 0; i < count; i++) {
+            radius[i] = (short) (1 + random.nextInt(50));
+            color[i] = random.nextInt(1 << 24);
+        }
+        float[] obstacles = {10, 20, 120, 40, 300.5f, 200.25f, 80, 15};
+
+        // Every pair of edge values as a step from one position to the next
+        StateStreamServer.Frame[] frames = new StateStreamServer.Frame[4];
+        frames[0] = frame(0, new int[count], new int[count], radius, color, obstacles);
+        int[] x = new int[count];
+        int[] y = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = EDGE_VALUES[i / EDGE_VALUES.length];
+            y[i] = EDGE_VALUES[i % EDGE_VALUES.length];
+        }
+        frames[1] = frame(1, x, y, radius, color, obstacles);
+        for (int f = 2; f < frames.length; f++) {
+            int[] nextX = new int[count];
+            int[] nextY = new int[count];
+            for (int i = 0; i < count; i++) {
+                nextX[i] = StateStreamServer.quantize(random.nextDouble() * 2000);
+                nextY[i] = random.nextInt();
+            }
+            frames[f] = frame(f, nextX, nextY, radius, color, obstacles);
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(StateStreamServer.MAGIC);
+        out.writeInt(StateStreamServer.VERSION);
+        writeMessage(out, frames[0], null);
+        for (int f = 1; f < frames.length; f++) {
+            writeMessage(out, frames[f], frames[f - 1]);
+        }
+
+        RemoteViewer.Decoder decoder = new RemoteViewer.Decoder(new ByteArrayInputStream(stream.toByteArray()));
+        for (int f = 0; f < frames.length; f++) {
+            assertTrue(decoder.readFrame());
+            assertEquals(f == 0, decoder.isKeyframe());
+            assertEquals(frames[f].step, decoder.getStep());
+            assertEquals(count, decoder.getBallCount());
+            for (int i = 0; i < count; i++) {
+                assertEquals("x of ball " + i + " in frame " + f, frames[f].x[i], decoder.getQuantizedX(i));
+                assertEquals("y of ball " + i + " in frame " + f, frames[f].y[i], decoder.getQuantizedY(i));
+            }
+        }
+        assertEquals(2, decoder.getObstacles().size());
+        assertEquals(300.5, decoder.getObstacles().get(1).getX(), 0);
+        assertEquals(15, decoder.getObstacles().get(1).getHeight(), 0);
+        assertFalse("End of stream", decoder.readFrame());
+        assertEquals(stream.size(), decoder.getBytes());
+    }
+
+    @Test
+    public void deltaAgainstAnotherStepIsRejected() throws IOException {
+        short[] radius = {5};
+        int[] color = {0};
+        StateStreamServer.Frame first = frame(10, new int[1], new int[1], radius, color, new float[0]);
+        StateStreamServer.Frame unrelated = frame(11, new int[1], new int[1], radius, color, new float[0]);
+        StateStreamServer.Frame next = frame(12, new int[] {5}, new int[] {5}, radius, color, new float[0]);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(StateStreamServer.MAGIC);
+        out.writeInt(StateStreamServer.VERSION);
+        writeMessage(out, first, null);
+        writeMessage(out, next, unrelated);
+
+        RemoteViewer.Decoder decoder = new RemoteViewer.Decoder(new ByteArrayInputStream(stream.toByteArray()));
+        assertTrue(decoder.readFrame());
+        try {
+            decoder.readFrame();
+            fail("A delta against step 11 must not apply on top of step 10");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("11"));
+        }
+    }
+
+    private static StateStreamServer.Frame frame(long step, int[] x, int[] y, short[] radius, int[] color,
+                                                 float[] obstacles) {
+        return new StateStreamServer.Frame(step, step, 800, 600, x, y, radius, color, obstacles);
+    }
+
+    /**
+     * A length-prefixed message, as the server's client threads send them
+     */
+    private static void writeMessage(DataOutputStream out, StateStreamServer.Frame frame,
+                                     StateStreamServer.Frame base) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(buffer);
+        if (base == null) {
+            StateStreamServer.writeKeyframe(payload, frame);
+        } else {
+            StateStreamServer.writeDelta(payload, base, frame);
+        }
+        payload.flush();
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+    }
+
+    private static int varintBytes(int value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        StateStreamServer.writeVarint(new DataOutputStream(buffer), value);
+        return buffer.size();
+    }
+}